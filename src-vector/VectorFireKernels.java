@@ -0,0 +1,59 @@
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Noyaux de calcul par cellule utilisant l'API Vector (jdk.incubator.vector).
+ * Compilation et exécution : --add-modules jdk.incubator.vector
+ * Les résultats sont identiques bit à bit à ScalarFireKernels.
+ */
+public class VectorFireKernels implements FireKernels {
+    private static final VectorSpecies<Double> SPECIES = DoubleVector.SPECIES_PREFERRED;
+
+    @Override
+    public int reinforce(double[] cur, double[] delta, double[] out, int length, double threshold, double max) {
+        int active = 0;
+        int i = 0;
+        int upper = SPECIES.loopBound(length);
+        DoubleVector maxVector = DoubleVector.broadcast(SPECIES, max);
+        for (; i < upper; i += SPECIES.length()) {
+            DoubleVector current = DoubleVector.fromArray(SPECIES, cur, i);
+            DoubleVector increment = DoubleVector.fromArray(SPECIES, delta, i);
+            VectorMask<Double> burning = current.compare(VectorOperators.GT, threshold);
+            DoubleVector reinforced = current.add(increment).min(maxVector);
+            current.blend(reinforced, burning).intoArray(out, i);
+            active += burning.trueCount();
+        }
+        // Cellules restantes
+        for (; i < length; i++) {
+            if (cur[i] > threshold) {
+                out[i] = Math.min(max, cur[i] + delta[i]);
+                active++;
+            } else {
+                out[i] = cur[i];
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public void decay(double[] cells, int offset, double[] amounts, int amountOffset, int length) {
+        int k = 0;
+        int upper = SPECIES.loopBound(length);
+        DoubleVector zero = DoubleVector.zero(SPECIES);
+        for (; k < upper; k += SPECIES.length()) {
+            DoubleVector current = DoubleVector.fromArray(SPECIES, cells, offset + k);
+            DoubleVector amount = DoubleVector.fromArray(SPECIES, amounts, amountOffset + k);
+            current.sub(amount).max(zero).intoArray(cells, offset + k);
+        }
+        for (; k < length; k++) {
+            cells[offset + k] = Math.max(0.0, cells[offset + k] - amounts[amountOffset + k]);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "vector (" + SPECIES.length() + " lanes)";
+    }
+}
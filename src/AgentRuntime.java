@@ -0,0 +1,313 @@
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Phaser;
+
+/**
+ * Exécution des robots comme agents concurrents, qui ne communiquent avec le QG que par messages.
+ *
+ * Chaque robot reçoit une boîte aux lettres (HeadQuartersLink) : ses rapports de feu partent dans
+ * sa boîte d'envoi, la carte globale lui parvient sous forme d'instantané diffusé par le QG, et les
+ * ordres de répartition (dispatch) comme les changements d'affectation des pompiers décidés par le
+ * QG sont déposés dans sa boîte de réception. Les secteurs des éclaireurs accompagnent la carte dans
+ * l'instantané diffusé. Les zones explorées partent aussi en messages ; la carte d'exploration, qui ne
+ * change pas pendant la phase 2, est lue directement.
+ *
+ * Déroulement d'un pas :
+ *   1. QG : traitement des rapports arrivés, dans l'ordre des identifiants, puis diffusion de la carte,
+ *      des secteurs et des affectations modifiées
+ *   2. robots : chaque robot relève son courrier puis met à jour son état, tous en parallèle
+ *      (un thread virtuel par robot si la JVM en dispose, sinon un ForkJoinPool partagé)
+ *   3. barrière : les extinctions des pompiers sont appliquées à la grille et les boîtes d'envoi
+ *      transmises au QG, dans l'ordre des identifiants
+ * Pendant la phase 2, la grille et le QG ne sont que lus : le résultat ne dépend pas de
+ * l'ordonnancement des threads et reste identique d'une exécution à l'autre pour une même graine.
+ *
+ * Un message envoyé au pas t est délivré au pas t + 1 + latency (rapports, ordres) ;
+ * une carte, des secteurs ou une affectation diffusés au pas t sont visibles des robots à partir
+ * du pas t + latency.
+ */
+public class AgentRuntime {
+    // Exécuteur partagé par toutes les simulations
+    private static final ExecutorService EXECUTOR = newExecutor();
+
+    enum Kind { FIRE_REPORT, EXPLORATION, DISPATCH, ASSIGNMENT }
+
+    // Message entre un robot et le QG
+    static final class Message {
+        final Kind kind;
+        final int robotId;
+        final long deliveryTick;
+        final FireReport report;
+        // Position du robot (exploration) et cible (exploration, répartition) ; pour une affectation,
+        // cellule en feu attribuée dans targetX (index x * hauteur + y, -1 sans affectation)
+        final int x;
+        final int y;
+        final int targetX;
+        final int targetY;
+
+        Message(Kind kind, int robotId, long deliveryTick, FireReport report, int x, int y, int targetX, int targetY) {
+            this.kind = kind;
+            this.robotId = robotId;
+            this.deliveryTick = deliveryTick;
+            this.report = report;
+            this.x = x;
+            this.y = y;
+            this.targetX = targetX;
+            this.targetY = targetY;
+        }
+    }
+
+    // Carte globale et secteurs des éclaireurs diffusés par le QG
+    private static final class Snapshot {
+        final long deliveryTick;
+        final ChunkedGrid map;
+        final ScoutSectors sectors;
+
+        Snapshot(long deliveryTick, ChunkedGrid map, ScoutSectors sectors) {
+            this.deliveryTick = deliveryTick;
+            this.map = map;
+            this.sectors = sectors;
+        }
+    }
+
+    private final int latency;
+    private final Phaser barrier = new Phaser(1);
+    // Agents dans l'ordre de la liste des robots (identifiants croissants)
+    private final List<Agent> agents = new ArrayList<>();
+    private final ArrayDeque<Message> hqInbox = new ArrayDeque<>();
+    private final ArrayDeque<Snapshot> broadcasts = new ArrayDeque<>();
+    // Dernière carte délivrée, lue (et copiée) par les agents
+    private ChunkedGrid currentMap;
+    // Derniers secteurs délivrés ; avant la première diffusion, ceux du QG au démarrage du runtime
+    private ScoutSectors currentSectors;
+    // QG du pas en cours : zones explorées, lues par les agents pendant la phase 2
+    private HeadQuarters headQuarters;
+    private long tick;
+    private long messageCount;
+    private volatile Throwable failure;
+
+    public AgentRuntime(int latency) {
+        if (latency < 0) {
+            throw new IllegalArgumentException("Invalid message latency " + latency);
+        }
+        this.latency = latency;
+    }
+
+    // Threads virtuels si disponibles (Java 21+), sinon un pool de threads plateforme
+    private static ExecutorService newExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+        }
+    }
+
+    public static boolean usesVirtualThreads() {
+        return !(EXECUTOR instanceof ForkJoinPool);
+    }
+
+    // ====== Pas ======
+    void tick(HeadQuarters hq, List<Robot> robots) {
+        tick++;
+        headQuarters = hq;
+        if (currentSectors == null) {
+            currentSectors = hq.getSectors().copy();
+        }
+        syncAgents(robots);
+
+        // 1. QG : rapports arrivés puis diffusion de la carte, des secteurs et des affectations modifiées
+        while (!hqInbox.isEmpty() && hqInbox.peek().deliveryTick <= tick) {
+            Message message = hqInbox.poll();
+            if (message.kind == Kind.FIRE_REPORT) {
+                hq.receiveFireReport(message.robotId, message.report);
+            } else {
+                hq.reportExploration(message.robotId, message.x, message.y, message.targetX, message.targetY);
+            }
+        }
+        broadcasts.add(new Snapshot(tick + latency, hq.getGlobalMap(), hq.getSectors().copy()));
+        while (!broadcasts.isEmpty() && broadcasts.peek().deliveryTick <= tick) {
+            Snapshot snapshot = broadcasts.poll();
+            currentMap = snapshot.map;
+            currentSectors = snapshot.sectors;
+        }
+        for (Agent agent : agents) {
+            if (agent.robot instanceof Firefighter) {
+                int target = hq.getFireTarget(agent.robot.getId());
+                if (target != agent.sentTarget) {
+                    agent.sentTarget = target;
+                    agent.inbox.add(new Message(Kind.ASSIGNMENT, agent.robot.getId(), tick + latency, null, -1, -1, target, -1));
+                    messageCount++;
+                }
+            }
+        }
+
+        // 2. Robots en parallèle jusqu'à la barrière
+        if (!agents.isEmpty()) {
+            barrier.bulkRegister(agents.size());
+            for (Agent agent : agents) {
+                EXECUTOR.execute(agent);
+            }
+            barrier.arriveAndAwaitAdvance();
+        }
+        Throwable error = failure;
+        if (error != null) {
+            failure = null;
+            throw new IllegalStateException("Robot agent failed", error);
+        }
+
+        // 3. Effets sur la grille et envoi des rapports, dans l'ordre des identifiants
+        for (Agent agent : agents) {
+            if (agent.robot instanceof Firefighter) {
+                ((Firefighter) agent.robot).applyPendingSpray(agent);
+            }
+            hqInbox.addAll(agent.outbox);
+            messageCount += agent.outbox.size();
+            agent.outbox.clear();
+        }
+    }
+
+    // Suivre la liste des robots (nouveaux pompiers, réinitialisation)
+    private void syncAgents(List<Robot> robots) {
+        for (int i = 0; i < robots.size(); i++) {
+            Robot robot = robots.get(i);
+            if (i == agents.size()) {
+                agents.add(new Agent(robot));
+            } else if (agents.get(i).robot != robot) {
+                agents.set(i, new Agent(robot));
+            }
+        }
+        while (agents.size() > robots.size()) {
+            agents.remove(agents.size() - 1);
+        }
+    }
+
+    // Ordre de répartition délivré au robot après la latence (cible négative : retour à l'autonomie)
+    void dispatch(Robot robot, int targetX, int targetY) {
+        if (targetX >= robot.config.gridWidth || targetY >= robot.config.gridHeight || (targetX >= 0 && targetY < 0)) {
+            throw new IllegalArgumentException("Target [" + targetX + "," + targetY + "] outside the grid");
+        }
+        for (Agent agent : agents) {
+            if (agent.robot == robot) {
+                agent.inbox.add(new Message(Kind.DISPATCH, robot.getId(), tick + 1 + latency, null, -1, -1, targetX, targetY));
+                messageCount++;
+                return;
+            }
+        }
+        // Robot pas encore pris en charge : ordre appliqué immédiatement
+        applyDispatch(robot, targetX, targetY);
+    }
+
+    private static void applyDispatch(Robot robot, int targetX, int targetY) {
+        if (targetX < 0) {
+            robot.clearAssignedTarget();
+        } else {
+            robot.assignTarget(targetX, targetY);
+        }
+    }
+
+    // Vider les boîtes aux lettres (nouvel épisode ou simulation rechargée)
+    void clear() {
+        agents.clear();
+        hqInbox.clear();
+        broadcasts.clear();
+        currentMap = null;
+        currentSectors = null;
+        tick = 0;
+    }
+
+    public int getLatency() {
+        return latency;
+    }
+
+    // Nombre de messages échangés (rapports et ordres) depuis la création
+    public long getMessageCount() {
+        return messageCount;
+    }
+
+    // ====== Agent ======
+    // Boîte aux lettres d'un robot ; run() exécute un pas du robot sur un thread de l'exécuteur
+    private final class Agent implements Runnable, HeadQuartersLink {
+        final Robot robot;
+        final ArrayDeque<Message> inbox = new ArrayDeque<>();
+        final List<Message> outbox = new ArrayList<>();
+        // Dernière affectation envoyée par le QG et dernière délivrée au robot
+        int sentTarget = -1;
+        int fireTarget = -1;
+
+        Agent(Robot robot) {
+            this.robot = robot;
+            if (robot instanceof Firefighter) {
+                ((Firefighter) robot).deferSpray = true;
+            }
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (!inbox.isEmpty() && inbox.peek().deliveryTick <= tick) {
+                    Message message = inbox.poll();
+                    if (message.kind == Kind.ASSIGNMENT) {
+                        fireTarget = message.targetX;
+                    } else {
+                        applyDispatch(robot, message.targetX, message.targetY);
+                    }
+                }
+                robot.updateState(this);
+            } catch (Throwable t) {
+                failure = t;
+            } finally {
+                barrier.arriveAndDeregister();
+            }
+        }
+
+        @Override
+        public int getX() {
+            return robot.config.hqX;
+        }
+
+        @Override
+        public int getY() {
+            return robot.config.hqY;
+        }
+
+        @Override
+        public void receiveFireReport(int robotId, FireReport report) {
+            outbox.add(new Message(Kind.FIRE_REPORT, robotId, tick + 1 + latency, report, -1, -1, -1, -1));
+        }
+
+        @Override
+        public ChunkedGrid getGlobalMap() {
+            ChunkedGrid map = currentMap;
+            if (map == null) {
+                return new ChunkedGrid(robot.config.gridWidth, robot.config.gridHeight);
+            }
+            return map.copy();
+        }
+
+        @Override
+        public void reportExploration(int robotId, int x, int y, int targetX, int targetY) {
+            outbox.add(new Message(Kind.EXPLORATION, robotId, tick + 1 + latency, null, x, y, targetX, targetY));
+        }
+
+        @Override
+        public ChunkedBitmap getExploredMap() {
+            return headQuarters.getExploredMap();
+        }
+
+        @Override
+        public boolean inSector(int robotId, int x, int y) {
+            return currentSectors.contains(robotId, x, y);
+        }
+
+        @Override
+        public int getFireTarget(int robotId) {
+            return fireTarget;
+        }
+    }
+}
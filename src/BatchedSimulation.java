@@ -0,0 +1,308 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Pilotage de N simulations indépendantes en parallèle, pour l'entraînement de politiques de répartition.
+ *
+ * Un appel à step(actions) applique une action par emplacement de robot, avance chaque
+ * simulation jusqu'à sa prochaine mise à jour des robots, puis remplit des tableaux plats
+ * réutilisés d'un pas à l'autre :
+ *   observations[(env * maxRobots + robot) * observationSize + k]
+ *   rewards[env], dones[env]
+ * L'emplacement d'un robot est son identifiant (éclaireurs puis pompiers).
+ *
+ * Action d'un robot : -1 pour le comportement autonome, sinon l'index x * hauteur + y
+ * de la cellule à atteindre (feu à éteindre pour un pompier, zone à explorer pour un éclaireur).
+ *
+ * Observation d'un robot : présent, x, y (normalisés), énergie, eau, type, puis la fenêtre
+ * (2 * windowRadius + 1)² d'intensités normalisées centrée sur le robot (0 hors grille).
+ *
+ * Récompense : cellules en feu éteintes * FIRE_CELL_REWARD + (sauvés - morts) * SURVIVOR_REWARD,
+ * calculée sur les variations de FireStatistics. Un épisode se termine quand le feu est éteint
+ * ou après maxEpisodeSteps pas ; la simulation est alors réinitialisée avec une nouvelle graine
+ * et l'observation retournée est la première du nouvel épisode.
+ */
+public class BatchedSimulation implements AutoCloseable {
+    static final int OBS_PRESENT = 0;
+    static final int OBS_X = 1;
+    static final int OBS_Y = 2;
+    static final int OBS_ENERGY = 3;
+    static final int OBS_WATER = 4;
+    static final int OBS_TYPE = 5;
+    static final int OBS_WINDOW = 6;
+
+    public static final double FIRE_CELL_REWARD = 0.1;
+    public static final double SURVIVOR_REWARD = 10.0;
+
+    private final SimulationConfig template;
+    private final int environments;
+    private final int maxRobots;
+    private final int windowRadius;
+    private final int observationSize;
+    private final int maxEpisodeSteps;
+    private final ForkJoinPool pool;
+    private final StepTask[] tasks;
+
+    private final Simulation[] simulations;
+    // Robots indexés par emplacement, rafraîchis après chaque pas
+    private final Robot[] slots;
+    private final long[] seeds;
+    private final int[] episodeSteps;
+    private final int[] previousFireCells;
+    private final int[] previousRescued;
+    private final int[] previousDead;
+
+    private final float[] observations;
+    private final double[] rewards;
+    private final boolean[] dones;
+    private int[] actions;
+
+    public BatchedSimulation(SimulationConfig template, int environments, long seed,
+                             int windowRadius, int maxEpisodeSteps, int parallelism) {
+        if (environments <= 0) {
+            throw new IllegalArgumentException("Invalid environment count " + environments);
+        }
+        if (windowRadius < 0) {
+            throw new IllegalArgumentException("Invalid window radius " + windowRadius);
+        }
+        if (parallelism <= 0) {
+            throw new IllegalArgumentException("Invalid parallelism " + parallelism);
+        }
+        this.template = template;
+        this.environments = environments;
+        this.maxRobots = template.maxRobots;
+        this.windowRadius = windowRadius;
+        int window = 2 * windowRadius + 1;
+        this.observationSize = OBS_WINDOW + window * window;
+        this.maxEpisodeSteps = maxEpisodeSteps;
+
+        this.simulations = new Simulation[environments];
+        this.slots = new Robot[environments * maxRobots];
+        this.seeds = new long[environments];
+        this.episodeSteps = new int[environments];
+        this.previousFireCells = new int[environments];
+        this.previousRescued = new int[environments];
+        this.previousDead = new int[environments];
+        this.observations = new float[environments * maxRobots * observationSize];
+        this.rewards = new double[environments];
+        this.dones = new boolean[environments];
+
+        for (int env = 0; env < environments; env++) {
+            seeds[env] = seed + env;
+        }
+
+        // Découper les environnements en tranches contiguës, une tâche par tranche
+        this.pool = new ForkJoinPool(parallelism);
+        int taskCount = Math.min(environments, parallelism * 4);
+        this.tasks = new StepTask[taskCount];
+        for (int t = 0; t < taskCount; t++) {
+            tasks[t] = new StepTask(environments * t / taskCount, environments * (t + 1) / taskCount);
+        }
+        reset();
+    }
+
+    public BatchedSimulation(SimulationConfig template, int environments, long seed) {
+        this(template, environments, seed, 3, 2000, Runtime.getRuntime().availableProcessors());
+    }
+
+    // Réinitialiser tous les environnements
+    public void reset() {
+        this.actions = null;
+        runTasks(true);
+    }
+
+    // Avancer tous les environnements d'un pas ; actions[env * maxRobots + robot]
+    // Toutes les actions sont vérifiées avant d'en appliquer une : une action invalide laisse le lot intact
+    public void step(int[] actions) {
+        if (actions.length != environments * maxRobots) {
+            throw new IllegalArgumentException("Expected " + environments * maxRobots + " actions, got " + actions.length);
+        }
+        int cells = template.gridWidth * template.gridHeight;
+        for (int i = 0; i < actions.length; i++) {
+            if (actions[i] < -1 || actions[i] >= cells) {
+                throw new IllegalArgumentException("Action " + actions[i] + " of environment " + i / maxRobots
+                    + ", robot " + i % maxRobots + " is neither -1 nor a cell index below " + cells);
+            }
+        }
+        this.actions = actions;
+        runTasks(false);
+    }
+
+    private void runTasks(boolean reset) {
+        for (StepTask task : tasks) {
+            task.reinitialize();
+            task.reset = reset;
+            pool.execute(task);
+        }
+        for (StepTask task : tasks) {
+            task.join();
+        }
+    }
+
+    // Tranche d'environnements traitée par un même thread
+    @SuppressWarnings("serial")
+    private class StepTask extends RecursiveAction {
+        private final int from;
+        private final int to;
+        boolean reset;
+
+        StepTask(int from, int to) {
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            for (int env = from; env < to; env++) {
+                if (reset) {
+                    resetEnvironment(env);
+                } else {
+                    stepEnvironment(env);
+                }
+            }
+        }
+    }
+
+    private void resetEnvironment(int env) {
+        if (simulations[env] == null) {
+            simulations[env] = new Simulation(template.withClock(SimulationClock.manual()).withSeed(seeds[env]));
+        } else {
+            simulations[env].resetEpisode(seeds[env]);
+        }
+        seeds[env] += environments;
+        episodeSteps[env] = 0;
+        previousFireCells[env] = simulations[env].getBurningCellCount();
+        previousRescued[env] = 0;
+        previousDead[env] = 0;
+        rewards[env] = 0;
+        dones[env] = false;
+        refreshSlots(env);
+        writeObservations(env);
+    }
+
+    private void stepEnvironment(int env) {
+        Simulation simulation = simulations[env];
+        applyActions(env);
+
+        long robotUpdates = simulation.getRobotUpdateCount();
+        while (simulation.getRobotUpdateCount() == robotUpdates) {
+            simulation.step();
+        }
+        episodeSteps[env]++;
+
+        FireStatistics statistics = simulation.getStatistics();
+        int fireCells = statistics.getCurrentFireCells();
+        int rescued = statistics.getRescuedSurvivors();
+        int dead = statistics.getDeadSurvivors();
+        rewards[env] = (previousFireCells[env] - fireCells) * FIRE_CELL_REWARD
+            + ((rescued - previousRescued[env]) - (dead - previousDead[env])) * SURVIVOR_REWARD;
+        previousFireCells[env] = fireCells;
+        previousRescued[env] = rescued;
+        previousDead[env] = dead;
+
+        boolean done = fireCells == 0 || episodeSteps[env] >= maxEpisodeSteps;
+        if (done) {
+            double reward = rewards[env];
+            resetEnvironment(env);
+            rewards[env] = reward;
+            dones[env] = true;
+        } else {
+            dones[env] = false;
+            refreshSlots(env);
+            writeObservations(env);
+        }
+    }
+
+    private void applyActions(int env) {
+        int base = env * maxRobots;
+        int height = template.gridHeight;
+        for (int slot = 0; slot < maxRobots; slot++) {
+            Robot robot = slots[base + slot];
+            int action = actions[base + slot];
+            if (robot == null) {
+                continue;
+            }
+            if (action < 0) {
+                robot.clearAssignedTarget();
+            } else {
+                robot.assignTarget(action / height, action % height);
+            }
+        }
+    }
+
+    private void refreshSlots(int env) {
+        int base = env * maxRobots;
+        for (int slot = 0; slot < maxRobots; slot++) {
+            slots[base + slot] = null;
+        }
+        List<Robot> robots = simulations[env].getRobots();
+        for (int i = 0; i < robots.size(); i++) {
+            Robot robot = robots.get(i);
+            if (robot.getId() < maxRobots) {
+                slots[base + robot.getId()] = robot;
+            }
+        }
+    }
+
+    private void writeObservations(int env) {
+        FireGrid fireGrid = simulations[env].getFireGrid();
+        int width = fireGrid.getWidth();
+        int height = fireGrid.getHeight();
+        double maxIntensity = fireGrid.getMaxIntensity();
+
+        for (int slot = 0; slot < maxRobots; slot++) {
+            Robot robot = slots[env * maxRobots + slot];
+            int offset = (env * maxRobots + slot) * observationSize;
+            if (robot == null) {
+                for (int k = 0; k < observationSize; k++) {
+                    observations[offset + k] = 0f;
+                }
+                continue;
+            }
+            int rx = robot.getX();
+            int ry = robot.getY();
+            observations[offset + OBS_PRESENT] = 1f;
+            observations[offset + OBS_X] = (float) rx / width;
+            observations[offset + OBS_Y] = (float) ry / height;
+            observations[offset + OBS_ENERGY] = (float) (robot.getEnergyPercentage() / 100.0);
+            if (robot instanceof Firefighter) {
+                observations[offset + OBS_WATER] = (float) (((Firefighter) robot).getWaterPercentage() / 100.0);
+                observations[offset + OBS_TYPE] = 1f;
+            } else {
+                observations[offset + OBS_WATER] = 0f;
+                observations[offset + OBS_TYPE] = 0f;
+            }
+
+            int k = offset + OBS_WINDOW;
+            for (int dx = -windowRadius; dx <= windowRadius; dx++) {
+                int cx = rx + dx;
+                for (int dy = -windowRadius; dy <= windowRadius; dy++) {
+                    int cy = ry + dy;
+                    if (cx >= 0 && cx < width && cy >= 0 && cy < height) {
+                        observations[k++] = (float) (fireGrid.getIntensityAt(cx, cy) / maxIntensity);
+                    } else {
+                        observations[k++] = 0f;
+                    }
+                }
+            }
+        }
+    }
+
+    // ====== Accès aux tableaux partagés (réutilisés à chaque pas) ======
+    public float[] getObservations() { return observations; }
+    public double[] getRewards() { return rewards; }
+    public boolean[] getDones() { return dones; }
+    public int getEnvironmentCount() { return environments; }
+    public int getRobotSlots() { return maxRobots; }
+    public int getObservationSize() { return observationSize; }
+
+    public Simulation getSimulation(int env) {
+        return simulations[env];
+    }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
@@ -0,0 +1,253 @@
+import java.util.Arrays;
+
+/**
+ * Masque binaire d'une grille, un bit par cellule dans des mots de 64 bits.
+ * Même indexation que la grille de feu (index = x * height + y, colonne par colonne) :
+ * un segment de colonne correspond à une plage de bits contiguë.
+ * Comptages et parcours se font mot par mot (popcount, bits de poids faible).
+ *
+ * Les mots sont regroupés en pages de PAGE_WORDS mots, allouées au premier bit levé : une grande
+ * carte où le feu ne touche que quelques zones n'occupe que les pages de ces zones, et les parcours
+ * sautent les pages absentes d'un coup.
+ */
+public class CellMask {
+    private static final int PAGE_SHIFT = 6;
+    private static final int PAGE_WORDS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_WORDS - 1;
+
+    private final int width;
+    private final int height;
+    private final int wordCount;
+    private final long[][] pages;
+
+    public CellMask(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.wordCount = (int) (((long) width * height + 63) >>> 6);
+        this.pages = new long[(wordCount + PAGE_MASK) >>> PAGE_SHIFT][];
+    }
+
+    public boolean get(int x, int y) {
+        int index = x * height + y;
+        return (word(index >>> 6) & (1L << index)) != 0;
+    }
+
+    private long word(int w) {
+        long[] page = pages[w >>> PAGE_SHIFT];
+        return page == null ? 0L : page[w & PAGE_MASK];
+    }
+
+    // Écrire un mot ; une page absente n'est allouée que pour un mot non nul
+    private void setWord(int w, long value) {
+        long[] page = pages[w >>> PAGE_SHIFT];
+        if (page == null) {
+            if (value == 0) {
+                return;
+            }
+            page = new long[PAGE_WORDS];
+            pages[w >>> PAGE_SHIFT] = page;
+        }
+        page[w & PAGE_MASK] = value;
+    }
+
+    void set(int index, boolean value) {
+        int w = index >>> 6;
+        long[] page = pages[w >>> PAGE_SHIFT];
+        if (page == null) {
+            if (!value) {
+                return;
+            }
+            page = new long[PAGE_WORDS];
+            pages[w >>> PAGE_SHIFT] = page;
+        }
+        if (value) {
+            page[w & PAGE_MASK] |= 1L << index;
+        } else {
+            page[w & PAGE_MASK] &= ~(1L << index);
+        }
+    }
+
+    // Effacer toutes les marques en conservant les pages allouées
+    void clear() {
+        for (long[] page : pages) {
+            if (page != null) {
+                Arrays.fill(page, 0L);
+            }
+        }
+    }
+
+    // Bit i levé si values[i] > threshold, mot par mot sans branchement
+    void assignAbove(double[] values, double threshold) {
+        int size = values.length;
+        int full = size >>> 6;
+        for (int w = 0; w < full; w++) {
+            int base = w << 6;
+            long word = 0;
+            for (int b = 0; b < 64; b++) {
+                word |= (values[base + b] > threshold ? 1L : 0L) << b;
+            }
+            setWord(w, word);
+        }
+        if ((size & 63) != 0) {
+            long word = 0;
+            for (int i = full << 6; i < size; i++) {
+                word |= (values[i] > threshold ? 1L : 0L) << i;
+            }
+            setWord(full, word);
+        }
+    }
+
+    // Même chose sur l'intervalle d'index [from, to) ; retourne la variation du nombre de bits levés
+    int assignAbove(double[] values, int from, int to, double threshold) {
+        int delta = 0;
+        for (int i = from; i < to; ) {
+            int w = i >>> 6;
+            int end = Math.min(to, (w + 1) << 6);
+            long bits = 0;
+            for (int k = i; k < end; k++) {
+                bits |= (values[k] > threshold ? 1L : 0L) << k;
+            }
+            long mask = (-1L << i) & (-1L >>> (63 - ((end - 1) & 63)));
+            long old = word(w);
+            delta += Long.bitCount(bits) - Long.bitCount(old & mask);
+            setWord(w, (old & ~mask) | bits);
+            i = end;
+        }
+        return delta;
+    }
+
+    // Nombre de cellules marquées
+    public int count() {
+        int count = 0;
+        for (long[] page : pages) {
+            if (page == null) continue;
+            for (long word : page) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    // Nombre de cellules marquées dans le rectangle [x0, x1] x [y0, y1] (bornes incluses, dans la grille)
+    public int countRect(int x0, int y0, int x1, int y1) {
+        int count = 0;
+        for (int x = x0; x <= x1; x++) {
+            count += countRange(x * height + y0, x * height + y1);
+        }
+        return count;
+    }
+
+    // Bits marqués de l'intervalle d'index [from, to]
+    private int countRange(int from, int to) {
+        int first = from >>> 6;
+        int last = to >>> 6;
+        long firstMask = -1L << from;
+        long lastMask = -1L >>> (63 - (to & 63));
+        if (first == last) {
+            return Long.bitCount(word(first) & firstMask & lastMask);
+        }
+        int count = Long.bitCount(word(first) & firstMask);
+        for (int w = first + 1; w < last; w++) {
+            count += Long.bitCount(word(w));
+        }
+        return count + Long.bitCount(word(last) & lastMask);
+    }
+
+    // Premier index marqué à partir de from (inclus), -1 s'il n'y en a plus
+    public int nextSetIndex(int from) {
+        return nextSetIndex(from, wordCount << 6);
+    }
+
+    // Premier index marqué dans [from, to[, -1 s'il n'y en a pas (parcours limité à l'intervalle)
+    public int nextSetIndex(int from, int to) {
+        if (from >= to) {
+            return -1;
+        }
+        int w = from >>> 6;
+        int last = (to - 1) >>> 6;
+        long word = word(w) & (-1L << from);
+        while (word == 0) {
+            if (++w > last) {
+                return -1;
+            }
+            long[] page = pages[w >>> PAGE_SHIFT];
+            if (page == null) {
+                // Page absente : passer directement à la suivante
+                w |= PAGE_MASK;
+                continue;
+            }
+            word = page[w & PAGE_MASK];
+        }
+        int index = (w << 6) + Long.numberOfTrailingZeros(word);
+        return index < to ? index : -1;
+    }
+
+    // Premier index à partir de from (inclus) dont le bit diffère dans other, -1 s'il n'y en a plus
+    public int nextDifference(CellMask other, int from) {
+        int w = from >>> 6;
+        if (w >= wordCount) {
+            return -1;
+        }
+        long word = (word(w) ^ other.word(w)) & (-1L << from);
+        while (word == 0) {
+            if (++w == wordCount) {
+                return -1;
+            }
+            long[] page = pages[w >>> PAGE_SHIFT];
+            long[] otherPage = other.pages[w >>> PAGE_SHIFT];
+            if (page == null && otherPage == null) {
+                w |= PAGE_MASK;
+                if (w >= wordCount) {
+                    return -1;
+                }
+                continue;
+            }
+            word = (page == null ? 0L : page[w & PAGE_MASK]) ^ (otherPage == null ? 0L : otherPage[w & PAGE_MASK]);
+        }
+        return (w << 6) + Long.numberOfTrailingZeros(word);
+    }
+
+    // Ajouter les bits marqués d'un masque de mêmes dimensions
+    void or(CellMask other) {
+        for (int p = 0; p < pages.length; p++) {
+            long[] source = other.pages[p];
+            if (source == null) continue;
+            if (pages[p] == null) {
+                pages[p] = source.clone();
+                continue;
+            }
+            long[] page = pages[p];
+            for (int k = 0; k < PAGE_WORDS; k++) {
+                page[k] |= source[k];
+            }
+        }
+    }
+
+    void copyFrom(CellMask other) {
+        for (int p = 0; p < pages.length; p++) {
+            long[] source = other.pages[p];
+            if (source == null) {
+                if (pages[p] != null) {
+                    Arrays.fill(pages[p], 0L);
+                }
+            } else if (pages[p] == null) {
+                pages[p] = source.clone();
+            } else {
+                System.arraycopy(source, 0, pages[p], 0, PAGE_WORDS);
+            }
+        }
+    }
+
+    public CellMask copy() {
+        CellMask copy = new CellMask(width, height);
+        for (int p = 0; p < pages.length; p++) {
+            if (pages[p] != null) {
+                copy.pages[p] = pages[p].clone();
+            }
+        }
+        return copy;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+}
@@ -0,0 +1,165 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Vérification des checkpoints : une simulation tirée par graine (taille, stockage, matériaux)
+ * avance d'un nombre de pas aléatoire, est sauvegardée puis rechargée dans une simulation neuve.
+ * La simulation rechargée doit avoir les mêmes intensités, les mêmes robots aux mêmes positions,
+ * et se sauvegarder à son tour octet pour octet dans le même fichier. Reprise : la simulation
+ * rechargée, dont l'horloge est ailleurs, doit ensuite avancer pas à pas exactement comme
+ * l'originale qui continue sans interruption :
+ *   java -cp class CheckpointCheck [graines]
+ */
+public class CheckpointCheck {
+    private static final FireGrid.Storage[] STORAGES = FireGrid.Storage.values();
+    // Pas comparés après la reprise
+    private static final int RESUMED_STEPS = 200;
+
+    private CheckpointCheck() {
+    }
+
+    static SimulationConfig randomConfig(long seed) {
+        return randomBuilder(seed, new SimulationRandom(seed)).buildConfig();
+    }
+
+    // Taille, stockage et matériaux tirés de random ; l'appelant peut poursuivre les tirages sur le builder
+    static Simulation.Builder randomBuilder(long seed, SimulationRandom random) {
+        int width = 20 + random.nextInt(60);
+        int height = 20 + random.nextInt(60);
+        FireGrid.Storage storage = STORAGES[random.nextInt(STORAGES.length)];
+        MaterialMap materials = storage == FireGrid.Storage.DOUBLE && random.nextDouble() < 0.5
+            ? RegionalSimulationCheck.randomMaterials(width, height, random) : null;
+        return Simulation.builder()
+            .gridSize(width, height)
+            .storage(storage)
+            .materials(materials)
+            .seed(seed);
+    }
+
+    // Sauvegarder, recharger et comparer ; retourne null si tout concorde, sinon le premier écart
+    static String roundTrip(long seed, Path directory) throws IOException {
+        SimulationConfig config = randomConfig(seed);
+        Simulation original = new Simulation(config);
+        int steps = 50 + new SimulationRandom(~seed).nextInt(300);
+        original.step(steps);
+
+        Path first = directory.resolve("first.ckpt");
+        Path second = directory.resolve("second.ckpt");
+        original.saveCheckpoint(first);
+        Simulation restored = Simulation.builder().gridSize(config.gridWidth, config.gridHeight).seed(seed).build();
+        restored.loadCheckpoint(first);
+        restored.saveCheckpoint(second);
+
+        String layout = config.gridWidth + "x" + config.gridHeight + " " + config.storage
+            + (config.materials != null ? " with materials" : "") + ", seed " + seed + ", " + steps + " steps";
+        String mismatch = compare(original, restored);
+        if (mismatch != null) {
+            return layout + ": " + mismatch;
+        }
+        if (!Arrays.equals(Files.readAllBytes(first), Files.readAllBytes(second))) {
+            return layout + ": the restored simulation saves a different checkpoint";
+        }
+        return null;
+    }
+
+    // Reprendre depuis un checkpoint et avancer en parallèle de la simulation ininterrompue
+    static String resume(long seed, Path directory) throws IOException {
+        SimulationConfig config = randomConfig(seed);
+        Simulation original = new Simulation(config);
+        int steps = new SimulationRandom(~seed).nextInt(300);
+        original.step(steps);
+
+        Path path = directory.resolve("resume.ckpt");
+        original.saveCheckpoint(path);
+        Simulation resumed = Simulation.builder().gridSize(config.gridWidth, config.gridHeight).seed(seed).build();
+        resumed.loadCheckpoint(path);
+
+        String layout = config.gridWidth + "x" + config.gridHeight + " " + config.storage
+            + (config.materials != null ? " with materials" : "") + ", seed " + seed + ", resumed after " + steps + " steps";
+        for (int step = 1; step <= RESUMED_STEPS; step++) {
+            original.step();
+            resumed.step();
+            String mismatch = compare(original, resumed);
+            if (mismatch == null && original.getStepCount() != resumed.getStepCount()) {
+                mismatch = "step count " + resumed.getStepCount() + " instead of " + original.getStepCount();
+            }
+            if (mismatch == null && original.getRobotUpdateCount() != resumed.getRobotUpdateCount()) {
+                mismatch = "robot updates " + resumed.getRobotUpdateCount() + " instead of " + original.getRobotUpdateCount();
+            }
+            if (mismatch != null) {
+                return layout + ", step " + step + ": " + mismatch;
+            }
+        }
+        return null;
+    }
+
+    // Premier écart d'état visible entre deux simulations, null si aucun
+    static String compare(Simulation expected, Simulation actual) {
+        FireGrid a = expected.getFireGrid();
+        FireGrid b = actual.getFireGrid();
+        if (a.getWidth() != b.getWidth() || a.getHeight() != b.getHeight()) {
+            return "grid " + b.getWidth() + "x" + b.getHeight() + " instead of " + a.getWidth() + "x" + a.getHeight();
+        }
+        for (int x = 0; x < a.getWidth(); x++) {
+            for (int y = 0; y < a.getHeight(); y++) {
+                if (Double.doubleToLongBits(a.getIntensityAt(x, y)) != Double.doubleToLongBits(b.getIntensityAt(x, y))) {
+                    return "cell (" + x + ", " + y + "): " + b.getIntensityAt(x, y) + " instead of " + a.getIntensityAt(x, y);
+                }
+            }
+        }
+        if (expected.getTimeStep() != actual.getTimeStep()) {
+            return "time step " + actual.getTimeStep() + " instead of " + expected.getTimeStep();
+        }
+        List<Robot> robotsA = expected.getRobots();
+        List<Robot> robotsB = actual.getRobots();
+        if (robotsA.size() != robotsB.size()) {
+            return robotsB.size() + " robots instead of " + robotsA.size();
+        }
+        for (int i = 0; i < robotsA.size(); i++) {
+            Robot ra = robotsA.get(i);
+            Robot rb = robotsB.get(i);
+            if (ra.getId() != rb.getId() || ra.getX() != rb.getX() || ra.getY() != rb.getY()
+                || !ra.getStatusDescription().equals(rb.getStatusDescription())) {
+                return "robot " + i + ": " + rb.getType() + " " + rb.getId() + " at (" + rb.getX() + ", " + rb.getY()
+                    + ") " + rb.getStatusDescription() + " instead of " + ra.getType() + " " + ra.getId()
+                    + " at (" + ra.getX() + ", " + ra.getY() + ") " + ra.getStatusDescription();
+            }
+        }
+        if (expected.getSurvivors().size() != actual.getSurvivors().size()) {
+            return actual.getSurvivors().size() + " survivors instead of " + expected.getSurvivors().size();
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        Path directory = Files.createTempDirectory("checkpoint-check");
+        try {
+            String mismatch = null;
+            for (long seed = 1; seed <= seeds && mismatch == null; seed++) {
+                mismatch = roundTrip(seed, directory);
+            }
+            System.out.println("round trip: " + (mismatch == null ? seeds + " seeds identical" : "MISMATCH " + mismatch));
+            boolean failed = mismatch != null;
+            mismatch = null;
+            for (long seed = 1; seed <= seeds && mismatch == null; seed++) {
+                mismatch = resume(seed, directory);
+            }
+            System.out.println("resume: " + (mismatch == null ? seeds + " seeds identical" : "MISMATCH " + mismatch));
+            failed |= mismatch != null;
+            if (failed) {
+                System.exit(1);
+            }
+        } finally {
+            try (var files = Files.list(directory)) {
+                for (Path file : (Iterable<Path>) files::iterator) {
+                    Files.delete(file);
+                }
+            }
+            Files.delete(directory);
+        }
+    }
+}
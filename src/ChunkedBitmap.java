@@ -0,0 +1,174 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Masque binaire creux découpé en tuiles de 64 x 64 cellules.
+ * Chaque tuile contient 64 mots de 64 bits (un mot par colonne x de la tuile).
+ * Une tuile n'est allouée qu'à la première cellule marquée.
+ */
+public class ChunkedBitmap {
+    private static final int TILE_SHIFT = ChunkedGrid.TILE_SHIFT;
+    private static final int TILE_SIZE = ChunkedGrid.TILE_SIZE;
+    private static final int TILE_MASK = ChunkedGrid.TILE_MASK;
+
+    private final int width;
+    private final int height;
+    private final int tilesY;
+    private final long[][] tiles;
+    private int allocatedTiles;
+
+    public ChunkedBitmap(int width, int height) {
+        this.width = width;
+        this.height = height;
+        int tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        this.tilesY = (height + TILE_MASK) >> TILE_SHIFT;
+        this.tiles = new long[tilesX * tilesY][];
+    }
+
+    public boolean get(int x, int y) {
+        long[] tile = tiles[(x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT)];
+        return tile != null && (tile[x & TILE_MASK] & (1L << (y & TILE_MASK))) != 0;
+    }
+
+    public void set(int x, int y) {
+        int tileIndex = (x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT);
+        long[] tile = tiles[tileIndex];
+        if (tile == null) {
+            tile = new long[TILE_SIZE];
+            tiles[tileIndex] = tile;
+            allocatedTiles++;
+        }
+        tile[x & TILE_MASK] |= 1L << (y & TILE_MASK);
+    }
+
+    public void clear(int x, int y) {
+        long[] tile = tiles[(x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT)];
+        if (tile != null) {
+            tile[x & TILE_MASK] &= ~(1L << (y & TILE_MASK));
+        }
+    }
+
+    // Marquer le rectangle [x0, x1] x [y0, y1] (bornes incluses, dans la grille) mot par mot
+    public void setRect(int x0, int y0, int x1, int y1) {
+        for (int ty = y0 >> TILE_SHIFT; ty <= y1 >> TILE_SHIFT; ty++) {
+            int from = Math.max(y0, ty << TILE_SHIFT) & TILE_MASK;
+            int to = Math.min(y1, (ty << TILE_SHIFT) + TILE_MASK) & TILE_MASK;
+            long mask = (-1L >>> (TILE_MASK - to)) & (-1L << from);
+            for (int x = x0; x <= x1; x++) {
+                int tileIndex = (x >> TILE_SHIFT) * tilesY + ty;
+                long[] tile = tiles[tileIndex];
+                if (tile == null) {
+                    tile = new long[TILE_SIZE];
+                    tiles[tileIndex] = tile;
+                    allocatedTiles++;
+                }
+                tile[x & TILE_MASK] |= mask;
+            }
+        }
+    }
+
+    // Nombre de cellules marquées dans le rectangle [x0, x1] x [y0, y1] (bornes incluses)
+    public int countRect(int x0, int y0, int x1, int y1) {
+        int count = 0;
+        for (int ty = y0 >> TILE_SHIFT; ty <= y1 >> TILE_SHIFT; ty++) {
+            int from = Math.max(y0, ty << TILE_SHIFT) & TILE_MASK;
+            int to = Math.min(y1, (ty << TILE_SHIFT) + TILE_MASK) & TILE_MASK;
+            long mask = (-1L >>> (TILE_MASK - to)) & (-1L << from);
+            for (int x = x0; x <= x1; x++) {
+                long[] tile = tiles[(x >> TILE_SHIFT) * tilesY + ty];
+                if (tile != null) {
+                    count += Long.bitCount(tile[x & TILE_MASK] & mask);
+                }
+            }
+        }
+        return count;
+    }
+
+    // Ajouter les marques de other dans le rectangle [x0, x1] x [y0, y1] ; renvoie le nombre de cellules nouvellement marquées
+    public int orRect(ChunkedBitmap other, int x0, int y0, int x1, int y1) {
+        int added = 0;
+        for (int ty = y0 >> TILE_SHIFT; ty <= y1 >> TILE_SHIFT; ty++) {
+            int from = Math.max(y0, ty << TILE_SHIFT) & TILE_MASK;
+            int to = Math.min(y1, (ty << TILE_SHIFT) + TILE_MASK) & TILE_MASK;
+            long mask = (-1L >>> (TILE_MASK - to)) & (-1L << from);
+            for (int x = x0; x <= x1; x++) {
+                int tileIndex = (x >> TILE_SHIFT) * tilesY + ty;
+                long[] source = other.tiles[tileIndex];
+                if (source == null) continue;
+                long[] tile = tiles[tileIndex];
+                long bits = source[x & TILE_MASK] & mask & (tile == null ? -1L : ~tile[x & TILE_MASK]);
+                if (bits == 0) continue;
+                if (tile == null) {
+                    tile = new long[TILE_SIZE];
+                    tiles[tileIndex] = tile;
+                    allocatedTiles++;
+                }
+                tile[x & TILE_MASK] |= bits;
+                added += Long.bitCount(bits);
+            }
+        }
+        return added;
+    }
+
+    // Effacer toutes les marques en conservant les tuiles allouées
+    public void clear() {
+        for (long[] tile : tiles) {
+            if (tile != null) {
+                Arrays.fill(tile, 0L);
+            }
+        }
+    }
+
+    // Effacer toutes les marques et libérer les tuiles, comme un masque neuf
+    public void release() {
+        Arrays.fill(tiles, null);
+        allocatedTiles = 0;
+    }
+
+    // Nombre de cellules marquées
+    public int count() {
+        int count = 0;
+        for (long[] tile : tiles) {
+            if (tile == null) continue;
+            for (long word : tile) {
+                count += Long.bitCount(word);
+            }
+        }
+        return count;
+    }
+
+    // La tuile contenant la cellule (x, y) est-elle allouée ?
+    public boolean hasTile(int x, int y) {
+        return tiles[(x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT)] != null;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getAllocatedTiles() { return allocatedTiles; }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(allocatedTiles);
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null) {
+                out.putInt(i);
+                for (long word : tiles[i]) {
+                    out.putLong(word);
+                }
+            }
+        }
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        Arrays.fill(tiles, null);
+        allocatedTiles = in.getInt();
+        for (int t = 0; t < allocatedTiles; t++) {
+            long[] tile = new long[TILE_SIZE];
+            int tileIndex = in.getInt();
+            for (int k = 0; k < TILE_SIZE; k++) {
+                tile[k] = in.getLong();
+            }
+            tiles[tileIndex] = tile;
+        }
+    }
+}
@@ -0,0 +1,159 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Grille d'intensités creuse découpée en tuiles de TILE_SIZE x TILE_SIZE cellules.
+ *
+ * Une tuile n'est allouée qu'à la première écriture d'une valeur non nulle et elle est
+ * libérée dès que toutes ses cellules redeviennent nulles. Les zones jamais touchées par
+ * le feu ou la connaissance des robots ne coûtent qu'une référence dans le répertoire des tuiles.
+ */
+public class ChunkedGrid {
+    static final int TILE_SHIFT = 6;
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+    static final int TILE_MASK = TILE_SIZE - 1;
+    static final int TILE_CELLS = TILE_SIZE * TILE_SIZE;
+
+    // Visiteur des cellules non nulles
+    interface CellVisitor {
+        void visit(int x, int y, double value);
+    }
+
+    private final int width;
+    private final int height;
+    private final int tilesX;
+    private final int tilesY;
+    // Répertoire des tuiles (index = tx * tilesY + ty), null si la tuile est vide
+    private final double[][] tiles;
+    // Nombre de cellules non nulles par tuile
+    private final int[] nonZeroCells;
+    private int allocatedTiles;
+
+    public ChunkedGrid(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_MASK) >> TILE_SHIFT;
+        this.tilesY = (height + TILE_MASK) >> TILE_SHIFT;
+        this.tiles = new double[tilesX * tilesY][];
+        this.nonZeroCells = new int[tilesX * tilesY];
+    }
+
+    public double get(int x, int y) {
+        double[] tile = tiles[(x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT)];
+        return tile == null ? 0.0 : tile[((x & TILE_MASK) << TILE_SHIFT) | (y & TILE_MASK)];
+    }
+
+    public void set(int x, int y, double value) {
+        int tileIndex = (x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT);
+        double[] tile = tiles[tileIndex];
+        if (tile == null) {
+            if (value == 0.0) {
+                return;
+            }
+            tile = new double[TILE_CELLS];
+            tiles[tileIndex] = tile;
+            allocatedTiles++;
+        }
+        int cell = ((x & TILE_MASK) << TILE_SHIFT) | (y & TILE_MASK);
+        double old = tile[cell];
+        tile[cell] = value;
+        if (old == 0.0 && value != 0.0) {
+            nonZeroCells[tileIndex]++;
+        } else if (old != 0.0 && value == 0.0 && --nonZeroCells[tileIndex] == 0) {
+            // Libérer la tuile refroidie
+            tiles[tileIndex] = null;
+            allocatedTiles--;
+        }
+    }
+
+    // Vider la grille et libérer toutes les tuiles
+    public void clear() {
+        if (allocatedTiles == 0) {
+            return;
+        }
+        Arrays.fill(tiles, null);
+        Arrays.fill(nonZeroCells, 0);
+        allocatedTiles = 0;
+    }
+
+    // Copie indépendante (seules les tuiles allouées sont copiées)
+    public ChunkedGrid copy() {
+        ChunkedGrid copy = new ChunkedGrid(width, height);
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null) {
+                copy.tiles[i] = tiles[i].clone();
+                copy.nonZeroCells[i] = nonZeroCells[i];
+            }
+        }
+        copy.allocatedTiles = allocatedTiles;
+        return copy;
+    }
+
+    // Parcourir les cellules non nulles, tuile par tuile
+    public void forEachNonZero(CellVisitor visitor) {
+        for (int tileIndex = 0; tileIndex < tiles.length; tileIndex++) {
+            double[] tile = tiles[tileIndex];
+            if (tile == null) continue;
+            int baseX = (tileIndex / tilesY) << TILE_SHIFT;
+            int baseY = (tileIndex % tilesY) << TILE_SHIFT;
+            for (int cell = 0; cell < TILE_CELLS; cell++) {
+                if (tile[cell] != 0.0) {
+                    visitor.visit(baseX + (cell >> TILE_SHIFT), baseY + (cell & TILE_MASK), tile[cell]);
+                }
+            }
+        }
+    }
+
+    // Compter les cellules au-dessus d'un seuil
+    public int countAbove(double threshold) {
+        int count = 0;
+        for (double[] tile : tiles) {
+            if (tile == null) continue;
+            for (double value : tile) {
+                if (value > threshold) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getAllocatedTiles() { return allocatedTiles; }
+
+    // Taille mémoire approximative en octets (répertoire et tuiles allouées)
+    public long getMemoryBytes() {
+        return 12L * tiles.length + 8L * TILE_CELLS * allocatedTiles;
+    }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(allocatedTiles);
+        for (int i = 0; i < tiles.length; i++) {
+            if (tiles[i] != null) {
+                out.putInt(i);
+                out.putDoubles(tiles[i]);
+            }
+        }
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        clear();
+        int count = in.getInt();
+        for (int t = 0; t < count; t++) {
+            int tileIndex = in.getInt();
+            double[] tile = new double[TILE_CELLS];
+            in.getDoubles(tile);
+            int nonZero = 0;
+            for (double value : tile) {
+                if (value != 0.0) nonZero++;
+            }
+            if (nonZero > 0) {
+                tiles[tileIndex] = tile;
+                nonZeroCells[tileIndex] = nonZero;
+                allocatedTiles++;
+            }
+        }
+    }
+}
@@ -0,0 +1,499 @@
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Simulation par régions (RegionLayout) répartie entre plusieurs processus RegionWorker, reliés au
+ * coordinateur par des sockets TCP ou Unix non bloquantes (RegionChannel). Le processus w héberge
+ * les régions [n * w / W, n * (w + 1) / W[ et les avance comme RegionalSimulation.
+ *
+ * Le coordinateur fait avancer l'horloge commune : à chaque pas, il fournit l'état du flux du feu
+ * (STEP), tire les rallumages sur la carte, transmet aux processus les foyers et les robots sortis
+ * de leur région (UPDATE), puis relaie les cellules de halo entre processus (HALO). Un processus
+ * recopie directement les halos entre ses propres régions. Les robots sortis sont confiés dans
+ * l'ordre des régions d'origine : flottes, identifiants et répartitions sont ceux de
+ * RegionalSimulation, et le feu lui est identique bit à bit (DistributedSimulationCheck).
+ *
+ * Chaque réponse apporte les rapports des régions (cellules en feu, robots, feux connus du QG).
+ * Les intensités de la carte ne sont lues qu'à la demande (readIntensities). Pas de checkpoint.
+ *
+ * Les processus sont lancés sur cette machine (launch) ou démarrés à part, sur d'autres machines,
+ * avec java -cp class RegionWorker tcp:0.0.0.0:port, puis rejoints par leurs adresses.
+ */
+public class DistributedSimulation implements AutoCloseable {
+    public enum Transport { TCP, UNIX }
+
+    // Délai maximal d'attente des réponses d'un pas
+    private static final long REPLY_TIMEOUT = 120_000;
+
+    private final RegionLayout layout;
+    // Flux du feu de la carte entière, comme RegionalSimulation
+    private final SimulationRandom fireRandom;
+    private final int[] fireCell = new int[2];
+    private final RegionChannel[] workers;
+    private final SelectionKey[] keys;
+    private final Selector selector;
+    // Processus hébergeant chaque région ; le processus w héberge [firstRegion[w], firstRegion[w + 1][
+    private final int[] hostOf;
+    private final int[] firstRegion;
+    // Processus lancés par launch et dossier de leurs sockets Unix (null sinon)
+    private final Process[] processes;
+    private final Path socketDirectory;
+    // Derniers rapports des régions
+    private final int[] burningCells;
+    private final int[] robotCounts;
+    private final int[] knownFires;
+    private int timeStep;
+    private long handovers;
+
+    // Rejoindre des processus RegionWorker déjà à l'écoute, un par adresse
+    public DistributedSimulation(SimulationConfig template, int columns, int rows, List<String> addresses) throws IOException {
+        this(template, columns, rows, addresses, null, null);
+    }
+
+    private DistributedSimulation(SimulationConfig template, int columns, int rows, List<String> addresses,
+                                  Process[] processes, Path socketDirectory) throws IOException {
+        this.layout = new RegionLayout(template, columns, rows);
+        if (addresses.isEmpty() || addresses.size() > layout.size()) {
+            throw new IllegalArgumentException("Cannot spread " + layout.size() + " regions over "
+                + addresses.size() + " processes");
+        }
+        this.fireRandom = template.newRandom(SimulationConfig.STREAM_FIRE);
+        this.processes = processes;
+        this.socketDirectory = socketDirectory;
+        int count = addresses.size();
+        this.workers = new RegionChannel[count];
+        this.keys = new SelectionKey[count];
+        this.firstRegion = new int[count + 1];
+        this.hostOf = new int[layout.size()];
+        for (int w = 0; w <= count; w++) {
+            firstRegion[w] = layout.size() * w / count;
+        }
+        for (int w = 0; w < count; w++) {
+            for (int region = firstRegion[w]; region < firstRegion[w + 1]; region++) {
+                hostOf[region] = w;
+            }
+        }
+        this.burningCells = new int[layout.size()];
+        this.robotCounts = new int[layout.size()];
+        this.knownFires = new int[layout.size()];
+        this.selector = Selector.open();
+        try {
+            for (int w = 0; w < count; w++) {
+                workers[w] = RegionChannel.connect(addresses.get(w));
+                keys[w] = workers[w].channel().register(selector, SelectionKey.OP_READ);
+            }
+            initialize(template);
+        } catch (IOException | RuntimeException e) {
+            close();
+            throw e;
+        }
+    }
+
+    // Lancer 'processes' processus RegionWorker sur cette machine, avec le classpath et les options
+    // de cette JVM, et les rejoindre
+    public static DistributedSimulation launch(SimulationConfig template, int columns, int rows, int processes,
+                                               Transport transport) throws IOException {
+        Path directory = transport == Transport.UNIX ? Files.createTempDirectory("regions") : null;
+        Process[] started = new Process[processes];
+        try {
+            for (int p = 0; p < processes; p++) {
+                String address = transport == Transport.TCP ? "tcp:127.0.0.1:0"
+                    : "unix:" + directory.resolve("region-" + p + ".sock");
+                started[p] = new ProcessBuilder(workerCommand(address))
+                    .redirectError(ProcessBuilder.Redirect.INHERIT)
+                    .start();
+            }
+            List<String> addresses = new ArrayList<>();
+            for (Process process : started) {
+                addresses.add(readAddress(process));
+            }
+            return new DistributedSimulation(template, columns, rows, addresses, started, directory);
+        } catch (IOException | RuntimeException e) {
+            for (Process process : started) {
+                if (process != null) {
+                    process.destroyForcibly();
+                }
+            }
+            deleteDirectory(directory);
+            throw e;
+        }
+    }
+
+    private static List<String> workerCommand(String address) {
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        // Mêmes options que cette JVM (modules incubateurs, propriétés fire.*)
+        for (String argument : ManagementFactory.getRuntimeMXBean().getInputArguments()) {
+            if (argument.startsWith("--add-modules") || argument.startsWith("-D") || argument.startsWith("-X")) {
+                command.add(argument);
+            }
+        }
+        command.add("-cp");
+        command.add(System.getProperty("java.class.path", "."));
+        command.add("RegionWorker");
+        command.add(address);
+        return command;
+    }
+
+    // Adresse effective annoncée par un processus lancé ("listening <adresse>") ; la suite de sa sortie
+    // est recopiée sur celle de cette JVM par un thread dédié, sans quoi le tube plein bloquerait le processus
+    private static String readAddress(Process process) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            if (line.startsWith("listening ")) {
+                Thread drain = new Thread(() -> forwardOutput(reader), "region-worker-output");
+                drain.setDaemon(true);
+                drain.start();
+                return line.substring("listening ".length());
+            }
+        }
+        throw new IOException("Region worker exited before listening");
+    }
+
+    private static void forwardOutput(BufferedReader reader) {
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                System.out.println(line);
+            }
+        } catch (IOException e) {
+            // Processus arrêté : plus rien à recopier
+        }
+    }
+
+    // ====== Initialisation ======
+    private void initialize(SimulationConfig template) throws IOException {
+        for (int w = 0; w < workers.length; w++) {
+            SimulationCheckpoint.Writer out = message(RegionWorker.INIT);
+            out.putInt(layout.columns);
+            out.putInt(layout.rows);
+            out.putInt(firstRegion[w]);
+            out.putInt(firstRegion[w + 1]);
+            out.putBoolean(template.seeded);
+            out.putLong(template.seed);
+            out.putString(template.kernels.getName());
+            out.putInt(template.forecastHorizon);
+            out.putInt(template.forecastRollouts);
+            template.writeCheckpoint(out);
+            workers[w].send(out.written());
+        }
+        SimulationCheckpoint.Reader[] replies = await(RegionWorker.INIT);
+        for (int w = 0; w < workers.length; w++) {
+            readReports(replies[w], w);
+        }
+
+        // 2 ou 3 foyers sur la carte entière, comme Fire
+        List<Ignition> ignitions = new ArrayList<>();
+        int numFires = fireRandom.nextInt(2) + 2;
+        for (int i = 0; i < numFires; i++) {
+            drawFire(ignitions);
+        }
+        update(ignitions, new ArrayList<>());
+    }
+
+    // ====== Pas ======
+    // Avancer toutes les régions d'une mise à jour planifiée (feu, robots ou survivants)
+    public void step() {
+        try {
+            for (RegionChannel worker : workers) {
+                SimulationCheckpoint.Writer out = message(RegionWorker.STEP);
+                out.putLong(fireRandom.getState());
+                worker.send(out.written());
+            }
+            SimulationCheckpoint.Reader[] replies = await(RegionWorker.STEP);
+            int stepped = timeStep;
+            boolean active = false;
+            List<Transfer> transfers = new ArrayList<>();
+            for (SimulationCheckpoint.Reader in : replies) {
+                stepped = in.getInt();
+                active |= in.getBoolean();
+                int departures = in.getInt();
+                for (int d = 0; d < departures; d++) {
+                    Transfer transfer = new Transfer(in.getInt(), in.getInt(), new byte[in.getInt()]);
+                    in.getBytes(transfer.bytes);
+                    transfers.add(transfer);
+                }
+            }
+
+            List<Ignition> ignitions = new ArrayList<>();
+            if (stepped != timeStep) {
+                // Les régions ont prélevé la clé du pas ; le flux de la carte fait de même
+                fireRandom.nextLong();
+                if (!active) {
+                    drawFire(ignitions);
+                }
+            }
+            timeStep = stepped;
+            update(ignitions, transfers);
+            handovers += transfers.size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    public void step(int steps) {
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    // Foyers et robots arrivés pour chaque processus, puis relais des halos entre processus
+    private void update(List<Ignition> ignitions, List<Transfer> transfers) throws IOException {
+        for (int w = 0; w < workers.length; w++) {
+            SimulationCheckpoint.Writer out = message(RegionWorker.UPDATE);
+            out.putInt(ignitions.size());
+            for (Ignition ignition : ignitions) {
+                out.putInt(ignition.gx);
+                out.putInt(ignition.gy);
+                out.putDouble(ignition.intensity);
+            }
+            int arrivals = 0;
+            for (Transfer transfer : transfers) {
+                if (hostOf[transfer.target] == w) {
+                    arrivals++;
+                }
+            }
+            out.putInt(arrivals);
+            for (Transfer transfer : transfers) {
+                if (hostOf[transfer.target] == w) {
+                    out.putInt(transfer.source);
+                    out.putInt(transfer.target);
+                    out.putInt(transfer.bytes.length);
+                    out.putBytes(transfer.bytes);
+                }
+            }
+            workers[w].send(out.written());
+        }
+
+        SimulationCheckpoint.Reader[] replies = await(RegionWorker.UPDATE);
+        List<List<Transfer>> halos = new ArrayList<>();
+        for (int w = 0; w < workers.length; w++) {
+            halos.add(new ArrayList<>());
+        }
+        for (int w = 0; w < workers.length; w++) {
+            SimulationCheckpoint.Reader in = replies[w];
+            int packets = in.getInt();
+            for (int p = 0; p < packets; p++) {
+                // Valeurs relayées telles quelles : 8 octets par cellule
+                Transfer packet = new Transfer(in.getInt(), in.getInt(), new byte[8 * in.getInt()]);
+                in.getBytes(packet.bytes);
+                halos.get(hostOf[packet.target]).add(packet);
+            }
+            readReports(in, w);
+        }
+        for (int w = 0; w < workers.length; w++) {
+            if (!halos.get(w).isEmpty()) {
+                SimulationCheckpoint.Writer out = message(RegionWorker.HALO);
+                out.putInt(halos.get(w).size());
+                for (Transfer packet : halos.get(w)) {
+                    out.putInt(packet.source);
+                    out.putInt(packet.target);
+                    out.putInt(packet.bytes.length / 8);
+                    out.putBytes(packet.bytes);
+                }
+                workers[w].send(out.written());
+            }
+        }
+    }
+
+    // Nouveau foyer tiré sur la carte entière
+    private void drawFire(List<Ignition> ignitions) {
+        double intensity = layout.drawFire(fireRandom, fireCell);
+        if (intensity >= 0) {
+            ignitions.add(new Ignition(fireCell[0], fireCell[1], intensity));
+        }
+    }
+
+    // Foyer à allumer, écrit par le processus qui possède la cellule
+    private static final class Ignition {
+        final int gx;
+        final int gy;
+        final double intensity;
+
+        Ignition(int gx, int gy, double intensity) {
+            this.gx = gx;
+            this.gy = gy;
+            this.intensity = intensity;
+        }
+    }
+
+    // Octets à porter de la région source à la région target : un robot (checkpoint) ou un paquet de halo
+    private static final class Transfer {
+        final int source;
+        final int target;
+        final byte[] bytes;
+
+        Transfer(int source, int target, byte[] bytes) {
+            this.source = source;
+            this.target = target;
+            this.bytes = bytes;
+        }
+    }
+
+    // ====== Messages ======
+    private static SimulationCheckpoint.Writer message(byte type) throws IOException {
+        SimulationCheckpoint.Writer out = SimulationCheckpoint.Writer.inMemory(0);
+        out.putByte(type);
+        return out;
+    }
+
+    // Attendre la réponse de chaque processus à l'ordre 'type', en écrivant ce qui reste à envoyer
+    private SimulationCheckpoint.Reader[] await(byte type) throws IOException {
+        SimulationCheckpoint.Reader[] replies = new SimulationCheckpoint.Reader[workers.length];
+        int missing = workers.length;
+        long deadline = System.currentTimeMillis() + REPLY_TIMEOUT;
+        while (true) {
+            for (int w = 0; w < workers.length; w++) {
+                workers[w].flush();
+                if (replies[w] == null) {
+                    ByteBuffer frame = workers[w].receive();
+                    if (frame != null) {
+                        replies[w] = reply(frame, type, w);
+                        missing--;
+                    }
+                }
+                keys[w].interestOps(SelectionKey.OP_READ
+                    | (workers[w].hasPendingOutput() ? SelectionKey.OP_WRITE : 0));
+            }
+            if (missing == 0) {
+                return replies;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                throw new IOException("Region workers did not answer within " + REPLY_TIMEOUT + " ms");
+            }
+            selector.select(remaining);
+            selector.selectedKeys().clear();
+        }
+    }
+
+    private static SimulationCheckpoint.Reader reply(ByteBuffer frame, byte type, int worker) throws IOException {
+        SimulationCheckpoint.Reader in = SimulationCheckpoint.Reader.of(frame, 0);
+        byte received = in.getByte();
+        if (received == RegionWorker.ERROR) {
+            throw new IllegalStateException("Region worker " + worker + " failed: " + in.getString());
+        }
+        if (received != type) {
+            throw new IOException("Unexpected reply " + received + " from region worker " + worker + " (expected " + type + ")");
+        }
+        return in;
+    }
+
+    private void readReports(SimulationCheckpoint.Reader in, int worker) throws IOException {
+        for (int region = firstRegion[worker]; region < firstRegion[worker + 1]; region++) {
+            burningCells[region] = in.getInt();
+            robotCounts[region] = in.getInt();
+            knownFires[region] = in.getInt();
+        }
+    }
+
+    // ====== Lecture ======
+    // Intensités de toute la carte, indexées x * hauteur + y
+    public double[] readIntensities() {
+        try {
+            for (RegionChannel worker : workers) {
+                worker.send(message(RegionWorker.READ).written());
+            }
+            SimulationCheckpoint.Reader[] replies = await(RegionWorker.READ);
+            int height = layout.template.gridHeight;
+            double[] intensities = new double[layout.template.gridWidth * height];
+            for (int w = 0; w < workers.length; w++) {
+                for (int r = firstRegion[w]; r < firstRegion[w + 1]; r++) {
+                    int region = replies[w].getInt();
+                    int x0 = layout.x0(region);
+                    int y0 = layout.y0(region);
+                    double[] column = new double[layout.height(region)];
+                    for (int x = 0; x < layout.width(region); x++) {
+                        replies[w].getDoubles(column);
+                        System.arraycopy(column, 0, intensities, (x0 + x) * height + y0, column.length);
+                    }
+                }
+            }
+            return intensities;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Cellules en feu des rectangles des régions, au dernier rapport
+    public int getBurningCellCount() {
+        int count = 0;
+        for (int cells : burningCells) {
+            count += cells;
+        }
+        return count;
+    }
+
+    public int getRegionBurningCellCount(int region) { return burningCells[region]; }
+    public int getRegionRobotCount(int region) { return robotCounts[region]; }
+    // Cellules en feu connues du QG de la région
+    public int getRegionKnownFireCount(int region) { return knownFires[region]; }
+    public int getRegionCount() { return layout.size(); }
+    public int getProcessCount() { return workers.length; }
+    public int getTimeStep() { return timeStep; }
+    public long getHandoverCount() { return handovers; }
+
+    // ====== Arrêt ======
+    @Override
+    public void close() {
+        for (RegionChannel worker : workers) {
+            if (worker != null) {
+                try {
+                    worker.send(message(RegionWorker.SHUTDOWN).written());
+                    long deadline = System.currentTimeMillis() + 1000;
+                    while (!worker.flush() && System.currentTimeMillis() < deadline) {
+                        Thread.onSpinWait();
+                    }
+                    worker.close();
+                } catch (IOException e) {
+                    // Processus déjà arrêté
+                }
+            }
+        }
+        try {
+            selector.close();
+        } catch (IOException e) {
+            // Rien à libérer de plus
+        }
+        if (processes != null) {
+            for (Process process : processes) {
+                try {
+                    if (!process.waitFor(5, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
+                    }
+                } catch (InterruptedException e) {
+                    process.destroyForcibly();
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+        deleteDirectory(socketDirectory);
+    }
+
+    private static void deleteDirectory(Path directory) {
+        if (directory == null) {
+            return;
+        }
+        File[] files = directory.toFile().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.toFile().delete();
+    }
+}
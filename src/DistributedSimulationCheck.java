@@ -0,0 +1,92 @@
+import java.io.IOException;
+
+/**
+ * Vérification de la simulation distribuée : une carte avec ses flottes, découpée en régions assez
+ * petites pour que les robots en changent, avancée dans cette JVM (RegionalSimulation) et répartie
+ * entre deux processus lancés sur cette machine (DistributedSimulation), alternativement par TCP et
+ * par sockets Unix. Après chaque pas, les intensités de toute la carte doivent être égales bit à bit,
+ * ainsi que les cellules en feu, les robots de chaque région et les passages :
+ *   java -cp class DistributedSimulationCheck [graines]
+ */
+public class DistributedSimulationCheck {
+    private static final int STEPS = 150;
+    // Régions d'une douzaine de cellules de côté
+    private static final int REGION_SIZE = 12;
+    private static final String[] ENGINES = {"reference", "frontier", "tiled", "multires"};
+
+    private DistributedSimulationCheck() {
+    }
+
+    // Comparer les deux simulations ; retourne null si elles concordent, sinon le premier écart
+    static String compare(long seed, DistributedSimulation.Transport transport, long[] handovers) throws IOException {
+        SimulationRandom random = new SimulationRandom(seed);
+        int width = 40 + random.nextInt(40);
+        int height = 30 + random.nextInt(40);
+        int columns = width / REGION_SIZE;
+        int rows = height / REGION_SIZE;
+        String engine = ENGINES[random.nextInt(ENGINES.length)];
+        MaterialMap materials = random.nextDouble() < 0.5
+            ? RegionalSimulationCheck.randomMaterials(width, height, random) : null;
+        SimulationConfig config = Simulation.builder()
+            .gridSize(width, height)
+            .maxSurvivors(0)
+            .spreadEngine(engine)
+            .materials(materials)
+            .seed(seed)
+            .buildConfig();
+
+        String layout = transport + " " + width + "x" + height + " in " + columns + "x" + rows + " regions, "
+            + engine + (materials != null ? " with materials" : "") + ", seed " + seed;
+        try (RegionalSimulation local = new RegionalSimulation(config, columns, rows, 1);
+             DistributedSimulation distributed = DistributedSimulation.launch(config, columns, rows, 2, transport)) {
+            for (int step = 0; step <= STEPS; step++) {
+                double[] intensities = distributed.readIntensities();
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        double expected = local.getIntensityAt(x, y);
+                        double actual = intensities[x * height + y];
+                        if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+                            return layout + ", step " + step + ", cell (" + x + ", " + y + "): "
+                                + actual + " instead of " + expected;
+                        }
+                    }
+                }
+                if (local.getBurningCellCount() != distributed.getBurningCellCount()) {
+                    return layout + ", step " + step + ": " + distributed.getBurningCellCount()
+                        + " burning cells instead of " + local.getBurningCellCount();
+                }
+                for (int region = 0; region < local.getRegionCount(); region++) {
+                    int expected = local.getRegion(region).getSimulation().getRobots().size();
+                    if (distributed.getRegionRobotCount(region) != expected) {
+                        return layout + ", step " + step + ", region " + region + ": "
+                            + distributed.getRegionRobotCount(region) + " robots instead of " + expected;
+                    }
+                }
+                if (local.getHandoverCount() != distributed.getHandoverCount()) {
+                    return layout + ", step " + step + ": " + distributed.getHandoverCount()
+                        + " handovers instead of " + local.getHandoverCount();
+                }
+                local.step();
+                distributed.step();
+            }
+            handovers[0] += distributed.getHandoverCount();
+        }
+        return null;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 6;
+        long[] handovers = new long[1];
+        String mismatch = null;
+        for (long seed = 1; seed <= seeds && mismatch == null; seed++) {
+            DistributedSimulation.Transport transport = seed % 2 == 0
+                ? DistributedSimulation.Transport.UNIX : DistributedSimulation.Transport.TCP;
+            mismatch = compare(seed, transport, handovers);
+        }
+        System.out.println(mismatch == null
+            ? seeds + " seeds identical, " + handovers[0] + " handovers" : "MISMATCH " + mismatch);
+        if (mismatch != null) {
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Vérification de la réinitialisation rapide : une simulation tirée par graine (taille, stockage,
+ * matériaux, mode événementiel, agents) avance d'un nombre de pas aléatoire, puis resetEpisode
+ * la réensemence avec une autre graine. Elle doit ensuite avancer pas à pas exactement comme une
+ * simulation neuve construite avec la même configuration et cette graine : mêmes intensités, mêmes
+ * robots, mêmes compteurs, et le même checkpoint octet pour octet après chaque pas :
+ *   java -cp class EpisodeResetCheck [graines]
+ */
+public class EpisodeResetCheck {
+    // Pas comparés après la réinitialisation
+    private static final int EPISODE_STEPS = 300;
+
+    private EpisodeResetCheck() {
+    }
+
+    static SimulationConfig randomConfig(long seed) {
+        SimulationRandom random = new SimulationRandom(seed);
+        Simulation.Builder builder = CheckpointCheck.randomBuilder(seed, random);
+        // Puis, avec la suite des tirages : pas à pas, événementiel ou agents (les deux derniers sont exclusifs)
+        int mode = random.nextInt(3);
+        if (mode == 1) {
+            builder.eventDriven(true);
+        } else if (mode == 2) {
+            builder.agentRuntime(random.nextInt(3));
+        }
+        return builder.buildConfig();
+    }
+
+    // Réinitialiser après quelques pas et comparer à une simulation neuve ; null si tout concorde
+    static String compare(long seed) throws IOException {
+        SimulationConfig config = randomConfig(seed);
+        Simulation reused = new Simulation(config);
+        int steps = new SimulationRandom(~seed).nextInt(400);
+        reused.step(steps);
+        long episodeSeed = seed * 1000 + 99;
+        reused.resetEpisode(episodeSeed);
+        Simulation fresh = new Simulation(config.withClock(SimulationClock.manual()).withSeed(episodeSeed));
+
+        String layout = config.gridWidth + "x" + config.gridHeight + " " + config.storage
+            + (config.materials != null ? " with materials" : "") + (config.eventDriven ? ", event driven" : "")
+            + (config.agentRuntime ? ", agents" : "") + ", seed " + seed + ", reset after " + steps + " steps";
+        for (int step = 0; step <= EPISODE_STEPS; step++) {
+            String mismatch = CheckpointCheck.compare(fresh, reused);
+            if (mismatch == null && fresh.getStepCount() != reused.getStepCount()) {
+                mismatch = "step count " + reused.getStepCount() + " instead of " + fresh.getStepCount();
+            }
+            if (mismatch == null && fresh.getRobotUpdateCount() != reused.getRobotUpdateCount()) {
+                mismatch = "robot updates " + reused.getRobotUpdateCount() + " instead of " + fresh.getRobotUpdateCount();
+            }
+            long now = fresh.getConfig().clock.currentTimeMillis();
+            if (mismatch == null && reused.getConfig().clock.currentTimeMillis() != now) {
+                mismatch = "clock at " + reused.getConfig().clock.currentTimeMillis() + " instead of " + now;
+            }
+            if (mismatch == null && !checkpoint(fresh).equals(checkpoint(reused))) {
+                mismatch = "the reset simulation saves a different checkpoint";
+            }
+            if (mismatch != null) {
+                return layout + ", step " + step + ": " + mismatch;
+            }
+            fresh.step();
+            reused.step();
+        }
+        return null;
+    }
+
+    // État complet de la simulation, sous la forme de son checkpoint en mémoire
+    private static ByteBuffer checkpoint(Simulation simulation) throws IOException {
+        SimulationCheckpoint.Writer out = SimulationCheckpoint.Writer.inMemory(simulation.getConfig().clock.currentTimeMillis());
+        simulation.writeCheckpoint(out);
+        return out.written();
+    }
+
+    public static void main(String[] args) throws IOException {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 20;
+        String mismatch = null;
+        for (long seed = 1; seed <= seeds && mismatch == null; seed++) {
+            mismatch = compare(seed);
+        }
+        System.out.println(mismatch == null ? seeds + " seeds identical" : "MISMATCH " + mismatch);
+        if (mismatch != null) {
+            System.exit(1);
+        }
+    }
+}
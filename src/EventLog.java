@@ -0,0 +1,210 @@
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Journal d'événements d'une simulation, écrit en ajout seul.
+ *
+ * Chaque trame contient uniquement les changements depuis la trame précédente :
+ * cellules modifiées (intensité quantifiée sur 8 bits), robots déplacés ou ayant
+ * changé d'état, transitions des survivants. Une trame clé complète est écrite
+ * toutes les KEYFRAME_INTERVAL trames pour permettre un accès direct lors de la relecture.
+ *
+ * Format (big-endian) :
+ *   en-tête : MAGIC, VERSION, largeur, hauteur, QG x, QG y, seuil, intensité max, intervalle des trames clés
+ *   trame   : type (KEYFRAME ou DELTA), pas de temps, temps écoulé (ms)
+ *     KEYFRAME : largeur*hauteur octets, puis tous les robots et tous les survivants
+ *     DELTA    : nb cellules + (index, niveau), nb robots + robots, nb survivants + survivants
+ *   robot    : id, type, x, y, état, énergie %, eau % (255 pour un éclaireur)
+ *   survivant: id, x, y, statut (0 actif, 1 sauvé, 2 mort)
+ */
+public class EventLog implements Closeable {
+    // "FIRELOG1"
+    static final long MAGIC = 0x464952454C4F4731L;
+    static final int VERSION = 1;
+    static final int KEYFRAME_INTERVAL = 100;
+
+    static final byte FRAME_KEY = 1;
+    static final byte FRAME_DELTA = 2;
+
+    static final byte SURVIVOR_ACTIVE = 0;
+    static final byte SURVIVOR_RESCUED = 1;
+    static final byte SURVIVOR_DEAD = 2;
+
+    private final DataOutputStream out;
+    private final int width;
+    private final int height;
+    private final double maxIntensity;
+    private final SimulationClock clock;
+    private final long startTime;
+    private final byte[] previousCells;
+    private final byte[] currentCells;
+    private final Map<Integer, RobotSnapshot> previousRobots = new HashMap<>();
+    private final Map<Integer, Byte> previousSurvivors = new HashMap<>();
+    private int frameCount;
+    private boolean forceKeyframe = true;
+
+    public EventLog(Path path, FireGrid fireGrid, int hqX, int hqY, SimulationClock clock) throws IOException {
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile()), 1 << 16));
+        this.width = fireGrid.getWidth();
+        this.height = fireGrid.getHeight();
+        this.maxIntensity = fireGrid.getMaxIntensity();
+        this.clock = clock;
+        this.startTime = clock.currentTimeMillis();
+        this.previousCells = new byte[width * height];
+        this.currentCells = new byte[width * height];
+
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeInt(hqX);
+        out.writeInt(hqY);
+        out.writeDouble(fireGrid.getIntensityThreshold());
+        out.writeDouble(maxIntensity);
+        out.writeInt(KEYFRAME_INTERVAL);
+    }
+
+    // Forcer une trame clé (par exemple après une réinitialisation)
+    public synchronized void requestKeyframe() {
+        forceKeyframe = true;
+    }
+
+    // Enregistrer une trame
+    public synchronized void recordFrame(int timeStep, FireGrid fireGrid, List<Robot> robots, List<Survivor> survivors)
+            throws IOException {
+        boolean keyframe = forceKeyframe || frameCount % KEYFRAME_INTERVAL == 0;
+        forceKeyframe = false;
+        frameCount++;
+
+        out.writeByte(keyframe ? FRAME_KEY : FRAME_DELTA);
+        out.writeInt(timeStep);
+        out.writeLong(clock.currentTimeMillis() - startTime);
+
+        // Figer les listes, qui peuvent être modifiées par un autre thread
+        Robot[] currentRobots = robots.toArray(new Robot[0]);
+        Survivor[] currentSurvivors = survivors.toArray(new Survivor[0]);
+        if (keyframe) {
+            writeKeyframe(fireGrid, currentRobots, currentSurvivors);
+        } else {
+            writeDelta(fireGrid, currentRobots, currentSurvivors);
+        }
+    }
+
+    private void writeKeyframe(FireGrid fireGrid, Robot[] robots, Survivor[] survivors) throws IOException {
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int index = i * height + j;
+                previousCells[index] = (byte) IntensityQuantizer.toByte(fireGrid.getIntensityAt(i, j), maxIntensity);
+            }
+        }
+        out.write(previousCells);
+
+        previousRobots.clear();
+        out.writeInt(robots.length);
+        for (Robot robot : robots) {
+            RobotSnapshot snapshot = RobotSnapshot.of(robot);
+            previousRobots.put(snapshot.id, snapshot);
+            writeRobot(snapshot);
+        }
+
+        previousSurvivors.clear();
+        out.writeInt(survivors.length);
+        for (Survivor survivor : survivors) {
+            byte status = statusOf(survivor);
+            previousSurvivors.put(survivor.getId(), status);
+            writeSurvivor(survivor, status);
+        }
+    }
+
+    private void writeDelta(FireGrid fireGrid, Robot[] robots, Survivor[] survivors) throws IOException {
+        // Quantifier la grille une seule fois, puis compter et écrire les cellules modifiées
+        int changed = 0;
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int index = i * height + j;
+                currentCells[index] = (byte) IntensityQuantizer.toByte(fireGrid.getIntensityAt(i, j), maxIntensity);
+                if (currentCells[index] != previousCells[index]) {
+                    changed++;
+                }
+            }
+        }
+        out.writeInt(changed);
+        for (int index = 0; index < currentCells.length && changed > 0; index++) {
+            if (currentCells[index] != previousCells[index]) {
+                previousCells[index] = currentCells[index];
+                out.writeInt(index);
+                out.writeByte(currentCells[index]);
+            }
+        }
+
+        RobotSnapshot[] changedRobots = new RobotSnapshot[robots.length];
+        int robotChanges = 0;
+        for (Robot robot : robots) {
+            RobotSnapshot snapshot = RobotSnapshot.of(robot);
+            if (!snapshot.sameAs(previousRobots.get(snapshot.id))) {
+                previousRobots.put(snapshot.id, snapshot);
+                changedRobots[robotChanges++] = snapshot;
+            }
+        }
+        out.writeInt(robotChanges);
+        for (int i = 0; i < robotChanges; i++) {
+            writeRobot(changedRobots[i]);
+        }
+
+        int survivorChanges = 0;
+        byte[] statuses = new byte[survivors.length];
+        Survivor[] changedSurvivors = new Survivor[survivors.length];
+        for (Survivor survivor : survivors) {
+            byte status = statusOf(survivor);
+            Byte previous = previousSurvivors.get(survivor.getId());
+            if (previous == null || previous != status) {
+                previousSurvivors.put(survivor.getId(), status);
+                statuses[survivorChanges] = status;
+                changedSurvivors[survivorChanges++] = survivor;
+            }
+        }
+        out.writeInt(survivorChanges);
+        for (int i = 0; i < survivorChanges; i++) {
+            writeSurvivor(changedSurvivors[i], statuses[i]);
+        }
+    }
+
+    private void writeRobot(RobotSnapshot robot) throws IOException {
+        out.writeInt(robot.id);
+        out.writeByte(robot.type);
+        out.writeInt(robot.x);
+        out.writeInt(robot.y);
+        out.writeByte(robot.state.ordinal());
+        out.writeByte(robot.energyPercentage);
+        out.writeByte(robot.waterPercentage);
+    }
+
+    private void writeSurvivor(Survivor survivor, byte status) throws IOException {
+        out.writeInt(survivor.getId());
+        out.writeInt(survivor.getX());
+        out.writeInt(survivor.getY());
+        out.writeByte(status);
+    }
+
+    private static byte statusOf(Survivor survivor) {
+        if (survivor.isDead()) return SURVIVOR_DEAD;
+        if (survivor.isRescued()) return SURVIVOR_RESCUED;
+        return SURVIVOR_ACTIVE;
+    }
+
+    public synchronized void flush() throws IOException {
+        out.flush();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        out.close();
+    }
+}
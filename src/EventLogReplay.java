@@ -0,0 +1,232 @@
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Relecture d'un journal d'événements (voir EventLog) sans re-simulation.
+ *
+ * Le fichier est mappé en mémoire et indexé à l'ouverture. L'accès à une trame
+ * quelconque part de la trame clé précédente et applique les deltas suivants ;
+ * une lecture séquentielle applique simplement le delta suivant.
+ */
+public class EventLogReplay {
+    private static final int ROBOT_RECORD_SIZE = 4 + 1 + 4 + 4 + 1 + 1 + 1;
+    private static final int SURVIVOR_RECORD_SIZE = 4 + 4 + 4 + 1;
+    private static final int CELL_RECORD_SIZE = 4 + 1;
+
+    private final ByteBuffer buffer;
+    private final int width;
+    private final int height;
+    private final int hqX;
+    private final int hqY;
+    private final double intensityThreshold;
+    private final double maxIntensity;
+
+    // Index des trames
+    private final int[] frameOffsets;
+    private final int[] previousKeyframe;
+    private final int[] timeSteps;
+    private final long[] elapsedMillis;
+    private final int frameCount;
+
+    // État reconstruit de la trame courante
+    private final byte[] cells;
+    private final Map<Integer, RobotSnapshot> robots = new TreeMap<>();
+    private final Map<Integer, int[]> survivors = new TreeMap<>();
+    private int currentFrame = -1;
+
+    private EventLogReplay(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.getLong() != EventLog.MAGIC) {
+            throw new IOException("Not a simulation event log");
+        }
+        int version = buffer.getInt();
+        if (version != EventLog.VERSION) {
+            throw new IOException("Unsupported event log version: " + version);
+        }
+        this.width = buffer.getInt();
+        this.height = buffer.getInt();
+        this.hqX = buffer.getInt();
+        this.hqY = buffer.getInt();
+        this.intensityThreshold = buffer.getDouble();
+        this.maxIntensity = buffer.getDouble();
+        buffer.getInt();
+        this.cells = new byte[width * height];
+
+        List<Integer> offsets = new ArrayList<>();
+        List<Integer> keyframes = new ArrayList<>();
+        List<Integer> steps = new ArrayList<>();
+        List<Long> elapsed = new ArrayList<>();
+        int lastKeyframe = -1;
+        // Indexer les trames complètes ; une trame tronquée en fin de fichier est ignorée
+        while (buffer.hasRemaining()) {
+            int offset = buffer.position();
+            try {
+                byte kind = buffer.get();
+                int step = buffer.getInt();
+                long millis = buffer.getLong();
+                skipFrameBody(kind);
+                if (kind == EventLog.FRAME_KEY) {
+                    lastKeyframe = offsets.size();
+                }
+                if (lastKeyframe < 0) {
+                    throw new IOException("Event log does not start with a keyframe");
+                }
+                offsets.add(offset);
+                keyframes.add(lastKeyframe);
+                steps.add(step);
+                elapsed.add(millis);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                break;
+            }
+        }
+
+        this.frameCount = offsets.size();
+        this.frameOffsets = new int[frameCount];
+        this.previousKeyframe = new int[frameCount];
+        this.timeSteps = new int[frameCount];
+        this.elapsedMillis = new long[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            frameOffsets[i] = offsets.get(i);
+            previousKeyframe[i] = keyframes.get(i);
+            timeSteps[i] = steps.get(i);
+            elapsedMillis[i] = elapsed.get(i);
+        }
+    }
+
+    public static EventLogReplay open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Event log too large to replay: " + path);
+            }
+            return new EventLogReplay(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    private void skipFrameBody(byte kind) throws IOException {
+        if (kind == EventLog.FRAME_KEY) {
+            skip(cells.length);
+        } else if (kind == EventLog.FRAME_DELTA) {
+            skip(buffer.getInt() * CELL_RECORD_SIZE);
+        } else {
+            throw new IOException("Corrupted event log frame");
+        }
+        skip(buffer.getInt() * ROBOT_RECORD_SIZE);
+        skip(buffer.getInt() * SURVIVOR_RECORD_SIZE);
+    }
+
+    private void skip(int bytes) {
+        buffer.position(buffer.position() + bytes);
+    }
+
+    // Se positionner sur une trame donnée
+    public void seek(int frame) {
+        if (frame < 0 || frame >= frameCount) {
+            throw new IndexOutOfBoundsException("Frame " + frame + " outside [0," + frameCount + ")");
+        }
+        int start;
+        if (currentFrame >= previousKeyframe[frame] && currentFrame <= frame) {
+            start = currentFrame + 1;
+        } else {
+            start = previousKeyframe[frame];
+        }
+        for (int i = start; i <= frame; i++) {
+            applyFrame(i);
+        }
+        currentFrame = frame;
+    }
+
+    private void applyFrame(int frame) {
+        buffer.position(frameOffsets[frame]);
+        byte kind = buffer.get();
+        buffer.getInt();
+        buffer.getLong();
+
+        if (kind == EventLog.FRAME_KEY) {
+            buffer.get(cells);
+            robots.clear();
+            survivors.clear();
+        } else {
+            int changed = buffer.getInt();
+            for (int i = 0; i < changed; i++) {
+                int index = buffer.getInt();
+                cells[index] = buffer.get();
+            }
+        }
+
+        int robotCount = buffer.getInt();
+        for (int i = 0; i < robotCount; i++) {
+            int id = buffer.getInt();
+            byte type = buffer.get();
+            int x = buffer.getInt();
+            int y = buffer.getInt();
+            Robot.State state = Robot.State.values()[buffer.get()];
+            int energy = buffer.get() & 0xFF;
+            int water = buffer.get() & 0xFF;
+            robots.put(id, new RobotSnapshot(id, type, x, y, state, energy, water));
+        }
+
+        int survivorCount = buffer.getInt();
+        for (int i = 0; i < survivorCount; i++) {
+            int id = buffer.getInt();
+            survivors.put(id, new int[]{buffer.getInt(), buffer.getInt(), buffer.get()});
+        }
+    }
+
+    // ====== Accès à la trame courante ======
+    public double[][] getIntensityMap() {
+        double[][] map = new double[width][height];
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                map[i][j] = IntensityQuantizer.fromByte(cells[i * height + j], maxIntensity);
+            }
+        }
+        return map;
+    }
+
+    public List<RobotSnapshot> getRobots() {
+        return new ArrayList<>(robots.values());
+    }
+
+    public List<Survivor> getSurvivors() {
+        List<Survivor> list = new ArrayList<>(survivors.size());
+        for (Map.Entry<Integer, int[]> entry : survivors.entrySet()) {
+            int[] s = entry.getValue();
+            list.add(new Survivor(entry.getKey(), s[0], s[1],
+                s[2] == EventLog.SURVIVOR_RESCUED, s[2] == EventLog.SURVIVOR_DEAD));
+        }
+        return list;
+    }
+
+    // Cellules en feu de la trame courante
+    public CellMask getBurningMask() {
+        int threshold = IntensityQuantizer.toByte(intensityThreshold, maxIntensity);
+        CellMask mask = new CellMask(width, height);
+        for (int index = 0; index < cells.length; index++) {
+            mask.set(index, (cells[index] & 0xFF) > threshold);
+        }
+        return mask;
+    }
+
+    public int getBurningCellCount() {
+        return getBurningMask().count();
+    }
+
+    public int getCurrentFrame() { return currentFrame; }
+    public int getFrameCount() { return frameCount; }
+    public int getTimeStep(int frame) { return timeSteps[frame]; }
+    public long getElapsedMillis(int frame) { return elapsedMillis[frame]; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+    public int getHqX() { return hqX; }
+    public int getHqY() { return hqY; }
+    public double getIntensityThreshold() { return intensityThreshold; }
+    public double getMaxIntensity() { return maxIntensity; }
+}
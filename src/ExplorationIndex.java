@@ -0,0 +1,282 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Carte des zones explorées avec un index des régions encore inexplorées.
+ *
+ * Les cellules sont regroupées en blocs de BLOCK_SIZE x BLOCK_SIZE. Un arbre de comptage
+ * (quadtree implicite, un niveau par taille de nœud) tient le nombre de cellules explorées de chaque
+ * bloc et de chaque groupe de blocs ; il est mis à jour à chaque marquage à partir du nombre de
+ * bits nouvellement posés, en O(niveaux) par bloc touché. Les nœuds sont rangés par pages de
+ * PAGE_SIZE x PAGE_SIZE allouées au premier marquage : une page absente n'a rien d'exploré, et les
+ * cellules inexplorées d'un nœud sont sa surface moins ses cellules explorées. Un index neuf
+ * n'alloue donc aucun compteur, et une grande carte n'en alloue que le long des trajets.
+ *
+ * Le meilleur bloc depuis une position (cellules inexplorées moins un coût de distance) est trouvé
+ * par séparation-évaluation : un nœud est écarté si un bloc plein à sa distance minimale ne battrait
+ * pas le meilleur bloc trouvé, et les enfants sont visités du plus proche au plus éloigné. Seuls
+ * quelques chemins de l'arbre sont parcourus, ce qui rend la recherche logarithmique en pratique,
+ * quelle que soit la taille de la carte.
+ */
+public class ExplorationIndex {
+    static final int BLOCK_SHIFT = 3;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int PAGE_SHIFT = 4;
+    private static final int PAGE_SIZE = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_SIZE - 1;
+
+    // Blocs admis par une recherche, désignés par leur centre
+    interface BlockFilter {
+        boolean accept(int x, int y);
+    }
+
+    private final int width;
+    private final int height;
+    private final ChunkedBitmap explored;
+    // counts[niveau][page][k] : cellules explorées du nœud (i, j) ; niveau 0 = blocs,
+    // page = (i / PAGE_SIZE) * pagesY[niveau] + j / PAGE_SIZE, k = (i % PAGE_SIZE) * PAGE_SIZE + j % PAGE_SIZE
+    private final int[][][] counts;
+    private final int[] sizesX;
+    private final int[] sizesY;
+    private final int[] pagesY;
+    private long unexplored;
+
+    // Meilleur bloc de la recherche en cours
+    private double bestScore;
+    private int bestX;
+    private int bestY;
+    // Ordre de visite des enfants, un tampon par niveau
+    private final long[][] childOrder;
+
+    public ExplorationIndex(int width, int height) {
+        this.width = width;
+        this.height = height;
+        this.explored = new ChunkedBitmap(width, height);
+
+        int levels = 1;
+        int bx = (width + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        int by = (height + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        while (bx > 1 || by > 1) {
+            bx = (bx + 1) >> 1;
+            by = (by + 1) >> 1;
+            levels++;
+        }
+        this.counts = new int[levels][][];
+        this.sizesX = new int[levels];
+        this.sizesY = new int[levels];
+        this.pagesY = new int[levels];
+        bx = (width + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        by = (height + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        for (int level = 0; level < levels; level++) {
+            sizesX[level] = bx;
+            sizesY[level] = by;
+            pagesY[level] = (by + PAGE_MASK) >> PAGE_SHIFT;
+            counts[level] = new int[((bx + PAGE_MASK) >> PAGE_SHIFT) * pagesY[level]][];
+            bx = (bx + 1) >> 1;
+            by = (by + 1) >> 1;
+        }
+        this.childOrder = new long[levels][4];
+        this.unexplored = (long) width * height;
+    }
+
+    public boolean get(int x, int y) {
+        return explored.get(x, y);
+    }
+
+    // Marquer le rectangle [x0, x1] x [y0, y1] (bornes incluses, dans la grille)
+    public void markRect(int x0, int y0, int x1, int y1) {
+        for (int bi = x0 >> BLOCK_SHIFT; bi <= x1 >> BLOCK_SHIFT; bi++) {
+            int cx0 = Math.max(x0, bi << BLOCK_SHIFT);
+            int cx1 = Math.min(x1, (bi << BLOCK_SHIFT) + BLOCK_SIZE - 1);
+            for (int bj = y0 >> BLOCK_SHIFT; bj <= y1 >> BLOCK_SHIFT; bj++) {
+                int cy0 = Math.max(y0, bj << BLOCK_SHIFT);
+                int cy1 = Math.min(y1, (bj << BLOCK_SHIFT) + BLOCK_SIZE - 1);
+                int newlyExplored = (cx1 - cx0 + 1) * (cy1 - cy0 + 1) - explored.countRect(cx0, cy0, cx1, cy1);
+                if (newlyExplored > 0) {
+                    addExplored(bi, bj, newlyExplored);
+                }
+            }
+        }
+        explored.setRect(x0, y0, x1, y1);
+    }
+
+    public void set(int x, int y) {
+        markRect(x, y, x, y);
+    }
+
+    // Ajouter les zones explorées d'une carte de même taille, en ne parcourant que ses tuiles allouées
+    public void merge(ChunkedBitmap other) {
+        for (int tx = 0; tx < width; tx += ChunkedGrid.TILE_SIZE) {
+            for (int ty = 0; ty < height; ty += ChunkedGrid.TILE_SIZE) {
+                if (!other.hasTile(tx, ty)) continue;
+                int bi1 = (Math.min(width, tx + ChunkedGrid.TILE_SIZE) - 1) >> BLOCK_SHIFT;
+                int bj1 = (Math.min(height, ty + ChunkedGrid.TILE_SIZE) - 1) >> BLOCK_SHIFT;
+                for (int bi = tx >> BLOCK_SHIFT; bi <= bi1; bi++) {
+                    for (int bj = ty >> BLOCK_SHIFT; bj <= bj1; bj++) {
+                        // Rien à apprendre d'un bloc déjà exploré ici
+                        if (unexploredCount(0, bi, bj) == 0) continue;
+                        int x0 = bi << BLOCK_SHIFT;
+                        int y0 = bj << BLOCK_SHIFT;
+                        int added = explored.orRect(other, x0, y0,
+                            Math.min(width, x0 + BLOCK_SIZE) - 1, Math.min(height, y0 + BLOCK_SIZE) - 1);
+                        if (added > 0) {
+                            addExplored(bi, bj, added);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // Ajouter les zones explorées d'un autre index de même taille
+    public void merge(ExplorationIndex other) {
+        merge(other.explored);
+    }
+
+    // Cellules inexplorées d'un nœud : sa surface moins ses cellules explorées
+    private int unexploredCount(int level, int i, int j) {
+        int shift = BLOCK_SHIFT + level;
+        int nodeWidth = Math.min(width, (i + 1) << shift) - (i << shift);
+        int nodeHeight = Math.min(height, (j + 1) << shift) - (j << shift);
+        int[] page = counts[level][(i >> PAGE_SHIFT) * pagesY[level] + (j >> PAGE_SHIFT)];
+        return nodeWidth * nodeHeight - (page == null ? 0 : page[((i & PAGE_MASK) << PAGE_SHIFT) | (j & PAGE_MASK)]);
+    }
+
+    // Compter des cellules nouvellement explorées dans un bloc et dans tous ses ancêtres
+    private void addExplored(int bi, int bj, int added) {
+        unexplored -= added;
+        for (int level = 0; level < counts.length; level++) {
+            int i = bi >> level;
+            int j = bj >> level;
+            int pageIndex = (i >> PAGE_SHIFT) * pagesY[level] + (j >> PAGE_SHIFT);
+            int[] page = counts[level][pageIndex];
+            if (page == null) {
+                page = new int[PAGE_SIZE * PAGE_SIZE];
+                counts[level][pageIndex] = page;
+            }
+            page[((i & PAGE_MASK) << PAGE_SHIFT) | (j & PAGE_MASK)] += added;
+        }
+    }
+
+    // Bloc au meilleur score depuis (x, y) : cellules inexplorées du bloc moins distanceWeight fois
+    // la distance jusqu'à son centre, parmi les blocs admis par filter (tous si null) ;
+    // le centre du bloc est écrit dans target, false si aucun bloc admis n'a de cellule inexplorée
+    public boolean findBestBlock(int x, int y, double distanceWeight, BlockFilter filter, int[] target) {
+        if (unexplored == 0) {
+            return false;
+        }
+        bestScore = Double.NEGATIVE_INFINITY;
+        searchBlock(counts.length - 1, 0, 0, x, y, distanceWeight, filter);
+        if (bestScore == Double.NEGATIVE_INFINITY) {
+            return false;
+        }
+        target[0] = bestX;
+        target[1] = bestY;
+        return true;
+    }
+
+    private void searchBlock(int level, int i, int j, int x, int y, double distanceWeight, BlockFilter filter) {
+        int count = unexploredCount(level, i, j);
+        // Majorant : un bloc au plus plein, au plus près du nœud
+        double bound = Math.min(count, BLOCK_SIZE * BLOCK_SIZE) - distanceWeight * Math.sqrt(nodeDistance(level, i, j, x, y));
+        if (count == 0 || bound <= bestScore) {
+            return;
+        }
+        if (level == 0) {
+            int cx = Math.min((i << BLOCK_SHIFT) + BLOCK_SIZE / 2, width - 1);
+            int cy = Math.min((j << BLOCK_SHIFT) + BLOCK_SIZE / 2, height - 1);
+            double score = count - distanceWeight * Math.sqrt((double) (cx - x) * (cx - x) + (double) (cy - y) * (cy - y));
+            if (score > bestScore && (filter == null || filter.accept(cx, cy))) {
+                bestScore = score;
+                bestX = cx;
+                bestY = cy;
+            }
+            return;
+        }
+
+        int child = level - 1;
+        long[] order = childOrder[level];
+        int n = sortChildren(level, i, j, x, y, order);
+        for (int k = 0; k < n; k++) {
+            int a = (int) (order[k] >> 1) & 1;
+            int b = (int) order[k] & 1;
+            searchBlock(child, 2 * i + a, 2 * j + b, x, y, distanceWeight, filter);
+        }
+    }
+
+    // Enfants du nœud, du plus proche au plus éloigné : (distance << 2) | (a << 1) | b
+    private int sortChildren(int level, int i, int j, int x, int y, long[] order) {
+        int child = level - 1;
+        int n = 0;
+        for (int a = 0; a < 2; a++) {
+            int ci = 2 * i + a;
+            if (ci >= sizesX[child]) continue;
+            for (int b = 0; b < 2; b++) {
+                int cj = 2 * j + b;
+                if (cj >= sizesY[child]) continue;
+                order[n++] = (nodeDistance(child, ci, cj, x, y) << 2) | (a << 1) | b;
+            }
+        }
+        Arrays.sort(order, 0, n);
+        return n;
+    }
+
+    // Carré de la distance de (x, y) au rectangle de cellules couvert par un nœud
+    private long nodeDistance(int level, int i, int j, int x, int y) {
+        int shift = BLOCK_SHIFT + level;
+        int x0 = i << shift;
+        int y0 = j << shift;
+        int x1 = Math.min(width, (i + 1) << shift) - 1;
+        int y1 = Math.min(height, (j + 1) << shift) - 1;
+        long dx = x < x0 ? x0 - x : (x > x1 ? x - x1 : 0);
+        long dy = y < y0 ? y0 - y : (y > y1 ? y - y1 : 0);
+        return dx * dx + dy * dy;
+    }
+
+    // Libérer les compteurs : plus aucune cellule explorée
+    private void releaseCounts() {
+        for (int[][] level : counts) {
+            Arrays.fill(level, null);
+        }
+        unexplored = (long) width * height;
+    }
+
+    // Recalculer les compteurs à partir du masque (relecture d'un checkpoint)
+    private void rebuildCounts() {
+        releaseCounts();
+        for (int bi = 0; bi < sizesX[0]; bi++) {
+            int x0 = bi << BLOCK_SHIFT;
+            int x1 = Math.min(width, x0 + BLOCK_SIZE) - 1;
+            for (int bj = 0; bj < sizesY[0]; bj++) {
+                int y0 = bj << BLOCK_SHIFT;
+                int count = explored.countRect(x0, y0, x1, Math.min(height, y0 + BLOCK_SIZE) - 1);
+                if (count > 0) {
+                    addExplored(bi, bj, count);
+                }
+            }
+        }
+    }
+
+    // Revenir à une carte neuve, sans tuile ni compteur alloués
+    public void clear() {
+        explored.release();
+        releaseCounts();
+    }
+
+    public long getUnexploredCount() {
+        return unexplored;
+    }
+
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        explored.writeCheckpoint(out);
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        explored.readCheckpoint(in);
+        rebuildCounts();
+    }
+}
@@ -1,15 +1,57 @@
-import java.util.Random;
 public class Fire {
 
     private FireGrid fireGrid;
-    private Random random = new Random();
-
-    public Fire(FireGrid fireGrid) {
+    private SimulationConfig config;
+    private SimulationRandom random;
+    // Renforcement et propagation, avec leurs tampons
+    private final SpreadEngine engine;
+    // Région d'une carte découpée : les foyers sont allumés par RegionalSimulation, pas par ce feu
+    private final boolean regional;
+    // Une cellule était en feu avant le dernier pas
+    private boolean active;
+
+    public Fire(FireGrid fireGrid, SimulationConfig config) {
         this.fireGrid = fireGrid;
-        this.random = new Random();
+        this.config = config;
+        this.random = config.newRandom(SimulationConfig.STREAM_FIRE);
+        this.engine = SpreadEngine.create(config.spreadEngine);
+        this.regional = false;
         initializeMultipleFires();
     }
 
+    // Restaurer un feu existant sans créer de nouveaux foyers
+    Fire(FireGrid fireGrid, SimulationConfig config, long randomState) {
+        this.fireGrid = fireGrid;
+        this.config = config;
+        this.random = new SimulationRandom();
+        this.random.setState(randomState);
+        this.engine = SpreadEngine.create(config.spreadEngine);
+        this.regional = false;
+    }
+
+    // Feu d'une région, dont la grille est la fenêtre d'origine (originX, originY) d'une carte de
+    // hauteur globalHeight : aucun foyer propre, tirages de la carte entière ; l'état du flux
+    // aléatoire est fourni avant chaque pas (setRandomState), le même pour toutes les régions
+    Fire(FireGrid fireGrid, SimulationConfig config, int originX, int originY, int globalHeight) {
+        this.fireGrid = fireGrid;
+        this.config = config;
+        this.random = new SimulationRandom();
+        this.engine = SpreadEngine.create(config.spreadEngine);
+        this.regional = true;
+        if (!engine.place(originX, originY, globalHeight)) {
+            throw new IllegalArgumentException("Spread engine " + config.spreadEngine
+                + " cannot run on a region: its draws depend on the scan order");
+        }
+    }
+
+    // Rallumer de nouveaux foyers sur une grille vidée, avec une nouvelle graine
+    void reset(long seed) {
+        random.setSeed(seed);
+        if (!regional) {
+            initializeMultipleFires();
+        }
+    }
+
     // Initialiser 2 ou 3 feux
     private void initializeMultipleFires() {
         int numFires = random.nextInt(2) + 2;
@@ -28,8 +70,10 @@ public class Fire {
             int y = random.nextInt(fireGrid.getHeight());
             // Ne pas créer de feu près du quartier général
             if (!isNearHQ(x, y)) {
-                // 80% à 100% de l'intensité initiale
-                double initialIntensity = fireGrid.getInitialIntensity() * (0.8 + random.nextDouble() * 0.2);
+                // 80% à 100% de l'intensité initiale (du matériau de la cellule s'il y en a)
+                double baseIntensity = config.materials == null ? fireGrid.getInitialIntensity()
+                    : config.materials.getInitialIntensity(x * fireGrid.getHeight() + y);
+                double initialIntensity = baseIntensity * (0.8 + random.nextDouble() * 0.2);
                 fireGrid.setIntensityAt(x, y, initialIntensity);
                 break;
             }
@@ -37,80 +81,36 @@ public class Fire {
         }
     }
 
-    // Propager le feu
+    // Propager le feu (moteur choisi par la configuration), puis rallumer un foyer si plus rien ne brûle
     public void spread() {
-        double[][] currentIntensities = fireGrid.getIntensityGrid();
-        double[][] newGrid = new double[fireGrid.getWidth()][fireGrid.getHeight()];
-        boolean hasActiveFire = false;
-        
-        for (int i = 0; i < fireGrid.getWidth(); i++) {
-            for (int j = 0; j < fireGrid.getHeight(); j++) {
-                // Copier les intensités actuelles
-                newGrid[i][j] = currentIntensities[i][j];
-                if (currentIntensities[i][j] > fireGrid.getIntensityThreshold()) {
-                    hasActiveFire = true;
-                    // Renforcer le feu existant avec une probabilité de 30%
-                    if (random.nextDouble() < 0.3) {
-                        // Augmenter l'intensité du feu mais pas au-dessus de la valeur maximale
-                        newGrid[i][j] = Math.min(fireGrid.getMaxIntensity(), currentIntensities[i][j] + (random.nextDouble() * 20 - 5));
-                    }
-                }
-            }
-        }
-
-        for (int i = 0; i < fireGrid.getWidth(); i++) {
-            for (int j = 0; j < fireGrid.getHeight(); j++) {
-                if (currentIntensities[i][j] > fireGrid.getIntensityThreshold()) {
-                    // Propager le feu à partir des cellules actives
-                    spreadToNeighbors(i, j, newGrid, currentIntensities[i][j]);
-                }
-            }
-        }
-
-        // Créer un nouveau feu si aucun feu actif n'est présent
-        if (!hasActiveFire) {
+        active = engine.spread(fireGrid, config.materials, random);
+        if (!active && !regional) {
             createNewFire();
         }
-
-        // Mettre à jour la grille d'intensité du feu
-        fireGrid.updateGrid(newGrid);
     }
 
-    // Propager le feu aux voisins
-    private void spreadToNeighbors(int x, int y, double[][] newGrid, double sourceIntensity) {
-
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dy = -1; dy <= 1; dy++) {
-
-                // Ne pas propager le feu à la même cellule
-                if (dx == 0 && dy == 0) continue;
-
-                int nx = x + dx;
-                int ny = y + dy;
-
-                if (nx >= 0 && nx < fireGrid.getWidth() && ny >= 0 && ny < fireGrid.getHeight()) {
-                    if (newGrid[nx][ny] < fireGrid.getIntensityThreshold() && random.nextDouble() < fireGrid.getSpreadProbability()) {
-
-                        // Intensité de propagation du feu (60% à 90% de l'intensité source)
-                        double spreadIntensity = sourceIntensity * (0.6 + random.nextDouble() * 0.3);
-                        // Limiter l'intensité de propagation du feu
-                        spreadIntensity = Math.max(fireGrid.getIntensityThreshold() + 10, Math.min(fireGrid.getMaxIntensity(), spreadIntensity));
-                        newGrid[nx][ny] = spreadIntensity;
-                    }
-                }
-            }
-        }
+    // Une cellule était-elle en feu avant le dernier pas ?
+    boolean wasActive() {
+        return active;
     }
 
     // Vérifier si la cellule est proche de quartier général
     private boolean isNearHQ(int x, int y) {
-        int hqX = HeadQuarters.HQ_X;
-        int hqY = HeadQuarters.HQ_Y;
-        int safeDistance = 5;
+        int hqX = config.hqX;
+        int hqY = config.hqY;
+        int safeDistance = config.hqSafeDistance;
         double distance = Math.sqrt(Math.pow(x - hqX, 2) + Math.pow(y - hqY, 2));
         return distance < safeDistance;
     }
 
+    long getRandomState() {
+        return random.getState();
+    }
+
+    void setRandomState(long state) {
+        random.setState(state);
+    }
+
     public FireGrid getFireGrid() {
         return this.fireGrid;
     }
@@ -0,0 +1,150 @@
+import java.util.Arrays;
+
+/**
+ * Niveau grossier de la grille de feu : blocs de BLOCK_SIZE x BLOCK_SIZE cellules.
+ *
+ * Chaque bloc compte ses cellules en feu ; un bloc actif (au moins une cellule en feu) est traité à
+ * pleine résolution, un bloc calme (non encore atteint, ou éteint) n'est représenté que par son
+ * bit nul dans le masque des blocs et n'est jamais parcouru : la propagation n'y change rien.
+ * Un bloc redevient actif dès qu'une cellule s'y embrase (propagation ou écriture extérieure) et
+ * redevient calme quand sa dernière cellule en feu s'éteint.
+ *
+ * Les blocs écrits hors du moteur de propagation (robots, nouveaux foyers) sont notés « touchés »
+ * pour que le moteur resynchronise son tampon sur ces seuls blocs ; après une reconstruction
+ * (checkpoint, remplacement du tableau), tous les blocs sont considérés comme touchés.
+ *
+ * Les comptes sont rangés par pages de PAGE_BLOCKS blocs, allouées au premier bloc actif : comme
+ * les masques, ils n'occupent de mémoire que là où le feu est passé.
+ */
+public class FireBlocks {
+    static final int BLOCK_SHIFT = 3;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    private static final int PAGE_SHIFT = 10;
+    private static final int PAGE_BLOCKS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_BLOCKS - 1;
+
+    private final int height;
+    private final int blocksX;
+    private final int blocksY;
+    // Cellules en feu par bloc (index bx * blocksY + by), par pages allouées à la demande
+    private final int[][] burningCells;
+    private final CellMask active;
+    private final CellMask touched;
+    private boolean allTouched = true;
+    private int burningTotal;
+
+    public FireBlocks(int width, int height) {
+        this.height = height;
+        this.blocksX = (width + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        this.blocksY = (height + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        this.burningCells = new int[(blocksX * blocksY + PAGE_MASK) >> PAGE_SHIFT][];
+        this.active = new CellMask(blocksX, blocksY);
+        this.touched = new CellMask(blocksX, blocksY);
+    }
+
+    // ====== Mise à jour ======
+    // Une cellule vient de s'embraser ou de s'éteindre
+    void cellChanged(int x, int y, boolean burning) {
+        int block = (x >> BLOCK_SHIFT) * blocksY + (y >> BLOCK_SHIFT);
+        int[] page = page(block);
+        if (burning) {
+            burningTotal++;
+            if (page[block & PAGE_MASK]++ == 0) {
+                active.set(block, true);
+            }
+        } else {
+            burningTotal--;
+            if (--page[block & PAGE_MASK] == 0) {
+                active.set(block, false);
+            }
+        }
+    }
+
+    // Page des comptes contenant le bloc, allouée au besoin
+    private int[] page(int block) {
+        int[] page = burningCells[block >> PAGE_SHIFT];
+        if (page == null) {
+            page = new int[PAGE_BLOCKS];
+            burningCells[block >> PAGE_SHIFT] = page;
+        }
+        return page;
+    }
+
+    // Plusieurs cellules d'un bloc ont changé d'état : variation de son nombre de cellules en feu
+    void addBurning(int bx, int by, int delta) {
+        if (delta != 0) {
+            int block = bx * blocksY + by;
+            int[] page = page(block);
+            int before = page[block & PAGE_MASK];
+            page[block & PAGE_MASK] = before + delta;
+            burningTotal += delta;
+            if (before == 0 || before + delta == 0) {
+                active.set(block, before == 0);
+            }
+        }
+    }
+
+    // Une cellule a été écrite hors du moteur de propagation
+    void touch(int x, int y) {
+        touched.set((x >> BLOCK_SHIFT) * blocksY + (y >> BLOCK_SHIFT), true);
+    }
+
+    // Recompter tous les blocs depuis le masque des cellules en feu, en ne parcourant que ses bits levés
+    void rebuild(CellMask burning) {
+        clearCounts();
+        for (int index = burning.nextSetIndex(0); index >= 0; index = burning.nextSetIndex(index + 1)) {
+            int x = index / height;
+            int y = index - x * height;
+            int block = (x >> BLOCK_SHIFT) * blocksY + (y >> BLOCK_SHIFT);
+            if (page(block)[block & PAGE_MASK]++ == 0) {
+                active.set(block, true);
+            }
+            burningTotal++;
+        }
+        allTouched = true;
+    }
+
+    private void clearCounts() {
+        for (int[] page : burningCells) {
+            if (page != null) {
+                Arrays.fill(page, 0);
+            }
+        }
+        active.clear();
+        burningTotal = 0;
+    }
+
+    void clear() {
+        clearCounts();
+        allTouched = true;
+    }
+
+    // Blocs touchés depuis la dernière synchronisation du moteur ; null si tous le sont
+    CellMask getTouched() {
+        return allTouched ? null : touched;
+    }
+
+    void clearTouched() {
+        touched.clear();
+        allTouched = false;
+    }
+
+    // ====== Lecture ======
+    // Masque des blocs actifs (grille de blocksX x blocksY)
+    public CellMask getActiveBlocks() {
+        return active;
+    }
+
+    public int getBurningCells(int bx, int by) {
+        int block = bx * blocksY + by;
+        int[] page = burningCells[block >> PAGE_SHIFT];
+        return page == null ? 0 : page[block & PAGE_MASK];
+    }
+
+    public int getBurningCount() {
+        return burningTotal;
+    }
+
+    public int getBlocksX() { return blocksX; }
+    public int getBlocksY() { return blocksY; }
+}
@@ -0,0 +1,449 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Foyers d'incendie : composantes connexes (8-voisinage, comme la propagation) des cellules en feu,
+ * tenues à jour au fil des allumages et des extinctions.
+ *
+ * Un allumage crée un foyer d'une cellule puis l'unit à ses voisines en feu (union-find, union par
+ * taille, compression de chemin). Une extinction retire la cellule des statistiques de son foyer et
+ * marque celui-ci à recalculer, puisqu'il a pu se scinder. Les foyers marqués sont ré-étiquetés
+ * d'un bloc à la prochaine lecture (flush()), en ne parcourant que leur rectangle englobant ; les
+ * autres foyers ne sont pas touchés. Un foyer marqué qui en absorbe un autre reste marqué ; seule
+ * la ré-inflammation d'une cellule éteinte depuis le dernier recalcul force un recalcul immédiat,
+ * les cellules éteintes pouvant encore servir de relais dans l'arbre de leur ancien foyer.
+ *
+ * Les nœuds de l'union-find sont rangés en tuiles de 64x64 allouées à la demande, comme ChunkedGrid.
+ * Une tuile dont la dernière cellule en feu s'éteint est libérée au recalcul suivant, et pas avant :
+ * jusque-là, ses cellules éteintes peuvent encore servir de relais vers la racine d'un foyer.
+ * Chaque foyer tient sa taille, la somme des positions (centroïde), son rectangle englobant (qui ne
+ * se resserre qu'au recalcul) et son intensité totale.
+ */
+public class FireClusters {
+    private static final int TILE_SHIFT = ChunkedGrid.TILE_SHIFT;
+    private static final int TILE_SIZE = ChunkedGrid.TILE_SIZE;
+    private static final int TILE_MASK = ChunkedGrid.TILE_MASK;
+
+    // Lecture des intensités courantes, utilisée pour répartir l'intensité d'un foyer scindé
+    interface Intensities {
+        double get(int x, int y);
+    }
+
+    // Foyer figé au moment de la lecture
+    public static final class Cluster {
+        // Cellule racine du foyer (x * hauteur + y), stable tant que le foyer ne se scinde pas
+        public final int id;
+        public final int size;
+        public final double centroidX;
+        public final double centroidY;
+        public final int minX;
+        public final int minY;
+        public final int maxX;
+        public final int maxY;
+        public final double totalIntensity;
+
+        Cluster(int id, int size, double centroidX, double centroidY,
+                int minX, int minY, int maxX, int maxY, double totalIntensity) {
+            this.id = id;
+            this.size = size;
+            this.centroidX = centroidX;
+            this.centroidY = centroidY;
+            this.minX = minX;
+            this.minY = minY;
+            this.maxX = maxX;
+            this.maxY = maxY;
+            this.totalIntensity = totalIntensity;
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int tilesY;
+    private final Intensities intensities;
+    // Nœud de chaque cellule : >= 0 parent (index de cellule), < 0 racine du foyer -1 - nœud
+    private final int[][] nodeTiles;
+    // Cellules en feu de chaque tuile, et tuiles vidées depuis le dernier recalcul (à libérer)
+    private final int[] tileMembers;
+    private int[] emptiedTiles = new int[16];
+    private int emptiedCount;
+    private final ChunkedBitmap members;
+    // Cellules éteintes depuis le dernier recalcul
+    private final ChunkedBitmap removed;
+    private boolean hasRemoved;
+
+    // Foyers, par emplacement réutilisable
+    private int[] root = new int[16];
+    private int[] size = new int[16];
+    private long[] sumX = new long[16];
+    private long[] sumY = new long[16];
+    private int[] minX = new int[16];
+    private int[] minY = new int[16];
+    private int[] maxX = new int[16];
+    private int[] maxY = new int[16];
+    private double[] intensity = new double[16];
+    private boolean[] dirty = new boolean[16];
+    private int slotCount;
+    private int[] freeSlots = new int[16];
+    private int freeCount;
+    private int clusterCount;
+    // Foyers à recalculer
+    private int[] dirtySlots = new int[16];
+    private int dirtyCount;
+
+    // Tampons du recalcul
+    private final ChunkedBitmap scratch;
+    private int[] cells = new int[64];
+    private int[] stack = new int[64];
+
+    public FireClusters(int width, int height, Intensities intensities) {
+        this.width = width;
+        this.height = height;
+        this.tilesY = (height + TILE_MASK) >> TILE_SHIFT;
+        this.intensities = intensities;
+        this.nodeTiles = new int[((width + TILE_MASK) >> TILE_SHIFT) * tilesY][];
+        this.tileMembers = new int[nodeTiles.length];
+        this.members = new ChunkedBitmap(width, height);
+        this.removed = new ChunkedBitmap(width, height);
+        this.scratch = new ChunkedBitmap(width, height);
+    }
+
+    public boolean contains(int x, int y) {
+        return members.get(x, y);
+    }
+
+    // ====== Mises à jour ======
+    // Allumage d'une cellule (qui n'était pas en feu)
+    public void add(int x, int y, double value) {
+        if (members.get(x, y)) {
+            return;
+        }
+        if (hasRemoved && removed.get(x, y)) {
+            flush();
+        }
+        int cell = x * height + y;
+        int slot = newSlot(cell, x, y, x, y);
+        size[slot] = 1;
+        sumX[slot] = x;
+        sumY[slot] = y;
+        intensity[slot] = value;
+        setNode(x, y, -1 - slot);
+        members.set(x, y);
+        tileMembers[tileIndex(x, y)]++;
+        for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+            for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                if ((nx != x || ny != y) && members.get(nx, ny)) {
+                    union(cell, nx * height + ny);
+                }
+            }
+        }
+    }
+
+    // Extinction d'une cellule ; value est l'intensité qu'elle apportait à son foyer
+    public void remove(int x, int y, double value) {
+        if (!members.get(x, y)) {
+            return;
+        }
+        int slot = slotOf(find(x * height + y));
+        size[slot]--;
+        sumX[slot] -= x;
+        sumY[slot] -= y;
+        intensity[slot] -= value;
+        members.clear(x, y);
+        int tileIndex = tileIndex(x, y);
+        if (--tileMembers[tileIndex] == 0) {
+            if (emptiedCount == emptiedTiles.length) {
+                emptiedTiles = Arrays.copyOf(emptiedTiles, emptiedCount * 2);
+            }
+            emptiedTiles[emptiedCount++] = tileIndex;
+        }
+        removed.set(x, y);
+        hasRemoved = true;
+        if (size[slot] == 0) {
+            dirty[slot] = false;
+            freeSlot(slot);
+        } else {
+            markDirty(slot);
+        }
+    }
+
+    private void markDirty(int slot) {
+        if (dirty[slot]) {
+            return;
+        }
+        dirty[slot] = true;
+        if (dirtyCount == dirtySlots.length) {
+            dirtySlots = Arrays.copyOf(dirtySlots, dirtyCount * 2);
+        }
+        dirtySlots[dirtyCount++] = slot;
+    }
+
+    // Variation d'intensité d'une cellule qui reste en feu
+    public void changeIntensity(int x, int y, double delta) {
+        if (members.get(x, y)) {
+            intensity[slotOf(find(x * height + y))] += delta;
+        }
+    }
+
+    // Recalculer les foyers touchés par des extinctions
+    public void flush() {
+        if (!hasRemoved) {
+            return;
+        }
+        for (int d = 0; d < dirtyCount; d++) {
+            int slot = dirtySlots[d];
+            if (dirty[slot]) {
+                dirty[slot] = false;
+                relabel(slot);
+            }
+        }
+        dirtyCount = 0;
+        removed.clear();
+        hasRemoved = false;
+
+        // Plus aucun chemin ne passe par une cellule éteinte : les tuiles sans cellule en feu sont libérées
+        for (int t = 0; t < emptiedCount; t++) {
+            if (tileMembers[emptiedTiles[t]] == 0) {
+                nodeTiles[emptiedTiles[t]] = null;
+            }
+        }
+        emptiedCount = 0;
+    }
+
+    // Oublier tous les foyers et libérer toutes les tuiles
+    public void clear() {
+        Arrays.fill(nodeTiles, null);
+        Arrays.fill(tileMembers, 0);
+        emptiedCount = 0;
+        members.release();
+        removed.release();
+        scratch.release();
+        hasRemoved = false;
+        freeCount = 0;
+        slotCount = 0;
+        clusterCount = 0;
+        dirtyCount = 0;
+    }
+
+    // ====== Lecture ======
+    public int getClusterCount() {
+        flush();
+        return clusterCount;
+    }
+
+    // Équipes nécessaires : une par tranche de cellsPerCrew cellules de chaque foyer, sans allouer de liste
+    public int countCrews(int cellsPerCrew) {
+        flush();
+        int crews = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            crews += (size[slot] + cellsPerCrew - 1) / cellsPerCrew;
+        }
+        return crews;
+    }
+
+    public int getLargestClusterSize() {
+        flush();
+        int largest = 0;
+        for (int slot = 0; slot < slotCount; slot++) {
+            largest = Math.max(largest, size[slot]);
+        }
+        return largest;
+    }
+
+    // Foyers courants, par emplacement
+    public List<Cluster> getClusters() {
+        flush();
+        List<Cluster> clusters = new ArrayList<>(clusterCount);
+        for (int slot = 0; slot < slotCount; slot++) {
+            if (size[slot] == 0) continue;
+            clusters.add(new Cluster(root[slot], size[slot],
+                (double) sumX[slot] / size[slot], (double) sumY[slot] / size[slot],
+                minX[slot], minY[slot], maxX[slot], maxY[slot], intensity[slot]));
+        }
+        return clusters;
+    }
+
+    // ====== Union-find ======
+    private int find(int cell) {
+        while (true) {
+            int parent = node(cell);
+            if (parent < 0) {
+                return cell;
+            }
+            int grand = node(parent);
+            if (grand < 0) {
+                return parent;
+            }
+            setNode(cell, grand);
+            cell = grand;
+        }
+    }
+
+    private int slotOf(int rootCell) {
+        return -1 - node(rootCell);
+    }
+
+    private void union(int a, int b) {
+        int rootA = find(a);
+        int rootB = find(b);
+        if (rootA == rootB) {
+            return;
+        }
+        int slotA = slotOf(rootA);
+        int slotB = slotOf(rootB);
+        if (size[slotA] < size[slotB]) {
+            int swap = rootA; rootA = rootB; rootB = swap;
+            swap = slotA; slotA = slotB; slotB = swap;
+        }
+        setNode(rootB, rootA);
+        size[slotA] += size[slotB];
+        sumX[slotA] += sumX[slotB];
+        sumY[slotA] += sumY[slotB];
+        minX[slotA] = Math.min(minX[slotA], minX[slotB]);
+        minY[slotA] = Math.min(minY[slotA], minY[slotB]);
+        maxX[slotA] = Math.max(maxX[slotA], maxX[slotB]);
+        maxY[slotA] = Math.max(maxY[slotA], maxY[slotB]);
+        intensity[slotA] += intensity[slotB];
+        // Un foyer absorbé qui attendait un recalcul le transmet au foyer qui l'absorbe
+        if (dirty[slotB]) {
+            dirty[slotB] = false;
+            markDirty(slotA);
+        }
+        size[slotB] = 0;
+        freeSlot(slotB);
+    }
+
+    // Ré-étiqueter les cellules restantes d'un foyer en une ou plusieurs composantes
+    private void relabel(int slot) {
+        int oldRoot = root[slot];
+        int x0 = minX[slot], y0 = minY[slot], x1 = maxX[slot], y1 = maxY[slot];
+        size[slot] = 0;
+        freeSlot(slot);
+
+        // Toutes les cellules du foyer d'abord, avant que le ré-étiquetage ne modifie les chemins
+        int count = 0;
+        for (int x = x0; x <= x1; x++) {
+            for (int y = y0; y <= y1; y++) {
+                if (members.get(x, y) && find(x * height + y) == oldRoot) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count * 2);
+                    }
+                    cells[count++] = x * height + y;
+                    scratch.set(x, y);
+                }
+            }
+        }
+
+        // Une composante par parcours en profondeur, toutes les cellules rattachées directement à sa racine
+        for (int c = 0; c < count; c++) {
+            int start = cells[c];
+            int sx = start / height;
+            int sy = start - sx * height;
+            if (!scratch.get(sx, sy)) continue;
+            scratch.clear(sx, sy);
+            int component = newSlot(start, sx, sy, sx, sy);
+            setNode(start, -1 - component);
+            int top = 0;
+            stack[top++] = start;
+            while (top > 0) {
+                int cell = stack[--top];
+                int x = cell / height;
+                int y = cell - x * height;
+                if (cell != start) {
+                    setNode(cell, start);
+                }
+                size[component]++;
+                sumX[component] += x;
+                sumY[component] += y;
+                minX[component] = Math.min(minX[component], x);
+                minY[component] = Math.min(minY[component], y);
+                maxX[component] = Math.max(maxX[component], x);
+                maxY[component] = Math.max(maxY[component], y);
+                intensity[component] += intensities.get(x, y);
+                for (int nx = Math.max(x - 1, 0); nx <= Math.min(x + 1, width - 1); nx++) {
+                    for (int ny = Math.max(y - 1, 0); ny <= Math.min(y + 1, height - 1); ny++) {
+                        if (scratch.get(nx, ny)) {
+                            scratch.clear(nx, ny);
+                            if (top == stack.length) {
+                                stack = Arrays.copyOf(stack, top * 2);
+                            }
+                            stack[top++] = nx * height + ny;
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    // ====== Emplacements ======
+    private int newSlot(int rootCell, int x0, int y0, int x1, int y1) {
+        int slot;
+        if (freeCount > 0) {
+            slot = freeSlots[--freeCount];
+        } else {
+            if (slotCount == root.length) {
+                growSlots(slotCount * 2);
+            }
+            slot = slotCount++;
+        }
+        root[slot] = rootCell;
+        size[slot] = 0;
+        sumX[slot] = 0;
+        sumY[slot] = 0;
+        minX[slot] = x0;
+        minY[slot] = y0;
+        maxX[slot] = x1;
+        maxY[slot] = y1;
+        intensity[slot] = 0;
+        dirty[slot] = false;
+        clusterCount++;
+        return slot;
+    }
+
+    private void freeSlot(int slot) {
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount * 2);
+        }
+        freeSlots[freeCount++] = slot;
+        clusterCount--;
+    }
+
+    private void growSlots(int capacity) {
+        root = Arrays.copyOf(root, capacity);
+        size = Arrays.copyOf(size, capacity);
+        sumX = Arrays.copyOf(sumX, capacity);
+        sumY = Arrays.copyOf(sumY, capacity);
+        minX = Arrays.copyOf(minX, capacity);
+        minY = Arrays.copyOf(minY, capacity);
+        maxX = Arrays.copyOf(maxX, capacity);
+        maxY = Arrays.copyOf(maxY, capacity);
+        intensity = Arrays.copyOf(intensity, capacity);
+        dirty = Arrays.copyOf(dirty, capacity);
+    }
+
+    // ====== Nœuds en tuiles ======
+    private int node(int cell) {
+        int x = cell / height;
+        int y = cell - x * height;
+        return nodeTiles[(x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT)][((x & TILE_MASK) << TILE_SHIFT) | (y & TILE_MASK)];
+    }
+
+    private void setNode(int cell, int value) {
+        int x = cell / height;
+        setNode(x, cell - x * height, value);
+    }
+
+    private int tileIndex(int x, int y) {
+        return (x >> TILE_SHIFT) * tilesY + (y >> TILE_SHIFT);
+    }
+
+    private void setNode(int x, int y, int value) {
+        int tileIndex = tileIndex(x, y);
+        int[] tile = nodeTiles[tileIndex];
+        if (tile == null) {
+            tile = new int[TILE_SIZE * TILE_SIZE];
+            nodeTiles[tileIndex] = tile;
+        }
+        tile[((x & TILE_MASK) << TILE_SHIFT) | (y & TILE_MASK)] = value;
+    }
+}
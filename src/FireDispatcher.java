@@ -0,0 +1,470 @@
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Répartition des pompiers sur les feux connus du QG, par enchères (algorithme de Bertsekas).
+ *
+ * Les cibles sont les blocs de BLOCK_SIZE x BLOCK_SIZE cellules de la carte globale qui contiennent
+ * au moins une cellule en feu ; un bloc vise sa cellule en feu la plus proche du QG et n'accueille
+ * qu'un pompier, le disque d'extinction le couvrant. La valeur d'un bloc pour un pompier est REACH
+ * moins sa distance (en pas) à la cellule visée, plus un bonus par cellule en feu du bloc : au-delà
+ * de REACH, le bloc n'est pas atteignable dans une sortie et n'est pas proposé.
+ *
+ * Un pompier sans cible enchérit sur le bloc qui lui rapporte le plus (valeur moins prix) et en
+ * relève le prix de l'écart avec le second meilleur choix plus EPSILON ; le pompier évincé enchérit
+ * à son tour. Un pompier pour qui aucun bloc ne vaut son prix reste sans cible et garde son
+ * comportement autonome. Les valeurs étant bornées, chaque prix monte d'au plus quelques dizaines
+ * de paliers, même avec bien plus de pompiers que de blocs.
+ *
+ * La résolution est incrémentale : prix et affectations sont conservés d'une résolution à l'autre.
+ * Seuls les blocs dont une cellule s'est allumée ou éteinte sont revus, et seuls les pompiers
+ * nouveaux, évincés ou dont le bloc s'est éteint enchérissent (tous les pompiers sans cible quand
+ * un bloc s'allume). Une enchère ne parcourt que les blocs à portée du pompier, quel que soit le
+ * nombre de blocs en feu sur la carte.
+ *
+ * L'état des blocs (cellules en feu, cible, prix, pompier, prévision) est rangé par pages de
+ * PAGE_BLOCKS blocs, allouées au premier changement d'un bloc de la page : sur une grande carte,
+ * seules les zones où le feu a été signalé occupent de la mémoire.
+ */
+public class FireDispatcher {
+    static final int BLOCK_SHIFT = 3;
+    static final int BLOCK_SIZE = 1 << BLOCK_SHIFT;
+    // Hausse minimale d'un prix, en cellules de trajet
+    private static final double EPSILON = 0.25;
+    // Valeur d'une cellule en feu du bloc, en cellules de trajet
+    private static final double CELL_WEIGHT = 0.25;
+    // Valeur d'une cellule voisine du bloc que la prévision donne en feu, en cellules de trajet
+    private static final double THREAT_WEIGHT = 0.1;
+    // Portée d'une sortie : une dizaine de pas avant de rentrer recharger, plus la portée de détection
+    static final int REACH = 2 * BLOCK_SIZE;
+    private static final int PAGE_SHIFT = 6;
+    private static final int PAGE_BLOCKS = 1 << PAGE_SHIFT;
+    private static final int PAGE_MASK = PAGE_BLOCKS - 1;
+
+    // État de PAGE_BLOCKS blocs consécutifs (index de bloc bx * blocksY + by)
+    private static final class Page {
+        // Par bloc : cellules en feu, cellule visée (-1 : pas une cible), prix et pompier affecté
+        final int[] burning = new int[PAGE_BLOCKS];
+        final int[] targetCell = new int[PAGE_BLOCKS];
+        final double[] price = new double[PAGE_BLOCKS];
+        final int[] owner = new int[PAGE_BLOCKS];
+        // Position du bloc dans la liste des blocs en feu
+        final int[] targetIndex = new int[PAGE_BLOCKS];
+        final boolean[] dirty = new boolean[PAGE_BLOCKS];
+        // Cellules qui devraient s'allumer d'ici l'horizon de la dernière prévision
+        final float[] threat = new float[PAGE_BLOCKS];
+
+        Page() {
+            Arrays.fill(targetCell, -1);
+            Arrays.fill(owner, -1);
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final int hqX;
+    private final int hqY;
+    private final int blocksX;
+    private final int blocksY;
+
+    // Pages d'état des blocs (null : aucun bloc de la page n'a changé)
+    private final Page[] pages;
+    // Une prévision a été reçue
+    private boolean forecasting;
+    // Blocs en feu
+    private int[] targets = new int[16];
+    private int targetCount;
+    // Blocs dont le nombre de cellules en feu a changé depuis la dernière résolution
+    private int[] dirtyBlocks = new int[16];
+    private int dirtyCount;
+
+    // Par pompier (index dans la liste des pompiers du QG) : bloc affecté, -1 sinon
+    private int[] assigned = new int[0];
+    private int robotCount;
+    // Pompiers qui doivent enchérir
+    private int[] queue = new int[16];
+    private boolean[] waiting = new boolean[0];
+    private int queueCount;
+
+    public FireDispatcher(int width, int height, int hqX, int hqY) {
+        this.width = width;
+        this.height = height;
+        this.hqX = hqX;
+        this.hqY = hqY;
+        this.blocksX = (width + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        this.blocksY = (height + BLOCK_SIZE - 1) >> BLOCK_SHIFT;
+        this.pages = new Page[(blocksX * blocksY + PAGE_MASK) >> PAGE_SHIFT];
+    }
+
+    // Page d'un bloc, allouée au besoin
+    private Page page(int block) {
+        Page page = pages[block >> PAGE_SHIFT];
+        if (page == null) {
+            page = new Page();
+            pages[block >> PAGE_SHIFT] = page;
+        }
+        return page;
+    }
+
+    // Cellule visée par un bloc, -1 s'il n'est pas une cible
+    private int targetCell(int block) {
+        Page page = pages[block >> PAGE_SHIFT];
+        return page == null ? -1 : page.targetCell[block & PAGE_MASK];
+    }
+
+    // ====== Mises à jour de la carte ======
+    // Une cellule de la carte globale vient de s'allumer (ou de s'éteindre)
+    void cellChanged(int x, int y, boolean nowBurning) {
+        int block = (x >> BLOCK_SHIFT) * blocksY + (y >> BLOCK_SHIFT);
+        page(block).burning[block & PAGE_MASK] += nowBurning ? 1 : -1;
+        markDirty(block);
+    }
+
+    private void markDirty(int block) {
+        Page page = page(block);
+        if (!page.dirty[block & PAGE_MASK]) {
+            page.dirty[block & PAGE_MASK] = true;
+            if (dirtyCount == dirtyBlocks.length) {
+                dirtyBlocks = Arrays.copyOf(dirtyBlocks, dirtyCount * 2);
+            }
+            dirtyBlocks[dirtyCount++] = block;
+        }
+    }
+
+    // ====== Résolution ======
+    // Revoir les blocs modifiés et faire enchérir les pompiers qui en ont besoin
+    void update(ChunkedGrid map, double threshold, List<Firefighter> firefighters) {
+        for (int robot = robotCount; robot < firefighters.size(); robot++) {
+            addRobot();
+        }
+
+        boolean opened = false;
+        for (int d = 0; d < dirtyCount; d++) {
+            int block = dirtyBlocks[d];
+            Page page = pages[block >> PAGE_SHIFT];
+            int i = block & PAGE_MASK;
+            page.dirty[i] = false;
+            if (page.burning[i] == 0) {
+                if (page.targetCell[i] >= 0) {
+                    removeTarget(block);
+                }
+            } else if (page.targetCell[i] < 0) {
+                addTarget(block, nearestBurningCell(map, threshold, block));
+                opened = true;
+            } else if (map.get(page.targetCell[i] / height, page.targetCell[i] % height) <= threshold) {
+                // Cellule visée éteinte, le bloc brûle encore : le pompier affecté suit la nouvelle cellule
+                page.targetCell[i] = nearestBurningCell(map, threshold, block);
+            }
+        }
+        dirtyCount = 0;
+
+        // Un nouveau bloc peut valoir son prix pour un pompier qui n'avait rien trouvé
+        if (opened) {
+            for (int robot = 0; robot < robotCount; robot++) {
+                if (assigned[robot] < 0) {
+                    enqueue(robot);
+                }
+            }
+        }
+        auction(firefighters);
+    }
+
+    private void auction(List<Firefighter> firefighters) {
+        while (queueCount > 0) {
+            int robot = queue[--queueCount];
+            waiting[robot] = false;
+            if (assigned[robot] >= 0) {
+                continue;
+            }
+            Firefighter ff = firefighters.get(robot);
+            int rx = ff.getX();
+            int ry = ff.getY();
+
+            // Meilleur et second meilleur gain parmi les blocs à portée ; rester sans cible rapporte 0
+            int best = -1;
+            double bestGain = 0;
+            double secondGain = 0;
+            int bx1 = Math.min((rx + REACH) >> BLOCK_SHIFT, blocksX - 1);
+            int by0 = Math.max(ry - REACH, 0) >> BLOCK_SHIFT;
+            int by1 = Math.min((ry + REACH) >> BLOCK_SHIFT, blocksY - 1);
+            for (int bx = Math.max(rx - REACH, 0) >> BLOCK_SHIFT; bx <= bx1; bx++) {
+                for (int by = by0; by <= by1; by++) {
+                    int block = bx * blocksY + by;
+                    Page page = pages[block >> PAGE_SHIFT];
+                    if (page == null || page.targetCell[block & PAGE_MASK] < 0) continue;
+                    double gain = value(block, rx, ry) - page.price[block & PAGE_MASK];
+                    if (gain > bestGain) {
+                        secondGain = bestGain;
+                        bestGain = gain;
+                        best = block;
+                    } else if (gain > secondGain) {
+                        secondGain = gain;
+                    }
+                }
+            }
+            if (best < 0) {
+                continue;
+            }
+
+            Page page = pages[best >> PAGE_SHIFT];
+            page.price[best & PAGE_MASK] += bestGain - secondGain + EPSILON;
+            int evicted = page.owner[best & PAGE_MASK];
+            page.owner[best & PAGE_MASK] = robot;
+            assigned[robot] = best;
+            if (evicted >= 0) {
+                assigned[evicted] = -1;
+                enqueue(evicted);
+            }
+        }
+    }
+
+    // Valeur d'un bloc pour un pompier en (rx, ry) ; distance en pas, les déplacements se faisant en diagonale
+    private double value(int block, int rx, int ry) {
+        Page page = pages[block >> PAGE_SHIFT];
+        int cell = page.targetCell[block & PAGE_MASK];
+        int steps = Math.max(Math.abs(cell / height - rx), Math.abs(cell % height - ry));
+        if (steps > REACH) {
+            return 0;
+        }
+        double value = REACH - steps + CELL_WEIGHT * page.burning[block & PAGE_MASK];
+        if (forecasting) {
+            value += THREAT_WEIGHT * frontThreat(block);
+        }
+        return value;
+    }
+
+    // Allumages attendus dans le bloc et ses 8 voisins : le front que l'équipe du bloc peut contenir
+    private double frontThreat(int block) {
+        int bx = block / blocksY;
+        int by = block % blocksY;
+        double sum = 0;
+        for (int nx = Math.max(bx - 1, 0); nx <= Math.min(bx + 1, blocksX - 1); nx++) {
+            for (int ny = Math.max(by - 1, 0); ny <= Math.min(by + 1, blocksY - 1); ny++) {
+                Page page = pages[(nx * blocksY + ny) >> PAGE_SHIFT];
+                if (page != null) {
+                    sum += page.threat[(nx * blocksY + ny) & PAGE_MASK];
+                }
+            }
+        }
+        return sum;
+    }
+
+    // Prendre en compte une nouvelle prévision : somme, par bloc, des probabilités des cellules pas
+    // encore en feu. Les affectations en cours sont gardées, seules les enchères suivantes en tiennent compte.
+    void setForecast(FireForecast.Result forecast, ChunkedGrid map, double threshold) {
+        if (forecasting) {
+            for (Page page : pages) {
+                if (page != null) {
+                    Arrays.fill(page.threat, 0f);
+                }
+            }
+        }
+        forecasting = true;
+        for (int x = forecast.x0; x < forecast.x0 + forecast.width; x++) {
+            for (int y = forecast.y0; y < forecast.y0 + forecast.height; y++) {
+                double probability = forecast.get(x, y);
+                if (probability > 0 && map.get(x, y) <= threshold) {
+                    int block = (x >> BLOCK_SHIFT) * blocksY + (y >> BLOCK_SHIFT);
+                    page(block).threat[block & PAGE_MASK] += (float) probability;
+                }
+            }
+        }
+    }
+
+    // Cellule en feu du bloc la plus proche du QG (à distance égale, le plus petit (x, y))
+    private int nearestBurningCell(ChunkedGrid map, double threshold, int block) {
+        int x0 = (block / blocksY) << BLOCK_SHIFT;
+        int y0 = (block % blocksY) << BLOCK_SHIFT;
+        int best = -1;
+        long bestDistance = Long.MAX_VALUE;
+        for (int cx = x0; cx < Math.min(x0 + BLOCK_SIZE, width); cx++) {
+            for (int cy = y0; cy < Math.min(y0 + BLOCK_SIZE, height); cy++) {
+                if (map.get(cx, cy) > threshold) {
+                    long dx = cx - hqX;
+                    long dy = cy - hqY;
+                    long distance = dx * dx + dy * dy;
+                    if (distance < bestDistance) {
+                        bestDistance = distance;
+                        best = cx * height + cy;
+                    }
+                }
+            }
+        }
+        return best;
+    }
+
+    private void addTarget(int block, int cell) {
+        if (targetCount == targets.length) {
+            targets = Arrays.copyOf(targets, targetCount * 2);
+        }
+        Page page = page(block);
+        int i = block & PAGE_MASK;
+        page.targetIndex[i] = targetCount;
+        targets[targetCount++] = block;
+        page.targetCell[i] = cell;
+        page.price[i] = 0;
+        page.owner[i] = -1;
+    }
+
+    // Retirer un bloc éteint ; son pompier redevient libre
+    private void removeTarget(int block) {
+        Page page = pages[block >> PAGE_SHIFT];
+        int i = block & PAGE_MASK;
+        int index = page.targetIndex[i];
+        int last = targets[--targetCount];
+        targets[index] = last;
+        pages[last >> PAGE_SHIFT].targetIndex[last & PAGE_MASK] = index;
+        page.targetCell[i] = -1;
+        int owner = page.owner[i];
+        if (owner >= 0) {
+            assigned[owner] = -1;
+            enqueue(owner);
+            page.owner[i] = -1;
+        }
+    }
+
+    private void addRobot() {
+        if (robotCount == assigned.length) {
+            int capacity = Math.max(16, robotCount * 2);
+            assigned = Arrays.copyOf(assigned, capacity);
+            waiting = Arrays.copyOf(waiting, capacity);
+        }
+        assigned[robotCount] = -1;
+        enqueue(robotCount++);
+    }
+
+    // Retirer un pompier parti dans une autre région ; les suivants prennent l'index précédent.
+    // Son bloc redevient libre au même prix, pour les enchères suivantes
+    void removeRobot(int robot) {
+        if (assigned[robot] >= 0) {
+            pages[assigned[robot] >> PAGE_SHIFT].owner[assigned[robot] & PAGE_MASK] = -1;
+        }
+        for (int t = 0; t < targetCount; t++) {
+            int[] owner = pages[targets[t] >> PAGE_SHIFT].owner;
+            if (owner[targets[t] & PAGE_MASK] > robot) {
+                owner[targets[t] & PAGE_MASK]--;
+            }
+        }
+        System.arraycopy(assigned, robot + 1, assigned, robot, robotCount - robot - 1);
+        System.arraycopy(waiting, robot + 1, waiting, robot, robotCount - robot - 1);
+        robotCount--;
+        waiting[robotCount] = false;
+        int kept = 0;
+        for (int q = 0; q < queueCount; q++) {
+            if (queue[q] != robot) {
+                queue[kept++] = queue[q] > robot ? queue[q] - 1 : queue[q];
+            }
+        }
+        queueCount = kept;
+        for (int other = 0; other < robotCount; other++) {
+            if (assigned[other] < 0) {
+                enqueue(other);
+            }
+        }
+    }
+
+    private void enqueue(int robot) {
+        if (waiting[robot]) {
+            return;
+        }
+        waiting[robot] = true;
+        if (queueCount == queue.length) {
+            queue = Arrays.copyOf(queue, queueCount * 2);
+        }
+        queue[queueCount++] = robot;
+    }
+
+    // ====== Lecture ======
+    // Cellule visée par le pompier (index x * hauteur + y), -1 s'il n'a pas de cible
+    public int getTarget(int robot) {
+        if (robot < 0 || robot >= robotCount || assigned[robot] < 0) {
+            return -1;
+        }
+        return targetCell(assigned[robot]);
+    }
+
+    public int getTargetCount() {
+        return targetCount;
+    }
+
+    public int getAssignedCount() {
+        int count = 0;
+        for (int robot = 0; robot < robotCount; robot++) {
+            if (assigned[robot] >= 0) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    // Oublier cibles, affectations, cellules en feu et prévision
+    void clear() {
+        clearTargets();
+        Arrays.fill(pages, null);
+        forecasting = false;
+    }
+
+    private void clearTargets() {
+        for (int t = 0; t < targetCount; t++) {
+            Page page = pages[targets[t] >> PAGE_SHIFT];
+            page.targetCell[targets[t] & PAGE_MASK] = -1;
+            page.owner[targets[t] & PAGE_MASK] = -1;
+        }
+        targetCount = 0;
+        for (int d = 0; d < dirtyCount; d++) {
+            pages[dirtyBlocks[d] >> PAGE_SHIFT].dirty[dirtyBlocks[d] & PAGE_MASK] = false;
+        }
+        dirtyCount = 0;
+        Arrays.fill(waiting, false);
+        queueCount = 0;
+        robotCount = 0;
+    }
+
+    // ====== Checkpoint ======
+    // Les cellules en feu par bloc sont recomptées depuis la carte globale ; cibles, prix, affectations
+    // et blocs à revoir sont sauvegardés pour que la répartition reprenne à l'identique (la file des
+    // enchères est toujours vide entre deux résolutions)
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(targetCount);
+        for (int t = 0; t < targetCount; t++) {
+            int block = targets[t];
+            Page page = pages[block >> PAGE_SHIFT];
+            out.putInt(block);
+            out.putInt(page.targetCell[block & PAGE_MASK]);
+            out.putDouble(page.price[block & PAGE_MASK]);
+            out.putInt(page.owner[block & PAGE_MASK]);
+        }
+        out.putInt(robotCount);
+        for (int robot = 0; robot < robotCount; robot++) {
+            out.putInt(assigned[robot]);
+        }
+        out.putInt(dirtyCount);
+        for (int d = 0; d < dirtyCount; d++) {
+            out.putInt(dirtyBlocks[d]);
+        }
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        clearTargets();
+        int count = in.getInt();
+        for (int t = 0; t < count; t++) {
+            int block = in.getInt();
+            addTarget(block, in.getInt());
+            Page page = pages[block >> PAGE_SHIFT];
+            page.price[block & PAGE_MASK] = in.getDouble();
+            page.owner[block & PAGE_MASK] = in.getInt();
+        }
+        int robots = in.getInt();
+        for (int robot = 0; robot < robots; robot++) {
+            addRobot();
+            assigned[robot] = in.getInt();
+        }
+        Arrays.fill(waiting, false);
+        queueCount = 0;
+        int dirtyBlockCount = in.getInt();
+        for (int d = 0; d < dirtyBlockCount; d++) {
+            markDirty(in.getInt());
+        }
+    }
+}
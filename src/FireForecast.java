@@ -0,0 +1,343 @@
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Prévision de la propagation du feu à partir de la carte globale du QG.
+ *
+ * Une prévision rejoue les règles de SpreadEngine (renforcement à 30 %, propagation aux 8 voisins,
+ * matériaux, vent et pente compris) sur horizon pas, pour rollouts tirages indépendants, et publie pour chaque cellule la proportion
+ * des tirages où elle a brûlé à un moment de l'horizon. Le feu n'avançant que d'une cellule par
+ * pas, seul le rectangle englobant des cellules en feu élargi de l'horizon est simulé.
+ *
+ * Les tirages sont répartis sur les cœurs libres (threads démon de basse priorité partagés par
+ * toutes les simulations). request() ne fait que recopier la fenêtre de la carte et rend la main ;
+ * une demande arrivant pendant une prévision en cours est ignorée. Chaque prévision a une échéance :
+ * les tirages non commencés à l'échéance sont abandonnés et la probabilité porte sur les tirages
+ * terminés. Le dernier thread à finir fusionne les comptes et publie le résultat ; la boucle de
+ * simulation ne fait que lire le dernier résultat publié, sans jamais attendre.
+ *
+ * Les fenêtres et les tampons des tirages sont réutilisés d'une prévision à l'autre ; seul le
+ * tableau des probabilités publié est neuf, pour rester lisible pendant la prévision suivante.
+ * Chaque tirage a sa propre graine (prévision, numéro du tirage) : une prévision menée à terme
+ * est reproductible, mais le pas où elle est publiée dépend du temps de calcul.
+ */
+public class FireForecast {
+    // Exécuteur partagé : un thread de moins que de cœurs, pour laisser le sien à la simulation
+    private static final int WORKERS = Math.max(1, Runtime.getRuntime().availableProcessors() - 1);
+    private static final ExecutorService EXECUTOR = Executors.newFixedThreadPool(WORKERS, task -> {
+        Thread thread = new Thread(task, "fire-forecast");
+        thread.setDaemon(true);
+        thread.setPriority(Thread.MIN_PRIORITY);
+        return thread;
+    });
+
+    // Probabilités de feu d'une prévision, sur sa fenêtre (nulles en dehors)
+    public static final class Result {
+        public final int x0;
+        public final int y0;
+        public final int width;
+        public final int height;
+        public final int horizon;
+        // Tirages terminés avant l'échéance
+        public final int rollouts;
+        // Pas de la simulation où la prévision a été demandée
+        public final long tick;
+        private final float[] probability;
+
+        Result(int x0, int y0, int width, int height, int horizon, int rollouts, long tick, float[] probability) {
+            this.x0 = x0;
+            this.y0 = y0;
+            this.width = width;
+            this.height = height;
+            this.horizon = horizon;
+            this.rollouts = rollouts;
+            this.tick = tick;
+            this.probability = probability;
+        }
+
+        // Probabilité que la cellule brûle d'ici l'horizon
+        public double get(int x, int y) {
+            int i = x - x0;
+            int j = y - y0;
+            if (i < 0 || i >= width || j < 0 || j >= height) {
+                return 0;
+            }
+            return probability[i * height + j];
+        }
+    }
+
+    // Tampons d'un thread de prévision
+    private static final class Worker {
+        double[] cells = new double[0];
+        double[] next = new double[0];
+        // Tirages où chaque cellule a brûlé, et dernier tirage compté (évite de compter deux fois)
+        int[] hits = new int[0];
+        int[] stamp = new int[0];
+        int completed;
+
+        void ensure(int size) {
+            if (cells.length < size) {
+                cells = new double[size];
+                next = new double[size];
+                hits = new int[size];
+                stamp = new int[size];
+            }
+            Arrays.fill(hits, 0, size, 0);
+            Arrays.fill(stamp, 0, size, 0);
+            completed = 0;
+        }
+    }
+
+    private final FireScenario.Parameters scenario;
+    // Matériaux, vent et pente de la simulation (null : scénario uniforme)
+    private final MaterialMap materials;
+    private final int gridWidth;
+    private final int gridHeight;
+    private final int horizon;
+    private final int rollouts;
+    private final long deadlineNanos;
+    private final long seed;
+    private final Worker[] workers = new Worker[WORKERS];
+
+    // Fenêtre de la prévision en cours, recopiée de la carte
+    private double[] base = new double[0];
+    private int windowX0;
+    private int windowY0;
+    private int windowWidth;
+    private int windowHeight;
+    private long requestTick;
+    private long requestNanos;
+    private long sequence;
+    private final AtomicInteger nextRollout = new AtomicInteger();
+    private final AtomicInteger activeWorkers = new AtomicInteger();
+    // Génération courante : une prévision lancée avant reset() n'est pas publiée
+    private volatile int generation;
+    private int requestGeneration;
+    private volatile boolean running;
+    private volatile Result latest;
+    private volatile long published;
+
+    public FireForecast(int gridWidth, int gridHeight, FireScenario.Parameters scenario, MaterialMap materials,
+                        int horizon, int rollouts, long deadlineMillis, long seed) {
+        if (horizon <= 0 || rollouts <= 0 || deadlineMillis <= 0) {
+            throw new IllegalArgumentException("Invalid forecast: horizon " + horizon + ", " + rollouts
+                + " rollouts, deadline " + deadlineMillis + " ms");
+        }
+        this.scenario = scenario;
+        this.materials = materials;
+        this.gridWidth = gridWidth;
+        this.gridHeight = gridHeight;
+        this.horizon = horizon;
+        this.rollouts = rollouts;
+        this.deadlineNanos = deadlineMillis * 1_000_000L;
+        this.seed = seed;
+        for (int w = 0; w < WORKERS; w++) {
+            workers[w] = new Worker();
+        }
+    }
+
+    // ====== Demande ======
+    // Lancer une prévision sur la carte si aucune n'est en cours ; retourne false sinon
+    public boolean request(ChunkedGrid map, long tick) {
+        if (running) {
+            return false;
+        }
+        double threshold = scenario.intensityThreshold;
+        int[] bounds = {Integer.MAX_VALUE, Integer.MAX_VALUE, -1, -1};
+        map.forEachNonZero((x, y, value) -> {
+            if (value > threshold) {
+                bounds[0] = Math.min(bounds[0], x);
+                bounds[1] = Math.min(bounds[1], y);
+                bounds[2] = Math.max(bounds[2], x);
+                bounds[3] = Math.max(bounds[3], y);
+            }
+        });
+        if (bounds[2] < 0) {
+            return false;
+        }
+
+        // Rectangle des cellules en feu élargi de l'horizon
+        windowX0 = Math.max(bounds[0] - horizon, 0);
+        windowY0 = Math.max(bounds[1] - horizon, 0);
+        windowWidth = Math.min(bounds[2] + horizon, gridWidth - 1) - windowX0 + 1;
+        windowHeight = Math.min(bounds[3] + horizon, gridHeight - 1) - windowY0 + 1;
+        int size = windowWidth * windowHeight;
+        if (base.length < size) {
+            base = new double[size];
+        } else {
+            Arrays.fill(base, 0, size, 0.0);
+        }
+        map.forEachNonZero((x, y, value) -> {
+            int i = x - windowX0;
+            int j = y - windowY0;
+            if (i >= 0 && i < windowWidth && j >= 0 && j < windowHeight) {
+                base[i * windowHeight + j] = value;
+            }
+        });
+
+        running = true;
+        requestTick = tick;
+        requestNanos = System.nanoTime();
+        requestGeneration = generation;
+        sequence++;
+        nextRollout.set(0);
+        int tasks = Math.min(WORKERS, rollouts);
+        activeWorkers.set(tasks);
+        for (int w = 0; w < tasks; w++) {
+            Worker worker = workers[w];
+            EXECUTOR.execute(() -> runWorker(worker));
+        }
+        return true;
+    }
+
+    // ====== Tirages ======
+    private void runWorker(Worker worker) {
+        try {
+            int size = windowWidth * windowHeight;
+            worker.ensure(size);
+            long deadline = requestNanos + deadlineNanos;
+            int rollout;
+            while ((rollout = nextRollout.getAndIncrement()) < rollouts && System.nanoTime() < deadline) {
+                simulate(worker, rollout, size);
+                worker.completed++;
+            }
+        } finally {
+            if (activeWorkers.decrementAndGet() == 0) {
+                publish();
+            }
+        }
+    }
+
+    // Un tirage : les règles de Fire.spread sur la fenêtre, pendant horizon pas
+    private void simulate(Worker worker, int rollout, int size) {
+        SplittableRandom random = new SplittableRandom(SimulationConfig.streamSeed(seed + sequence, rollout));
+        double threshold = scenario.intensityThreshold;
+        double maxIntensity = scenario.maxIntensity;
+        double spreadProbability = scenario.spreadProbability;
+        int w = windowWidth;
+        int h = windowHeight;
+        double[] cells = worker.cells;
+        double[] next = worker.next;
+        int[] hits = worker.hits;
+        int[] stamp = worker.stamp;
+        int mark = rollout + 1;
+        System.arraycopy(base, 0, cells, 0, size);
+
+        for (int step = 0; step < horizon; step++) {
+            // Renforcement des cellules en feu, qui comptent comme touchées par ce tirage
+            for (int index = 0; index < size; index++) {
+                double intensity = cells[index];
+                if (intensity > threshold) {
+                    if (stamp[index] != mark) {
+                        stamp[index] = mark;
+                        hits[index]++;
+                    }
+                    if (random.nextDouble() < SpreadEngine.REINFORCE_PROBABILITY) {
+                        intensity = Math.min(cellMaxIntensity(index, maxIntensity),
+                            intensity + random.nextDouble() * SpreadEngine.REINFORCE_RANGE + SpreadEngine.REINFORCE_MIN);
+                    }
+                }
+                next[index] = intensity;
+            }
+            // Propagation depuis les cellules en feu avant le pas
+            for (int i = 0; i < w; i++) {
+                for (int j = 0; j < h; j++) {
+                    double source = cells[i * h + j];
+                    if (source <= threshold) continue;
+                    for (int nx = Math.max(i - 1, 0); nx <= Math.min(i + 1, w - 1); nx++) {
+                        for (int ny = Math.max(j - 1, 0); ny <= Math.min(j + 1, h - 1); ny++) {
+                            int neighbor = nx * h + ny;
+                            if ((nx != i || ny != j) && next[neighbor] < threshold
+                                    && random.nextDouble() < cellSpreadProbability(i, j, nx, ny, spreadProbability)) {
+                                double spread = source * (SpreadEngine.TRANSFER_MIN + random.nextDouble() * SpreadEngine.TRANSFER_RANGE);
+                                next[neighbor] = Math.max(threshold + SpreadEngine.IGNITION_MARGIN,
+                                    Math.min(cellMaxIntensity(neighbor, maxIntensity), spread));
+                            }
+                        }
+                    }
+                }
+            }
+            double[] swap = cells;
+            cells = next;
+            next = swap;
+        }
+        // Cellules en feu au dernier pas
+        for (int index = 0; index < size; index++) {
+            if (cells[index] > threshold && stamp[index] != mark) {
+                stamp[index] = mark;
+                hits[index]++;
+            }
+        }
+    }
+
+    // Probabilité de propagation de la cellule (i, j) de la fenêtre vers sa voisine (nx, ny)
+    private double cellSpreadProbability(int i, int j, int nx, int ny, double uniform) {
+        if (materials == null) {
+            return uniform;
+        }
+        int source = (windowX0 + i) * gridHeight + windowY0 + j;
+        int target = (windowX0 + nx) * gridHeight + windowY0 + ny;
+        return materials.spreadProbability(source, target, MaterialMap.DIRECTION[(nx - i + 1) * 3 + ny - j + 1]);
+    }
+
+    // Intensité maximale d'une cellule de la fenêtre
+    private double cellMaxIntensity(int index, double uniform) {
+        if (materials == null) {
+            return uniform;
+        }
+        int x = windowX0 + index / windowHeight;
+        int y = windowY0 + index % windowHeight;
+        return Math.min(uniform, materials.getMaxIntensity(x * gridHeight + y));
+    }
+
+    // Fusionner les comptes des threads et publier, sauf si la simulation a été réinitialisée entre-temps
+    private void publish() {
+        int size = windowWidth * windowHeight;
+        int completed = 0;
+        for (Worker worker : workers) {
+            completed += worker.completed;
+        }
+        if (completed > 0 && requestGeneration == generation) {
+            float[] probability = new float[size];
+            for (Worker worker : workers) {
+                if (worker.completed == 0) continue;
+                for (int index = 0; index < size; index++) {
+                    probability[index] += worker.hits[index];
+                }
+            }
+            for (int index = 0; index < size; index++) {
+                probability[index] /= completed;
+            }
+            latest = new Result(windowX0, windowY0, windowWidth, windowHeight, horizon, completed, requestTick, probability);
+            published++;
+        }
+        for (Worker worker : workers) {
+            worker.completed = 0;
+        }
+        running = false;
+    }
+
+    // ====== Lecture ======
+    // Dernière prévision publiée, null s'il n'y en a pas encore
+    public Result getLatest() {
+        return latest;
+    }
+
+    // Nombre de prévisions publiées
+    public long getPublishedCount() {
+        return published;
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    // Oublier la dernière prévision ; celle en cours éventuelle ne sera pas publiée
+    void reset() {
+        generation++;
+        latest = null;
+    }
+}
@@ -1,42 +1,244 @@
+import java.io.IOException;
+import java.util.Arrays;
 
 public class FireGrid {
+    // Modes de stockage des intensités
+    public enum Storage {
+        // double 64 bits par cellule
+        DOUBLE,
+        // virgule fixe 16 bits par cellule
+        FIXED16,
+        // niveau quantifié 8 bits par cellule
+        BYTE8,
+        // tuiles de 64x64 doubles allouées uniquement là où le feu est présent
+        CHUNKED
+    }
+
     private final FireScenario.Parameters params;
+    private final Storage storage;
+    // Noyaux de calcul par cellule (scalaire ou vectoriel)
+    private final FireKernels kernels;
 
-    private double[][] grid;
+    // Intensités stockées dans un tableau plat, colonne par colonne (index = x * height + y)
+    private volatile double[] cells;
+    // Intensités quantifiées (modes FIXED16 et BYTE8), même indexation
+    private volatile QuantizedCells quantized;
+    // Intensités en tuiles creuses (mode CHUNKED)
+    private volatile ChunkedGrid chunks;
     private int width;
     private int height;
+    // Cellules en feu (intensité > seuil) : tenu à jour par les écritures cellule par cellule,
+    // reconstruit en une passe à la demande après un remplacement du tableau (pas de propagation)
+    private final CellMask burning;
+    private volatile boolean burningValid = true;
+    // Niveau grossier (cellules en feu par bloc), créé à la première demande puis tenu à jour comme le masque
+    private FireBlocks blocks;
+    private volatile boolean blocksValid;
 
     public FireGrid(int width, int height, FireScenario.Parameters params) {
+        this(width, height, params, Storage.DOUBLE);
+    }
+
+    public FireGrid(int width, int height, FireScenario.Parameters params, Storage storage) {
+        this(width, height, params, storage, FireKernels.get());
+    }
+
+    public FireGrid(int width, int height, FireScenario.Parameters params, Storage storage, FireKernels kernels) {
         this.width = width;
         this.height = height;
-        this.grid = new double[width][height];
         this.params = params;
+        this.storage = storage;
+        this.kernels = kernels;
+        this.burning = new CellMask(width, height);
+        switch (storage) {
+            case FIXED16:
+                this.quantized = QuantizedCells.fixed16(width * height, params.maxIntensity);
+                break;
+            case BYTE8:
+                this.quantized = QuantizedCells.byte8(width * height, params.maxIntensity);
+                break;
+            case CHUNKED:
+                this.chunks = new ChunkedGrid(width, height);
+                break;
+            default:
+                this.cells = new double[width * height];
+        }
     }
 
     // Mettre à jour la grille avec de nouvelles intensités
     public void updateGrid(double[][] newGrid) {
         for (int i = 0; i < width; i++) {
             for (int j = 0; j < height; j++) {
-                this.grid[i][j] = newGrid[i][j];
+                setIntensityAt(i, j, newGrid[i][j]);
             }
         }
     }
 
+    // Remettre toutes les intensités à zéro en conservant les tampons
+    void clear() {
+        burning.clear();
+        burningValid = true;
+        if (blocks != null) {
+            blocks.clear();
+            blocksValid = true;
+        }
+        if (chunks != null) {
+            chunks.clear();
+        } else if (quantized != null) {
+            quantized.clear();
+        } else {
+            Arrays.fill(cells, 0.0);
+        }
+    }
+
+    // Remplacer le tableau d'intensités par un nouveau tableau plat et rendre l'ancien pour réutilisation
+    double[] swapCells(double[] newCells) {
+        double[] old = cells;
+        cells = newCells;
+        burningValid = false;
+        blocksValid = false;
+        return old;
+    }
+
+    // Même remplacement, le moteur ayant déjà mis le masque et les blocs à jour pour le nouveau tableau
+    double[] swapCellsUpdated(double[] newCells) {
+        double[] old = cells;
+        cells = newCells;
+        return old;
+    }
+
+    // Même opération pour le stockage quantifié
+    QuantizedCells swapQuantized(QuantizedCells newCells) {
+        QuantizedCells old = quantized;
+        quantized = newCells;
+        burningValid = false;
+        blocksValid = false;
+        return old;
+    }
+
+    ChunkedGrid swapChunks(ChunkedGrid newChunks) {
+        ChunkedGrid old = chunks;
+        chunks = newChunks;
+        burningValid = false;
+        blocksValid = false;
+        return old;
+    }
+
+    // Accès direct aux tuiles (mode CHUNKED uniquement)
+    ChunkedGrid getChunks() {
+        return chunks;
+    }
+
+    // Accès direct au tableau plat (mode DOUBLE uniquement)
+    double[] getCells() {
+        return cells;
+    }
+
+    // Accès direct aux niveaux quantifiés (modes FIXED16 et BYTE8 uniquement)
+    QuantizedCells getQuantizedCells() {
+        return quantized;
+    }
+
+    boolean isQuantized() {
+        return storage == Storage.FIXED16 || storage == Storage.BYTE8;
+    }
+
+    boolean isChunked() {
+        return storage == Storage.CHUNKED;
+    }
+
+    FireKernels getKernels() {
+        return kernels;
+    }
+
     public void decreaseIntensity(int x, int y, double amount) {
-        grid[x][y] = Math.max(0.0, grid[x][y] - amount);
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            tiles.set(x, y, Math.max(0.0, tiles.get(x, y) - amount));
+        } else {
+            int index = x * height + y;
+            QuantizedCells levels = quantized;
+            if (levels != null) {
+                levels.set(index, Math.max(0, levels.get(index) - levels.toLevel(amount)));
+            } else {
+                double[] grid = cells;
+                grid[index] = Math.max(0.0, grid[index] - amount);
+            }
+        }
+        updateBurning(x, y);
+    }
+
+    // Diminuer les intensités d'un segment de colonne [yStart, yStart + length)
+    public void decreaseIntensityColumn(int x, int yStart, double[] amounts, int amountOffset, int length) {
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            for (int k = 0; k < length; k++) {
+                double current = tiles.get(x, yStart + k);
+                if (current != 0.0) {
+                    tiles.set(x, yStart + k, Math.max(0.0, current - amounts[amountOffset + k]));
+                }
+            }
+        } else {
+            int offset = x * height + yStart;
+            QuantizedCells levels = quantized;
+            if (levels != null) {
+                for (int k = 0; k < length; k++) {
+                    int index = offset + k;
+                    levels.set(index, Math.max(0, levels.get(index) - levels.toLevel(amounts[amountOffset + k])));
+                }
+            } else {
+                kernels.decay(cells, offset, amounts, amountOffset, length);
+            }
+        }
+        for (int k = 0; k < length; k++) {
+            updateBurning(x, yStart + k);
+        }
+    }
+
+    // Lire les intensités d'un segment de colonne [yStart, yStart + length) dans dst à partir de offset
+    public void readIntensityColumn(int x, int yStart, double[] dst, int offset, int length) {
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            for (int k = 0; k < length; k++) {
+                dst[offset + k] = tiles.get(x, yStart + k);
+            }
+            return;
+        }
+        int index = x * height + yStart;
+        QuantizedCells levels = quantized;
+        if (levels != null) {
+            for (int k = 0; k < length; k++) {
+                dst[offset + k] = levels.toIntensity(levels.get(index + k));
+            }
+            return;
+        }
+        System.arraycopy(cells, index, dst, offset, length);
     }
 
     public void increaseIntensity(int x, int y, double amount) {
-        grid[x][y] = Math.min(params.maxIntensity, grid[x][y] + amount);
+        setIntensityAt(x, y, getIntensityAt(x, y) + amount);
     }
 
     // ====== Getter et setter pour la grille d'intensité du feu ======
     public double[][] getIntensityGrid() {
         double[][] copy = new double[width][height];
-        for (int i = 0; i < width; i++) {
-            for (int j = 0; j < height; j++) {
-                copy[i][j] = grid[i][j];
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            tiles.forEachNonZero((x, y, value) -> copy[x][y] = value);
+            return copy;
+        }
+        QuantizedCells levels = quantized;
+        if (levels != null) {
+            for (int i = 0; i < width; i++) {
+                for (int j = 0; j < height; j++) {
+                    copy[i][j] = levels.toIntensity(levels.get(i * height + j));
+                }
             }
+            return copy;
+        }
+        double[] grid = cells;
+        for (int i = 0; i < width; i++) {
+            System.arraycopy(grid, i * height, copy[i], 0, height);
         }
         return copy;
     }
@@ -50,17 +252,187 @@ public class FireGrid {
     }
 
     public double getIntensityAt(int x, int y) {
-        return grid[x][y];
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            return tiles.get(x, y);
+        }
+        QuantizedCells levels = quantized;
+        if (levels != null) {
+            return levels.toIntensity(levels.get(x * height + y));
+        }
+        return cells[x * height + y];
     }
 
     public void setIntensityAt(int x, int y, double intensity) {
-        grid[x][y] = Math.min(Math.max(intensity, 0.0), params.maxIntensity);
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            tiles.set(x, y, Math.min(Math.max(intensity, 0.0), params.maxIntensity));
+        } else {
+            QuantizedCells levels = quantized;
+            if (levels != null) {
+                levels.set(x * height + y, levels.toLevel(Math.min(intensity, params.maxIntensity)));
+            } else {
+                cells[x * height + y] = Math.min(Math.max(intensity, 0.0), params.maxIntensity);
+            }
+        }
+        updateBurning(x, y);
+    }
+
+    // ====== Cellules en feu ======
+    // Tenir le bit d'une cellule qui vient d'être écrite (inutile si le masque est à reconstruire),
+    // ainsi que le compte de son bloc
+    private void updateBurning(int x, int y) {
+        if (burningValid) {
+            boolean now = getIntensityAt(x, y) > params.intensityThreshold;
+            if (blocksValid) {
+                blocks.touch(x, y);
+                if (burning.get(x, y) != now) {
+                    blocks.cellChanged(x, y, now);
+                }
+            }
+            burning.set(x * height + y, now);
+        }
+    }
+
+    // Masque des cellules en feu, en lecture seule ; valable jusqu'à la prochaine écriture dans la grille
+    public CellMask getBurningMask() {
+        if (!burningValid) {
+            rebuildBurning();
+        }
+        return burning;
+    }
+
+    // Niveau grossier des blocs, reconstruit si besoin depuis le masque ; valable comme le masque
+    FireBlocks getBlocks() {
+        CellMask mask = getBurningMask();
+        if (!blocksValid) {
+            if (blocks == null) {
+                blocks = new FireBlocks(width, height);
+            }
+            blocks.rebuild(mask);
+            blocksValid = true;
+        }
+        return blocks;
+    }
+
+    private void rebuildBurning() {
+        double threshold = params.intensityThreshold;
+        ChunkedGrid tiles = chunks;
+        QuantizedCells levels = quantized;
+        if (tiles != null) {
+            burning.clear();
+            tiles.forEachNonZero((x, y, value) -> {
+                if (value > threshold) burning.set(x * height + y, true);
+            });
+        } else if (levels != null) {
+            for (int index = 0; index < levels.size; index++) {
+                burning.set(index, levels.toIntensity(levels.get(index)) > threshold);
+            }
+        } else {
+            burning.assignAbove(cells, threshold);
+        }
+        burningValid = true;
+    }
+
+    public boolean isBurning(int x, int y) {
+        return getBurningMask().get(x, y);
+    }
+
+    public int countBurningCells() {
+        if (blocksValid && burningValid) {
+            return blocks.getBurningCount();
+        }
+        return getBurningMask().count();
     }
 
     public double getIntensity(int newX, int newY) {
-        return grid[newX][newY];
+        return getIntensityAt(newX, newY);
+    }
+
+    // Compter les cellules dont l'intensité dépasse un seuil
+    public int countCellsAbove(double threshold) {
+        if (threshold == params.intensityThreshold) {
+            return countBurningCells();
+        }
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            return tiles.countAbove(threshold);
+        }
+        int count = 0;
+        QuantizedCells levels = quantized;
+        if (levels != null) {
+            for (int index = 0; index < levels.size; index++) {
+                if (levels.toIntensity(levels.get(index)) > threshold) count++;
+            }
+            return count;
+        }
+        for (double value : cells) {
+            if (value > threshold) count++;
+        }
+        return count;
+    }
+
+    // Parcourir les cellules dont l'intensité dépasse un seuil (ordre des colonnes x puis y)
+    public void forEachCellAbove(double threshold, ChunkedGrid.CellVisitor visitor) {
+        if (threshold == params.intensityThreshold) {
+            CellMask mask = getBurningMask();
+            for (int index = mask.nextSetIndex(0); index >= 0; index = mask.nextSetIndex(index + 1)) {
+                int x = index / height;
+                int y = index - x * height;
+                visitor.visit(x, y, getIntensityAt(x, y));
+            }
+            return;
+        }
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            tiles.forEachNonZero((x, y, value) -> {
+                if (value > threshold) visitor.visit(x, y, value);
+            });
+            return;
+        }
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                double value = getIntensityAt(i, j);
+                if (value > threshold) visitor.visit(i, j, value);
+            }
+        }
+    }
+
+    // Taille mémoire des intensités en octets
+    public long getMemoryBytes() {
+        ChunkedGrid tiles = chunks;
+        if (tiles != null) {
+            return tiles.getMemoryBytes();
+        }
+        QuantizedCells levels = quantized;
+        return levels != null ? levels.getMemoryBytes() : 8L * cells.length;
+    }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        if (chunks != null) {
+            chunks.writeCheckpoint(out);
+        } else if (quantized != null) {
+            quantized.writeCheckpoint(out);
+        } else {
+            out.putDoubles(cells);
+        }
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        burningValid = false;
+        blocksValid = false;
+        if (chunks != null) {
+            chunks.readCheckpoint(in);
+        } else if (quantized != null) {
+            quantized.readCheckpoint(in);
+        } else {
+            in.getDoubles(cells);
+        }
     }
 
+    public Storage getStorage() { return storage; }
+    public FireScenario.Parameters getParameters() { return params; }
     public double getMaxIntensity() { return params.maxIntensity; }
     public double getInitialIntensity() { return params.initialIntensity; }
     public double getIntensityThreshold() { return params.intensityThreshold; }
@@ -0,0 +1,113 @@
+import java.util.Arrays;
+
+/**
+ * Noyaux de calcul par cellule utilisés par la propagation et l'extinction du feu.
+ *
+ * Deux implémentations existent : ScalarFireKernels (toujours disponible) et
+ * VectorFireKernels (src-vector/, API jdk.incubator.vector), chargée par réflexion
+ * uniquement si le module est présent. La variante vectorielle n'est retenue que si
+ * elle reproduit exactement les résultats scalaires sur un flux aléatoire fixé.
+ * La propriété système fire.kernels=scalar force la variante scalaire ; une simulation
+ * peut aussi choisir explicitement sa variante avec named().
+ */
+public interface FireKernels {
+
+    /**
+     * Renforcement des cellules actives :
+     * out[i] = cur[i] > threshold ? min(max, cur[i] + delta[i]) : cur[i]
+     * @return le nombre de cellules actives
+     */
+    int reinforce(double[] cur, double[] delta, double[] out, int length, double threshold, double max);
+
+    /**
+     * Diminution des intensités d'un segment :
+     * cells[offset + k] = max(0, cells[offset + k] - amounts[amountOffset + k])
+     */
+    void decay(double[] cells, int offset, double[] amounts, int amountOffset, int length);
+
+    String getName();
+
+    // Retourner les noyaux sélectionnés pour cette JVM
+    static FireKernels get() {
+        return Selection.SELECTED;
+    }
+
+    // Choisir une variante par son nom : "auto", "scalar" ou "vector"
+    static FireKernels named(String name) {
+        switch (name) {
+            case "auto":
+                return get();
+            case "scalar":
+                return new ScalarFireKernels();
+            case "vector":
+                FireKernels vector = Selection.loadVector();
+                if (vector == null) {
+                    throw new IllegalArgumentException("Vector fire kernels are not available in this JVM");
+                }
+                return vector;
+            default:
+                throw new IllegalArgumentException("Unknown fire kernels: " + name);
+        }
+    }
+
+    class Selection {
+        private static final long CHECK_SEED = 20240611L;
+        private static final int CHECK_SIZE = 1031;
+        static final FireKernels SELECTED = select();
+
+        private Selection() {
+        }
+
+        private static FireKernels select() {
+            FireKernels scalar = new ScalarFireKernels();
+            if ("scalar".equals(System.getProperty("fire.kernels"))) {
+                return scalar;
+            }
+            FireKernels vector = loadVector();
+            return vector != null ? vector : scalar;
+        }
+
+        // Charger la variante vectorielle si elle est présente et conforme ; null sinon
+        static FireKernels loadVector() {
+            try {
+                FireKernels vector = (FireKernels) Class.forName("VectorFireKernels")
+                    .getDeclaredConstructor().newInstance();
+                if (matches(new ScalarFireKernels(), vector)) {
+                    return vector;
+                }
+                System.err.println("Vector fire kernels disagree with scalar kernels, using scalar");
+            } catch (ReflectiveOperationException | LinkageError e) {
+                // Module jdk.incubator.vector absent ou classe non compilée
+            }
+            return null;
+        }
+
+        // Comparer deux implémentations sur un flux aléatoire fixé
+        static boolean matches(FireKernels reference, FireKernels candidate) {
+            SimulationRandom random = new SimulationRandom(CHECK_SEED);
+            double max = FireScenario.CHEMICAL.maxIntensity;
+            double threshold = FireScenario.CHEMICAL.intensityThreshold;
+            double[] cur = new double[CHECK_SIZE];
+            double[] delta = new double[CHECK_SIZE];
+            double[] amounts = new double[CHECK_SIZE];
+            for (int i = 0; i < CHECK_SIZE; i++) {
+                cur[i] = random.nextDouble() < 0.5 ? random.nextDouble() * max : 0.0;
+                delta[i] = random.nextDouble() < 0.3 ? random.nextDouble() * 20 - 5 : 0.0;
+                amounts[i] = random.nextDouble() * 40;
+            }
+
+            double[] expected = new double[CHECK_SIZE];
+            double[] actual = new double[CHECK_SIZE];
+            int expectedCount = reference.reinforce(cur, delta, expected, CHECK_SIZE, threshold, max);
+            int actualCount = candidate.reinforce(cur, delta, actual, CHECK_SIZE, threshold, max);
+            if (expectedCount != actualCount || !Arrays.equals(expected, actual)) {
+                return false;
+            }
+
+            // Segments décalés pour couvrir les parties non alignées
+            reference.decay(expected, 3, amounts, 7, CHECK_SIZE - 10);
+            candidate.decay(actual, 3, amounts, 7, CHECK_SIZE - 10);
+            return Arrays.equals(expected, actual);
+        }
+    }
+}
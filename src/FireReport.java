@@ -0,0 +1,68 @@
+import java.util.Arrays;
+
+/**
+ * Rapport de feu incrémental d'un robot : seules les différences avec ce qu'il a déjà signalé au QG.
+ *
+ * Chaque entrée est une cellule (x * hauteur + y) et une valeur :
+ *   > 0          : cellule en feu, nouvelle ou dont l'intensité a changé au-delà de la tolérance
+ *   EXTINGUISHED : cellule observée éteinte, retirée de la carte du QG quel que soit le robot qui l'avait signalée
+ *   FORGOTTEN    : cellule sortie du champ de vision, retirée du seul rapport de ce robot
+ * Un rapport complet (full) remplace tout ce que le robot avait signalé, à la manière des trames
+ * clés du journal d'événements. Un rapport vide prolonge la validité des cellules déjà signalées.
+ */
+class FireReport {
+    static final double EXTINGUISHED = 0.0;
+    static final double FORGOTTEN = -1.0;
+
+    static final FireReport EMPTY = new FireReport(new int[0], new double[0], false);
+
+    final int[] cells;
+    final double[] values;
+    final boolean full;
+
+    private FireReport(int[] cells, double[] values, boolean full) {
+        this.cells = cells;
+        this.values = values;
+        this.full = full;
+    }
+
+    int size() {
+        return cells.length;
+    }
+
+    // ====== Construction ======
+    // Tampon réutilisé par un robot d'un rapport à l'autre
+    static final class Builder {
+        private int[] cells = new int[16];
+        private double[] values = new double[16];
+        private int size;
+        private boolean full;
+
+        void add(int cell, double value) {
+            if (size == cells.length) {
+                cells = Arrays.copyOf(cells, size * 2);
+                values = Arrays.copyOf(values, size * 2);
+            }
+            cells[size] = cell;
+            values[size] = value;
+            size++;
+        }
+
+        void setFull(boolean full) {
+            this.full = full;
+        }
+
+        boolean isEmpty() {
+            return size == 0 && !full;
+        }
+
+        // Rapport de taille exacte ; le tampon est vidé pour le rapport suivant
+        FireReport build() {
+            FireReport report = isEmpty() ? EMPTY
+                : new FireReport(Arrays.copyOf(cells, size), Arrays.copyOf(values, size), full);
+            size = 0;
+            full = false;
+            return report;
+        }
+    }
+}
@@ -1,3 +1,4 @@
+import java.io.IOException;
 import java.util.List;
 
 public class FireStatistics {
@@ -7,16 +8,40 @@ public class FireStatistics {
     private int initialFireCells;
     private int currentFireCells;
     private int maxFireCells;
-    private final long startTime;
+    // Foyers de la grille de feu, suivis par différence entre deux masques de cellules en feu
+    private FireClusters clusters;
+    private CellMask trackedCells;
+    private final SimulationClock clock;
+    private long startTime;
     private double survivalRate;
     private double fireControlRate;
 
     public FireStatistics() {
-        this.startTime = System.currentTimeMillis();
+        this(SimulationClock.SYSTEM);
+    }
+
+    public FireStatistics(SimulationClock clock) {
+        this.clock = clock;
+        this.startTime = clock.currentTimeMillis();
         this.maxFireCells = 0;
     }
 
-    public void updateStatistics(double[][] fireGrid, List<Survivor> survivors, double threshold) {
+    // Remettre les compteurs à zéro pour un nouvel épisode
+    void reset() {
+        totalSurvivors = 0;
+        rescuedSurvivors = 0;
+        deadSurvivors = 0;
+        initialFireCells = 0;
+        currentFireCells = 0;
+        maxFireCells = 0;
+        clusters = null;
+        trackedCells = null;
+        survivalRate = 0;
+        fireControlRate = 0;
+        startTime = clock.currentTimeMillis();
+    }
+
+    public void updateStatistics(FireGrid fireGrid, List<Survivor> survivors) {
         totalSurvivors = survivors.size();
         rescuedSurvivors = 0;
         deadSurvivors = 0;
@@ -31,14 +56,7 @@ public class FireStatistics {
             ((double) rescuedSurvivors / totalSurvivors) * 100;
 
         // Calculer le nombre de cellules de feu actives
-        currentFireCells = 0;
-        for (double[] row : fireGrid) {
-            for (double intensity : row) {
-                if (intensity > threshold) {
-                    currentFireCells++;
-                }
-            }
-        }
+        currentFireCells = fireGrid.countBurningCells();
 
         // Mettre à jour le nombre maximal de cellules de feu
         if (currentFireCells > maxFireCells) {
@@ -52,6 +70,30 @@ public class FireStatistics {
         // Calculer le taux de contrôle du feu
         fireControlRate = maxFireCells == 0 ? 100 : 
             ((double)(maxFireCells - currentFireCells) / maxFireCells) * 100;
+
+        updateClusters(fireGrid);
+    }
+
+    // Appliquer aux foyers les seules cellules allumées ou éteintes depuis la dernière mise à jour
+    // (intensités non suivies : seuls nombre et taille des foyers sont publiés). Les foyers scindés
+    // ne sont recalculés qu'à la lecture des statistiques.
+    private synchronized void updateClusters(FireGrid fireGrid) {
+        CellMask burning = fireGrid.getBurningMask();
+        if (clusters == null || trackedCells.getWidth() != burning.getWidth() || trackedCells.getHeight() != burning.getHeight()) {
+            clusters = new FireClusters(burning.getWidth(), burning.getHeight(), (x, y) -> 0.0);
+            trackedCells = new CellMask(burning.getWidth(), burning.getHeight());
+        }
+        int height = burning.getHeight();
+        for (int index = burning.nextDifference(trackedCells, 0); index >= 0; index = burning.nextDifference(trackedCells, index + 1)) {
+            int x = index / height;
+            int y = index - x * height;
+            if (burning.get(x, y)) {
+                clusters.add(x, y, 0.0);
+            } else {
+                clusters.remove(x, y, 0.0);
+            }
+        }
+        trackedCells.copyFrom(burning);
     }
 
     public String getFormattedStatistics() {
@@ -67,16 +109,51 @@ public class FireStatistics {
         stats.append(String.format("- Initial Fires: %d\n", initialFireCells));
         stats.append(String.format("- Current Fires: %d\n", currentFireCells));
         stats.append(String.format("- Max Spread: %d\n", maxFireCells));
+        stats.append(String.format("- Fire Clusters: %d (largest: %d)\n", getFireClusters(), getLargestCluster()));
 
         // Calculer la durée de la simulation
-        long duration = (System.currentTimeMillis() - startTime) / 1000;
+        long duration = getElapsedMillis() / 1000;
         stats.append(String.format("\nSimulation Time: %02d:%02d\n", 
             duration / 60, duration % 60));
 
         return stats.toString();
     }
 
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(totalSurvivors);
+        out.putInt(rescuedSurvivors);
+        out.putInt(deadSurvivors);
+        out.putInt(initialFireCells);
+        out.putInt(currentFireCells);
+        out.putInt(maxFireCells);
+        out.putTime(startTime);
+        out.putDouble(survivalRate);
+        out.putDouble(fireControlRate);
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        totalSurvivors = in.getInt();
+        rescuedSurvivors = in.getInt();
+        deadSurvivors = in.getInt();
+        initialFireCells = in.getInt();
+        currentFireCells = in.getInt();
+        maxFireCells = in.getInt();
+        startTime = in.getTime();
+        survivalRate = in.getDouble();
+        fireControlRate = in.getDouble();
+    }
+
     // Getters
     public double getSurvivalRate() { return survivalRate; }
     public double getFireControlRate() { return fireControlRate; }
+    public int getTotalSurvivors() { return totalSurvivors; }
+    public int getRescuedSurvivors() { return rescuedSurvivors; }
+    public int getDeadSurvivors() { return deadSurvivors; }
+    public int getInitialFireCells() { return initialFireCells; }
+    public int getCurrentFireCells() { return currentFireCells; }
+    public int getMaxFireCells() { return maxFireCells; }
+    public synchronized int getFireClusters() { return clusters == null ? 0 : clusters.getClusterCount(); }
+    public synchronized int getLargestCluster() { return clusters == null ? 0 : clusters.getLargestClusterSize(); }
+    public long getElapsedMillis() { return clock.currentTimeMillis() - startTime; }
 }
@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 public class Firefighter extends Robot {
     // Declaration de constantes
@@ -14,6 +13,8 @@ public class Firefighter extends Robot {
     private static final double WATER_USE_RATE = 50.0;
     // Temps de recharge de l'eau
     private static final long WATER_REFILL_TIME = 2000;
+    // Quantité d'eau retirée par colonne (index dx + EXTINGUISH_RADIUS), pour dy de -h à h
+    private static final double[][] EXTINGUISH_PROFILE = buildExtinguishProfile();
 
     // Declaration des attributs
     private double currentWater;
@@ -21,9 +22,14 @@ public class Firefighter extends Robot {
     private FireGrid fireGrid;
     private int targetX = -1;
     private int targetY = -1;
-
-    public Firefighter(int id, int x, int y, int gridWidth, int gridHeight) {
-        super(id, x, y, gridWidth, gridHeight);
+    // Extinction reportée à la barrière du pas (robots exécutés en parallèle par AgentRuntime)
+    boolean deferSpray;
+    private boolean pendingSpray;
+    // Tampon des rapports d'extinction
+    private final FireReport.Builder extinguished = new FireReport.Builder();
+
+    public Firefighter(int id, SimulationConfig config) {
+        super(id, config);
         this.currentWater = MAX_WATER;
     }
 
@@ -32,9 +38,50 @@ public class Firefighter extends Robot {
         return TYPE_FIREFIGHTER;
     }
 
+    // Réveil en fin de recharge d'eau ; au repos au QG tant qu'aucun feu n'est connu
+    @Override
+    long nextWakeTime(long now, long tickInterval) {
+        if (currentState == State.RECHARGING_WATER) {
+            return waterRefillStartTime + WATER_REFILL_TIME;
+        }
+        if (currentState == State.AT_HQ && x == config.hqX && y == config.hqY && !hasAssignedTarget()
+                && localKnowledge.countAbove(fireGrid.getIntensityThreshold()) == 0) {
+            return Long.MAX_VALUE;
+        }
+        return super.nextWakeTime(now, tickInterval);
+    }
+
+    @Override
+    void reset(long seed) {
+        super.reset(seed);
+        currentWater = MAX_WATER;
+        waterRefillStartTime = 0;
+        targetX = -1;
+        targetY = -1;
+        pendingSpray = false;
+    }
+
+    // Pompier passé dans une autre région ; s'il rentrait au QG, il rejoint celui de sa nouvelle région
+    @Override
+    Firefighter handOver(int newId, SimulationConfig target, int dx, int dy) {
+        Firefighter copy = new Firefighter(newId, target);
+        copy.copyHandoverState(this, dx, dy);
+        copy.currentWater = currentWater;
+        copy.waterRefillStartTime = waterRefillStartTime;
+        if (targetX >= 0) {
+            copy.targetX = clampTo(targetX + dx, target.gridWidth);
+            copy.targetY = clampTo(targetY + dy, target.gridHeight);
+        }
+        if (currentState == State.MOVING_TO_HQ) {
+            copy.targetX = target.hqX;
+            copy.targetY = target.hqY;
+        }
+        return copy;
+    }
+
     // ===== Mettre à jour le status =====
     @Override
-    public void updateState(HeadQuarters hq) {
+    public void updateState(HeadQuartersLink hq) {
         // Mettre à jour l'état de l'électricité
         if (handleChargingElectricityState()) {
             return;
@@ -58,8 +105,8 @@ public class Firefighter extends Robot {
         // Mettre à jour les connaissances locales
         if (isAtHQ()) {
             localKnowledge = hq.getGlobalMap();
-            handleAtHQState();
-            operationStartTime = System.currentTimeMillis();
+            handleAtHQState(hq);
+            operationStartTime = config.clock.currentTimeMillis();
         }
 
         if (currentState == State.MOVING_TO_FIRE) {
@@ -110,7 +157,7 @@ public class Firefighter extends Robot {
         return false;
     }
 
-    private void handleAtHQState() {
+    private void handleAtHQState(HeadQuartersLink hq) {
         if (needsRecharge() || currentWater < MAX_WATER*0.5) {
             if (needsRecharge()) {
                 startRecharge();
@@ -118,8 +165,17 @@ public class Firefighter extends Robot {
             if (currentWater < MAX_WATER*0.5) {
                 startWaterRefill();
             }
+        } else if (hasAssignedTarget()) {
+            targetX = assignedX;
+            targetY = assignedY;
+            currentState = State.MOVING_TO_FIRE;
+            moveSmartlyTowards(targetX, targetY);
         } else {
-            int[] fireLocation = findNearestFireInLocalMap();
+            // Cible attribuée par le QG, sinon le feu connu le plus proche
+            int[] fireLocation = getFireTarget(hq);
+            if (fireLocation == null) {
+                fireLocation = findNearestFireInLocalMap();
+            }
             if (fireLocation != null) {
                 targetX = fireLocation[0];
                 targetY = fireLocation[1];
@@ -129,7 +185,17 @@ public class Firefighter extends Robot {
         }
     }
 
-    private void handleMovingToFireState(HeadQuarters hq) {
+    private void handleMovingToFireState(HeadQuartersLink hq) {
+        if (hasAssignedTarget()) {
+            targetX = assignedX;
+            targetY = assignedY;
+        } else {
+            int[] fireLocation = getFireTarget(hq);
+            if (fireLocation != null) {
+                targetX = fireLocation[0];
+                targetY = fireLocation[1];
+            }
+        }
         if (isNearFireDirect()) {
             currentState = State.EXTINGUISHING;
             extinguishFire(hq);
@@ -138,7 +204,7 @@ public class Firefighter extends Robot {
         }
     }
     
-    private void handleExtinguishingState(HeadQuarters hq) {
+    private void handleExtinguishingState(HeadQuartersLink hq) {
         if (isNearFireDirect()) {
             extinguishFire(hq);
         } else {
@@ -146,7 +212,7 @@ public class Firefighter extends Robot {
         }
     }
 
-    private void handleMovingToHQState(HeadQuarters hq) {
+    private void handleMovingToHQState(HeadQuartersLink hq) {
         moveSmartlyTowards(hq.getX(), hq.getY());
         if (isAtHQ()) {
             if (needsRecharge() || currentWater < MAX_WATER*0.5) {
@@ -162,26 +228,35 @@ public class Firefighter extends Robot {
         }
     }
 
+    // Cellule attribuée par la répartition du QG, null sans affectation
+    private int[] getFireTarget(HeadQuartersLink hq) {
+        int target = hq.getFireTarget(id);
+        if (target < 0) {
+            return null;
+        }
+        return new int[]{target / config.gridHeight, target % config.gridHeight};
+    }
+
     // Trouver le feu le plus proche dans la connaissance locale
     private int[] findNearestFireInLocalMap() {
-        int nearestX = -1;
-        int nearestY = -1;
-        double minDistance = Double.MAX_VALUE;
-
-        for (int i = 0; i < localKnowledge.length; i++) {
-            for (int j = 0; j < localKnowledge[0].length; j++) {
-                if (localKnowledge[i][j] > fireGrid.getIntensityThreshold()) {
-                    double distance = Math.sqrt(Math.pow(i - x, 2) + Math.pow(j - y, 2));
-                    if (distance < minDistance) {
-                        minDistance = distance;
-                        nearestX = i;
-                        nearestY = j;
-                    }
+        int[] nearest = {-1, -1};
+        double[] minDistance = {Double.MAX_VALUE};
+        double threshold = fireGrid.getIntensityThreshold();
+
+        // Seules les tuiles connues sont parcourues ; à distance égale, la cellule de plus petit (x, y) l'emporte
+        localKnowledge.forEachNonZero((i, j, intensity) -> {
+            if (intensity > threshold) {
+                double distance = Math.sqrt(Math.pow(i - x, 2) + Math.pow(j - y, 2));
+                if (distance < minDistance[0] || (distance == minDistance[0]
+                        && (i < nearest[0] || (i == nearest[0] && j < nearest[1])))) {
+                    minDistance[0] = distance;
+                    nearest[0] = i;
+                    nearest[1] = j;
                 }
             }
-        }
+        });
 
-        return (nearestX != -1) ? new int[]{nearestX, nearestY} : null;
+        return (nearest[0] != -1) ? nearest : null;
     }
 
     // Vérifier si le feu est proche
@@ -200,8 +275,8 @@ public class Firefighter extends Robot {
     }
 
     private void returnToHQ() {
-        targetX = HeadQuarters.getHqX();
-        targetY = HeadQuarters.getHqY();
+        targetX = config.hqX;
+        targetY = config.hqY;
         currentState = State.MOVING_TO_HQ;
     }
 
@@ -232,14 +307,15 @@ public class Firefighter extends Robot {
     // Calculer le risque de mouvement
     private double calculateMovementRisk(int x, int y, int targetX, int targetY) {
         double distanceToTarget = Math.sqrt(Math.pow(x - targetX, 2) + Math.pow(y - targetY, 2));
-        double fireRisk = localKnowledge[x][y] > fireGrid.getIntensityThreshold() ? 
-                         localKnowledge[x][y] : 0;
+        double knownIntensity = localKnowledge.get(x, y);
+        double fireRisk = knownIntensity > fireGrid.getIntensityThreshold() ? 
+                         knownIntensity : 0;
         
         return distanceToTarget + (fireRisk * 0.5);
     }
 
     // Éteindre le feu
-    public void extinguishFire(HeadQuarters hq) {
+    public void extinguishFire(HeadQuartersLink hq) {
         if (needsRecharge() || currentWater <= 0) {
             returnToHQ();
             return;
@@ -252,36 +328,84 @@ public class Firefighter extends Robot {
         }
 
         currentWater = Math.max(0, currentWater - waterNeeded);
+        if (deferSpray) {
+            pendingSpray = true;
+        } else {
+            spray(hq);
+        }
+    }
 
-        List<FireSpot> extinguishedFires = new ArrayList<>();
-        for (int dx = -EXTINGUISH_RADIUS; dx <= EXTINGUISH_RADIUS; dx++) {
-            for (int dy = -EXTINGUISH_RADIUS; dy <= EXTINGUISH_RADIUS; dy++) {
+    // Appliquer l'extinction reportée pendant le pas (la grille n'est modifiée qu'à la barrière)
+    void applyPendingSpray(HeadQuartersLink hq) {
+        if (pendingSpray) {
+            pendingSpray = false;
+            spray(hq);
+        }
+    }
+
+    // Retirer l'eau du disque d'extinction et signaler au QG les cellules qui viennent de s'éteindre
+    // (en feu avant l'extinction, ou connues en feu dans la carte locale)
+    private void spray(HeadQuartersLink hq) {
+        if (fireGrid != null) {
+            int height = fireGrid.getHeight();
+            double threshold = fireGrid.getIntensityThreshold();
+            for (int dx = -EXTINGUISH_RADIUS; dx <= EXTINGUISH_RADIUS; dx++) {
                 int newX = x + dx;
-                int newY = y + dy;
-                if (isValidPosition(newX, newY)) {
-                    double distance = Math.sqrt(dx * dx + dy * dy);
-                    if (distance <= EXTINGUISH_RADIUS) {
-                        double effect = EXTINGUISH_AMOUNT * (1.0 - (distance / (EXTINGUISH_RADIUS + 1)));
-                        if (fireGrid != null) {
-                            fireGrid.decreaseIntensity(newX, newY, effect);
-                            if (fireGrid.getIntensity(newX, newY) <= fireGrid.getIntensityThreshold()) {
-                                extinguishedFires.add(new FireSpot(newX, newY, 0, System.currentTimeMillis()));
-                            }
-                        }
+                if (newX < 0 || newX >= fireGrid.getWidth()) continue;
+
+                // Segment de colonne dans le disque d'extinction, limité à la grille
+                double[] profile = EXTINGUISH_PROFILE[dx + EXTINGUISH_RADIUS];
+                int reach = profile.length / 2;
+                int dyStart = Math.max(-reach, -y);
+                int dyEnd = Math.min(reach, height - 1 - y);
+                if (dyStart > dyEnd) continue;
+
+                // Cellules en feu avant l'extinction (au plus 2 * EXTINGUISH_RADIUS + 1 bits)
+                int burning = 0;
+                for (int dy = dyStart; dy <= dyEnd; dy++) {
+                    if (fireGrid.getIntensity(newX, y + dy) > threshold || localKnowledge.get(newX, y + dy) > threshold) {
+                        burning |= 1 << (dy + reach);
+                    }
+                }
+                fireGrid.decreaseIntensityColumn(newX, y + dyStart, profile, dyStart + reach, dyEnd - dyStart + 1);
+
+                while (burning != 0) {
+                    int dy = Integer.numberOfTrailingZeros(burning) - reach;
+                    burning &= burning - 1;
+                    if (fireGrid.getIntensity(newX, y + dy) <= threshold) {
+                        extinguished.add(newX * height + y + dy, FireReport.EXTINGUISHED);
                     }
                 }
             }
         }
 
-        if (!extinguishedFires.isEmpty()) {
-            hq.receiveFireReport(id, extinguishedFires);
+        if (!extinguished.isEmpty()) {
+            hq.receiveFireReport(id, extinguished.build());
+        }
+    }
+
+    // Précalculer l'effet de l'extinction pour chaque cellule du disque
+    private static double[][] buildExtinguishProfile() {
+        double[][] profile = new double[2 * EXTINGUISH_RADIUS + 1][];
+        for (int dx = -EXTINGUISH_RADIUS; dx <= EXTINGUISH_RADIUS; dx++) {
+            int reach = 0;
+            while (reach < EXTINGUISH_RADIUS && Math.sqrt(dx * dx + (reach + 1) * (reach + 1)) <= EXTINGUISH_RADIUS) {
+                reach++;
+            }
+            double[] column = new double[2 * reach + 1];
+            for (int dy = -reach; dy <= reach; dy++) {
+                double distance = Math.sqrt(dx * dx + dy * dy);
+                column[dy + reach] = EXTINGUISH_AMOUNT * (1.0 - (distance / (EXTINGUISH_RADIUS + 1)));
+            }
+            profile[dx + EXTINGUISH_RADIUS] = column;
         }
+        return profile;
     }
 
     // ===== Gestion de l'eau =====
     // Début de la recharge de l'eau
     private void startWaterRefill() {
-        waterRefillStartTime = System.currentTimeMillis();
+        waterRefillStartTime = config.clock.currentTimeMillis();
         currentState = State.RECHARGING_WATER;
     }
 
@@ -290,7 +414,7 @@ public class Firefighter extends Robot {
         if (currentState != State.RECHARGING_WATER) {
             return false;
         }
-        return System.currentTimeMillis() - waterRefillStartTime >= WATER_REFILL_TIME;
+        return config.clock.currentTimeMillis() - waterRefillStartTime >= WATER_REFILL_TIME;
     }
 
     // Fin de la recharge de l'eau
@@ -304,7 +428,7 @@ public class Firefighter extends Robot {
     }
 
     private double getWaterRefillPercentage() {
-        long refillTime = System.currentTimeMillis() - waterRefillStartTime;
+        long refillTime = config.clock.currentTimeMillis() - waterRefillStartTime;
         return Math.min(100.0, (refillTime * 100.0) / WATER_REFILL_TIME);
     }
 
@@ -332,6 +456,24 @@ public class Firefighter extends Robot {
         return status.toString();
     }
 
+    @Override
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putDouble(currentWater);
+        out.putTime(waterRefillStartTime);
+        out.putInt(targetX);
+        out.putInt(targetY);
+    }
+
+    @Override
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        super.readCheckpoint(in);
+        currentWater = in.getDouble();
+        waterRefillStartTime = in.getTime();
+        targetX = in.getInt();
+        targetY = in.getInt();
+    }
+
     public void setFireGrid(FireGrid fireGrid) {
         this.fireGrid = fireGrid;
     }
@@ -0,0 +1,317 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Export en continu de toutes les trames d'intensité d'une simulation.
+ *
+ * Chaque trame est quantifiée sur 8 bits (relativement à l'intensité maximale du scénario),
+ * encodée en différence avec la trame précédente, puis compressée par plages de zéros.
+ * L'encodage et l'écriture se font sur un thread dédié alimenté par une file bornée :
+ * la boucle de simulation ne fait que quantifier la grille dans un tampon recyclé.
+ * Si tous les tampons sont occupés (disque trop lent), la trame est abandonnée et comptée
+ * (getDroppedFrames) : la boucle de simulation n'attend jamais le disque. Le mode waitForDisk,
+ * à demander explicitement, attend au contraire qu'un tampon se libère pour écrire toutes les trames.
+ * Le nombre de tampons est déduit de la taille d'une trame (queueCapacityFor).
+ *
+ * Format (big-endian) :
+ *   en-tête : MAGIC, VERSION, largeur, hauteur, intensité max
+ *   trame   : pas de temps, longueur encodée, données encodées
+ *   données : suite de (plage de zéros en varint, nombre de littéraux en varint, littéraux)
+ *             appliquée aux différences (octet courant - octet précédent) modulo 256
+ */
+public class FrameExporter implements Closeable {
+    // "FIREFRM1"
+    static final long MAGIC = 0x4649524546524D31L;
+    static final int VERSION = 1;
+    // Au plus MAX_QUEUE_CAPACITY tampons, dans la limite de QUEUE_MEMORY_BUDGET octets (au moins 2)
+    static final int MAX_QUEUE_CAPACITY = 4;
+    static final long QUEUE_MEMORY_BUDGET = 64L << 20;
+    // Intervalle de vérification de l'état du thread d'écriture pendant une attente
+    private static final long WAIT_POLL_MILLIS = 100;
+
+    // Trame quantifiée en attente d'encodage
+    private static class Frame {
+        final byte[] cells;
+        int timeStep;
+        boolean last;
+
+        Frame(int size) {
+            this.cells = new byte[size];
+        }
+    }
+
+    private final int width;
+    private final int height;
+    private final double maxIntensity;
+    private final DataOutputStream out;
+    private final BlockingQueue<Frame> pending;
+    private final BlockingQueue<Frame> freeFrames;
+    private final Thread writerThread;
+    private final byte[] previous;
+    private final byte[] encoded;
+    private final boolean waitForDisk;
+    private volatile IOException failure;
+    private final AtomicLong droppedFrames = new AtomicLong();
+    private volatile long writtenFrames;
+    private boolean closed;
+
+    public FrameExporter(Path path, int width, int height, double maxIntensity) throws IOException {
+        this(path, width, height, maxIntensity, queueCapacityFor(width, height), false);
+    }
+
+    // waitForDisk : attendre un tampon libre plutôt qu'abandonner la trame quand tous sont occupés
+    public FrameExporter(Path path, int width, int height, double maxIntensity, int queueCapacity,
+                         boolean waitForDisk) throws IOException {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be positive: " + queueCapacity);
+        }
+        this.width = width;
+        this.waitForDisk = waitForDisk;
+        this.height = height;
+        this.maxIntensity = maxIntensity;
+        int size = width * height;
+        this.previous = new byte[size];
+        // Pire cas : alternance zéro / littéral
+        this.encoded = new byte[size * 2 + 16];
+        this.pending = new ArrayBlockingQueue<>(queueCapacity + 1);
+        this.freeFrames = new ArrayBlockingQueue<>(queueCapacity);
+        for (int i = 0; i < queueCapacity; i++) {
+            freeFrames.add(new Frame(size));
+        }
+
+        this.out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(path.toFile()), 1 << 20));
+        out.writeLong(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(width);
+        out.writeInt(height);
+        out.writeDouble(maxIntensity);
+
+        this.writerThread = new Thread(this::writeLoop, "frame-exporter");
+        this.writerThread.setDaemon(true);
+        this.writerThread.start();
+    }
+
+    // Nombre de tampons pour une grille width x height
+    static int queueCapacityFor(int width, int height) {
+        long frameBytes = Math.max(1L, (long) width * height);
+        return (int) Math.max(2, Math.min(MAX_QUEUE_CAPACITY, QUEUE_MEMORY_BUDGET / frameBytes));
+    }
+
+    // Soumettre la trame courante ; abandonnée si aucun tampon n'est libre, sauf en mode waitForDisk.
+    // Retourne false si la trame n'a pas été prise (abandonnée ou écriture en échec)
+    public boolean submit(int timeStep, FireGrid fireGrid) {
+        Frame frame = nextFreeFrame();
+        if (frame == null || failure != null) {
+            if (frame != null) {
+                freeFrames.offer(frame);
+            }
+            droppedFrames.incrementAndGet();
+            return false;
+        }
+        byte[] cells = frame.cells;
+        for (int i = 0; i < width; i++) {
+            int column = i * height;
+            for (int j = 0; j < height; j++) {
+                cells[column + j] = (byte) IntensityQuantizer.toByte(fireGrid.getIntensityAt(i, j), maxIntensity);
+            }
+        }
+        frame.timeStep = timeStep;
+        frame.last = false;
+        pending.offer(frame);
+        return true;
+    }
+
+    // Tampon libre ; null si aucun ne l'est (hors mode waitForDisk) ou si le thread d'écriture s'est arrêté
+    private Frame nextFreeFrame() {
+        if (!waitForDisk) {
+            return freeFrames.poll();
+        }
+        try {
+            Frame frame;
+            while ((frame = freeFrames.poll(WAIT_POLL_MILLIS, TimeUnit.MILLISECONDS)) == null) {
+                if (failure != null || !writerThread.isAlive()) {
+                    return null;
+                }
+            }
+            return frame;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private void writeLoop() {
+        try {
+            while (true) {
+                Frame frame = pending.take();
+                if (frame.last) {
+                    break;
+                }
+                int length = encode(frame.cells);
+                out.writeInt(frame.timeStep);
+                out.writeInt(length);
+                out.write(encoded, 0, length);
+                writtenFrames++;
+                freeFrames.offer(frame);
+            }
+            out.flush();
+        } catch (IOException e) {
+            failure = e;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Encoder la trame en différence avec la précédente puis par plages de zéros
+    private int encode(byte[] cells) {
+        int n = cells.length;
+        int pos = 0;
+        int i = 0;
+        while (i < n) {
+            int zeroStart = i;
+            while (i < n && cells[i] == previous[i]) {
+                i++;
+            }
+            int literalStart = i;
+            while (i < n && cells[i] != previous[i]) {
+                i++;
+            }
+            pos = writeVarInt(encoded, pos, literalStart - zeroStart);
+            pos = writeVarInt(encoded, pos, i - literalStart);
+            for (int k = literalStart; k < i; k++) {
+                encoded[pos++] = (byte) (cells[k] - previous[k]);
+                previous[k] = cells[k];
+            }
+        }
+        return pos;
+    }
+
+    private static int writeVarInt(byte[] buffer, int pos, int value) {
+        while ((value & ~0x7F) != 0) {
+            buffer[pos++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        buffer[pos++] = (byte) value;
+        return pos;
+    }
+
+    public long getDroppedFrames() { return droppedFrames.get(); }
+    public long getWrittenFrames() { return writtenFrames; }
+
+    // Vider la file, attendre le thread d'écriture et fermer le fichier
+    @Override
+    public void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        Frame end = new Frame(0);
+        end.last = true;
+        try {
+            pending.put(end);
+            writerThread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        out.close();
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    // ====== Lecture pour l'analyse hors ligne ======
+    public static class Decoder implements Closeable {
+        private final DataInputStream in;
+        private final int width;
+        private final int height;
+        private final double maxIntensity;
+        private final byte[] cells;
+        private byte[] encoded = new byte[0];
+        private int timeStep;
+
+        public Decoder(Path path) throws IOException {
+            this.in = new DataInputStream(new BufferedInputStream(new FileInputStream(path.toFile()), 1 << 20));
+            if (in.readLong() != MAGIC) {
+                in.close();
+                throw new IOException("Not a frame export: " + path);
+            }
+            int version = in.readInt();
+            if (version != VERSION) {
+                in.close();
+                throw new IOException("Unsupported frame export version: " + version);
+            }
+            this.width = in.readInt();
+            this.height = in.readInt();
+            this.maxIntensity = in.readDouble();
+            this.cells = new byte[width * height];
+        }
+
+        // Lire la trame suivante ; false en fin de fichier
+        public boolean next() throws IOException {
+            try {
+                timeStep = in.readInt();
+            } catch (EOFException e) {
+                return false;
+            }
+            int length = in.readInt();
+            if (encoded.length < length) {
+                encoded = new byte[length];
+            }
+            in.readFully(encoded, 0, length);
+
+            int pos = 0;
+            int i = 0;
+            int[] cursor = new int[1];
+            while (pos < length) {
+                cursor[0] = pos;
+                int zeros = readVarInt(encoded, cursor);
+                int literals = readVarInt(encoded, cursor);
+                pos = cursor[0];
+                i += zeros;
+                for (int k = 0; k < literals; k++) {
+                    cells[i] = (byte) (cells[i] + encoded[pos++]);
+                    i++;
+                }
+            }
+            return true;
+        }
+
+        private static int readVarInt(byte[] buffer, int[] cursor) {
+            int value = 0;
+            int shift = 0;
+            byte b;
+            do {
+                b = buffer[cursor[0]++];
+                value |= (b & 0x7F) << shift;
+                shift += 7;
+            } while ((b & 0x80) != 0);
+            return value;
+        }
+
+        public double getIntensityAt(int x, int y) {
+            return IntensityQuantizer.fromByte(cells[x * height + y], maxIntensity);
+        }
+
+        public int getTimeStep() { return timeStep; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public double getMaxIntensity() { return maxIntensity; }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
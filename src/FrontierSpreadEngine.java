@@ -0,0 +1,25 @@
+/**
+ * Moteur creux : seules les cellules en feu du masque de la grille sont parcourues (mot par mot),
+ * le reste de la grille est recopié en bloc. Le coût suit le front du feu plutôt que la carte.
+ */
+public class FrontierSpreadEngine extends OrderFreeSpreadEngine {
+
+    @Override
+    boolean step(FireGrid grid) {
+        CellMask burning = grid.getBurningMask();
+        System.arraycopy(current, 0, next, 0, current.length);
+        int first = burning.nextSetIndex(0);
+        for (int cell = first; cell >= 0; cell = burning.nextSetIndex(cell + 1)) {
+            next[cell] = Math.min(maxIntensity, current[cell] + reinforcement(cell, current[cell]));
+        }
+        for (int source = first; source >= 0; source = burning.nextSetIndex(source + 1)) {
+            spreadFrom(source);
+        }
+        return first >= 0;
+    }
+
+    @Override
+    public String getName() {
+        return "frontier";
+    }
+}
@@ -1,49 +1,62 @@
+import java.io.IOException;
 import java.util.*;
 
-public class HeadQuarters {
-    // Durée de validité des rapports de feu en millisecondes
-    public static final long REPORT_EXPIRATION_TIME = 1000;
-    public static final int MAX_ROBOTS = 7;
-    public static final int INITIAL_SCOUTS = 2;
-    public static final int GRID_WIDTH = 24;
-    public static final int GRID_HEIGHT = 24;
-    public static final int HQ_X = 12;
-    public static final int HQ_Y = 12;
+public class HeadQuarters implements HeadQuartersLink {
+    // Échéance d'une prévision du feu, en millisecondes (moins qu'un pas des robots)
+    private static final long FORECAST_DEADLINE = 250;
 
+    private final SimulationConfig config;
     private int x;
     private int y;
-    private double[][] globalFireMap;
+    // Carte globale creuse : seules les zones signalées sont allouées
+    private ChunkedGrid globalFireMap;
+    // Cellules de la carte globale au-dessus du seuil et leurs foyers, tenus à chaque écriture
+    private int burningCount;
+    private final FireClusters clusters;
+    // Répartition des pompiers sur les blocs en feu de la carte globale
+    private final FireDispatcher dispatcher;
+    // Prévision du feu en arrière-plan (null si désactivée) et dernière prévision transmise à la répartition
+    private final FireForecast forecast;
+    private FireForecast.Result appliedForecast;
+    private long dispatchRounds;
+    // Zones explorées par l'ensemble des éclaireurs (bits seuls : le QG ne cherche pas de bloc,
+    // chaque éclaireur fusionne cette carte dans son propre index) et secteurs attribués à chacun
+    private final ChunkedBitmap exploredMap;
+    private final ScoutSectors sectors;
     private int gridWidth;
     private int gridHeight;
-    private Map<Integer, List<FireSpot>> robotReports = new HashMap<>();
-    private Map<FireSpot, Long> reportTimes = new HashMap<>();
+    // Cellules signalées en feu par chaque robot (rapports incrémentaux), par identifiant croissant
+    private Map<Integer, RobotReport> robotReports = new TreeMap<>();
     private List<Firefighter> firefighters = new ArrayList<>();
+    // Tous les pompiers déjà créés, réutilisés d'un épisode à l'autre (index = id - éclaireurs)
+    private List<Firefighter> firefighterPool = new ArrayList<>();
     private FireGrid fireGrid;
+    // Prévenu à chaque modification de la carte globale (mode événementiel)
+    private Runnable mapListener;
 
     
-    public HeadQuarters(int x, int y, int width, int height, FireGrid fireGrid) {
-        this.x = x;
-        this.y = y;
-        this.gridWidth = width;
-        this.gridHeight = height;
-        this.globalFireMap = new double[width][height];
+    public HeadQuarters(SimulationConfig config, FireGrid fireGrid) {
+        this.config = config;
+        this.x = config.hqX;
+        this.y = config.hqY;
+        this.gridWidth = config.gridWidth;
+        this.gridHeight = config.gridHeight;
+        this.globalFireMap = new ChunkedGrid(gridWidth, gridHeight);
+        this.clusters = new FireClusters(gridWidth, gridHeight, globalFireMap::get);
+        this.dispatcher = new FireDispatcher(gridWidth, gridHeight, x, y);
+        this.forecast = config.forecastHorizon == 0 ? null : new FireForecast(gridWidth, gridHeight, config.scenario, config.materials,
+            config.forecastHorizon, config.forecastRollouts, FORECAST_DEADLINE,
+            config.seeded ? SimulationConfig.streamSeed(config.seed, SimulationConfig.STREAM_FORECAST) : System.nanoTime());
+        this.exploredMap = new ChunkedBitmap(gridWidth, gridHeight);
+        this.sectors = new ScoutSectors(config.initialScouts, x, y);
         this.fireGrid = fireGrid;
     }
 
-    // Vérifie si un nouveau robot pompier est nécessaire et le crée si besoin
+    // Vérifie si un nouveau robot pompier est nécessaire et le crée si besoin :
+    // un pompier par tranche de 10 cellules de chaque foyer, au moins un par foyer
     public Firefighter checkAndAddFirefighter() {
-        int activeFireCount = 0;
-        for (int i = 0; i < gridWidth; i++) {
-            for (int j = 0; j < gridHeight; j++) {
-                if (globalFireMap[i][j] > fireGrid.getIntensityThreshold()) {
-                    activeFireCount++;
-                }
-            }
-        }
+        int neededFirefighters = Math.min(config.maxRobots - config.initialScouts, clusters.countCrews(10));
 
-        int neededFirefighters = Math.min(MAX_ROBOTS - INITIAL_SCOUTS,
-                                        (int)Math.ceil(activeFireCount / 10.0));
-    
         if (firefighters.size() < neededFirefighters) {
             Firefighter newFirefighter = createNewFirefighter();
             return newFirefighter;
@@ -51,71 +64,345 @@ public class HeadQuarters {
         return null;
     }
 
+    // Réaffecter les pompiers dont la cible a changé, après les rapports du pas et l'ajout éventuel
+    // d'un pompier ; hors de la mise à jour des robots, qui lisent les affectations sans les modifier
+    public void updateDispatch() {
+        dispatchRounds++;
+        if (forecast != null) {
+            // Relancer la prévision dès que la précédente est publiée ; la dernière publiée pondère les enchères
+            forecast.request(globalFireMap, dispatchRounds);
+            FireForecast.Result latest = forecast.getLatest();
+            if (latest != null && latest != appliedForecast) {
+                appliedForecast = latest;
+                dispatcher.setForecast(latest, globalFireMap, fireGrid.getIntensityThreshold());
+            }
+        }
+        dispatcher.update(globalFireMap, fireGrid.getIntensityThreshold(), firefighters);
+    }
+
+    // Prévision du feu en arrière-plan, null si désactivée
+    public FireForecast getForecast() {
+        return forecast;
+    }
+
+    // Cellule en feu attribuée au pompier par le QG (index x * hauteur + y), -1 sans affectation
+    @Override
+    public int getFireTarget(int robotId) {
+        return dispatcher.getTarget(robotId - config.initialScouts);
+    }
+
+    public FireDispatcher getDispatcher() {
+        return dispatcher;
+    }
+
     private Firefighter createNewFirefighter() {
-        int id = firefighters.size() + INITIAL_SCOUTS;
-        Firefighter ff = new Firefighter(id, x, y, gridWidth, gridHeight);
+        int index = firefighters.size();
+        Firefighter ff;
+        if (index < firefighterPool.size()) {
+            ff = firefighterPool.get(index);
+            ff.reset(0);
+        } else {
+            ff = new Firefighter(index + config.initialScouts, config);
+            firefighterPool.add(ff);
+        }
         firefighters.add(ff);
         return ff;
     }
 
-    // Recevoir un rapport de feu d'un robot pompier
-    public void receiveFireReport(int robotId, List<FireSpot> spots) {
-        long currentTime = System.currentTimeMillis();
-        List<FireSpot> updatedSpots = new ArrayList<>(spots);
+    // ====== Passage des robots d'une région à l'autre ======
+    // Retirer un pompier parti dans une autre région : les suivants prennent le rang précédent et
+    // l'identifiant correspondant, sous lequel le QG range leurs rapports
+    void releaseFirefighter(Firefighter ff) {
+        int index = firefighters.indexOf(ff);
+        forgetRobot(ff.getId());
+        firefighters.remove(index);
+        firefighterPool.remove(index);
+        dispatcher.removeRobot(index);
+        for (int k = index; k < firefighterPool.size(); k++) {
+            Firefighter shifted = firefighterPool.get(k);
+            RobotReport held = robotReports.remove(shifted.getId());
+            shifted.id = k + config.initialScouts;
+            if (held != null) {
+                robotReports.put(shifted.id, held);
+            }
+        }
+    }
 
-        robotReports.put(robotId, updatedSpots);
-        spots.forEach(spot -> reportTimes.put(spot, currentTime));
-        
-        // Mettre à jour la carte globale des feux de QG
-        updateGlobalFireMap();
-        // Nettoyer les anciens rapports
-        cleanupOldReports();
+    // Accueillir un pompier venu d'une autre région, au rang suivant de la flotte
+    Firefighter adoptFirefighter(Firefighter from, int dx, int dy) {
+        int index = firefighters.size();
+        Firefighter ff = from.handOver(index + config.initialScouts, config, dx, dy);
+        if (index < firefighterPool.size()) {
+            firefighterPool.set(index, ff);
+        } else {
+            firefighterPool.add(ff);
+        }
+        firefighters.add(ff);
+        return ff;
     }
 
-    private void updateGlobalFireMap() {
-        for (int i = 0; i < gridWidth; i++) {
-            for (int j = 0; j < gridHeight; j++) {
-                globalFireMap[i][j] = 0;
+    // Oublier les rapports d'un robot qui a quitté la région
+    void forgetRobot(int robotId) {
+        RobotReport held = robotReports.remove(robotId);
+        if (held != null) {
+            forgetAll(held);
+            notifyMapChanged();
+        }
+    }
+
+    // Cellules signalées par un robot et instant de son dernier rapport
+    private static final class RobotReport {
+        final ChunkedGrid cells;
+        int size;
+        long lastReport;
+
+        RobotReport(int width, int height) {
+            this.cells = new ChunkedGrid(width, height);
+        }
+    }
+
+    // Fusionner le rapport incrémental d'un robot dans la carte globale
+    @Override
+    public void receiveFireReport(int robotId, FireReport report) {
+        long currentTime = config.clock.currentTimeMillis();
+        // Les rapports expirés sont retirés avant la fusion : un robot silencieux trop longtemps renvoie un rapport complet
+        boolean changed = expireReports(currentTime);
+
+        RobotReport held = robotReports.get(robotId);
+        if (held == null) {
+            held = new RobotReport(gridWidth, gridHeight);
+            robotReports.put(robotId, held);
+        }
+        held.lastReport = currentTime;
+        if (report.full && held.size > 0) {
+            forgetAll(held);
+            changed = true;
+        }
+
+        for (int i = 0; i < report.size(); i++) {
+            int cx = report.cells[i] / gridHeight;
+            int cy = report.cells[i] % gridHeight;
+            double value = report.values[i];
+            if (value > 0) {
+                if (held.cells.get(cx, cy) == 0) {
+                    held.size++;
+                }
+                held.cells.set(cx, cy, value);
+                setGlobal(cx, cy, value);
+            } else if (value == FireReport.EXTINGUISHED) {
+                for (RobotReport other : robotReports.values()) {
+                    if (other.cells.get(cx, cy) != 0) {
+                        other.cells.set(cx, cy, 0);
+                        other.size--;
+                    }
+                }
+                setGlobal(cx, cy, 0);
+            } else {
+                forget(held, cx, cy);
             }
+            changed = true;
+        }
+        if (held.size == 0) {
+            robotReports.remove(robotId);
+        }
+        if (changed) {
+            notifyMapChanged();
+        }
+    }
+
+    // Marquer le champ de vision d'un éclaireur et suivre sa cible pour redessiner les secteurs
+    @Override
+    public void reportExploration(int robotId, int x, int y, int targetX, int targetY) {
+        exploredMap.setRect(Math.max(x - Scout.VISION_RANGE, 0), Math.max(y - Scout.VISION_RANGE, 0),
+            Math.min(x + Scout.VISION_RANGE, gridWidth - 1), Math.min(y + Scout.VISION_RANGE, gridHeight - 1));
+        if (targetX >= 0) {
+            sectors.moveAnchor(robotId, targetX, targetY);
         }
+    }
 
-        robotReports.values().forEach(spots -> spots.forEach(spot -> 
-            globalFireMap[spot.x][spot.y] = spot.intensity));
+    @Override
+    public ChunkedBitmap getExploredMap() {
+        return exploredMap;
     }
 
-    private void cleanupOldReports() {
-        long currentTime = System.currentTimeMillis();
-    
-        // Supprimer les rapports de feu expirés
-        reportTimes.entrySet().removeIf(entry -> 
-            currentTime - entry.getValue() > REPORT_EXPIRATION_TIME);
-        // Supprimer les rapports de feu obsolètes
-        robotReports.values().forEach(spots -> 
-            spots.removeIf(spot -> 
-                !reportTimes.containsKey(spot) || 
-                globalFireMap[spot.x][spot.y] <= fireGrid.getIntensityThreshold()
-            )
-        );
-        // Supprimer les rapport de feu vides
-        robotReports.entrySet().removeIf(entry -> entry.getValue().isEmpty());
-        // Mettre à jour la carte globale des feux de QG
-        updateGlobalFireMap();
+    @Override
+    public boolean inSector(int robotId, int x, int y) {
+        return sectors.contains(robotId, x, y);
+    }
+
+    public ScoutSectors getSectors() {
+        return sectors;
+    }
+
+    // Retirer une cellule du rapport d'un robot ; la carte garde la valeur d'un autre robot qui la signale encore
+    private void forget(RobotReport held, int cx, int cy) {
+        if (held.cells.get(cx, cy) == 0) {
+            return;
+        }
+        held.cells.set(cx, cy, 0);
+        held.size--;
+        double value = 0;
+        for (RobotReport other : robotReports.values()) {
+            double otherValue = other.cells.get(cx, cy);
+            if (otherValue != 0) {
+                value = otherValue;
+                break;
+            }
+        }
+        setGlobal(cx, cy, value);
+    }
+
+    private void setGlobal(int cx, int cy, double value) {
+        double threshold = fireGrid.getIntensityThreshold();
+        double previous = globalFireMap.get(cx, cy);
+        globalFireMap.set(cx, cy, value);
+        if (previous > threshold && value > threshold) {
+            clusters.changeIntensity(cx, cy, value - previous);
+        } else if (previous > threshold) {
+            burningCount--;
+            clusters.remove(cx, cy, previous);
+            dispatcher.cellChanged(cx, cy, false);
+        } else if (value > threshold) {
+            burningCount++;
+            clusters.add(cx, cy, value);
+            dispatcher.cellChanged(cx, cy, true);
+        }
+    }
+
+    private void forgetAll(RobotReport held) {
+        held.cells.forEachNonZero((cx, cy, value) -> forget(held, cx, cy));
+    }
+
+    // Retirer les rapports des robots sans nouvelles depuis plus de reportExpirationTime
+    boolean expireReports() {
+        boolean changed = expireReports(config.clock.currentTimeMillis());
+        if (changed) {
+            notifyMapChanged();
+        }
+        return changed;
+    }
+
+    private boolean expireReports(long currentTime) {
+        boolean changed = false;
+        Iterator<RobotReport> it = robotReports.values().iterator();
+        while (it.hasNext()) {
+            RobotReport held = it.next();
+            if (currentTime - held.lastReport > config.reportExpirationTime) {
+                it.remove();
+                forgetAll(held);
+                changed = true;
+            }
+        }
+        return changed;
+    }
+
+    // Instant où le plus ancien rapport expire ; Long.MAX_VALUE s'il n'y en a aucun
+    long getNextExpiryTime() {
+        long oldest = Long.MAX_VALUE;
+        for (RobotReport held : robotReports.values()) {
+            oldest = Math.min(oldest, held.lastReport);
+        }
+        return oldest == Long.MAX_VALUE ? oldest : oldest + config.reportExpirationTime + 1;
+    }
+
+    void setMapListener(Runnable listener) {
+        this.mapListener = listener;
+    }
+
+    private void notifyMapChanged() {
+        if (mapListener != null) {
+            mapListener.run();
+        }
+    }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        globalFireMap.writeCheckpoint(out);
+        out.putInt(robotReports.size());
+        for (Map.Entry<Integer, RobotReport> entry : robotReports.entrySet()) {
+            out.putInt(entry.getKey());
+            out.putTime(entry.getValue().lastReport);
+            entry.getValue().cells.writeCheckpoint(out);
+        }
+        exploredMap.writeCheckpoint(out);
+        sectors.writeCheckpoint(out);
+        dispatcher.writeCheckpoint(out);
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        globalFireMap.readCheckpoint(in);
+        rebuildClusters();
+        robotReports.clear();
+        int reportCount = in.getInt();
+        for (int r = 0; r < reportCount; r++) {
+            int robotId = in.getInt();
+            RobotReport held = new RobotReport(gridWidth, gridHeight);
+            held.lastReport = in.getTime();
+            held.cells.readCheckpoint(in);
+            held.size = held.cells.countAbove(0);
+            robotReports.put(robotId, held);
+        }
+        exploredMap.readCheckpoint(in);
+        sectors.readCheckpoint(in);
+        dispatcher.readCheckpoint(in);
+    }
+
+    // Recompter les cellules en feu et reconstruire les foyers depuis la carte globale
+    private void rebuildClusters() {
+        double threshold = fireGrid.getIntensityThreshold();
+        burningCount = 0;
+        clusters.clear();
+        dispatcher.clear();
+        globalFireMap.forEachNonZero((cx, cy, value) -> {
+            if (value > threshold) {
+                burningCount++;
+                clusters.add(cx, cy, value);
+                dispatcher.cellChanged(cx, cy, true);
+            }
+        });
+    }
+
+    // Foyers de la carte globale (composantes connexes des cellules signalées en feu)
+    public List<FireClusters.Cluster> getFireClusters() {
+        return clusters.getClusters();
+    }
+
+    // Rattacher les robots pompiers restaurés au QG
+    void restoreFirefighters(List<Firefighter> restored) {
+        firefighters.clear();
+        firefighters.addAll(restored);
+        firefighterPool.clear();
+        firefighterPool.addAll(restored);
+    }
+
+    // Vider la carte, les rapports, les affectations et les zones explorées ; les pompiers retournent dans la réserve
+    void reset() {
+        globalFireMap.clear();
+        burningCount = 0;
+        clusters.clear();
+        dispatcher.clear();
+        if (forecast != null) {
+            forecast.reset();
+            appliedForecast = null;
+        }
+        robotReports.clear();
+        firefighters.clear();
+        exploredMap.release();
+        sectors.reset();
     }
 
     // ====== Getter et setter pour QG ======
     public int getX() { return x; }
     public int getY() { return y; }
 
-    public double[][] getGlobalMap() {
-        double[][] copy = new double[gridWidth][gridHeight];
-        for (int i = 0; i < gridWidth; i++) {
-            System.arraycopy(globalFireMap[i], 0, copy[i], 0, gridHeight);
-        }
-        return copy;
+    public ChunkedGrid getGlobalMap() {
+        return globalFireMap.copy();
     }
 
-    public static int getGridWidth() { return GRID_WIDTH; }
-    public static int getGridHeight() { return GRID_HEIGHT; }
-    public static int getHqX() { return HQ_X; }
-    public static int getHqY() { return HQ_Y; }
+    // Cellules de la carte globale signalées en feu
+    public int getBurningCellCount() { return burningCount; }
+
+    public int getGridWidth() { return gridWidth; }
+    public int getGridHeight() { return gridHeight; }
+    public SimulationConfig getConfig() { return config; }
 }
\ No newline at end of file
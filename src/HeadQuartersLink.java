@@ -0,0 +1,33 @@
+/**
+ * Canal par lequel un robot communique avec le QG.
+ *
+ * HeadQuarters l'implémente directement (appels synchrones, mode par défaut).
+ * AgentRuntime fournit à chaque robot une boîte aux lettres : les rapports partent
+ * en messages, la carte globale arrive sous forme d'instantané diffusé par le QG et les
+ * affectations des pompiers par message, avec la même latence que la carte ; les secteurs des
+ * éclaireurs accompagnent la carte diffusée. Les zones explorées sont lues directement au QG,
+ * qui ne les modifie qu'entre deux phases de mise à jour des robots.
+ */
+public interface HeadQuartersLink {
+
+    int getX();
+    int getY();
+
+    // Transmettre un rapport de feu incrémental au QG
+    void receiveFireReport(int robotId, FireReport report);
+
+    // Copie de la carte globale du QG, telle que connue par le robot
+    ChunkedGrid getGlobalMap();
+
+    // Signaler le champ de vision exploré depuis (x, y) et la cible d'exploration en cours (-1 : aucune)
+    void reportExploration(int robotId, int x, int y, int targetX, int targetY);
+
+    // Zones explorées par toute la flotte, en lecture seule
+    ChunkedBitmap getExploredMap();
+
+    // La cellule (x, y) est-elle dans le secteur attribué à l'éclaireur ?
+    boolean inSector(int robotId, int x, int y);
+
+    // Cellule en feu attribuée au pompier par le QG (index x * hauteur + y), -1 sans affectation
+    int getFireTarget(int robotId);
+}
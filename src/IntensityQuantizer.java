@@ -0,0 +1,18 @@
+// Quantification des intensités de feu sur 8 bits, relative à l'intensité maximale du scénario
+public class IntensityQuantizer {
+    public static final int LEVELS = 255;
+
+    private IntensityQuantizer() {
+    }
+
+    // Convertir une intensité en niveau 0..255
+    public static int toByte(double intensity, double maxIntensity) {
+        double clamped = Math.min(Math.max(intensity, 0.0), maxIntensity);
+        return (int) Math.round(clamped / maxIntensity * LEVELS);
+    }
+
+    // Convertir un niveau 0..255 en intensité
+    public static double fromByte(int level, double maxIntensity) {
+        return (level & 0xFF) * maxIntensity / LEVELS;
+    }
+}
@@ -0,0 +1,218 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Couche de matériaux : chaque cellule désigne une entrée d'une petite table de scénarios
+ * (local électrique, stock chimique, zone ordinaire...), avec un vent et une pente optionnels.
+ *
+ * Le matériau de la cellule qui s'embrase fixe sa probabilité d'ignition, son intensité initiale
+ * et son intensité maximale. Le seuil de combustion reste celui du scénario de la simulation :
+ * il définit une cellule « en feu » pour la grille, le QG et les robots. Les intensités restent aussi
+ * bornées par le maximum du scénario de la simulation, qui sert d'échelle de quantification.
+ *
+ * Le vent renforce la propagation dans sa direction (facteur 1 + force * cos θ, nul à contre-vent
+ * pour une force de 1) ; la pente la renforce en montée (facteur exp(SLOPE_COEFFICIENT * dz),
+ * dz différence d'altitude entre la cible et la source, altitudes de 0 à MAX_ELEVATION).
+ * Toutes les combinaisons (matériau de la cible, direction, dz) sont précalculées dans une table,
+ * bornée à 1 : une propagation coûte une lecture de table, comme un scénario uniforme.
+ */
+public class MaterialMap {
+    public static final int MAX_MATERIALS = 16;
+    public static final int MAX_ELEVATION = 255;
+    // Variation relative de la probabilité par unité d'altitude gagnée
+    static final double SLOPE_COEFFICIENT = 0.05;
+    // Index de direction de (dx, dy) en (dx + 1) * 3 + (dy + 1), dans l'ordre des boucles de propagation
+    static final int[] DIRECTION = {0, 1, 2, 3, -1, 4, 5, 6, 7};
+    private static final int DIRECTIONS = 8;
+    private static final int[] DX = {-1, -1, -1, 0, 0, 1, 1, 1};
+    private static final int[] DY = {-1, 0, 1, -1, 1, -1, 0, 1};
+
+    private final int width;
+    private final int height;
+    private final FireScenario.Parameters[] materials;
+    // Matériau de chaque cellule (index x * hauteur + y)
+    private final byte[] cells;
+    // Altitude de chaque cellule, null sur terrain plat
+    private byte[] elevation;
+    private double windX;
+    private double windY;
+    private double windStrength;
+
+    // Tables précalculées : probabilité par (matériau, direction, dz) et intensités par matériau
+    private double[] spreadTable;
+    private int slopeSpan;
+    private final double[] initialTable;
+    private final double[] maxTable;
+
+    // Toutes les cellules sont du premier matériau
+    public MaterialMap(int width, int height, FireScenario.Parameters... materials) {
+        if (materials.length == 0 || materials.length > MAX_MATERIALS) {
+            throw new IllegalArgumentException("Invalid material count " + materials.length + " (1 to " + MAX_MATERIALS + ")");
+        }
+        this.width = width;
+        this.height = height;
+        this.materials = materials.clone();
+        this.cells = new byte[width * height];
+        this.initialTable = new double[materials.length];
+        this.maxTable = new double[materials.length];
+        rebuildTables();
+    }
+
+    // ====== Édition ======
+    public void setMaterial(int x, int y, int material) {
+        checkMaterial(material);
+        cells[x * height + y] = (byte) material;
+    }
+
+    // Remplir le rectangle [x0, x1] x [y0, y1] (bornes incluses)
+    public void fillRect(int x0, int y0, int x1, int y1, int material) {
+        checkMaterial(material);
+        for (int x = Math.max(x0, 0); x <= Math.min(x1, width - 1); x++) {
+            Arrays.fill(cells, x * height + Math.max(y0, 0), x * height + Math.min(y1, height - 1) + 1, (byte) material);
+        }
+    }
+
+    public void setElevation(int x, int y, int value) {
+        if (value < 0 || value > MAX_ELEVATION) {
+            throw new IllegalArgumentException("Elevation " + value + " outside [0, " + MAX_ELEVATION + "]");
+        }
+        if (elevation == null) {
+            elevation = new byte[width * height];
+            rebuildTables();
+        }
+        elevation[x * height + y] = (byte) value;
+    }
+
+    // Vent soufflant vers (dx, dy) ; force 0 : pas de vent
+    public void setWind(double dx, double dy, double strength) {
+        double norm = Math.sqrt(dx * dx + dy * dy);
+        if (strength < 0 || (strength > 0 && norm == 0)) {
+            throw new IllegalArgumentException("Invalid wind (" + dx + ", " + dy + ") strength " + strength);
+        }
+        this.windX = norm == 0 ? 0 : dx / norm;
+        this.windY = norm == 0 ? 0 : dy / norm;
+        this.windStrength = strength;
+        rebuildTables();
+    }
+
+    private void checkMaterial(int material) {
+        if (material < 0 || material >= materials.length) {
+            throw new IllegalArgumentException("Unknown material " + material);
+        }
+    }
+
+    private void rebuildTables() {
+        slopeSpan = elevation == null ? 1 : 2 * MAX_ELEVATION + 1;
+        spreadTable = new double[materials.length * DIRECTIONS * slopeSpan];
+        for (int m = 0; m < materials.length; m++) {
+            initialTable[m] = materials[m].initialIntensity;
+            maxTable[m] = materials[m].maxIntensity;
+            for (int d = 0; d < DIRECTIONS; d++) {
+                double cosine = (DX[d] * windX + DY[d] * windY) / Math.sqrt(DX[d] * DX[d] + DY[d] * DY[d]);
+                double wind = Math.max(0.0, 1.0 + windStrength * cosine);
+                int base = (m * DIRECTIONS + d) * slopeSpan;
+                for (int s = 0; s < slopeSpan; s++) {
+                    int dz = s - slopeSpan / 2;
+                    double slope = dz == 0 ? 1.0 : Math.exp(SLOPE_COEFFICIENT * dz);
+                    spreadTable[base + s] = Math.min(1.0, materials[m].spreadProbability * wind * slope);
+                }
+            }
+        }
+    }
+
+    // ====== Lecture (index de cellule x * hauteur + y) ======
+    // Probabilité que la source embrase la cible voisine dans la direction donnée (voir DIRECTION)
+    public double spreadProbability(int source, int target, int direction) {
+        int slot = (cells[target] * DIRECTIONS + direction) * slopeSpan;
+        if (elevation != null) {
+            slot += (elevation[target] & 0xFF) - (elevation[source] & 0xFF) + MAX_ELEVATION;
+        }
+        return spreadTable[slot];
+    }
+
+    public double getMaxIntensity(int index) {
+        return maxTable[cells[index]];
+    }
+
+    public double getInitialIntensity(int index) {
+        return initialTable[cells[index]];
+    }
+
+    public int getMaterial(int x, int y) {
+        return cells[x * height + y];
+    }
+
+    public FireScenario.Parameters getParameters(int material) {
+        return materials[material];
+    }
+
+    public int getMaterialCount() { return materials.length; }
+    public int getWidth() { return width; }
+    public int getHeight() { return height; }
+
+    // Rectangle [x0, x0 + width) x [y0, y0 + height) de la carte, avec les mêmes matériaux et le même vent
+    public MaterialMap crop(int x0, int y0, int width, int height) {
+        if (x0 < 0 || y0 < 0 || x0 + width > this.width || y0 + height > this.height) {
+            throw new IllegalArgumentException("Crop " + width + "x" + height + " at [" + x0 + "," + y0
+                + "] outside the " + this.width + "x" + this.height + " map");
+        }
+        MaterialMap map = new MaterialMap(width, height, materials);
+        for (int x = 0; x < width; x++) {
+            System.arraycopy(cells, (x0 + x) * this.height + y0, map.cells, x * height, height);
+        }
+        if (elevation != null) {
+            map.elevation = new byte[width * height];
+            for (int x = 0; x < width; x++) {
+                System.arraycopy(elevation, (x0 + x) * this.height + y0, map.elevation, x * height, height);
+            }
+        }
+        map.windX = windX;
+        map.windY = windY;
+        map.windStrength = windStrength;
+        map.rebuildTables();
+        return map;
+    }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(width);
+        out.putInt(height);
+        out.putInt(materials.length);
+        for (FireScenario.Parameters material : materials) {
+            out.putDouble(material.maxIntensity);
+            out.putDouble(material.initialIntensity);
+            out.putDouble(material.intensityThreshold);
+            out.putDouble(material.spreadProbability);
+            out.putString(material.description);
+        }
+        out.putBytes(cells);
+        out.putBoolean(elevation != null);
+        if (elevation != null) {
+            out.putBytes(elevation);
+        }
+        out.putDouble(windX);
+        out.putDouble(windY);
+        out.putDouble(windStrength);
+    }
+
+    static MaterialMap readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        int width = in.getInt();
+        int height = in.getInt();
+        FireScenario.Parameters[] materials = new FireScenario.Parameters[in.getInt()];
+        for (int m = 0; m < materials.length; m++) {
+            materials[m] = new FireScenario.Parameters(
+                in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble(), in.getString());
+        }
+        MaterialMap map = new MaterialMap(width, height, materials);
+        in.getBytes(map.cells);
+        if (in.getBoolean()) {
+            map.elevation = new byte[width * height];
+            in.getBytes(map.elevation);
+        }
+        map.windX = in.getDouble();
+        map.windY = in.getDouble();
+        map.windStrength = in.getDouble();
+        map.rebuildTables();
+        return map;
+    }
+}
@@ -0,0 +1,106 @@
+/**
+ * Moteur multirésolution : seuls les blocs actifs du niveau grossier de la grille (FireBlocks) et
+ * leurs blocs voisins, où le feu peut s'étendre, sont calculés à pleine résolution. Les blocs calmes
+ * ne sont ni recopiés ni parcourus, et le masque des cellules en feu et les comptes par bloc sont mis
+ * à jour sur les seuls blocs calculés au lieu d'être reconstruits sur toute la carte : le coût d'un
+ * pas suit l'activité du feu plutôt que la taille de la carte.
+ *
+ * Le tampon du pas suivant ne diffère de la grille que sur les blocs calculés au pas précédent et sur
+ * les blocs écrits depuis par les robots ou les nouveaux foyers : seuls ces blocs sont resynchronisés.
+ * Les tirages étant ceux des moteurs sans ordre, le résultat est identique à "reference".
+ */
+public class MultiResolutionSpreadEngine extends OrderFreeSpreadEngine {
+    private static final int BLOCK_SHIFT = FireBlocks.BLOCK_SHIFT;
+    private static final int BLOCK_SIZE = FireBlocks.BLOCK_SIZE;
+
+    // Blocs calculés à ce pas et au pas précédent, et blocs à resynchroniser
+    private CellMask work;
+    private CellMask previousWork;
+    private CellMask sync;
+    // Tableau installé dans la grille au dernier pas
+    private double[] produced;
+
+    @Override
+    boolean step(FireGrid grid) {
+        FireBlocks blocks = grid.getBlocks();
+        CellMask burning = grid.getBurningMask();
+        int blocksX = blocks.getBlocksX();
+        int blocksY = blocks.getBlocksY();
+        if (work == null || work.getWidth() != blocksX || work.getHeight() != blocksY) {
+            work = new CellMask(blocksX, blocksY);
+            previousWork = new CellMask(blocksX, blocksY);
+            sync = new CellMask(blocksX, blocksY);
+            produced = null;
+        }
+
+        // Blocs à calculer : blocs actifs et leurs 8 voisins
+        work.clear();
+        CellMask active = blocks.getActiveBlocks();
+        for (int block = active.nextSetIndex(0); block >= 0; block = active.nextSetIndex(block + 1)) {
+            int bx = block / blocksY;
+            int by = block - bx * blocksY;
+            for (int nx = Math.max(bx - 1, 0); nx <= Math.min(bx + 1, blocksX - 1); nx++) {
+                for (int ny = Math.max(by - 1, 0); ny <= Math.min(by + 1, blocksY - 1); ny++) {
+                    work.set(nx * blocksY + ny, true);
+                }
+            }
+        }
+
+        // Resynchroniser le tampon sur la grille là où ils peuvent différer (partout après une reconstruction)
+        CellMask touched = blocks.getTouched();
+        if (touched == null || current != produced) {
+            System.arraycopy(current, 0, next, 0, current.length);
+        } else {
+            sync.copyFrom(work);
+            sync.or(previousWork);
+            sync.or(touched);
+            for (int block = sync.nextSetIndex(0); block >= 0; block = sync.nextSetIndex(block + 1)) {
+                int bx = block / blocksY;
+                int y0 = (block - bx * blocksY) << BLOCK_SHIFT;
+                int length = Math.min(BLOCK_SIZE, height - y0);
+                for (int x = bx << BLOCK_SHIFT; x < Math.min((bx + 1) << BLOCK_SHIFT, width); x++) {
+                    System.arraycopy(current, x * height + y0, next, x * height + y0, length);
+                }
+            }
+        }
+        blocks.clearTouched();
+
+        // Renforcement puis propagation dans l'ordre des index, depuis les cellules en feu
+        int first = burning.nextSetIndex(0);
+        for (int cell = first; cell >= 0; cell = burning.nextSetIndex(cell + 1)) {
+            next[cell] = Math.min(maxIntensity, current[cell] + reinforcement(cell, current[cell]));
+        }
+        for (int source = first; source >= 0; source = burning.nextSetIndex(source + 1)) {
+            spreadFrom(source);
+        }
+
+        // Masque des cellules en feu et comptes des blocs pour le nouveau tableau, sur les blocs calculés
+        for (int block = work.nextSetIndex(0); block >= 0; block = work.nextSetIndex(block + 1)) {
+            int bx = block / blocksY;
+            int by = block - bx * blocksY;
+            int y0 = by << BLOCK_SHIFT;
+            int length = Math.min(BLOCK_SIZE, height - y0);
+            int delta = 0;
+            for (int x = bx << BLOCK_SHIFT; x < Math.min((bx + 1) << BLOCK_SHIFT, width); x++) {
+                int from = x * height + y0;
+                delta += burning.assignAbove(next, from, from + length, threshold);
+            }
+            blocks.addBurning(bx, by, delta);
+        }
+        CellMask done = previousWork;
+        previousWork = work;
+        work = done;
+        return first >= 0;
+    }
+
+    @Override
+    double[] swap(FireGrid grid, double[] cells) {
+        produced = cells;
+        return grid.swapCellsUpdated(cells);
+    }
+
+    @Override
+    public String getName() {
+        return "multires";
+    }
+}
@@ -0,0 +1,172 @@
+/**
+ * Base des moteurs de propagation sans ordre de tirage (stockage DOUBLE uniquement).
+ *
+ * Chaque pas prélève une seule valeur du flux aléatoire du feu, la clé du pas ; tous les autres
+ * tirages sont calculés par draw(clé, cellule, numéro) : test et montant du renforcement de la
+ * cellule, puis test et intensité transmise vers chacune de ses 8 voisines. Une voisine sous le
+ * seuil est embrasée par la première source en feu, dans l'ordre des index, dont le test réussit :
+ * la propagation peut ainsi être calculée depuis les sources ou depuis les cibles, dans n'importe
+ * quel ordre et en parallèle, avec un résultat identique bit à bit.
+ *
+ * Les probabilités sont celles du moteur séquentiel, mais les tirages diffèrent : une même graine
+ * ne donne pas le même feu que "sequential".
+ *
+ * Placé dans une carte plus grande (place), le moteur tire avec l'index de la cellule sur la carte :
+ * les régions d'une carte découpée, avancées avec la même clé, donnent le feu de la carte entière.
+ */
+abstract class OrderFreeSpreadEngine implements SpreadEngine {
+    // Tirages d'une cellule : renforcement (test, montant) puis (test, intensité) par direction
+    private static final int DRAWS_PER_CELL = 2 + 2 * 8;
+
+    // Paramètres du pas en cours
+    int width;
+    int height;
+    double threshold;
+    double maxIntensity;
+    double uniformProbability;
+    MaterialMap materials;
+    long key;
+    double[] current;
+    double[] next;
+    private double[] spare;
+    // Origine de la grille sur la carte et hauteur de la carte (0 : la grille est la carte)
+    private int originX;
+    private int originY;
+    private int globalHeight;
+
+    @Override
+    public final boolean spread(FireGrid grid, MaterialMap materials, SimulationRandom random) {
+        // Une seule valeur du flux du feu par pas : checkpoints et reset(graine) restent valables
+        this.key = random.nextLong();
+        this.width = grid.getWidth();
+        this.height = grid.getHeight();
+        this.threshold = grid.getIntensityThreshold();
+        this.maxIntensity = grid.getMaxIntensity();
+        this.uniformProbability = grid.getSpreadProbability();
+        this.materials = materials;
+        this.current = grid.getCells();
+        if (spare == null || spare.length != current.length) {
+            spare = new double[current.length];
+        }
+        this.next = spare;
+        boolean active = step(grid);
+        spare = swap(grid, next);
+        current = null;
+        next = null;
+        return active;
+    }
+
+    // Remplir next à partir de current ; retourne true si une cellule était en feu
+    abstract boolean step(FireGrid grid);
+
+    // Installer next dans la grille et rendre l'ancien tableau (masque des cellules en feu à reconstruire)
+    double[] swap(FireGrid grid, double[] cells) {
+        return grid.swapCells(cells);
+    }
+
+    @Override
+    public boolean place(int originX, int originY, int globalHeight) {
+        this.originX = originX;
+        this.originY = originY;
+        this.globalHeight = globalHeight;
+        return true;
+    }
+
+    // Index de la cellule sur la carte, qui détermine ses tirages
+    private int drawIndex(int cell) {
+        if (globalHeight == 0) {
+            return cell;
+        }
+        int x = cell / height;
+        return (x + originX) * globalHeight + cell - x * height + originY;
+    }
+
+    // Tirage uniforme dans [0, 1) ne dépendant que de la clé du pas, de la cellule et du numéro du tirage
+    static double draw(long key, int cell, int slot) {
+        long z = key + (cell * (long) DRAWS_PER_CELL + slot) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        z = z ^ (z >>> 31);
+        return (z >>> 11) * 0x1.0p-53;
+    }
+
+    // Renforcement d'une cellule en feu (0 si elle n'est pas renforcée), borné par le maximum de son matériau ;
+    // la nouvelle intensité est min(maxIntensity, intensité + renforcement)
+    final double reinforcement(int cell, double intensity) {
+        int index = drawIndex(cell);
+        if (draw(key, index, 0) >= REINFORCE_PROBABILITY) {
+            return 0.0;
+        }
+        double delta = draw(key, index, 1) * REINFORCE_RANGE + REINFORCE_MIN;
+        return materials == null ? delta : Math.min(delta, materials.getMaxIntensity(cell) - intensity);
+    }
+
+    // Intensité transmise par la source à la cible voisine dans la direction donnée (voir MaterialMap.DIRECTION),
+    // ou -1 si la cible ne s'embrase pas
+    final double ignition(int source, int target, int direction) {
+        double probability = materials == null ? uniformProbability
+            : materials.spreadProbability(source, target, direction);
+        int index = drawIndex(source);
+        if (draw(key, index, 2 + 2 * direction) >= probability) {
+            return -1;
+        }
+        double transfer = current[source] * (TRANSFER_MIN + draw(key, index, 3 + 2 * direction) * TRANSFER_RANGE);
+        double cap = materials == null ? maxIntensity : Math.min(maxIntensity, materials.getMaxIntensity(target));
+        return Math.max(threshold + IGNITION_MARGIN, Math.min(cap, transfer));
+    }
+
+    // Propager depuis une source en feu ; next doit déjà contenir les renforcements
+    final void spreadFrom(int source) {
+        spreadFrom(source, 0, width - 1);
+    }
+
+    // Même propagation, limitée aux cibles des colonnes [minColumn, maxColumn]
+    final void spreadFrom(int source, int minColumn, int maxColumn) {
+        int x = source / height;
+        int y = source - x * height;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+                if (dx == 0 && dy == 0) continue;
+                int nx = x + dx;
+                int ny = y + dy;
+                if (nx < minColumn || nx > maxColumn || ny < 0 || ny >= height) continue;
+                int target = nx * height + ny;
+                if (next[target] < threshold) {
+                    double intensity = ignition(source, target, MaterialMap.DIRECTION[(dx + 1) * 3 + dy + 1]);
+                    if (intensity >= 0) {
+                        next[target] = intensity;
+                    }
+                }
+            }
+        }
+    }
+
+    // Intensité finale d'une cible dont la valeur renforcée est donnée : ses sources en feu sont
+    // essayées dans l'ordre croissant des index, comme le ferait spreadFrom source par source
+    final double gather(int target, double value) {
+        if (value >= threshold) {
+            return value;
+        }
+        int x = target / height;
+        int y = target - x * height;
+        for (int sx = x - 1; sx <= x + 1; sx++) {
+            if (sx < 0 || sx >= width) continue;
+            for (int sy = y - 1; sy <= y + 1; sy++) {
+                if (sy < 0 || sy >= height || (sx == x && sy == y)) continue;
+                int source = sx * height + sy;
+                if (current[source] > threshold) {
+                    double intensity = ignition(source, target, MaterialMap.DIRECTION[(x - sx + 1) * 3 + y - sy + 1]);
+                    if (intensity >= 0) {
+                        return intensity;
+                    }
+                }
+            }
+        }
+        return value;
+    }
+
+    @Override
+    public boolean supports(FireGrid.Storage storage) {
+        return storage == FireGrid.Storage.DOUBLE;
+    }
+}
@@ -0,0 +1,154 @@
+import java.io.IOException;
+import java.util.Arrays;
+
+/**
+ * Stockage quantifié des intensités d'une grille de feu.
+ *
+ * Chaque cellule contient un niveau entier : intensité = niveau / scale.
+ *  - FIXED16 : virgule fixe sur 16 bits, 7 bits de fraction (résolution 1/128, intensité max 255)
+ *  - BYTE8   : 8 bits, 255 niveaux répartis entre 0 et l'intensité maximale du scénario
+ */
+public abstract class QuantizedCells {
+    // Nombre de bits de fraction du format virgule fixe 16 bits
+    static final int FIXED_FRACTION_BITS = 7;
+
+    // Niveaux par unité d'intensité
+    final double scale;
+    final int maxLevel;
+    final int size;
+
+    private QuantizedCells(double scale, int maxLevel, int size) {
+        this.scale = scale;
+        this.maxLevel = maxLevel;
+        this.size = size;
+    }
+
+    static QuantizedCells fixed16(int size, double maxIntensity) {
+        double scale = 1 << FIXED_FRACTION_BITS;
+        long maxLevel = Math.round(maxIntensity * scale);
+        if (maxLevel > Short.MAX_VALUE) {
+            throw new IllegalArgumentException("Max intensity " + maxIntensity + " exceeds 16-bit fixed-point range");
+        }
+        return new Fixed16(scale, (int) maxLevel, size);
+    }
+
+    static QuantizedCells byte8(int size, double maxIntensity) {
+        return new Byte8(IntensityQuantizer.LEVELS / maxIntensity, IntensityQuantizer.LEVELS, size);
+    }
+
+    abstract int get(int index);
+
+    abstract void set(int index, int level);
+
+    // Remettre tous les niveaux à zéro
+    abstract void clear();
+
+    // Nouveau tampon de même format, initialisé à zéro
+    abstract QuantizedCells newBuffer();
+
+    // Taille mémoire des cellules en octets
+    abstract long getMemoryBytes();
+
+    abstract void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException;
+
+    abstract void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException;
+
+    int toLevel(double intensity) {
+        double clamped = Math.max(0.0, intensity);
+        return (int) Math.min(maxLevel, Math.round(clamped * scale));
+    }
+
+    double toIntensity(int level) {
+        return level / scale;
+    }
+
+    // ====== Virgule fixe 16 bits ======
+    private static class Fixed16 extends QuantizedCells {
+        private final short[] cells;
+
+        Fixed16(double scale, int maxLevel, int size) {
+            super(scale, maxLevel, size);
+            this.cells = new short[size];
+        }
+
+        @Override
+        int get(int index) {
+            return cells[index];
+        }
+
+        @Override
+        void set(int index, int level) {
+            cells[index] = (short) level;
+        }
+
+        @Override
+        void clear() {
+            Arrays.fill(cells, (short) 0);
+        }
+
+        @Override
+        QuantizedCells newBuffer() {
+            return new Fixed16(scale, maxLevel, size);
+        }
+
+        @Override
+        long getMemoryBytes() {
+            return 2L * size;
+        }
+
+        @Override
+        void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+            out.putShorts(cells);
+        }
+
+        @Override
+        void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+            in.getShorts(cells);
+        }
+    }
+
+    // ====== Quantification 8 bits ======
+    private static class Byte8 extends QuantizedCells {
+        private final byte[] cells;
+
+        Byte8(double scale, int maxLevel, int size) {
+            super(scale, maxLevel, size);
+            this.cells = new byte[size];
+        }
+
+        @Override
+        int get(int index) {
+            return cells[index] & 0xFF;
+        }
+
+        @Override
+        void set(int index, int level) {
+            cells[index] = (byte) level;
+        }
+
+        @Override
+        void clear() {
+            Arrays.fill(cells, (byte) 0);
+        }
+
+        @Override
+        QuantizedCells newBuffer() {
+            return new Byte8(scale, maxLevel, size);
+        }
+
+        @Override
+        long getMemoryBytes() {
+            return size;
+        }
+
+        @Override
+        void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+            out.putBytes(cells);
+        }
+
+        @Override
+        void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+            in.getBytes(cells);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+/**
+ * Moteur de référence : parcours scalaire de toutes les cellules, renforcements puis propagation
+ * depuis chaque source dans l'ordre des index. Lent sur les grandes cartes peu actives, mais c'est
+ * la définition des règles sans ordre de tirage que les autres moteurs doivent reproduire.
+ */
+public class ReferenceSpreadEngine extends OrderFreeSpreadEngine {
+
+    @Override
+    boolean step(FireGrid grid) {
+        boolean active = false;
+        for (int cell = 0; cell < current.length; cell++) {
+            double intensity = current[cell];
+            if (intensity > threshold) {
+                active = true;
+                intensity = Math.min(maxIntensity, intensity + reinforcement(cell, intensity));
+            }
+            next[cell] = intensity;
+        }
+        for (int source = 0; source < current.length; source++) {
+            if (current[source] > threshold) {
+                spreadFrom(source);
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public String getName() {
+        return "reference";
+    }
+}
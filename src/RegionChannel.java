@@ -0,0 +1,160 @@
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+
+/**
+ * Canal de la simulation distribuée : trames [longueur (int)][contenu] sur un SocketChannel non
+ * bloquant, TCP ou socket Unix, en little-endian comme les checkpoints (le contenu est écrit et lu
+ * avec SimulationCheckpoint.Writer.inMemory et Reader.of).
+ *
+ * Les trames envoyées sont mises en file et écrites au fil des disponibilités du canal (flush) ;
+ * les octets reçus sont accumulés jusqu'à former une trame complète (receive). Le coordinateur et
+ * les processus des régions attendent leurs canaux sur un Selector.
+ *
+ * Adresses : "tcp:hôte:port" (port 0 : choisi par le système) ou "unix:chemin".
+ */
+final class RegionChannel implements Closeable {
+    private static final int MAX_FRAME = 1 << 30;
+
+    private final SocketChannel channel;
+    private final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+    // Octets reçus en attente d'une trame complète (en mode écriture entre deux lectures)
+    private ByteBuffer input = ByteBuffer.allocate(1 << 16).order(ByteOrder.LITTLE_ENDIAN);
+
+    RegionChannel(SocketChannel channel) throws IOException {
+        this.channel = channel;
+        if (channel.getLocalAddress() instanceof InetSocketAddress) {
+            // Petites trames échangées à chaque pas : pas d'attente de regroupement
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        }
+        channel.configureBlocking(false);
+    }
+
+    // Se connecter à un processus à l'écoute
+    static RegionChannel connect(String address) throws IOException {
+        SocketAddress target = parseAddress(address);
+        SocketChannel channel = SocketChannel.open(target instanceof UnixDomainSocketAddress
+            ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+        channel.connect(target);
+        return new RegionChannel(channel);
+    }
+
+    // Ouvrir une écoute à l'adresse donnée
+    static ServerSocketChannel listen(String address) throws IOException {
+        SocketAddress local = parseAddress(address);
+        ServerSocketChannel server = ServerSocketChannel.open(local instanceof UnixDomainSocketAddress
+            ? StandardProtocolFamily.UNIX : StandardProtocolFamily.INET);
+        server.bind(local);
+        return server;
+    }
+
+    static SocketAddress parseAddress(String address) {
+        if (address.startsWith("unix:")) {
+            return UnixDomainSocketAddress.of(Path.of(address.substring(5)));
+        }
+        if (address.startsWith("tcp:")) {
+            int colon = address.lastIndexOf(':');
+            if (colon > 4) {
+                return new InetSocketAddress(address.substring(4, colon), Integer.parseInt(address.substring(colon + 1)));
+            }
+        }
+        throw new IllegalArgumentException("Invalid address " + address + ": expected tcp:host:port or unix:path");
+    }
+
+    static String formatAddress(SocketAddress address) {
+        if (address instanceof UnixDomainSocketAddress) {
+            return "unix:" + ((UnixDomainSocketAddress) address).getPath();
+        }
+        InetSocketAddress inet = (InetSocketAddress) address;
+        return "tcp:" + inet.getAddress().getHostAddress() + ":" + inet.getPort();
+    }
+
+    // ====== Envoi ======
+    // Mettre une trame en file et en écrire ce que le canal accepte tout de suite
+    void send(ByteBuffer payload) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(payload.remaining()).flip();
+        output.add(header);
+        output.add(payload);
+        flush();
+    }
+
+    // Écrire les trames en file ; true quand tout est parti
+    boolean flush() throws IOException {
+        while (!output.isEmpty()) {
+            ByteBuffer head = output.peek();
+            channel.write(head);
+            if (head.hasRemaining()) {
+                return false;
+            }
+            output.poll();
+        }
+        return true;
+    }
+
+    boolean hasPendingOutput() {
+        return !output.isEmpty();
+    }
+
+    // ====== Réception ======
+    // Prochaine trame complète, après lecture de ce qui est disponible ; null s'il faut attendre
+    ByteBuffer receive() throws IOException {
+        ByteBuffer frame = nextFrame();
+        if (frame != null) {
+            return frame;
+        }
+        if (channel.read(input) < 0) {
+            throw new EOFException("Connection closed by " + channel.getRemoteAddress());
+        }
+        return nextFrame();
+    }
+
+    private ByteBuffer nextFrame() throws IOException {
+        input.flip();
+        if (input.remaining() >= 4) {
+            int length = input.getInt(input.position());
+            if (length < 0 || length > MAX_FRAME) {
+                throw new IOException("Invalid frame length " + length);
+            }
+            if (input.remaining() >= 4 + length) {
+                input.position(input.position() + 4);
+                ByteBuffer frame = ByteBuffer.allocate(length).order(ByteOrder.LITTLE_ENDIAN);
+                int limit = input.limit();
+                input.limit(input.position() + length);
+                frame.put(input).flip();
+                input.limit(limit);
+                input.compact();
+                return frame;
+            }
+            if (4 + length > input.capacity()) {
+                // Trame plus grande que le tampon : l'agrandir avant de lire la suite
+                ByteBuffer grown = ByteBuffer.allocate(4 + length).order(ByteOrder.LITTLE_ENDIAN);
+                grown.put(input);
+                input = grown;
+                return null;
+            }
+        }
+        input.compact();
+        return null;
+    }
+
+    SocketChannel channel() {
+        return channel;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
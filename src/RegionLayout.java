@@ -0,0 +1,192 @@
+import java.util.Arrays;
+
+/**
+ * Découpage d'une carte en colonnes x lignes régions rectangulaires, partagé par la simulation par
+ * régions dans une JVM (RegionalSimulation) et par la simulation distribuée (DistributedSimulation) :
+ * rectangles, grilles locales avec leur halo, QG, configurations et tirage des foyers sur la carte.
+ *
+ * La région r = colonne * rows + ligne possède le rectangle [x0, x0 + width[ x [y0, y0 + height[.
+ * Sa grille locale y ajoute une bordure d'une cellule (halo) sur chaque côté où elle a une voisine
+ * et commence en (originX, originY) sur la carte. Son QG est au centre de son rectangle.
+ */
+final class RegionLayout {
+    final SimulationConfig template;
+    final int columns;
+    final int rows;
+    // Bornes des colonnes et des lignes de régions sur la carte (columns + 1 et rows + 1 valeurs)
+    private final int[] columnBounds;
+    private final int[] rowBounds;
+
+    RegionLayout(SimulationConfig template, int columns, int rows) {
+        if (template.eventDriven || template.agentRuntime) {
+            throw new IllegalArgumentException("Regional simulation supports neither event-driven mode nor the agent runtime");
+        }
+        if (columns < 1 || rows < 1 || columns > template.gridWidth || rows > template.gridHeight) {
+            throw new IllegalArgumentException("Cannot split a " + template.gridWidth + "x" + template.gridHeight
+                + " map into " + columns + "x" + rows + " regions");
+        }
+        if (!SpreadEngine.create(template.spreadEngine).place(0, 0, template.gridHeight)) {
+            throw new IllegalArgumentException("Spread engine " + template.spreadEngine
+                + " cannot run on a region: its draws depend on the scan order");
+        }
+        this.template = template;
+        this.columns = columns;
+        this.rows = rows;
+        this.columnBounds = new int[columns + 1];
+        this.rowBounds = new int[rows + 1];
+        for (int c = 0; c <= columns; c++) {
+            columnBounds[c] = template.gridWidth * c / columns;
+        }
+        for (int r = 0; r <= rows; r++) {
+            rowBounds[r] = template.gridHeight * r / rows;
+        }
+    }
+
+    int size() {
+        return columns * rows;
+    }
+
+    // ====== Géométrie ======
+    int x0(int region) { return columnBounds[region / rows]; }
+    int y0(int region) { return rowBounds[region % rows]; }
+    int width(int region) { return columnBounds[region / rows + 1] - x0(region); }
+    int height(int region) { return rowBounds[region % rows + 1] - y0(region); }
+    int originX(int region) { return x0(region) > 0 ? x0(region) - 1 : 0; }
+    int originY(int region) { return y0(region) > 0 ? y0(region) - 1 : 0; }
+
+    int localWidth(int region) {
+        int right = x0(region) + width(region) < template.gridWidth ? 1 : 0;
+        return x0(region) - originX(region) + width(region) + right;
+    }
+
+    int localHeight(int region) {
+        int bottom = y0(region) + height(region) < template.gridHeight ? 1 : 0;
+        return y0(region) - originY(region) + height(region) + bottom;
+    }
+
+    // QG de la région, en coordonnées de la carte
+    int hqX(int region) { return x0(region) + width(region) / 2; }
+    int hqY(int region) { return y0(region) + height(region) / 2; }
+
+    // Le point (gx, gy) de la carte appartient-il au rectangle de la région ?
+    boolean owns(int region, int gx, int gy) {
+        int x0 = x0(region);
+        int y0 = y0(region);
+        return gx >= x0 && gx < x0 + width(region) && gy >= y0 && gy < y0 + height(region);
+    }
+
+    // Région propriétaire du point (gx, gy) de la carte
+    int regionAt(int gx, int gy) {
+        return indexOf(columnBounds, gx) * rows + indexOf(rowBounds, gy);
+    }
+
+    // Intervalle [bounds[i], bounds[i + 1][ contenant la valeur (recherche dichotomique)
+    private static int indexOf(int[] bounds, int value) {
+        int low = 0;
+        int high = bounds.length - 2;
+        while (low < high) {
+            int mid = (low + high + 1) >>> 1;
+            if (bounds[mid] <= value) {
+                low = mid;
+            } else {
+                high = mid - 1;
+            }
+        }
+        return low;
+    }
+
+    // ====== Halo ======
+    // Régions voisines dont la région reçoit des cellules dans son halo, par index croissant
+    int[] neighbours(int region) {
+        boolean[] seen = new boolean[size()];
+        int count = 0;
+        int ox = originX(region);
+        int oy = originY(region);
+        for (int lx = 0; lx < localWidth(region); lx++) {
+            for (int ly = 0; ly < localHeight(region); ly++) {
+                if (!owns(region, ox + lx, oy + ly)) {
+                    int owner = regionAt(ox + lx, oy + ly);
+                    if (!seen[owner]) {
+                        seen[owner] = true;
+                        count++;
+                    }
+                }
+            }
+        }
+        int[] neighbours = new int[count];
+        for (int other = 0, k = 0; other < seen.length; other++) {
+            if (seen[other]) {
+                neighbours[k++] = other;
+            }
+        }
+        return neighbours;
+    }
+
+    // Cellules du halo de la région appartenant à la région owner, dans l'ordre de parcours de sa
+    // grille : coordonnées de la carte (gx, gy) à la suite
+    int[] haloCells(int region, int owner) {
+        int ox = originX(region);
+        int oy = originY(region);
+        int[] cells = new int[2 * (localWidth(region) + localHeight(region))];
+        int count = 0;
+        for (int lx = 0; lx < localWidth(region); lx++) {
+            for (int ly = 0; ly < localHeight(region); ly++) {
+                int gx = ox + lx;
+                int gy = oy + ly;
+                if (!owns(region, gx, gy) && regionAt(gx, gy) == owner) {
+                    if (count == cells.length) {
+                        cells = Arrays.copyOf(cells, count * 2);
+                    }
+                    cells[count++] = gx;
+                    cells[count++] = gy;
+                }
+            }
+        }
+        return Arrays.copyOf(cells, count);
+    }
+
+    // ====== Simulations des régions ======
+    // Configuration de la région : grille locale, QG local, matériaux découpés, graine propre
+    SimulationConfig regionConfig(int region) {
+        int ox = originX(region);
+        int oy = originY(region);
+        MaterialMap materials = template.materials == null ? null
+            : template.materials.crop(ox, oy, localWidth(region), localHeight(region));
+        return template.forRegion(region, localWidth(region), localHeight(region),
+            hqX(region) - ox, hqY(region) - oy, materials);
+    }
+
+    Simulation newSimulation(int region) {
+        return new Simulation(regionConfig(region), originX(region), originY(region), template.gridHeight);
+    }
+
+    // ====== Foyers ======
+    // Tirer un nouveau foyer sur la carte hors des zones de sécurité de tous les QG (10 tentatives,
+    // 80 % à 100 % de l'intensité initiale, comme Fire) ; cell reçoit (gx, gy). Retourne son
+    // intensité, ou -1 si aucune tentative n'a abouti
+    double drawFire(SimulationRandom random, int[] cell) {
+        for (int attempts = 0; attempts < 10; attempts++) {
+            int gx = random.nextInt(template.gridWidth);
+            int gy = random.nextInt(template.gridHeight);
+            if (!isNearAnyHQ(gx, gy)) {
+                double baseIntensity = template.materials == null ? template.scenario.initialIntensity
+                    : template.materials.getInitialIntensity(gx * template.gridHeight + gy);
+                cell[0] = gx;
+                cell[1] = gy;
+                return baseIntensity * (0.8 + random.nextDouble() * 0.2);
+            }
+        }
+        return -1;
+    }
+
+    private boolean isNearAnyHQ(int gx, int gy) {
+        for (int region = 0; region < size(); region++) {
+            double dx = gx - hqX(region);
+            double dy = gy - hqY(region);
+            if (Math.sqrt(dx * dx + dy * dy) < template.hqSafeDistance) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,364 @@
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.SocketAddress;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Processus d'une simulation distribuée (DistributedSimulation) : héberge une plage de régions de
+ * la carte et exécute les ordres du coordinateur, reçus sur un seul canal (RegionChannel).
+ *
+ * Protocole : une trame par message, de premier octet le type. Chaque ordre reçoit une réponse du
+ * même type (ERROR et un message en cas d'échec), sauf HALO et SHUTDOWN :
+ *   INIT     colonnes, lignes, graine, noyaux, prévision, configuration d'ensemble, plage de régions
+ *            -> rapports des régions
+ *   STEP     état du flux du feu -> pas de temps, feu actif, robots sortis de leur région
+ *   UPDATE   foyers à allumer, robots arrivés -> cellules de halo pour les régions des autres
+ *            processus, rapports des régions
+ *   HALO     cellules de halo venues des autres processus
+ *   READ     -> intensités des rectangles des régions
+ *   SHUTDOWN fin du processus
+ * Un robot voyage sous la forme de son checkpoint, précédé de son type et de son identifiant.
+ * Rapport d'une région : cellules en feu de son rectangle, robots, cellules en feu connues du QG.
+ *
+ * Lancement : java -cp class RegionWorker tcp:0.0.0.0:7000 (ou unix:/chemin/socket). L'adresse
+ * effective est écrite sur la sortie standard ("listening <adresse>"), qui est ensuite redirigée
+ * vers la sortie d'erreur.
+ */
+public class RegionWorker {
+    static final byte INIT = 1;
+    static final byte STEP = 2;
+    static final byte UPDATE = 3;
+    static final byte HALO = 4;
+    static final byte READ = 5;
+    static final byte SHUTDOWN = 6;
+    static final byte ERROR = 7;
+
+    private RegionLayout layout;
+    // Régions hébergées, par index croissant ; byIndex[r] null si la région r est ailleurs
+    private RegionalSimulation.Region[] hosted;
+    private RegionalSimulation.Region[] byIndex;
+    // Par région hébergée : régions voisines, cellules de son halo qu'elles possèdent (entrée) et
+    // cellules de leur halo qu'elle possède (sortie), gx, gy à la suite
+    private int[][] neighbours;
+    private int[][][] haloIn;
+    private int[][][] haloOut;
+    // Configurations des régions d'origine des robots reçus, pour relire leurs checkpoints
+    private SimulationConfig[] ghostConfigs;
+
+    private RegionWorker() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java RegionWorker tcp:host:port | unix:path");
+            System.exit(2);
+        }
+        try (ServerSocketChannel server = RegionChannel.listen(args[0]);
+             Selector selector = Selector.open()) {
+            SocketAddress local = server.getLocalAddress();
+            System.out.println("listening " + RegionChannel.formatAddress(local));
+            System.out.flush();
+            System.setOut(System.err);
+            try {
+                new RegionWorker().serve(server, selector);
+            } finally {
+                if (local instanceof UnixDomainSocketAddress) {
+                    Files.deleteIfExists(((UnixDomainSocketAddress) local).getPath());
+                }
+            }
+        }
+    }
+
+    // Accepter le coordinateur puis traiter ses ordres jusqu'à SHUTDOWN ou la fermeture du canal
+    private void serve(ServerSocketChannel server, Selector selector) throws IOException {
+        server.configureBlocking(false);
+        SelectionKey acceptKey = server.register(selector, SelectionKey.OP_ACCEPT);
+        RegionChannel coordinator = null;
+        SelectionKey key = null;
+        while (true) {
+            selector.select();
+            selector.selectedKeys().clear();
+            if (coordinator == null) {
+                SocketChannel accepted = server.accept();
+                if (accepted == null) {
+                    continue;
+                }
+                acceptKey.cancel();
+                coordinator = new RegionChannel(accepted);
+                key = accepted.register(selector, SelectionKey.OP_READ);
+            }
+            try {
+                ByteBuffer frame;
+                while ((frame = coordinator.receive()) != null) {
+                    if (!handle(frame, coordinator)) {
+                        coordinator.close();
+                        return;
+                    }
+                }
+                coordinator.flush();
+            } catch (EOFException e) {
+                return;
+            }
+            key.interestOps(SelectionKey.OP_READ | (coordinator.hasPendingOutput() ? SelectionKey.OP_WRITE : 0));
+        }
+    }
+
+    // Exécuter un ordre ; false après SHUTDOWN
+    private boolean handle(ByteBuffer frame, RegionChannel coordinator) throws IOException {
+        byte type = frame.get();
+        if (type == SHUTDOWN) {
+            return false;
+        }
+        long now = hosted == null ? 0 : hosted[0].simulation.getConfig().clock.currentTimeMillis();
+        SimulationCheckpoint.Reader in = SimulationCheckpoint.Reader.of(frame, now);
+        SimulationCheckpoint.Writer out = SimulationCheckpoint.Writer.inMemory(now);
+        try {
+            out.putByte(type);
+            switch (type) {
+                case INIT:
+                    init(in);
+                    writeReports(out);
+                    break;
+                case STEP:
+                    step(in, out);
+                    break;
+                case UPDATE:
+                    update(in, out);
+                    writeReports(out);
+                    break;
+                case HALO:
+                    applyHalo(in);
+                    return true;
+                case READ:
+                    read(out);
+                    break;
+                default:
+                    throw new IOException("Unknown message type " + type);
+            }
+        } catch (RuntimeException e) {
+            out.clear();
+            out.putByte(ERROR);
+            out.putString(e.toString());
+        }
+        coordinator.send(out.written());
+        return true;
+    }
+
+    // ====== Ordres ======
+    private void init(SimulationCheckpoint.Reader in) throws IOException {
+        int columns = in.getInt();
+        int rows = in.getInt();
+        int first = in.getInt();
+        int last = in.getInt();
+        boolean seeded = in.getBoolean();
+        long seed = in.getLong();
+        Simulation.Builder runtime = Simulation.builder()
+            .engine(in.getString());
+        int forecastHorizon = in.getInt();
+        int forecastRollouts = in.getInt();
+        runtime.forecast(forecastHorizon, forecastRollouts);
+        if (seeded) {
+            runtime.seed(seed);
+        }
+        SimulationConfig template = SimulationConfig.readCheckpoint(in, runtime.buildConfig());
+
+        layout = new RegionLayout(template, columns, rows);
+        byIndex = new RegionalSimulation.Region[layout.size()];
+        ghostConfigs = new SimulationConfig[layout.size()];
+        hosted = new RegionalSimulation.Region[last - first];
+        neighbours = new int[hosted.length][];
+        haloIn = new int[hosted.length][][];
+        haloOut = new int[hosted.length][][];
+        for (int h = 0; h < hosted.length; h++) {
+            int region = first + h;
+            hosted[h] = new RegionalSimulation.Region(layout, region);
+            byIndex[region] = hosted[h];
+            neighbours[h] = layout.neighbours(region);
+            haloIn[h] = new int[neighbours[h].length][];
+            haloOut[h] = new int[neighbours[h].length][];
+            for (int k = 0; k < neighbours[h].length; k++) {
+                haloIn[h][k] = layout.haloCells(region, neighbours[h][k]);
+                haloOut[h][k] = layout.haloCells(neighbours[h][k], region);
+            }
+        }
+    }
+
+    // Un pas dans chaque région, puis retrait des robots sortis de leur rectangle, dans l'ordre des régions
+    private void step(SimulationCheckpoint.Reader in, SimulationCheckpoint.Writer out) throws IOException {
+        long state = in.getLong();
+        boolean active = false;
+        for (RegionalSimulation.Region region : hosted) {
+            region.simulation.getFire().setRandomState(state);
+            region.simulation.step();
+            active |= region.simulation.getFire().wasActive();
+        }
+        out.putInt(hosted[0].simulation.getTimeStep());
+        out.putBoolean(active);
+
+        List<byte[]> departures = new ArrayList<>();
+        List<int[]> routes = new ArrayList<>();
+        for (RegionalSimulation.Region region : hosted) {
+            for (Robot robot : region.simulation.getRobots()) {
+                int gx = region.originX + robot.getX();
+                int gy = region.originY + robot.getY();
+                if (!region.owns(gx, gy)) {
+                    departures.add(writeRobot(robot, region.simulation.getConfig().clock.currentTimeMillis()));
+                    routes.add(new int[] {region.index, layout.regionAt(gx, gy)});
+                    region.simulation.releaseRobot(robot);
+                }
+            }
+        }
+        out.putInt(departures.size());
+        for (int d = 0; d < departures.size(); d++) {
+            out.putInt(routes.get(d)[0]);
+            out.putInt(routes.get(d)[1]);
+            out.putInt(departures.get(d).length);
+            out.putBytes(departures.get(d));
+        }
+    }
+
+    // Nouveaux foyers et robots arrivés, puis cellules de halo : recopiées directement entre régions
+    // hébergées ici, envoyées au coordinateur pour les autres
+    private void update(SimulationCheckpoint.Reader in, SimulationCheckpoint.Writer out) throws IOException {
+        int fires = in.getInt();
+        for (int f = 0; f < fires; f++) {
+            int gx = in.getInt();
+            int gy = in.getInt();
+            double intensity = in.getDouble();
+            RegionalSimulation.Region owner = byIndex[layout.regionAt(gx, gy)];
+            if (owner != null) {
+                owner.simulation.getFireGrid().setIntensityAt(gx - owner.originX, gy - owner.originY, intensity);
+            }
+        }
+        int arrivals = in.getInt();
+        for (int a = 0; a < arrivals; a++) {
+            int source = in.getInt();
+            RegionalSimulation.Region target = byIndex[in.getInt()];
+            byte[] bytes = new byte[in.getInt()];
+            in.getBytes(bytes);
+            Robot ghost = readRobot(bytes, source, target.simulation.getConfig().clock.currentTimeMillis());
+            target.simulation.adoptRobot(ghost, layout.originX(source) - target.originX,
+                layout.originY(source) - target.originY);
+        }
+
+        int packets = 0;
+        for (int h = 0; h < hosted.length; h++) {
+            for (int neighbour : neighbours[h]) {
+                if (byIndex[neighbour] == null) {
+                    packets++;
+                }
+            }
+        }
+        out.putInt(packets);
+        for (int h = 0; h < hosted.length; h++) {
+            RegionalSimulation.Region source = hosted[h];
+            for (int k = 0; k < neighbours[h].length; k++) {
+                RegionalSimulation.Region target = byIndex[neighbours[h][k]];
+                int[] cells = haloOut[h][k];
+                if (target != null) {
+                    for (int c = 0; c < cells.length; c += 2) {
+                        setHalo(target, cells[c], cells[c + 1], intensityAt(source, cells[c], cells[c + 1]));
+                    }
+                } else {
+                    double[] values = new double[cells.length / 2];
+                    for (int c = 0; c < cells.length; c += 2) {
+                        values[c / 2] = intensityAt(source, cells[c], cells[c + 1]);
+                    }
+                    out.putInt(source.index);
+                    out.putInt(neighbours[h][k]);
+                    out.putInt(values.length);
+                    out.putDoubles(values);
+                }
+            }
+        }
+    }
+
+    // Cellules de halo des régions hébergées, envoyées par les régions des autres processus
+    private void applyHalo(SimulationCheckpoint.Reader in) throws IOException {
+        int packets = in.getInt();
+        for (int p = 0; p < packets; p++) {
+            int source = in.getInt();
+            int target = in.getInt();
+            double[] values = new double[in.getInt()];
+            in.getDoubles(values);
+            int h = target - hosted[0].index;
+            int k = Arrays.binarySearch(neighbours[h], source);
+            int[] cells = haloIn[h][k];
+            for (int c = 0; c < cells.length; c += 2) {
+                setHalo(hosted[h], cells[c], cells[c + 1], values[c / 2]);
+            }
+        }
+    }
+
+    private void read(SimulationCheckpoint.Writer out) throws IOException {
+        for (RegionalSimulation.Region region : hosted) {
+            double[] values = new double[region.width * region.height];
+            for (int x = 0; x < region.width; x++) {
+                for (int y = 0; y < region.height; y++) {
+                    values[x * region.height + y] = intensityAt(region, region.x0 + x, region.y0 + y);
+                }
+            }
+            out.putInt(region.index);
+            out.putDoubles(values);
+        }
+    }
+
+    private void writeReports(SimulationCheckpoint.Writer out) throws IOException {
+        for (RegionalSimulation.Region region : hosted) {
+            out.putInt(region.getBurningCellCount());
+            out.putInt(region.simulation.getRobots().size());
+            out.putInt(region.simulation.getHeadQuarters().getBurningCellCount());
+        }
+    }
+
+    // ====== Cellules et robots ======
+    private static double intensityAt(RegionalSimulation.Region region, int gx, int gy) {
+        return region.simulation.getFireGrid().getIntensityAt(gx - region.originX, gy - region.originY);
+    }
+
+    // Écrire une cellule du halo si elle a changé, comme RegionalSimulation
+    private static void setHalo(RegionalSimulation.Region region, int gx, int gy, double value) {
+        FireGrid grid = region.simulation.getFireGrid();
+        int lx = gx - region.originX;
+        int ly = gy - region.originY;
+        if (grid.getIntensityAt(lx, ly) != value) {
+            grid.setIntensityAt(lx, ly, value);
+        }
+    }
+
+    private static byte[] writeRobot(Robot robot, long now) throws IOException {
+        SimulationCheckpoint.Writer out = SimulationCheckpoint.Writer.inMemory(now);
+        out.putByte(robot instanceof Scout ? SimulationCheckpoint.ROBOT_SCOUT : SimulationCheckpoint.ROBOT_FIREFIGHTER);
+        out.putInt(robot.getId());
+        robot.writeCheckpoint(out);
+        out.putInt(robot.assignedX);
+        out.putInt(robot.assignedY);
+        ByteBuffer written = out.written();
+        return Arrays.copyOf(written.array(), written.limit());
+    }
+
+    // Robot relu dans la configuration de sa région d'origine, prêt à être adopté (Simulation.adoptRobot)
+    private Robot readRobot(byte[] bytes, int source, long now) throws IOException {
+        if (ghostConfigs[source] == null) {
+            ghostConfigs[source] = layout.regionConfig(source);
+        }
+        SimulationCheckpoint.Reader in = SimulationCheckpoint.Reader.of(ByteBuffer.wrap(bytes), now);
+        byte type = in.getByte();
+        int id = in.getInt();
+        Robot robot = type == SimulationCheckpoint.ROBOT_SCOUT
+            ? new Scout(id, ghostConfigs[source]) : new Firefighter(id, ghostConfigs[source]);
+        robot.readCheckpoint(in);
+        robot.assignedX = in.getInt();
+        robot.assignedY = in.getInt();
+        return robot;
+    }
+}
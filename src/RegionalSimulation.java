@@ -0,0 +1,252 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Simulation d'une grande carte découpée en colonnes x lignes régions (RegionLayout), chacune avec
+ * son QG, sa flotte et sa grille, avancées en parallèle à chaque pas.
+ *
+ * La grille d'une région couvre son rectangle et une bordure d'une cellule (halo) sur les côtés
+ * où elle a une voisine. Le halo est une copie en lecture seule des cellules des régions voisines,
+ * rafraîchie après chaque pas : la propagation d'une région lit les mêmes voisines que sur la carte
+ * entière. Les moteurs sans ordre de tirage (place) tirent avec l'index de la cellule sur la carte et
+ * la même clé dans toutes les régions : le feu découpé est identique bit à bit au feu de la carte
+ * entière (RegionalSimulationCheck). Les foyers initiaux et les rallumages sont tirés ici, sur la
+ * carte, avec le flux du feu de la configuration d'ensemble.
+ *
+ * Un robot qui sort du rectangle de sa région passe, après le pas, à la région où il se trouve :
+ * un pompier rejoint la répartition de son nouveau QG, un éclaireur repart d'un rapport complet.
+ * Une écriture d'un robot dans le halo est effacée au rafraîchissement suivant : on n'éteint une
+ * cellule d'une autre région qu'après y être passé.
+ *
+ * Coordonnées de la carte entière dans l'API publique. Modes événementiel et agents non pris en
+ * charge ; pas de checkpoint ni de resetEpisode. DistributedSimulation répartit les mêmes régions
+ * entre plusieurs processus.
+ */
+public class RegionalSimulation implements AutoCloseable {
+    private final RegionLayout layout;
+    private final Region[] regions;
+    private final ForkJoinPool pool;
+    // Flux du feu de la carte entière : clés des pas, foyers initiaux et rallumages
+    private final SimulationRandom fireRandom;
+    private final int[] fireCell = new int[2];
+    // État du flux du feu fourni à chaque région avant son pas
+    private long stepState;
+    private long handovers;
+
+    public RegionalSimulation(SimulationConfig template, int columns, int rows, int parallelism) {
+        this.layout = new RegionLayout(template, columns, rows);
+        this.fireRandom = template.newRandom(SimulationConfig.STREAM_FIRE);
+        this.regions = new Region[layout.size()];
+        for (int index = 0; index < regions.length; index++) {
+            regions[index] = new Region(layout, index);
+        }
+        for (Region region : regions) {
+            int[] neighbours = layout.neighbours(region.index);
+            region.neighbours = new Region[neighbours.length];
+            region.haloCells = new int[neighbours.length][];
+            for (int k = 0; k < neighbours.length; k++) {
+                region.neighbours[k] = regions[neighbours[k]];
+                region.haloCells[k] = layout.haloCells(region.index, neighbours[k]);
+            }
+        }
+        this.pool = new ForkJoinPool(parallelism);
+
+        // 2 ou 3 foyers sur la carte entière, comme Fire
+        int numFires = fireRandom.nextInt(2) + 2;
+        for (int i = 0; i < numFires; i++) {
+            igniteRandomFire();
+        }
+        runTasks(false);
+    }
+
+    public RegionalSimulation(SimulationConfig template, int columns, int rows) {
+        this(template, columns, rows, Runtime.getRuntime().availableProcessors());
+    }
+
+    // ====== Région ======
+    // Rectangle [x0, x0 + width[ x [y0, y0 + height[ de la carte et sa simulation ; la grille
+    // locale commence en (originX, originY) sur la carte
+    public static final class Region {
+        final int index;
+        final int x0;
+        final int y0;
+        final int width;
+        final int height;
+        final int originX;
+        final int originY;
+        final Simulation simulation;
+        // Régions voisines et, pour chacune, les cellules du halo qu'elle possède (gx, gy à la suite)
+        Region[] neighbours;
+        int[][] haloCells;
+
+        Region(RegionLayout layout, int index) {
+            this.index = index;
+            this.x0 = layout.x0(index);
+            this.y0 = layout.y0(index);
+            this.width = layout.width(index);
+            this.height = layout.height(index);
+            this.originX = layout.originX(index);
+            this.originY = layout.originY(index);
+            this.simulation = layout.newSimulation(index);
+        }
+
+        // Le point (gx, gy) de la carte appartient-il au rectangle de la région ?
+        boolean owns(int gx, int gy) {
+            return gx >= x0 && gx < x0 + width && gy >= y0 && gy < y0 + height;
+        }
+
+        // Cellules en feu du rectangle de la région, halo exclu
+        public int getBurningCellCount() {
+            int lx = x0 - originX;
+            int ly = y0 - originY;
+            return simulation.getFireGrid().getBurningMask().countRect(lx, ly, lx + width - 1, ly + height - 1);
+        }
+
+        public int getIndex() { return index; }
+        public int getX0() { return x0; }
+        public int getY0() { return y0; }
+        public int getWidth() { return width; }
+        public int getHeight() { return height; }
+        public int getOriginX() { return originX; }
+        public int getOriginY() { return originY; }
+        public Simulation getSimulation() { return simulation; }
+    }
+
+    // ====== Pas ======
+    // Avancer toutes les régions d'une mise à jour planifiée (feu, robots ou survivants)
+    public void step() {
+        Region first = regions[0];
+        int timeStep = first.simulation.getTimeStep();
+        stepState = fireRandom.getState();
+        runTasks(true);
+        if (first.simulation.getTimeStep() != timeStep) {
+            // Les régions ont prélevé la clé du pas ; le flux de la carte fait de même
+            fireRandom.nextLong();
+            boolean active = false;
+            for (Region region : regions) {
+                active |= region.simulation.getFire().wasActive();
+            }
+            if (!active) {
+                igniteRandomFire();
+            }
+        }
+        handOverRobots();
+        runTasks(false);
+    }
+
+    public void step(int steps) {
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    // Un pas dans chaque région (step) ou le rafraîchissement de chaque halo, en parallèle
+    private void runTasks(boolean step) {
+        RegionTask[] tasks = new RegionTask[regions.length];
+        for (int i = 0; i < regions.length; i++) {
+            tasks[i] = new RegionTask(regions[i], step);
+            pool.execute(tasks[i]);
+        }
+        for (RegionTask task : tasks) {
+            task.join();
+        }
+    }
+
+    @SuppressWarnings("serial")
+    private class RegionTask extends RecursiveAction {
+        private final Region region;
+        private final boolean step;
+
+        RegionTask(Region region, boolean step) {
+            this.region = region;
+            this.step = step;
+        }
+
+        @Override
+        protected void compute() {
+            if (step) {
+                region.simulation.getFire().setRandomState(stepState);
+                region.simulation.step();
+            } else {
+                exchangeHalo(region);
+            }
+        }
+    }
+
+    // Recopier dans le halo de la région les cellules de ses voisines ; seules les cellules
+    // différentes sont écrites, pour ne pas marquer inutilement les blocs de la grille
+    private static void exchangeHalo(Region region) {
+        FireGrid grid = region.simulation.getFireGrid();
+        for (int k = 0; k < region.neighbours.length; k++) {
+            Region owner = region.neighbours[k];
+            FireGrid source = owner.simulation.getFireGrid();
+            int[] cells = region.haloCells[k];
+            for (int c = 0; c < cells.length; c += 2) {
+                double value = source.getIntensityAt(cells[c] - owner.originX, cells[c + 1] - owner.originY);
+                int lx = cells[c] - region.originX;
+                int ly = cells[c + 1] - region.originY;
+                if (grid.getIntensityAt(lx, ly) != value) {
+                    grid.setIntensityAt(lx, ly, value);
+                }
+            }
+        }
+    }
+
+    // Nouveau foyer tiré sur la carte entière, écrit dans la région qui le possède
+    private void igniteRandomFire() {
+        double intensity = layout.drawFire(fireRandom, fireCell);
+        if (intensity >= 0) {
+            Region owner = regions[layout.regionAt(fireCell[0], fireCell[1])];
+            owner.simulation.getFireGrid().setIntensityAt(fireCell[0] - owner.originX, fireCell[1] - owner.originY, intensity);
+        }
+    }
+
+    // ====== Passage des robots ======
+    // Confier chaque robot sorti du rectangle de sa région à la région où il se trouve
+    private void handOverRobots() {
+        for (Region region : regions) {
+            List<Robot> robots = region.simulation.getRobots();
+            for (Robot robot : robots) {
+                int gx = region.originX + robot.getX();
+                int gy = region.originY + robot.getY();
+                if (!region.owns(gx, gy)) {
+                    Region target = regions[layout.regionAt(gx, gy)];
+                    region.simulation.releaseRobot(robot);
+                    target.simulation.adoptRobot(robot, region.originX - target.originX, region.originY - target.originY);
+                    handovers++;
+                }
+            }
+        }
+    }
+
+    // ====== Lecture ======
+    public double getIntensityAt(int gx, int gy) {
+        Region owner = regions[layout.regionAt(gx, gy)];
+        return owner.simulation.getFireGrid().getIntensityAt(gx - owner.originX, gy - owner.originY);
+    }
+
+    // Cellules en feu des rectangles des régions, halos exclus
+    public int getBurningCellCount() {
+        int count = 0;
+        for (Region region : regions) {
+            count += region.getBurningCellCount();
+        }
+        return count;
+    }
+
+    public int getTimeStep() {
+        return regions[0].simulation.getTimeStep();
+    }
+
+    public int getRegionCount() { return regions.length; }
+    public Region getRegion(int index) { return regions[index]; }
+    public int getColumns() { return layout.columns; }
+    public int getRows() { return layout.rows; }
+    public long getHandoverCount() { return handovers; }
+
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+}
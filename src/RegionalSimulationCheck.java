@@ -0,0 +1,114 @@
+/**
+ * Vérification de la simulation par régions : feu seul (ni robots ni zone de sécurité autour des
+ * QG), une simulation de la carte entière et la même carte découpée en colonnes x lignes régions
+ * tirées par graine, avec et sans matériaux, pour chaque moteur sans ordre de tirage. Après chaque
+ * pas, les intensités de toute la carte doivent être égales bit à bit et les nombres de cellules en
+ * feu égaux. Une dernière simulation, avec sa flotte, vérifie le passage des robots d'une région à
+ * l'autre :
+ *   java -cp class RegionalSimulationCheck [graines]
+ */
+public class RegionalSimulationCheck {
+    private static final int STEPS = 60;
+    private static final int MAX_SPLIT = 4;
+
+    private RegionalSimulationCheck() {
+    }
+
+    // Comparer la carte découpée à la carte entière ; retourne null si elles concordent, sinon le premier écart
+    static String compare(String engine, long seed) {
+        SimulationRandom random = new SimulationRandom(seed);
+        int width = 30 + random.nextInt(50);
+        int height = 20 + random.nextInt(50);
+        int columns = 1 + random.nextInt(MAX_SPLIT);
+        int rows = 1 + random.nextInt(MAX_SPLIT);
+        MaterialMap materials = random.nextDouble() < 0.5 ? randomMaterials(width, height, random) : null;
+        SimulationConfig config = Simulation.builder()
+            .gridSize(width, height)
+            .scenario(FireScenario.CHEMICAL)
+            .scouts(0)
+            .maxRobots(0)
+            .maxSurvivors(0)
+            .hqSafeDistance(0)
+            .spreadEngine(engine)
+            .materials(materials)
+            .seed(seed)
+            .buildConfig();
+
+        Simulation whole = new Simulation(config);
+        String layout = width + "x" + height + " in " + columns + "x" + rows + " regions"
+            + (materials != null ? " with materials" : "") + ", seed " + seed;
+        try (RegionalSimulation split = new RegionalSimulation(config, columns, rows, 2)) {
+            for (int step = 0; step <= STEPS; step++) {
+                for (int x = 0; x < width; x++) {
+                    for (int y = 0; y < height; y++) {
+                        double expected = whole.getIntensityAt(x, y);
+                        double actual = split.getIntensityAt(x, y);
+                        if (Double.doubleToLongBits(expected) != Double.doubleToLongBits(actual)) {
+                            return layout + ", step " + step + ", cell (" + x + ", " + y + "): "
+                                + actual + " instead of " + expected;
+                        }
+                    }
+                }
+                if (whole.getBurningCellCount() != split.getBurningCellCount()) {
+                    return layout + ", step " + step + ": " + split.getBurningCellCount()
+                        + " burning cells instead of " + whole.getBurningCellCount();
+                }
+                whole.step();
+                split.step();
+            }
+        }
+        return null;
+    }
+
+    static MaterialMap randomMaterials(int width, int height, SimulationRandom random) {
+        MaterialMap materials = new MaterialMap(width, height, FireScenario.CHEMICAL, FireScenario.ORDINARY,
+            FireScenario.SMOLDERING);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                materials.setMaterial(x, y, random.nextInt(3));
+                materials.setElevation(x, y, random.nextInt(MaterialMap.MAX_ELEVATION + 1));
+            }
+        }
+        materials.setWind(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble());
+        return materials;
+    }
+
+    // Carte découpée avec ses flottes, en régions assez petites pour que les robots, qui ne s'éloignent
+    // que d'une dizaine de cellules de leur QG, en changent ; retourne le nombre de passages
+    static long runFleet(long seed, int steps) {
+        SimulationConfig config = Simulation.builder()
+            .gridSize(96, 72)
+            .spreadEngine("frontier")
+            .maxSurvivors(0)
+            .seed(seed)
+            .buildConfig();
+        try (RegionalSimulation split = new RegionalSimulation(config, 8, 6, 2)) {
+            split.step(steps);
+            return split.getHandoverCount();
+        }
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 30;
+        boolean failed = false;
+        for (String name : SpreadEngine.names()) {
+            if (name.equals("sequential")) continue;
+            try {
+                SpreadEngine.create(name);
+            } catch (IllegalArgumentException e) {
+                System.out.println(name + ": unavailable (" + e.getMessage() + ")");
+                continue;
+            }
+            String mismatch = null;
+            for (long seed = 1; seed <= seeds && mismatch == null; seed++) {
+                mismatch = compare(name, seed);
+            }
+            System.out.println(name + ": " + (mismatch == null ? seeds + " seeds identical" : "MISMATCH " + mismatch));
+            failed |= mismatch != null;
+        }
+        System.out.println("fleet: " + runFleet(seeds, 400) + " handovers");
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
@@ -1,5 +1,4 @@
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
 
 public abstract class Robot {
 
@@ -16,27 +15,33 @@ public abstract class Robot {
     public static final String TYPE_SCOUT = "scout";
     public static final String TYPE_FIREFIGHTER = "firefighter";
     
+    // Configuration de la simulation à laquelle appartient le robot
+    protected final SimulationConfig config;
     protected int id;
     protected int x;
     protected int y;
-    // Liste des feux découverts par le robot
-    protected List<FireSpot> discoveredFires;
     // Connaissance locale du robot
-    protected double[][] localKnowledge;
+    protected ChunkedGrid localKnowledge;
     protected State currentState = State.AT_HQ;
     protected long operationStartTime;
     protected long rechargeStartTime;
-
-    public Robot(int id, int x, int y, int gridWidth, int gridHeight) {
+    // Cible imposée par un répartiteur externe (-1 : comportement autonome)
+    protected int assignedX = -1;
+    protected int assignedY = -1;
+    // Minuteur de réveil du robot en mode événementiel
+    TimerWheel.Timer wakeTimer;
+
+    // Le robot démarre au QG
+    public Robot(int id, SimulationConfig config) {
+        this.config = config;
         this.id = id;
-        this.x = x;
-        this.y = y;
-        this.discoveredFires = new ArrayList<>();
-        this.localKnowledge = new double[gridWidth][gridHeight];
-        this.operationStartTime = System.currentTimeMillis();
+        this.x = config.hqX;
+        this.y = config.hqY;
+        this.localKnowledge = new ChunkedGrid(config.gridWidth, config.gridHeight);
+        this.operationStartTime = config.clock.currentTimeMillis();
     }
 
-    public abstract void updateState(HeadQuarters hq);
+    public abstract void updateState(HeadQuartersLink hq);
     public abstract String getType();
 
     // Déplace le robot vers une position cible
@@ -52,9 +57,52 @@ public abstract class Robot {
         }
     }
 
+    // Remettre le robot au QG dans son état initial en conservant ses tampons
+    void reset(long seed) {
+        x = config.hqX;
+        y = config.hqY;
+        localKnowledge.clear();
+        currentState = State.AT_HQ;
+        operationStartTime = config.clock.currentTimeMillis();
+        rechargeStartTime = 0;
+        clearAssignedTarget();
+    }
+
+    // Instant du prochain réveil utile en mode événementiel : fin de recharge, sinon le pas suivant.
+    // Long.MAX_VALUE si le robot n'a rien à faire avant un nouveau rapport au QG.
+    long nextWakeTime(long now, long tickInterval) {
+        if (currentState == State.RECHARGING_ELECTRICITY) {
+            return rechargeStartTime + RECHARGE_TIME;
+        }
+        return now + tickInterval;
+    }
+
+    // Un robot au repos au QG y reste branché : son autonomie est pleine au réveil
+    void wakeFromIdle(long time) {
+        operationStartTime = time;
+    }
+
+    // Imposer une cible au robot ; elle remplace son choix autonome jusqu'à clearAssignedTarget()
+    public void assignTarget(int targetX, int targetY) {
+        if (!isValidPosition(targetX, targetY)) {
+            throw new IllegalArgumentException("Target [" + targetX + "," + targetY + "] outside the grid");
+        }
+        assignedX = targetX;
+        assignedY = targetY;
+    }
+
+    public void clearAssignedTarget() {
+        assignedX = -1;
+        assignedY = -1;
+    }
+
+    protected boolean hasAssignedTarget() {
+        return assignedX >= 0;
+    }
+
     // Vérifie si le robot est au QG
     protected boolean isAtHQ() {
-        boolean atHQ = x == HeadQuarters.HQ_X  && y == HeadQuarters.HQ_Y;
+        boolean atHQ = x == config.hqX && y == config.hqY;
         if (atHQ) {
             currentState = State.AT_HQ;
         }
@@ -62,7 +110,7 @@ public abstract class Robot {
     }
 
     protected boolean isValidPosition(int x, int y) {
-        return x >= 0 && x < localKnowledge.length && y >= 0 && y < localKnowledge[0].length;
+        return x >= 0 && x < localKnowledge.getWidth() && y >= 0 && y < localKnowledge.getHeight();
     }
 
     // Vérifie si le robot a besoin de se recharger
@@ -70,33 +118,80 @@ public abstract class Robot {
         if (currentState == State.RECHARGING_ELECTRICITY) {
             return false;
         }
-        return System.currentTimeMillis() - operationStartTime >= MAX_OPERATION_TIME;
+        return config.clock.currentTimeMillis() - operationStartTime >= MAX_OPERATION_TIME;
     }
 
     // Vérifie si la recharge est terminée
     protected boolean isRechargeComplete() {
-        return System.currentTimeMillis() - rechargeStartTime >= RECHARGE_TIME;
+        return config.clock.currentTimeMillis() - rechargeStartTime >= RECHARGE_TIME;
     }
 
     // Démarre la recharge
     protected void startRecharge() {
-        rechargeStartTime = System.currentTimeMillis();
+        rechargeStartTime = config.clock.currentTimeMillis();
         currentState = State.RECHARGING_ELECTRICITY;
     }
 
     // Termine la recharge
     protected void finishRecharge() {
-        operationStartTime = System.currentTimeMillis();
+        operationStartTime = config.clock.currentTimeMillis();
         currentState = State.AT_HQ;
     }
 
+    // ====== Passage dans une autre région ======
+    // Copie du robot pour la simulation target, dont le repère est décalé de (dx, dy) par rapport
+    // au sien : même position sur la carte, même état, connaissances locales recopiées sur la partie
+    // commune des deux grilles
+    abstract Robot handOver(int newId, SimulationConfig target, int dx, int dy);
+
+    protected void copyHandoverState(Robot from, int dx, int dy) {
+        x = from.x + dx;
+        y = from.y + dy;
+        currentState = from.currentState;
+        operationStartTime = from.operationStartTime;
+        rechargeStartTime = from.rechargeStartTime;
+        from.localKnowledge.forEachNonZero((cx, cy, value) -> {
+            if (isValidPosition(cx + dx, cy + dy)) {
+                localKnowledge.set(cx + dx, cy + dy, value);
+            }
+        });
+        if (from.hasAssignedTarget() && isValidPosition(from.assignedX + dx, from.assignedY + dy)) {
+            assignedX = from.assignedX + dx;
+            assignedY = from.assignedY + dy;
+        }
+    }
+
+    // Coordonnée translatée ramenée dans [0, size - 1]
+    protected static int clampTo(int value, int size) {
+        return Math.max(0, Math.min(size - 1, value));
+    }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(x);
+        out.putInt(y);
+        out.putInt(currentState.ordinal());
+        out.putTime(operationStartTime);
+        out.putTime(rechargeStartTime);
+        localKnowledge.writeCheckpoint(out);
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        x = in.getInt();
+        y = in.getInt();
+        currentState = State.values()[in.getInt()];
+        operationStartTime = in.getTime();
+        rechargeStartTime = in.getTime();
+        localKnowledge.readCheckpoint(in);
+    }
+
     // Getter
     public double getEnergyPercentage() {
         if (currentState == State.RECHARGING_ELECTRICITY) {
-            long rechargingTime = System.currentTimeMillis() - rechargeStartTime;
+            long rechargingTime = config.clock.currentTimeMillis() - rechargeStartTime;
             return Math.min(100.0, (rechargingTime * 100.0) / RECHARGE_TIME);
         } else {
-            long operationTime = System.currentTimeMillis() - operationStartTime;
+            long operationTime = config.clock.currentTimeMillis() - operationStartTime;
             return Math.max(0.0, 100.0 - (operationTime * 100.0) / MAX_OPERATION_TIME);
         }
     }
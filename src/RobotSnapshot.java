@@ -0,0 +1,60 @@
+// Instantané de l'état visible d'un robot (affichage en direct et relecture)
+public class RobotSnapshot {
+    public static final byte TYPE_SCOUT = 1;
+    public static final byte TYPE_FIREFIGHTER = 2;
+    // Niveau d'eau absent (robot éclaireur)
+    public static final int NO_WATER = 255;
+
+    final int id;
+    final byte type;
+    final int x;
+    final int y;
+    final Robot.State state;
+    final int energyPercentage;
+    final int waterPercentage;
+    // Description détaillée fournie par le robot (absente en relecture)
+    private String statusDescription;
+
+    RobotSnapshot(int id, byte type, int x, int y, Robot.State state, int energyPercentage, int waterPercentage) {
+        this.id = id;
+        this.type = type;
+        this.x = x;
+        this.y = y;
+        this.state = state;
+        this.energyPercentage = energyPercentage;
+        this.waterPercentage = waterPercentage;
+    }
+
+    static RobotSnapshot of(Robot robot) {
+        boolean firefighter = robot instanceof Firefighter;
+        int water = firefighter ? (int) Math.round(((Firefighter) robot).getWaterPercentage()) : NO_WATER;
+        RobotSnapshot snapshot = new RobotSnapshot(robot.getId(),
+            firefighter ? TYPE_FIREFIGHTER : TYPE_SCOUT,
+            robot.getX(), robot.getY(), robot.currentState,
+            (int) Math.round(robot.getEnergyPercentage()), water);
+        snapshot.statusDescription = robot.getStatusDescription();
+        return snapshot;
+    }
+
+    boolean isScout() { return type == TYPE_SCOUT; }
+    boolean isFirefighter() { return type == TYPE_FIREFIGHTER; }
+
+    String getStatusDescription() {
+        if (statusDescription != null) {
+            return statusDescription;
+        }
+        if (state == Robot.State.RECHARGING_ELECTRICITY) {
+            return String.format("Recharging (%d%%)", energyPercentage);
+        }
+        if (isFirefighter()) {
+            return String.format("%s [E:%d%% W:%d%%]", state, energyPercentage, waterPercentage);
+        }
+        return state.toString();
+    }
+
+    // Comparer l'état visible de deux instantanés
+    boolean sameAs(RobotSnapshot other) {
+        return other != null && other.type == type && other.x == x && other.y == y && other.state == state
+            && other.energyPercentage == energyPercentage && other.waterPercentage == waterPercentage;
+    }
+}
@@ -0,0 +1,29 @@
+// Noyaux de calcul par cellule, version scalaire de référence
+public class ScalarFireKernels implements FireKernels {
+
+    @Override
+    public int reinforce(double[] cur, double[] delta, double[] out, int length, double threshold, double max) {
+        int active = 0;
+        for (int i = 0; i < length; i++) {
+            if (cur[i] > threshold) {
+                out[i] = Math.min(max, cur[i] + delta[i]);
+                active++;
+            } else {
+                out[i] = cur[i];
+            }
+        }
+        return active;
+    }
+
+    @Override
+    public void decay(double[] cells, int offset, double[] amounts, int amountOffset, int length) {
+        for (int k = 0; k < length; k++) {
+            cells[offset + k] = Math.max(0.0, cells[offset + k] - amounts[amountOffset + k]);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "scalar";
+    }
+}
@@ -1,35 +1,63 @@
+import java.io.IOException;
 import java.util.*;
 
 public class Scout extends Robot {
     // ==== Constantes ====
     // Portée de vision du robot
-    private static final int VISION_RANGE = 5;
+    static final int VISION_RANGE = 5;
+    private static final int VISION_WINDOW = 2 * VISION_RANGE + 1;
     // Nombre maximal de cibles à conserver
     private static final int MAX_PREVIOUS_TARGETS = 5;
     // Intervalle de re-vérification des incendies
     private static final long FIRE_RECHECK_INTERVAL = 5000;
     // Probabilité de re-vérification des incendies
     private static final double FIRE_RECHECK_PROBABILITY = 0.5;
+    // Variation d'intensité (fraction de l'intensité maximale) au-delà de laquelle une cellule est de nouveau signalée
+    private static final double REPORT_TOLERANCE = 0.05;
+    // Nombre de rapports incrémentaux entre deux rapports complets
+    private static final int FULL_REPORT_INTERVAL = 10;
+    // Cellules inexplorées qu'un bloc doit offrir en plus par case de distance pour être préféré
+    private static final double FRONTIER_DISTANCE_WEIGHT = 4.0;
 
     // ==== Variables d'instance ====
     private int targetX;
     private int targetY;
-    private Random random;
+    private SimulationRandom random;
     private FireGrid fireGrid;
-    private boolean[][] exploredAreas;
+    private ExplorationIndex exploredAreas;
     private List<int[]> previousTargets;
+    // Cible prise sur la frontière d'exploration (centre du meilleur bloc inexploré), revue à chaque départ du QG
+    private boolean frontierTarget;
+    private final int[] frontier = new int[2];
+    // Feux repérés et heure de leur dernière observation ; ordre d'insertion, reproduit par les
+    // checkpoints et les passages de région, qui départage les feux observés au même instant
     private Map<Point, Long> fireLocations;
+    // Intensités déjà signalées au QG (0 : non signalée), limitées au champ de vision du dernier rapport
+    private ChunkedGrid reported;
+    private final FireReport.Builder report = new FireReport.Builder();
+    // Position du dernier rapport (-1 : aucun), instant et rapports incrémentaux depuis le dernier rapport complet
+    private int reportX = -1;
+    private int reportY = -1;
+    private long lastReportTime;
+    private int deltaReports;
+    // Intensités du champ de vision (colonne par colonne), relevées à la position observedX, observedY
+    private final double[] observed = new double[VISION_WINDOW * VISION_WINDOW];
+    private int observedX = -1;
+    private int observedY = -1;
+    // Clé de recherche réutilisée pour rafraîchir fireLocations sans allocation
+    private final Point probe = new Point(0, 0);
 
     /**
      * Constructeur du Scout
      */
-    public Scout(int id, int x, int y, int gridWidth, int gridHeight) {
-        super(id, x, y, gridWidth, gridHeight);
-        this.random = new Random();
-        this.exploredAreas = new boolean[gridWidth][gridHeight];
-        this.fireLocations = new HashMap<>();
+    public Scout(int id, SimulationConfig config) {
+        super(id, config);
+        this.random = config.newRandom(SimulationConfig.STREAM_ROBOTS + id);
+        this.exploredAreas = new ExplorationIndex(config.gridWidth, config.gridHeight);
+        this.fireLocations = new LinkedHashMap<>();
+        this.reported = new ChunkedGrid(config.gridWidth, config.gridHeight);
         this.previousTargets = new ArrayList<>();
-        setNewExplorationTarget();
+        setNewExplorationTarget(null);
     }
 
     @Override
@@ -37,24 +65,54 @@ public class Scout extends Robot {
         return TYPE_SCOUT;
     }
 
+    // Réinitialisation en place, équivalente à un éclaireur neuf créé avec cette graine
+    @Override
+    void reset(long seed) {
+        super.reset(seed);
+        random.setSeed(SimulationConfig.streamSeed(seed, SimulationConfig.STREAM_ROBOTS + id));
+        exploredAreas.clear();
+        previousTargets.clear();
+        fireLocations.clear();
+        reported.clear();
+        reportX = -1;
+        reportY = -1;
+        lastReportTime = 0;
+        deltaReports = 0;
+        observedX = -1;
+        observedY = -1;
+        frontierTarget = false;
+        targetX = 0;
+        targetY = 0;
+        setNewExplorationTarget(null);
+    }
+
     // ==== Méthodes de mise à jour d'état ====
     @Override
-    public void updateState(HeadQuarters hq) {
+    public void updateState(HeadQuartersLink hq) {
+        // Observations fournies par l'étape de perception, valables pour ce pas seulement
+        boolean sensed = observedX == x && observedY == y;
+        observedX = -1;
+
         // Gestion de la recharge
         if (handleRecharging(hq)) {
             return;
         }
 
         // Envoyer les rapports d'incendie au QG
+        if (!sensed) {
+            senseDirectly();
+        }
         reportFiresIfFound(hq);
+        observedX = -1;
 
-        // Mise à jour des connaissances si au QG
+        // Mise à jour des connaissances si au QG : carte des feux et zones explorées par la flotte
         if (isAtHQ()) {
             localKnowledge = hq.getGlobalMap();
+            exploredAreas.merge(hq.getExploredMap());
         }
 
         // Mise à jour de l'exploration
-        updateExploration();
+        updateExploration(hq);
 
         // Nettoyage des anciennes positions d'incendie
         cleanupOldFireLocations();
@@ -64,7 +122,7 @@ public class Scout extends Robot {
      * Gère l'état de recharge du robot
      * @return true si le robot est en cours de recharge
      */
-    private boolean handleRecharging(HeadQuarters hq) {
+    private boolean handleRecharging(HeadQuartersLink hq) {
         if (currentState == State.RECHARGING_ELECTRICITY) {
             if (isRechargeComplete()) {
                 finishRecharge();
@@ -88,55 +146,98 @@ public class Scout extends Robot {
 
     // ==== Méthodes de gestion des incendies ====
     /**
-     * Signale les incendies détectés au QG
+     * Signale au QG les changements dans le champ de vision : cellules nouvellement en feu,
+     * intensités modifiées au-delà de la tolérance, cellules éteintes ou sorties du champ de vision.
+     * Un rapport complet est envoyé périodiquement, ou après un silence assez long pour que le QG
+     * ait oublié les cellules signalées.
      */
-    private void reportFiresIfFound(HeadQuarters hq) {
-        List<FireSpot> newFires = scanArea();
-        if (!newFires.isEmpty()) {
-            hq.receiveFireReport(id, newFires);
-            discoveredFires.clear();
-
-            // Ajouter les nouvelles positions d'incendie à la liste
-            for (FireSpot fire : newFires) {
-                fireLocations.put(new Point(fire.x, fire.y), System.currentTimeMillis());
+    private void reportFiresIfFound(HeadQuartersLink hq) {
+        long currentTime = config.clock.currentTimeMillis();
+        int height = config.gridHeight;
+        boolean full = reportX < 0 || deltaReports >= FULL_REPORT_INTERVAL
+            || currentTime - lastReportTime > config.reportExpirationTime;
+        if (full) {
+            reported.clear();
+            reportX = -1;
+            deltaReports = 0;
+        } else {
+            deltaReports++;
+        }
+        report.setFull(full);
+
+        // Cellules du champ de vision précédent qui n'y sont plus
+        if (reportX >= 0) {
+            for (int dx = -VISION_RANGE; dx <= VISION_RANGE; dx++) {
+                for (int dy = -VISION_RANGE; dy <= VISION_RANGE; dy++) {
+                    int oldX = reportX + dx;
+                    int oldY = reportY + dy;
+                    if (isValidPosition(oldX, oldY) && reported.get(oldX, oldY) != 0
+                            && (Math.abs(oldX - x) > VISION_RANGE || Math.abs(oldY - y) > VISION_RANGE)) {
+                        reported.set(oldX, oldY, 0);
+                        report.add(oldX * height + oldY, FireReport.FORGOTTEN);
+                    }
+                }
             }
         }
-    }
 
-    /**
-     * Scan la zone autour du robot pour détecter les incendies
-     */
-    private List<FireSpot> scanArea() {
+        double threshold = fireGrid.getIntensityThreshold();
+        double tolerance = fireGrid.getMaxIntensity() * REPORT_TOLERANCE;
         for (int dx = -VISION_RANGE; dx <= VISION_RANGE; dx++) {
             for (int dy = -VISION_RANGE; dy <= VISION_RANGE; dy++) {
                 int newX = x + dx;
                 int newY = y + dy;
-                
-                if (isValidPosition(newX, newY)) {
-                    double intensity = observeFireIntensity(newX, newY);
-                    if (intensity > fireGrid.getIntensityThreshold()) {
-                        discoveredFires.add(new FireSpot(newX, newY, intensity, System.currentTimeMillis()));
+                if (!isValidPosition(newX, newY)) continue;
+
+                double intensity = observed[(dx + VISION_RANGE) * VISION_WINDOW + dy + VISION_RANGE];
+                double previous = reported.get(newX, newY);
+                if (intensity > threshold) {
+                    if (previous == 0 || Math.abs(intensity - previous) > tolerance) {
+                        reported.set(newX, newY, intensity);
+                        report.add(newX * height + newY, intensity);
+                    }
+                    // Dernière observation de l'incendie
+                    probe.x = newX;
+                    probe.y = newY;
+                    if (fireLocations.replace(probe, currentTime) == null) {
+                        fireLocations.put(new Point(newX, newY), currentTime);
                     }
+                } else if (previous != 0) {
+                    reported.set(newX, newY, 0);
+                    report.add(newX * height + newY, FireReport.EXTINGUISHED);
                 }
             }
         }
-        return new ArrayList<>(discoveredFires);
+
+        // Un rapport vide prolonge la validité des cellules déjà signalées
+        if (!report.isEmpty() || reported.getAllocatedTiles() > 0) {
+            hq.receiveFireReport(id, report.build());
+            lastReportTime = currentTime;
+        } else {
+            report.build();
+        }
+        reportX = x;
+        reportY = y;
     }
 
     // ==== Méthodes de gestion de l'exploration ====
     /**
      * Met à jour l'exploration du robot
      */
-    private void updateExploration() {
+    private void updateExploration(HeadQuartersLink hq) {
         markExploredArea();
 
-        if (hasReachedTarget() || shouldChangeTarget()) {
+        if (hasAssignedTarget()) {
+            targetX = assignedX;
+            targetY = assignedY;
+            frontierTarget = false;
+        } else if (hasReachedTarget() || shouldChangeTarget() || (frontierTarget && (currentState == State.AT_HQ || exploredAreas.get(targetX, targetY)))) {
             if (!fireLocations.isEmpty() && random.nextDouble() < FIRE_RECHECK_PROBABILITY) {
-                setFireRecheckTarget();
+                setFireRecheckTarget(hq);
             } else {
-                setNewExplorationTarget();
+                setNewExplorationTarget(hq);
             }
         }
+        hq.reportExploration(id, x, y, frontierTarget ? targetX : -1, targetY);
 
         if (currentState != State.MOVING_TO_HQ && currentState != State.RECHARGING_ELECTRICITY) {
             moveTowardsTarget();
@@ -145,18 +246,11 @@ public class Scout extends Robot {
     }
 
     /**
-     * Marque les zones explorées sur la carte
+     * Marque les zones explorées sur la carte (champ de vision entier, mot par mot)
      */
     private void markExploredArea() {
-        for (int dx = -VISION_RANGE; dx <= VISION_RANGE; dx++) {
-            for (int dy = -VISION_RANGE; dy <= VISION_RANGE; dy++) {
-                int newX = x + dx;
-                int newY = y + dy;
-                if (isValidPosition(newX, newY)) {
-                    exploredAreas[newX][newY] = true;
-                }
-            }
-        }
+        exploredAreas.markRect(Math.max(x - VISION_RANGE, 0), Math.max(y - VISION_RANGE, 0),
+            Math.min(x + VISION_RANGE, config.gridWidth - 1), Math.min(y + VISION_RANGE, config.gridHeight - 1));
     }
 
     // ==== Méthodes de déplacement ====
@@ -193,7 +287,7 @@ public class Scout extends Robot {
      */
     private double evaluateMove(int newX, int newY) {
         double distanceToTarget = -Math.sqrt(Math.pow(newX - targetX, 2) + Math.pow(newY - targetY, 2));
-        double explorationBonus = exploredAreas[newX][newY] ? -5 : 5;
+        double explorationBonus = exploredAreas.get(newX, newY) ? -5 : 5;
         return distanceToTarget + explorationBonus;
     }
 
@@ -201,8 +295,8 @@ public class Scout extends Robot {
     /**
      * Définit une cible pour revérifier un ancien incendie
      */
-    private void setFireRecheckTarget() {
-        long currentTime = System.currentTimeMillis();
+    private void setFireRecheckTarget(HeadQuartersLink hq) {
+        long currentTime = config.clock.currentTimeMillis();
         Point bestTarget = null;
         long oldestCheck = currentTime;
         
@@ -218,15 +312,17 @@ public class Scout extends Robot {
         if (bestTarget != null && (currentTime - oldestCheck) >= FIRE_RECHECK_INTERVAL) {
             targetX = bestTarget.x;
             targetY = bestTarget.y;
+            frontierTarget = false;
         } else {
-            setNewExplorationTarget();
+            setNewExplorationTarget(hq);
         }
     }
 
     /**
-     * Définit une nouvelle cible d'exploration
+     * Définit une nouvelle cible d'exploration, dans le secteur attribué par le QG si possible
+     * (hq null : pas encore de liaison, aucun secteur)
      */
-    private void setNewExplorationTarget() {
+    private void setNewExplorationTarget(HeadQuartersLink hq) {
         if (targetX != -1 && targetY != -1) {
             previousTargets.add(new int[]{targetX, targetY});
             if (previousTargets.size() > MAX_PREVIOUS_TARGETS) {
@@ -234,12 +330,23 @@ public class Scout extends Robot {
             }
         }
 
+        // Bloc inexploré le plus intéressant de son secteur, puis de toute la carte une fois le secteur couvert
+        frontierTarget = (hq != null
+                && exploredAreas.findBestBlock(x, y, FRONTIER_DISTANCE_WEIGHT, (cx, cy) -> hq.inSector(id, cx, cy), frontier))
+            || exploredAreas.findBestBlock(x, y, FRONTIER_DISTANCE_WEIGHT, null, frontier);
+        if (frontierTarget) {
+            targetX = frontier[0];
+            targetY = frontier[1];
+            return;
+        }
+
+        // Carte entièrement explorée : tirage aléatoire pondéré comme auparavant
         int bestX = -1, bestY = -1;
         double bestScore = Double.NEGATIVE_INFINITY;
         
         for (int attempts = 0; attempts < 20; attempts++) {
-            int candidateX = random.nextInt(HeadQuarters.getGridWidth());
-            int candidateY = random.nextInt(HeadQuarters.getGridHeight());
+            int candidateX = random.nextInt(config.gridWidth);
+            int candidateY = random.nextInt(config.gridHeight);
             
             double score = evaluateTarget(candidateX, candidateY);
             if (score > bestScore) {
@@ -259,7 +366,7 @@ public class Scout extends Robot {
     private double evaluateTarget(int tx, int ty) {
         double unexploredScore = countUnexploredAround(tx, ty);
         double previousTargetsPenalty = getPreviousTargetsPenalty(tx, ty);
-        double hqDistancePenalty = -Math.sqrt(Math.pow(tx - 15, 2) + Math.pow(ty - 15, 2)) / 10;
+        double hqDistancePenalty = -Math.sqrt(Math.pow(tx - config.hqX, 2) + Math.pow(ty - config.hqY, 2)) / 10;
         
         return unexploredScore + previousTargetsPenalty + hqDistancePenalty;
     }
@@ -273,7 +380,7 @@ public class Scout extends Robot {
             for (int dy = -2; dy <= 2; dy++) {
                 int newX = tx + dx;
                 int newY = ty + dy;
-                if (isValidPosition(newX, newY) && !exploredAreas[newX][newY]) {
+                if (isValidPosition(newX, newY) && !exploredAreas.get(newX, newY)) {
                     count++;
                 }
             }
@@ -302,11 +409,38 @@ public class Scout extends Robot {
         return random.nextDouble() < 0.05;
     }
 
-    private double observeFireIntensity(int x, int y) {
-        if (fireGrid != null) {
-            return fireGrid.getIntensityAt(x, y);
+    // ==== Perception ====
+    // L'éclaireur lira son champ de vision à ce pas (sauf en recharge)
+    boolean needsObservations() {
+        return fireGrid != null && currentState != State.RECHARGING_ELECTRICITY;
+    }
+
+    // Recevoir le champ de vision depuis la zone lue par SensingService :
+    // cells[(cx - x0) * boxHeight + cy - y0] pour x0 <= cx <= x1, y0 <= cy <= y1
+    void receiveObservations(double[] cells, int x0, int y0, int boxHeight, int x1, int y1) {
+        int from = Math.max(y - VISION_RANGE, y0);
+        int to = Math.min(y + VISION_RANGE, y1);
+        for (int dx = -VISION_RANGE; dx <= VISION_RANGE; dx++) {
+            int cx = x + dx;
+            if (cx < x0 || cx > x1) continue;
+            System.arraycopy(cells, (cx - x0) * boxHeight + from - y0,
+                observed, (dx + VISION_RANGE) * VISION_WINDOW + from - y + VISION_RANGE, to - from + 1);
         }
-        return 0.0;
+        observedX = x;
+        observedY = y;
+    }
+
+    // Lire soi-même son champ de vision dans la grille
+    void senseDirectly() {
+        int from = Math.max(y - VISION_RANGE, 0);
+        int to = Math.min(y + VISION_RANGE, config.gridHeight - 1);
+        for (int dx = -VISION_RANGE; dx <= VISION_RANGE; dx++) {
+            int cx = x + dx;
+            if (cx < 0 || cx >= config.gridWidth) continue;
+            fireGrid.readIntensityColumn(cx, from, observed, (dx + VISION_RANGE) * VISION_WINDOW + from - y + VISION_RANGE, to - from + 1);
+        }
+        observedX = x;
+        observedY = y;
     }
 
     private void cleanupOldFireLocations() {
@@ -316,6 +450,81 @@ public class Scout extends Robot {
         });
     }
 
+    // ==== Passage dans une autre région ====
+    // Les zones explorées et la carte déjà signalée repartent de zéro : le prochain rapport au QG
+    // de la nouvelle région est complet
+    @Override
+    Scout handOver(int newId, SimulationConfig target, int dx, int dy) {
+        Scout copy = new Scout(newId, target);
+        copy.copyHandoverState(this, dx, dy);
+        copy.random.setState(random.getState());
+        copy.targetX = clampTo(targetX + dx, target.gridWidth);
+        copy.targetY = clampTo(targetY + dy, target.gridHeight);
+        copy.frontierTarget = false;
+        copy.previousTargets.clear();
+        for (Map.Entry<Point, Long> entry : fireLocations.entrySet()) {
+            int fx = entry.getKey().x + dx;
+            int fy = entry.getKey().y + dy;
+            if (copy.isValidPosition(fx, fy)) {
+                copy.fireLocations.put(new Point(fx, fy), entry.getValue());
+            }
+        }
+        return copy;
+    }
+
+    // ==== Checkpoint ====
+    @Override
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        super.writeCheckpoint(out);
+        out.putInt(targetX);
+        out.putInt(targetY);
+        out.putBoolean(frontierTarget);
+        out.putLong(random.getState());
+        exploredAreas.writeCheckpoint(out);
+        out.putInt(previousTargets.size());
+        for (int[] target : previousTargets) {
+            out.putInt(target[0]);
+            out.putInt(target[1]);
+        }
+        out.putInt(fireLocations.size());
+        for (Map.Entry<Point, Long> entry : fireLocations.entrySet()) {
+            out.putInt(entry.getKey().x);
+            out.putInt(entry.getKey().y);
+            out.putTime(entry.getValue());
+        }
+        reported.writeCheckpoint(out);
+        out.putInt(reportX);
+        out.putInt(reportY);
+        out.putTime(lastReportTime);
+        out.putInt(deltaReports);
+    }
+
+    @Override
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        super.readCheckpoint(in);
+        targetX = in.getInt();
+        targetY = in.getInt();
+        frontierTarget = in.getBoolean();
+        random.setState(in.getLong());
+        exploredAreas.readCheckpoint(in);
+        previousTargets.clear();
+        int targetCount = in.getInt();
+        for (int i = 0; i < targetCount; i++) {
+            previousTargets.add(new int[]{in.getInt(), in.getInt()});
+        }
+        fireLocations.clear();
+        int fireCount = in.getInt();
+        for (int i = 0; i < fireCount; i++) {
+            Point p = new Point(in.getInt(), in.getInt());
+            fireLocations.put(p, in.getTime());
+        }
+        reported.readCheckpoint(in);
+        reportX = in.getInt();
+        reportY = in.getInt();
+        lastReportTime = in.getTime();
+        deltaReports = in.getInt();
+    }
+
     // ==== Getters et Setters ====
     public void setFireGrid(FireGrid fireGrid) {
         this.fireGrid = fireGrid;
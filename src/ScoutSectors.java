@@ -0,0 +1,100 @@
+import java.io.IOException;
+
+/**
+ * Répartition de la carte entre les éclaireurs, tenue par le QG.
+ *
+ * Chaque éclaireur possède un point d'ancrage ; son secteur est la cellule de Voronoï de cet ancrage
+ * (les points plus proches de son ancrage que de tout autre, égalités au plus petit identifiant).
+ * Les ancrages partent d'un cercle autour du QG, ce qui découpe la carte en parts angulaires égales,
+ * puis suivent les cibles d'exploration annoncées par les éclaireurs : déplacer un ancrage est en O(1)
+ * et les secteurs voisins se redessinent d'eux-mêmes, l'appartenance étant évaluée à la demande en
+ * O(éclaireurs).
+ */
+public class ScoutSectors {
+    // Rayon du cercle des ancrages initiaux autour du QG
+    private static final int INITIAL_RADIUS = 2 * ExplorationIndex.BLOCK_SIZE;
+
+    private final int hqX;
+    private final int hqY;
+    private final int[] anchorX;
+    private final int[] anchorY;
+
+    public ScoutSectors(int scouts, int hqX, int hqY) {
+        this.hqX = hqX;
+        this.hqY = hqY;
+        this.anchorX = new int[scouts];
+        this.anchorY = new int[scouts];
+        reset();
+    }
+
+    private ScoutSectors(ScoutSectors other) {
+        this.hqX = other.hqX;
+        this.hqY = other.hqY;
+        this.anchorX = other.anchorX.clone();
+        this.anchorY = other.anchorY.clone();
+    }
+
+    // Copie indépendante des ancrages (instantané diffusé aux agents)
+    public ScoutSectors copy() {
+        return new ScoutSectors(this);
+    }
+
+    // Ancrages répartis régulièrement sur le cercle initial
+    void reset() {
+        for (int id = 0; id < anchorX.length; id++) {
+            double angle = 2 * Math.PI * id / anchorX.length;
+            anchorX[id] = hqX + (int) Math.round(INITIAL_RADIUS * Math.cos(angle));
+            anchorY[id] = hqY + (int) Math.round(INITIAL_RADIUS * Math.sin(angle));
+        }
+    }
+
+    // Déplacer l'ancrage d'un éclaireur (identifiants hors flotte d'éclaireurs ignorés)
+    void moveAnchor(int robotId, int x, int y) {
+        if (robotId < 0 || robotId >= anchorX.length) {
+            return;
+        }
+        anchorX[robotId] = x;
+        anchorY[robotId] = y;
+    }
+
+    // La cellule (x, y) est-elle dans le secteur de l'éclaireur ?
+    public boolean contains(int robotId, int x, int y) {
+        if (robotId < 0 || robotId >= anchorX.length) {
+            return true;
+        }
+        long own = distance(robotId, x, y);
+        for (int other = 0; other < anchorX.length; other++) {
+            if (other == robotId) continue;
+            long d = distance(other, x, y);
+            if (d < own || (d == own && other < robotId)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long distance(int id, int x, int y) {
+        long dx = x - anchorX[id];
+        long dy = y - anchorY[id];
+        return dx * dx + dy * dy;
+    }
+
+    public int getAnchorX(int robotId) { return anchorX[robotId]; }
+    public int getAnchorY(int robotId) { return anchorY[robotId]; }
+    public int getScoutCount() { return anchorX.length; }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        for (int id = 0; id < anchorX.length; id++) {
+            out.putInt(anchorX[id]);
+            out.putInt(anchorY[id]);
+        }
+    }
+
+    void readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        for (int id = 0; id < anchorX.length; id++) {
+            anchorX[id] = in.getInt();
+            anchorY[id] = in.getInt();
+        }
+    }
+}
@@ -0,0 +1,180 @@
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Étape de perception partagée, exécutée une fois par pas avant la mise à jour des robots.
+ *
+ * Les champs de vision des éclaireurs qui se chevauchent sont regroupés (balayage par x puis
+ * union-find). Pour chaque groupe, seules les cellules couvertes par au moins une fenêtre sont
+ * lues dans la grille de feu, une seule fois, par segments de colonne contigus ; chaque éclaireur
+ * reçoit ensuite d'un bloc sa fenêtre d'observations (copies de colonnes).
+ *
+ * Les observations sont prises au début du pas : un éclaireur voit la grille telle qu'elle était
+ * avant les extinctions des pompiers du même pas. Un éclaireur mis à jour hors de cette étape
+ * (mode événementiel) lit lui-même sa fenêtre.
+ */
+public class SensingService {
+    private final int range;
+    private final int window;
+
+    // Éclaireurs du pas et centres de leurs fenêtres
+    private Scout[] scouts = new Scout[8];
+    private int[] centerX = new int[8];
+    private int[] centerY = new int[8];
+    private int count;
+    // Tri par x (x << 32 | indice) et union-find des fenêtres qui se chevauchent
+    private long[] sorted = new long[8];
+    private int[] parent = new int[8];
+    // Membres de chaque groupe : premier membre par racine, puis membre suivant (-1 : fin)
+    private int[] first = new int[8];
+    private int[] next = new int[8];
+    // Rectangle englobant d'un groupe : cellules couvertes et intensités lues (colonne par colonne)
+    private boolean[] covered = new boolean[0];
+    private double[] buffer = new double[0];
+    private long cellsRead;
+
+    public SensingService(int range) {
+        this.range = range;
+        this.window = 2 * range + 1;
+    }
+
+    // Lire l'union des champs de vision et remettre ses observations à chaque éclaireur
+    void sense(FireGrid grid, List<Robot> robots) {
+        collect(robots);
+        if (count == 0) {
+            return;
+        }
+        cluster();
+
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        for (int root = 0; root < count; root++) {
+            if (first[root] < 0) continue;
+
+            // Rectangle englobant du groupe, limité à la grille
+            int x0 = Integer.MAX_VALUE, y0 = Integer.MAX_VALUE, x1 = Integer.MIN_VALUE, y1 = Integer.MIN_VALUE;
+            int members = 0;
+            for (int i = first[root]; i >= 0; i = next[i]) {
+                members++;
+                x0 = Math.min(x0, centerX[i] - range);
+                y0 = Math.min(y0, centerY[i] - range);
+                x1 = Math.max(x1, centerX[i] + range);
+                y1 = Math.max(y1, centerY[i] + range);
+            }
+            x0 = Math.max(x0, 0);
+            y0 = Math.max(y0, 0);
+            x1 = Math.min(x1, width - 1);
+            y1 = Math.min(y1, height - 1);
+            int boxHeight = y1 - y0 + 1;
+            int cells = (x1 - x0 + 1) * boxHeight;
+            if (cells > 4 * members * window * window) {
+                // Chaîne étirée de fenêtres : rectangle englobant trop creux, lecture fenêtre par fenêtre
+                for (int i = first[root]; i >= 0; i = next[i]) {
+                    scouts[i].senseDirectly();
+                }
+                continue;
+            }
+            if (covered.length < cells) {
+                covered = new boolean[cells];
+                buffer = new double[cells];
+            } else {
+                Arrays.fill(covered, 0, cells, false);
+            }
+
+            // Marquer les cellules couvertes
+            for (int i = first[root]; i >= 0; i = next[i]) {
+                int from = Math.max(centerY[i] - range, y0) - y0;
+                int to = Math.min(centerY[i] + range, y1) - y0 + 1;
+                for (int x = Math.max(centerX[i] - range, x0); x <= Math.min(centerX[i] + range, x1); x++) {
+                    int column = (x - x0) * boxHeight;
+                    Arrays.fill(covered, column + from, column + to, true);
+                }
+            }
+
+            // Lire chaque segment couvert une seule fois
+            for (int x = x0; x <= x1; x++) {
+                int column = (x - x0) * boxHeight;
+                int y = 0;
+                while (y < boxHeight) {
+                    if (!covered[column + y]) {
+                        y++;
+                        continue;
+                    }
+                    int start = y;
+                    while (y < boxHeight && covered[column + y]) {
+                        y++;
+                    }
+                    grid.readIntensityColumn(x, y0 + start, buffer, column + start, y - start);
+                    cellsRead += y - start;
+                }
+            }
+
+            // Remettre à chaque éclaireur sa fenêtre
+            for (int i = first[root]; i >= 0; i = next[i]) {
+                scouts[i].receiveObservations(buffer, x0, y0, boxHeight, x1, y1);
+            }
+        }
+        Arrays.fill(scouts, 0, count, null);
+    }
+
+    private void collect(List<Robot> robots) {
+        count = 0;
+        for (int r = 0; r < robots.size(); r++) {
+            Robot robot = robots.get(r);
+            if (!(robot instanceof Scout) || !((Scout) robot).needsObservations()) continue;
+            if (count == scouts.length) {
+                int capacity = count * 2;
+                scouts = Arrays.copyOf(scouts, capacity);
+                centerX = Arrays.copyOf(centerX, capacity);
+                centerY = Arrays.copyOf(centerY, capacity);
+                sorted = Arrays.copyOf(sorted, capacity);
+                parent = Arrays.copyOf(parent, capacity);
+                first = Arrays.copyOf(first, capacity);
+                next = Arrays.copyOf(next, capacity);
+            }
+            scouts[count] = (Scout) robot;
+            centerX[count] = robot.getX();
+            centerY[count] = robot.getY();
+            count++;
+        }
+    }
+
+    // Regrouper les fenêtres qui se chevauchent : après tri par x, seules les fenêtres
+    // distantes de moins d'une largeur en x sont comparées
+    private void cluster() {
+        for (int i = 0; i < count; i++) {
+            sorted[i] = ((long) centerX[i] << 32) | i;
+            parent[i] = i;
+        }
+        Arrays.sort(sorted, 0, count);
+        for (int a = 0; a < count; a++) {
+            int i = (int) sorted[a];
+            for (int b = a + 1; b < count; b++) {
+                int j = (int) sorted[b];
+                if (centerX[j] - centerX[i] >= window) break;
+                if (Math.abs(centerY[j] - centerY[i]) < window) {
+                    parent[find(i)] = find(j);
+                }
+            }
+        }
+        Arrays.fill(first, 0, count, -1);
+        for (int i = count - 1; i >= 0; i--) {
+            int root = find(i);
+            next[i] = first[root];
+            first[root] = i;
+        }
+    }
+
+    private int find(int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    // Nombre total de cellules lues dans la grille depuis la création
+    public long getCellsRead() {
+        return cellsRead;
+    }
+}
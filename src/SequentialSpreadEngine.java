@@ -0,0 +1,229 @@
+import java.util.Arrays;
+
+/**
+ * Moteur de propagation historique : les nombres aléatoires sont tirés dans l'ordre des cellules
+ * (renforcements, puis propagation colonne par colonne), un tirage n'ayant lieu que si la voisine
+ * peut encore s'embraser. Il accepte tous les modes de stockage et reste le moteur par défaut :
+ * checkpoints et enregistrements existants se rejouent à l'identique.
+ */
+public class SequentialSpreadEngine implements SpreadEngine {
+    // Tampons réutilisés d'un pas à l'autre
+    private double[] reinforcement;
+    private double[] nextCells;
+    private QuantizedCells nextLevels;
+    private ChunkedGrid nextChunks;
+
+    @Override
+    public boolean spread(FireGrid grid, MaterialMap materials, SimulationRandom random) {
+        if (grid.isQuantized()) {
+            return spreadQuantized(grid, materials, random);
+        }
+        if (grid.isChunked()) {
+            return spreadChunked(grid, materials, random);
+        }
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        int size = width * height;
+        double threshold = grid.getIntensityThreshold();
+        double[] current = grid.getCells();
+        // Cellules en feu avant propagation : seuls leurs mots non nuls sont parcourus
+        CellMask burning = grid.getBurningMask();
+        if (reinforcement == null || reinforcement.length != size) {
+            reinforcement = new double[size];
+            nextCells = new double[size];
+        }
+
+        // Tirages aléatoires dans l'ordre des cellules : renforcer le feu existant avec une probabilité de 30%
+        // (sans dépasser le maximum du matériau de la cellule ; celui du scénario est appliqué par le noyau)
+        Arrays.fill(reinforcement, 0.0);
+        for (int index = burning.nextSetIndex(0); index >= 0; index = burning.nextSetIndex(index + 1)) {
+            if (random.nextDouble() < REINFORCE_PROBABILITY) {
+                double delta = random.nextDouble() * REINFORCE_RANGE + REINFORCE_MIN;
+                reinforcement[index] = materials == null ? delta : Math.min(delta, materials.getMaxIntensity(index) - current[index]);
+            }
+        }
+
+        // Augmenter l'intensité du feu mais pas au-dessus de la valeur maximale
+        double[] newGrid = nextCells;
+        int activeCells = grid.getKernels().reinforce(current, reinforcement, newGrid, size,
+                                                     threshold, grid.getMaxIntensity());
+
+        // Propager le feu à partir des cellules actives, dans l'ordre des colonnes
+        for (int index = burning.nextSetIndex(0); index >= 0; index = burning.nextSetIndex(index + 1)) {
+            int i = index / height;
+            spreadToNeighbors(grid, materials, random, i, index - i * height, newGrid, current[index]);
+        }
+
+        // Mettre à jour la grille d'intensité du feu et récupérer l'ancien tableau comme tampon
+        nextCells = grid.swapCells(newGrid);
+        return activeCells > 0;
+    }
+
+    // Propager le feu directement sur les niveaux quantifiés (mêmes règles et même ordre des tirages)
+    private boolean spreadQuantized(FireGrid grid, MaterialMap materials, SimulationRandom random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        QuantizedCells current = grid.getQuantizedCells();
+        if (nextLevels == null || nextLevels.size != current.size) {
+            nextLevels = current.newBuffer();
+        }
+        QuantizedCells next = nextLevels;
+        int thresholdLevel = current.toLevel(grid.getIntensityThreshold());
+        int maxLevel = current.toLevel(grid.getMaxIntensity());
+        int minSpreadLevel = current.toLevel(grid.getIntensityThreshold() + IGNITION_MARGIN);
+        boolean hasActiveFire = false;
+
+        for (int index = 0; index < current.size; index++) {
+            int level = current.get(index);
+            if (level > thresholdLevel) {
+                hasActiveFire = true;
+                // Renforcer le feu existant avec une probabilité de 30%
+                if (random.nextDouble() < REINFORCE_PROBABILITY) {
+                    level = Math.max(0, Math.min(cellMaxLevel(grid, materials, current, index, maxLevel),
+                        level + (int) Math.round((random.nextDouble() * REINFORCE_RANGE + REINFORCE_MIN) * current.scale)));
+                }
+            }
+            next.set(index, level);
+        }
+
+        for (int i = 0; i < width; i++) {
+            for (int j = 0; j < height; j++) {
+                int sourceLevel = current.get(i * height + j);
+                if (sourceLevel <= thresholdLevel) continue;
+
+                // Propager le feu aux voisins (60% à 90% du niveau source)
+                for (int dx = -1; dx <= 1; dx++) {
+                    for (int dy = -1; dy <= 1; dy++) {
+                        if (dx == 0 && dy == 0) continue;
+                        int nx = i + dx;
+                        int ny = j + dy;
+                        if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                        int neighbor = nx * height + ny;
+                        if (next.get(neighbor) < thresholdLevel
+                                && random.nextDouble() < spreadProbability(grid, materials, i * height + j, neighbor, dx, dy)) {
+                            int spreadLevel = (int) Math.round(sourceLevel * (TRANSFER_MIN + random.nextDouble() * TRANSFER_RANGE));
+                            next.set(neighbor, Math.max(minSpreadLevel,
+                                Math.min(cellMaxLevel(grid, materials, current, neighbor, maxLevel), spreadLevel)));
+                        }
+                    }
+                }
+            }
+        }
+
+        nextLevels = grid.swapQuantized(next);
+        return hasActiveFire;
+    }
+
+    // Propager le feu sur une grille en tuiles : seules les tuiles allouées sont parcourues.
+    // Les cellules qui ne brûlent plus sont remises à zéro afin de libérer les tuiles refroidies.
+    private boolean spreadChunked(FireGrid grid, MaterialMap materials, SimulationRandom random) {
+        int width = grid.getWidth();
+        int height = grid.getHeight();
+        double threshold = grid.getIntensityThreshold();
+        ChunkedGrid current = grid.getChunks();
+        if (nextChunks == null) {
+            nextChunks = new ChunkedGrid(width, height);
+        }
+        ChunkedGrid next = nextChunks;
+        next.clear();
+        boolean[] hasActiveFire = {false};
+
+        current.forEachNonZero((i, j, intensity) -> {
+            if (intensity <= threshold) return;
+            hasActiveFire[0] = true;
+            double updated = intensity;
+            // Renforcer le feu existant avec une probabilité de 30%
+            if (random.nextDouble() < REINFORCE_PROBABILITY) {
+                updated = Math.min(maxIntensity(grid, materials, i * height + j),
+                    intensity + (random.nextDouble() * REINFORCE_RANGE + REINFORCE_MIN));
+            }
+            if (updated > threshold) {
+                next.set(i, j, updated);
+            }
+        });
+
+        current.forEachNonZero((i, j, intensity) -> {
+            if (intensity <= threshold) return;
+            for (int dx = -1; dx <= 1; dx++) {
+                for (int dy = -1; dy <= 1; dy++) {
+                    if (dx == 0 && dy == 0) continue;
+                    int nx = i + dx;
+                    int ny = j + dy;
+                    if (nx < 0 || nx >= width || ny < 0 || ny >= height) continue;
+                    if (next.get(nx, ny) < threshold
+                            && random.nextDouble() < spreadProbability(grid, materials, i * height + j, nx * height + ny, dx, dy)) {
+                        // Intensité de propagation du feu (60% à 90% de l'intensité source)
+                        double spreadIntensity = intensity * (TRANSFER_MIN + random.nextDouble() * TRANSFER_RANGE);
+                        next.set(nx, ny, Math.max(threshold + IGNITION_MARGIN,
+                            Math.min(maxIntensity(grid, materials, nx * height + ny), spreadIntensity)));
+                    }
+                }
+            }
+        });
+
+        nextChunks = grid.swapChunks(next);
+        return hasActiveFire[0];
+    }
+
+    // Propager le feu aux voisins
+    private void spreadToNeighbors(FireGrid grid, MaterialMap materials, SimulationRandom random,
+                                   int x, int y, double[] newGrid, double sourceIntensity) {
+        int height = grid.getHeight();
+
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dy = -1; dy <= 1; dy++) {
+
+                // Ne pas propager le feu à la même cellule
+                if (dx == 0 && dy == 0) continue;
+
+                int nx = x + dx;
+                int ny = y + dy;
+
+                if (nx >= 0 && nx < grid.getWidth() && ny >= 0 && ny < height) {
+                    int target = nx * height + ny;
+                    if (newGrid[target] < grid.getIntensityThreshold()
+                            && random.nextDouble() < spreadProbability(grid, materials, x * height + y, target, dx, dy)) {
+
+                        // Intensité de propagation du feu (60% à 90% de l'intensité source)
+                        double spreadIntensity = sourceIntensity * (TRANSFER_MIN + random.nextDouble() * TRANSFER_RANGE);
+                        // Limiter l'intensité de propagation du feu
+                        spreadIntensity = Math.max(grid.getIntensityThreshold() + IGNITION_MARGIN,
+                            Math.min(maxIntensity(grid, materials, target), spreadIntensity));
+                        newGrid[target] = spreadIntensity;
+                    }
+                }
+            }
+        }
+    }
+
+    // Probabilité que la cellule source embrase sa voisine en (dx, dy) : celle du scénario, ou la table
+    // précalculée des matériaux (matériau de la cible, vent, pente)
+    private static double spreadProbability(FireGrid grid, MaterialMap materials, int source, int target, int dx, int dy) {
+        if (materials == null) {
+            return grid.getSpreadProbability();
+        }
+        return materials.spreadProbability(source, target, MaterialMap.DIRECTION[(dx + 1) * 3 + dy + 1]);
+    }
+
+    // Intensité maximale d'une cellule : celle du scénario, abaissée par son matériau
+    private static double maxIntensity(FireGrid grid, MaterialMap materials, int index) {
+        if (materials == null) {
+            return grid.getMaxIntensity();
+        }
+        return Math.min(grid.getMaxIntensity(), materials.getMaxIntensity(index));
+    }
+
+    private static int cellMaxLevel(FireGrid grid, MaterialMap materials, QuantizedCells cells, int index, int maxLevel) {
+        return materials == null ? maxLevel : cells.toLevel(maxIntensity(grid, materials, index));
+    }
+
+    @Override
+    public boolean supports(FireGrid.Storage storage) {
+        return true;
+    }
+
+    @Override
+    public String getName() {
+        return "sequential";
+    }
+}
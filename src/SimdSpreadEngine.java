@@ -0,0 +1,40 @@
+import java.util.Arrays;
+
+/**
+ * Moteur vectoriel : les renforcements tirés pour les cellules en feu sont appliqués à toute la
+ * grille par le noyau reinforce de FireKernels (API jdk.incubator.vector pour "simd"), puis le feu
+ * est propagé depuis le masque des cellules en feu. Les tests de propagation, irréguliers, restent
+ * scalaires.
+ */
+public class SimdSpreadEngine extends OrderFreeSpreadEngine {
+    private final FireKernels kernels;
+    private double[] deltas;
+
+    public SimdSpreadEngine(FireKernels kernels) {
+        this.kernels = kernels;
+    }
+
+    @Override
+    boolean step(FireGrid grid) {
+        CellMask burning = grid.getBurningMask();
+        if (deltas == null || deltas.length != current.length) {
+            deltas = new double[current.length];
+        } else {
+            Arrays.fill(deltas, 0.0);
+        }
+        int first = burning.nextSetIndex(0);
+        for (int cell = first; cell >= 0; cell = burning.nextSetIndex(cell + 1)) {
+            deltas[cell] = reinforcement(cell, current[cell]);
+        }
+        int active = kernels.reinforce(current, deltas, next, current.length, threshold, maxIntensity);
+        for (int source = first; source >= 0; source = burning.nextSetIndex(source + 1)) {
+            spreadFrom(source);
+        }
+        return active > 0;
+    }
+
+    @Override
+    public String getName() {
+        return "simd";
+    }
+}
@@ -1,9 +1,14 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.Executors;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.TimeUnit;
+import java.util.function.Predicate;
 import javax.swing.SwingUtilities;
 
 public class Simulation {
@@ -12,8 +17,8 @@ public class Simulation {
     private static final int FIRE_UPDATE_INTERVAL = 2000;
     // Temps de mise à jour des robots
     private static final int ROBOT_UPDATE_INTERVAL = 300;
-    // Nombre maximum de survivants
-    private static final int MAX_SURVIVORS = 7;
+    // Délai avant l'apparition des survivants
+    private static final int SURVIVOR_SPAWN_DELAY = 5000;
 
     private Fire fire;
     private FireGrid fireGrid;
@@ -24,69 +29,266 @@ public class Simulation {
     private ScheduledExecutorService robotExecutor;
     private int timeStep = 0;
     private FireStatistics statistics;
+    // Générateur aléatoire pour l'apparition des survivants
+    private SimulationRandom random;
+    private boolean survivorsSpawned;
+    // Journal d'événements en cours d'enregistrement
+    private EventLog eventLog;
+    // Export continu des trames d'intensité
+    private FrameExporter frameExporter;
+    // Checkpoint écrit à la fermeture de la fenêtre et proposé par l'interface (option --checkpoint)
+    private Path checkpointPath;
 
     private List<Robot> robots;
     private List<Survivor> survivors;
 
+    // Configuration propre à cette simulation (taille, QG, limites, scénario, stockage)
+    private SimulationConfig config;
+
+    // Mode pas à pas : instants des prochaines mises à jour selon l'horloge de la simulation
+    private boolean stepScheduled;
+    private long nextFireUpdate;
+    private long nextRobotUpdate;
+    private long survivorSpawnTime;
+    private long stepCount;
+    private long robotUpdateCount;
+
+    // Mode événementiel : roue temporelle et minuteurs des événements globaux
+    private TimerWheel wheel;
+    private TimerWheel.Timer fireTimer;
+    private TimerWheel.Timer survivorTimer;
+    private TimerWheel.Timer expiryTimer;
+    private TimerWheel.Timer dispatchTimer;
+    // Robots au repos, réveillés au prochain changement de la carte du QG
+    private final List<Robot> idleRobots = new ArrayList<>();
+
+    // Robots exécutés en agents communiquant par messages (null : appels directs au QG)
+    private AgentRuntime agentRuntime;
+    // Lecture partagée des champs de vision des éclaireurs, une fois par mise à jour des robots
+    private final SensingService sensing = new SensingService(Scout.VISION_RANGE);
+
+    // Région d'une carte découpée (voir RegionalSimulation) : origine de la grille sur la carte et
+    // hauteur de la carte, 0 pour une simulation autonome ; éclaireurs accueillis d'autres régions
+    private final int regionOriginX;
+    private final int regionOriginY;
+    private final int globalHeight;
+    private int guestScouts;
+
     public Simulation() {
+        this(SimulationConfig.DEFAULT);
+    }
+
+    public Simulation(SimulationConfig config) {
+        this(config, 0, 0, 0);
+    }
+
+    // Région d'une carte de hauteur globalHeight, dont la grille commence en (originX, originY)
+    Simulation(SimulationConfig config, int originX, int originY, int globalHeight) {
+        this.config = config;
+        this.regionOriginX = originX;
+        this.regionOriginY = originY;
+        this.globalHeight = globalHeight;
         initializeSimulation();
     }
 
+    // Construire une simulation à piloter par step(), sans thread ni interface graphique
+    public static Builder builder() {
+        return new Builder();
+    }
+
+    // ====== Construction programmatique ======
+    public static class Builder {
+        // Valeurs de la configuration, celles de SimulationConfig.DEFAULT au départ
+        private final SimulationConfig.Draft draft = new SimulationConfig.Draft();
+        // QG au centre de la grille si non précisé
+        private int hqX = -1;
+        private int hqY = -1;
+        // Horloge manuelle propre à la simulation si non précisée
+        private SimulationClock clock;
+        private String engine = "auto";
+
+        private Builder() {
+        }
+
+        public Builder scenario(FireScenario.Parameters scenario) {
+            draft.scenario = scenario;
+            return this;
+        }
+
+        public Builder gridSize(int width, int height) {
+            draft.gridWidth = width;
+            draft.gridHeight = height;
+            return this;
+        }
+
+        public Builder headQuarters(int x, int y) {
+            this.hqX = x;
+            this.hqY = y;
+            return this;
+        }
+
+        public Builder seed(long seed) {
+            draft.seeded = true;
+            draft.seed = seed;
+            return this;
+        }
+
+        public Builder scouts(int scouts) {
+            draft.initialScouts = scouts;
+            return this;
+        }
+
+        public Builder maxRobots(int maxRobots) {
+            draft.maxRobots = maxRobots;
+            return this;
+        }
+
+        public Builder maxSurvivors(int maxSurvivors) {
+            draft.maxSurvivors = maxSurvivors;
+            return this;
+        }
+
+        public Builder reportExpiration(long millis) {
+            draft.reportExpirationTime = millis;
+            return this;
+        }
+
+        public Builder hqSafeDistance(int distance) {
+            draft.hqSafeDistance = distance;
+            return this;
+        }
+
+        public Builder clock(SimulationClock clock) {
+            this.clock = clock;
+            return this;
+        }
+
+        public Builder storage(FireGrid.Storage storage) {
+            draft.storage = storage;
+            return this;
+        }
+
+        // Noyaux de calcul : "auto", "scalar" ou "vector"
+        public Builder engine(String engine) {
+            this.engine = engine;
+            return this;
+        }
+
+        // Moteur de propagation : "sequential" (par défaut), "reference", "frontier", "tiled", "simd" ou "multires"
+        public Builder spreadEngine(String spreadEngine) {
+            draft.spreadEngine = spreadEngine;
+            return this;
+        }
+
+        // Mode événementiel : robots réveillés par échéances plutôt que scrutés à chaque pas
+        public Builder eventDriven(boolean eventDriven) {
+            draft.eventDriven = eventDriven;
+            return this;
+        }
+
+        // Robots exécutés en parallèle comme agents, communiquant avec le QG par messages
+        // délivrés avec messageLatency pas de retard supplémentaires
+        public Builder agentRuntime(int messageLatency) {
+            draft.agentRuntime = true;
+            draft.messageLatency = messageLatency;
+            return this;
+        }
+
+        // Matériaux, vent et pente par cellule (mêmes dimensions que la grille)
+        public Builder materials(MaterialMap materials) {
+            draft.materials = materials;
+            return this;
+        }
+
+        // Prévision du feu au QG en arrière-plan (horizon en pas de feu), utilisée par la répartition
+        // des pompiers ; le pas où une prévision est prise en compte dépend du temps de calcul
+        public Builder forecast(int horizon, int rollouts) {
+            draft.forecastHorizon = horizon;
+            draft.forecastRollouts = rollouts;
+            return this;
+        }
+
+        public SimulationConfig buildConfig() {
+            draft.hqX = hqX < 0 ? draft.gridWidth / 2 : hqX;
+            draft.hqY = hqY < 0 ? draft.gridHeight / 2 : hqY;
+            draft.clock = clock != null ? clock : SimulationClock.manual();
+            draft.kernels = FireKernels.named(engine);
+            return new SimulationConfig(draft);
+        }
+
+        public Simulation build() {
+            return new Simulation(buildConfig());
+        }
+    }
+
     private void initializeSimulation() {
-        FireScenario.Parameters scenario = FireScenario.CHEMICAL;
-        this.fireGrid = new FireGrid(HeadQuarters.getGridWidth(), 
-                                   HeadQuarters.getGridHeight(), 
-                                   scenario);
-        this.fire = new Fire(fireGrid);
-        this.hq = new HeadQuarters(HeadQuarters.getHqX(), HeadQuarters.getHqY(), 
-                                 HeadQuarters.getGridWidth(), HeadQuarters.getGridHeight(), fireGrid);
+        this.fireGrid = new FireGrid(config.gridWidth, config.gridHeight, config.scenario,
+                                     config.storage, config.kernels);
+        this.fire = globalHeight == 0 ? new Fire(fireGrid, config)
+            : new Fire(fireGrid, config, regionOriginX, regionOriginY, globalHeight);
+        this.hq = new HeadQuarters(config, fireGrid);
         this.isRunning = false;
         this.timeStep = 0;
         this.robots = new CopyOnWriteArrayList<>();
         this.survivors = new CopyOnWriteArrayList<>();
-        this.statistics = new FireStatistics();
+        this.statistics = new FireStatistics(config.clock);
+        this.random = config.newRandom(SimulationConfig.STREAM_SURVIVORS);
+        this.survivorsSpawned = false;
+        this.stepScheduled = false;
+        this.stepCount = 0;
+        this.robotUpdateCount = 0;
+        initializeAgentRuntime();
         initializeRobots();       
     }
 
+    private void initializeAgentRuntime() {
+        if (!config.agentRuntime) {
+            agentRuntime = null;
+        } else if (agentRuntime == null || agentRuntime.getLatency() != config.messageLatency) {
+            agentRuntime = new AgentRuntime(config.messageLatency);
+        } else {
+            agentRuntime.clear();
+        }
+    }
+
     // Initialiser les robots
     private void initializeRobots() {
         int id = 0;
-        for (int i = 0; i < HeadQuarters.INITIAL_SCOUTS; i++) {
-            robots.add(new Scout(id++, HeadQuarters.getHqX(), HeadQuarters.getHqY(), 
-                               HeadQuarters.getGridWidth(), HeadQuarters.getGridHeight()));
+        for (int i = 0; i < config.initialScouts; i++) {
+            Scout scout = new Scout(id++, config);
+            scout.setFireGrid(fireGrid);
+            robots.add(scout);
         }
     }
 
     // Ajouter les survivants
     private void spawnSurvivor() {
+        survivorsSpawned = true;
         int id = 0;
-        double[][] intensityMap = fire.getIntensityMap();
+        CellMask burning = fireGrid.getBurningMask();
         List<Point> allFireLocations = new ArrayList<>();
-        
-        for (int i = 0; i < HeadQuarters.getGridWidth(); i++) {
-            for (int j = 0; j < HeadQuarters.getGridHeight(); j++) {
-                if (intensityMap[i][j] > fireGrid.getIntensityThreshold()) {
-                    allFireLocations.add(new Point(i, j));
-                }
-            }
-        }
+        fireGrid.forEachCellAbove(fireGrid.getIntensityThreshold(),
+            (i, j, intensity) -> allFireLocations.add(new Point(i, j)));
     
         if (!allFireLocations.isEmpty()) {
             List<Point> selectedFireLocations = new ArrayList<>(allFireLocations);
-            for (int i = 0; i < MAX_SURVIVORS && !selectedFireLocations.isEmpty(); i++) {
-                int index = (int)(Math.random() * selectedFireLocations.size());
+            for (int i = 0; i < config.maxSurvivors && !selectedFireLocations.isEmpty(); i++) {
+                int index = (int)(random.nextDouble() * selectedFireLocations.size());
                 Point p = selectedFireLocations.get(index);
                 
+                // Cellules en feu du voisinage 5x5, lues dans le masque (même ordre que allFireLocations)
                 List<Point> nearbyFirePoints = new ArrayList<>();
-                for (Point firePoint : allFireLocations) {
-                    if (Math.abs(firePoint.x - p.x) <= 2 && Math.abs(firePoint.y - p.y) <= 2) {
-                        nearbyFirePoints.add(firePoint);
+                for (int nx = Math.max(p.x - 2, 0); nx <= Math.min(p.x + 2, config.gridWidth - 1); nx++) {
+                    for (int ny = Math.max(p.y - 2, 0); ny <= Math.min(p.y + 2, config.gridHeight - 1); ny++) {
+                        if (burning.get(nx, ny)) {
+                            nearbyFirePoints.add(new Point(nx, ny));
+                        }
                     }
                 }
                 
-                int survivorsInThisFire = 1 + (int)(Math.random() * 3);
-                for (int j = 0; j < survivorsInThisFire && id < MAX_SURVIVORS && !nearbyFirePoints.isEmpty(); j++) {
-                    int firePointIndex = (int)(Math.random() * nearbyFirePoints.size());
+                int survivorsInThisFire = 1 + (int)(random.nextDouble() * 3);
+                for (int j = 0; j < survivorsInThisFire && id < config.maxSurvivors && !nearbyFirePoints.isEmpty(); j++) {
+                    int firePointIndex = (int)(random.nextDouble() * nearbyFirePoints.size());
                     Point survivorPoint = nearbyFirePoints.get(firePointIndex);
                     survivors.add(new Survivor(id++, survivorPoint.x, survivorPoint.y));
                     nearbyFirePoints.remove(firePointIndex);
@@ -99,43 +301,56 @@ public class Simulation {
 
     // Mettre à jour l'interface graphique
     private void updateGUI() {
-        statistics.updateStatistics(
-            fire.getIntensityMap(),
-            survivors,
-            fireGrid.getIntensityThreshold()
-        );
+        statistics.updateStatistics(fireGrid, survivors);
+        recordFrame();
+        refreshGUI();
+    }
 
+    // Redessiner l'état courant sans l'avancer ni l'enregistrer (retour de la relecture au direct)
+    public void refreshGUI() {
+        if (gui == null) {
+            return;
+        }
+        CellMask burning = fireGrid.getBurningMask().copy();
         SwingUtilities.invokeLater(() -> {
-            gui.updateDisplay(fire.getIntensityMap(), generateSimulationInfo(), robots, survivors);
+            gui.updateDisplay(fire.getIntensityMap(), burning, generateSimulationInfo(), robots, survivors);
         });
     }
 
     // Mettre à jour les survivants
     private void updateSurvivors() {
-        double[][] intensityMap = fire.getIntensityMap();
         for (Survivor survivor : survivors) {
             if (!survivor.isRescued() && !survivor.isDead()) {
-                survivor.updateStatus(intensityMap[survivor.getX()][survivor.getY()]);
+                survivor.updateStatus(fireGrid.getIntensityAt(survivor.getX(), survivor.getY()));
             }
         }
     }
 
+    // Propager le feu d'un pas
+    private void updateFire() {
+        fire.spread();
+        timeStep++;
+        if (frameExporter != null) {
+            frameExporter.submit(timeStep, fireGrid);
+        }
+    }
+
     // Mettre à jour les robots
     private void updateRobots() {
+        robotUpdateCount++;
         Firefighter newRobot = hq.checkAndAddFirefighter();
         if (newRobot != null) {
             newRobot.setFireGrid(fireGrid);
             robots.add(newRobot);
         }
+        hq.updateDispatch();
         
-        for (Robot robot : robots) {
-            if (robot instanceof Scout) {
-                if (((Scout)robot).getFireGrid() == null) {
-                    ((Scout)robot).setFireGrid(fireGrid);
-                }
-                ((Scout)robot).updateState(hq);
-            } else if (robot instanceof Firefighter) {
-                ((Firefighter)robot).updateState(hq);
+        sensing.sense(fireGrid, robots);
+        if (agentRuntime != null) {
+            agentRuntime.tick(hq, robots);
+        } else {
+            for (Robot robot : robots) {
+                updateRobot(robot);
             }
         }
 
@@ -143,30 +358,403 @@ public class Simulation {
         updateSurvivors();
     }
 
+    private void updateRobot(Robot robot) {
+        if (robot instanceof Scout) {
+            if (((Scout)robot).getFireGrid() == null) {
+                ((Scout)robot).setFireGrid(fireGrid);
+            }
+            ((Scout)robot).updateState(hq);
+        } else if (robot instanceof Firefighter) {
+            ((Firefighter)robot).updateState(hq);
+        }
+    }
+
     // Créer l'interface graphique
     public void createGUI() {
-        this.gui = new SimulationGUI(HeadQuarters.getGridWidth(), HeadQuarters.getGridHeight(), 
-                                   HeadQuarters.getHqX(), HeadQuarters.getHqY(), this);
+        this.gui = new SimulationGUI(config.gridWidth, config.gridHeight, config.hqX, config.hqY, this);
+    }
+
+    public SimulationConfig getConfig() {
+        return config;
     }
 
     public FireGrid getFireGrid() {
         return fireGrid;
     }
 
+    public int getTimeStep() {
+        return timeStep;
+    }
+
+    public long getStepCount() {
+        return stepCount;
+    }
+
+    // Nombre de mises à jour des robots depuis l'initialisation
+    public long getRobotUpdateCount() {
+        return robotUpdateCount;
+    }
+
+    public double getIntensityAt(int x, int y) {
+        return fireGrid.getIntensityAt(x, y);
+    }
+
+    public int getBurningCellCount() {
+        return fireGrid.countBurningCells();
+    }
+
+    public List<Robot> getRobots() {
+        return Collections.unmodifiableList(robots);
+    }
+
+    public List<Survivor> getSurvivors() {
+        return Collections.unmodifiableList(survivors);
+    }
+
+    public HeadQuarters getHeadQuarters() {
+        return hq;
+    }
+
+    Fire getFire() {
+        return fire;
+    }
+
     public FireStatistics getStatistics() {
         return statistics;
     }
 
+    public AgentRuntime getAgentRuntime() {
+        return agentRuntime;
+    }
+
+    // Imposer une cible à un robot ; avec AgentRuntime, l'ordre lui parvient par message
+    public void dispatch(Robot robot, int targetX, int targetY) {
+        if (agentRuntime != null) {
+            agentRuntime.dispatch(robot, targetX, targetY);
+        } else {
+            robot.assignTarget(targetX, targetY);
+        }
+    }
+
+    // Rendre au robot son comportement autonome
+    public void cancelDispatch(Robot robot) {
+        if (agentRuntime != null) {
+            agentRuntime.dispatch(robot, -1, -1);
+        } else {
+            robot.clearAssignedTarget();
+        }
+    }
+
+    // ====== Passage des robots d'une région à l'autre ======
+    // Retirer un robot parti dans une autre région ; le QG oublie ses rapports
+    void releaseRobot(Robot robot) {
+        robots.remove(robot);
+        if (robot instanceof Firefighter) {
+            hq.releaseFirefighter((Firefighter) robot);
+        } else {
+            hq.forgetRobot(robot.getId());
+        }
+    }
+
+    // Accueillir un robot venu d'une autre région dont le repère est décalé de (dx, dy) par rapport
+    // à celui-ci. Un pompier prend le rang suivant de la flotte du QG ; un éclaireur reçoit un
+    // identifiant négatif, hors des secteurs des éclaireurs de la région
+    Robot adoptRobot(Robot robot, int dx, int dy) {
+        Robot adopted;
+        if (robot instanceof Firefighter) {
+            Firefighter firefighter = hq.adoptFirefighter((Firefighter) robot, dx, dy);
+            firefighter.setFireGrid(fireGrid);
+            adopted = firefighter;
+        } else {
+            Scout scout = (Scout) robot.handOver(-1 - guestScouts++, config, dx, dy);
+            scout.setFireGrid(fireGrid);
+            adopted = scout;
+        }
+        robots.add(adopted);
+        return adopted;
+    }
+
     // Réinitialiser la simulation
     public void reset() {
         stop();
         initializeSimulation();
+        if (eventLog != null) {
+            eventLog.requestKeyframe();
+        }
         updateGUI();
     }
 
-    // Démarrer la simulation
+    // Réinitialisation rapide pour enchaîner de nombreux épisodes courts : la grille, le QG,
+    // les robots et les listes existants sont vidés et réensemencés en place, sans recréer
+    // d'objets ni attendre de thread. Le résultat est identique à une simulation neuve
+    // construite avec la même configuration et cette graine.
+    public void resetEpisode(long seed) {
+        if (isRunning) {
+            stop();
+        }
+        // Une horloge manuelle repart de son instant initial ; une horloge murale n'est pas
+        // rembobinable, les horodatages remis à zéro ci-dessous repartent alors de l'instant courant
+        if (config.clock instanceof SimulationClock.Manual) {
+            ((SimulationClock.Manual) config.clock).rewind();
+        }
+        fireGrid.clear();
+        fire.reset(SimulationConfig.streamSeed(seed, SimulationConfig.STREAM_FIRE));
+        hq.reset();
+        robots.removeIf(robot -> !(robot instanceof Scout));
+        for (Robot robot : robots) {
+            robot.reset(seed);
+        }
+        survivors.clear();
+        statistics.reset();
+        random.setSeed(SimulationConfig.streamSeed(seed, SimulationConfig.STREAM_SURVIVORS));
+        timeStep = 0;
+        survivorsSpawned = false;
+        stepScheduled = false;
+        nextFireUpdate = 0;
+        nextRobotUpdate = 0;
+        survivorSpawnTime = 0;
+        stepCount = 0;
+        robotUpdateCount = 0;
+        if (agentRuntime != null) {
+            agentRuntime.clear();
+        }
+        if (eventLog != null) {
+            eventLog.requestKeyframe();
+        }
+    }
+
+    // ====== Journal d'événements ======
+    // Enregistrer chaque trame de la simulation dans un journal relisible
+    public void startRecording(Path path) throws IOException {
+        stopRecording();
+        eventLog = new EventLog(path, fireGrid, hq.getX(), hq.getY(), config.clock);
+    }
+
+    public void stopRecording() {
+        if (eventLog != null) {
+            try {
+                eventLog.close();
+            } catch (IOException e) {
+                System.err.println("Failed to close event log: " + e.getMessage());
+            }
+            eventLog = null;
+        }
+    }
+
+    // ====== Export des trames ======
+    // La simulation n'attend jamais le disque : les trames abandonnées sont signalées à l'arrêt
+    public void startFrameExport(Path path) throws IOException {
+        startFrameExport(path, false);
+    }
+
+    // waitForDisk : écrire toutes les trames, quitte à ralentir la simulation si le disque est trop lent
+    public void startFrameExport(Path path, boolean waitForDisk) throws IOException {
+        stopFrameExport();
+        int width = fireGrid.getWidth();
+        int height = fireGrid.getHeight();
+        frameExporter = new FrameExporter(path, width, height, fireGrid.getMaxIntensity(),
+            FrameExporter.queueCapacityFor(width, height), waitForDisk);
+    }
+
+    public void stopFrameExport() {
+        FrameExporter exporter = frameExporter;
+        frameExporter = null;
+        if (exporter != null) {
+            try {
+                exporter.close();
+                if (exporter.getDroppedFrames() > 0) {
+                    System.err.println("Frame export dropped " + exporter.getDroppedFrames() + " frames");
+                }
+            } catch (IOException e) {
+                System.err.println("Frame export failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void recordFrame() {
+        EventLog log = eventLog;
+        if (log == null) {
+            return;
+        }
+        try {
+            log.recordFrame(timeStep, fireGrid, robots, survivors);
+        } catch (IOException e) {
+            System.err.println("Event log recording stopped: " + e.getMessage());
+            stopRecording();
+        }
+    }
+
+    // ====== Exécution pas à pas ======
+    // Exécuter la prochaine mise à jour planifiée (feu, robots, apparition des survivants),
+    // sans thread ni interface. Une horloge manuelle est avancée jusqu'à l'instant de la mise à jour.
+    public void step() {
+        if (isRunning) {
+            throw new IllegalStateException("Simulation is running in real time");
+        }
+        if (!stepScheduled) {
+            long now = config.clock.currentTimeMillis();
+            if (config.eventDriven) {
+                initializeEvents(now);
+            } else {
+                nextFireUpdate = now;
+                nextRobotUpdate = now;
+                survivorSpawnTime = now + SURVIVOR_SPAWN_DELAY;
+            }
+            stepScheduled = true;
+        }
+        if (config.eventDriven) {
+            stepEvents();
+            return;
+        }
+        long next = Math.min(nextFireUpdate, nextRobotUpdate);
+        if (!survivorsSpawned) {
+            next = Math.min(next, survivorSpawnTime);
+        }
+        if (config.clock instanceof SimulationClock.Manual) {
+            ((SimulationClock.Manual) config.clock).advanceTo(next);
+        }
+
+        if (!survivorsSpawned && survivorSpawnTime <= next) {
+            spawnSurvivor();
+        }
+        if (nextFireUpdate <= next) {
+            updateFire();
+            nextFireUpdate += FIRE_UPDATE_INTERVAL;
+        }
+        if (nextRobotUpdate <= next) {
+            updateRobots();
+            nextRobotUpdate += ROBOT_UPDATE_INTERVAL;
+        }
+        stepCount++;
+        updateGUI();
+    }
+
+    // ====== Mode événementiel ======
+    // Les recharges, le remplissage d'eau, l'expiration des rapports et l'apparition des survivants
+    // sont des échéances sur une roue temporelle : un robot n'est réveillé que lorsqu'il a quelque
+    // chose à faire, et un pompier au repos au QG dort jusqu'au prochain changement de la carte.
+    private void initializeEvents(long now) {
+        if (wheel == null) {
+            wheel = new TimerWheel(1, now);
+            fireTimer = wheel.newTimer(this::onFireEvent);
+            survivorTimer = wheel.newTimer(time -> spawnSurvivor());
+            expiryTimer = wheel.newTimer(this::onExpiryEvent);
+            dispatchTimer = wheel.newTimer(this::checkFirefighters);
+        } else {
+            wheel.clear(now);
+        }
+        idleRobots.clear();
+        hq.setMapListener(this::onMapChanged);
+
+        wheel.schedule(fireTimer, now);
+        for (Robot robot : robots) {
+            scheduleRobot(robot, now);
+        }
+        if (!survivorsSpawned) {
+            wheel.schedule(survivorTimer, now + SURVIVOR_SPAWN_DELAY);
+        }
+        scheduleExpiry();
+    }
+
+    // Traiter toutes les échéances du prochain instant
+    private void stepEvents() {
+        long next = wheel.advanceToNext();
+        if (config.clock instanceof SimulationClock.Manual) {
+            ((SimulationClock.Manual) config.clock).advanceTo(next);
+        }
+        wheel.fireDue();
+        updateSurvivors();
+        stepCount++;
+        updateGUI();
+    }
+
+    private void onFireEvent(long time) {
+        updateFire();
+        wheel.schedule(fireTimer, time + FIRE_UPDATE_INTERVAL);
+    }
+
+    private void onExpiryEvent(long time) {
+        hq.expireReports();
+        scheduleExpiry();
+    }
+
+    private void scheduleExpiry() {
+        long expiry = hq.getNextExpiryTime();
+        if (expiry == Long.MAX_VALUE) {
+            wheel.cancel(expiryTimer);
+        } else {
+            wheel.schedule(expiryTimer, expiry);
+        }
+    }
+
+    private void onRobotEvent(Robot robot, long time) {
+        robotUpdateCount++;
+        updateRobot(robot);
+        long wake = robot.nextWakeTime(time, ROBOT_UPDATE_INTERVAL);
+        if (wake == Long.MAX_VALUE) {
+            idleRobots.add(robot);
+        } else {
+            scheduleRobot(robot, wake);
+        }
+    }
+
+    private void scheduleRobot(Robot robot, long time) {
+        if (robot.wakeTimer == null) {
+            robot.wakeTimer = wheel.newTimer(t -> onRobotEvent(robot, t));
+        }
+        wheel.schedule(robot.wakeTimer, time);
+    }
+
+    // La carte du QG a changé : renfort éventuel, réveil des robots au repos, prochaine expiration
+    private void onMapChanged() {
+        long now = config.clock.currentTimeMillis();
+        checkFirefighters(now);
+        for (Robot robot : idleRobots) {
+            robot.wakeFromIdle(now);
+            scheduleRobot(robot, now);
+        }
+        idleRobots.clear();
+        scheduleExpiry();
+    }
+
+    // Ajouter au plus un pompier, puis revérifier au pas suivant comme en mode périodique
+    private void checkFirefighters(long time) {
+        Firefighter newRobot = hq.checkAndAddFirefighter();
+        if (newRobot != null) {
+            newRobot.setFireGrid(fireGrid);
+            robots.add(newRobot);
+            scheduleRobot(newRobot, time);
+            wheel.schedule(dispatchTimer, time + ROBOT_UPDATE_INTERVAL);
+        }
+        hq.updateDispatch();
+    }
+
+    public void step(int steps) {
+        for (int i = 0; i < steps; i++) {
+            step();
+        }
+    }
+
+    // Avancer jusqu'à ce que la condition soit vraie ; retourne le nombre de pas exécutés
+    public long runUntil(Predicate<? super Simulation> condition) {
+        return runUntil(condition, Long.MAX_VALUE);
+    }
+
+    public long runUntil(Predicate<? super Simulation> condition, long maxSteps) {
+        long steps = 0;
+        while (steps < maxSteps && !condition.test(this)) {
+            step();
+            steps++;
+        }
+        return steps;
+    }
+
+    // Démarrer la simulation en temps réel
     public void start() {
         if (isRunning) return;
+        if (config.clock instanceof SimulationClock.Manual) {
+            throw new IllegalStateException("Real-time mode needs a running clock, use step() with a manual clock");
+        }
 
         isRunning = true;
         this.fireExecutor = Executors.newScheduledThreadPool(1);
@@ -175,18 +763,17 @@ public class Simulation {
         // Scheduler l'apparition des survivants après 5 secondes de démarrage de la simulation
         ScheduledExecutorService survivorExecutor = Executors.newScheduledThreadPool(1);
         survivorExecutor.schedule(() -> {
-            if (isRunning) {
+            if (isRunning && !survivorsSpawned) {
                 spawnSurvivor();
                 updateGUI();
             }
             survivorExecutor.shutdown();
-        }, 5, TimeUnit.SECONDS); 
+        }, SURVIVOR_SPAWN_DELAY, TimeUnit.MILLISECONDS);
 
         // Scheduler les mises à jour de feu
         fireExecutor.scheduleAtFixedRate(() -> {
             if (isRunning) {
-                fire.spread();
-                timeStep++;
+                updateFire();
                 updateGUI();
             }
         }, 0, FIRE_UPDATE_INTERVAL, TimeUnit.MILLISECONDS);
@@ -221,19 +808,171 @@ public class Simulation {
         }
     }
 
+    // ====== Checkpoint ======
+    // Sauvegarder l'état complet de la simulation (la simulation est suspendue pendant l'écriture)
+    public void saveCheckpoint(Path path) throws IOException {
+        boolean wasRunning = isRunning;
+        stop();
+        try {
+            SimulationCheckpoint.save(this, path);
+        } finally {
+            if (wasRunning) {
+                start();
+            }
+        }
+    }
+
+    // Checkpoint par défaut de l'interface, écrit aussi à la fermeture de la fenêtre (null : aucun)
+    public void setCheckpointPath(Path path) {
+        this.checkpointPath = path;
+    }
+
+    public Path getCheckpointPath() {
+        return checkpointPath;
+    }
+
+    // Fermeture de la fenêtre : arrêter la simulation et l'écrire dans le checkpoint de --checkpoint
+    void saveCheckpointOnExit() {
+        if (checkpointPath == null) {
+            return;
+        }
+        stop();
+        try {
+            SimulationCheckpoint.save(this, checkpointPath);
+            System.out.println("Checkpoint saved to " + checkpointPath);
+        } catch (IOException e) {
+            System.err.println("Failed to save checkpoint: " + e.getMessage());
+        }
+    }
+
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putLong(SimulationCheckpoint.MAGIC);
+        out.putInt(SimulationCheckpoint.VERSION);
+        out.putInt(timeStep);
+        out.putBoolean(survivorsSpawned);
+        out.putLong(random.getState());
+        // Planning du mode pas à pas : la reprise exécute la même prochaine mise à jour
+        out.putBoolean(stepScheduled);
+        out.putTime(nextFireUpdate);
+        out.putTime(nextRobotUpdate);
+        out.putTime(survivorSpawnTime);
+        out.putLong(stepCount);
+        out.putLong(robotUpdateCount);
+
+        config.writeCheckpoint(out);
+        out.putLong(fire.getRandomState());
+        fireGrid.writeCheckpoint(out);
+        hq.writeCheckpoint(out);
+
+        out.putInt(robots.size());
+        for (Robot robot : robots) {
+            out.putByte(robot instanceof Scout ? SimulationCheckpoint.ROBOT_SCOUT : SimulationCheckpoint.ROBOT_FIREFIGHTER);
+            out.putInt(robot.getId());
+            robot.writeCheckpoint(out);
+        }
+
+        out.putInt(survivors.size());
+        for (Survivor survivor : survivors) {
+            survivor.writeCheckpoint(out);
+        }
+        statistics.writeCheckpoint(out);
+    }
+
+    // Reprendre la simulation à partir d'un checkpoint
+    public void loadCheckpoint(Path path) throws IOException {
+        stop();
+        try (SimulationCheckpoint.Reader in = SimulationCheckpoint.open(path, config.clock)) {
+            int restoredTimeStep = in.getInt();
+            boolean restoredSpawned = in.getBoolean();
+            long randomState = in.getLong();
+            boolean restoredScheduled = in.getBoolean();
+            long restoredNextFire = in.getTime();
+            long restoredNextRobots = in.getTime();
+            long restoredSurvivorSpawn = in.getTime();
+            long restoredStepCount = in.getLong();
+            long restoredRobotUpdates = in.getLong();
+
+            SimulationConfig restoredConfig = SimulationConfig.readCheckpoint(in, config);
+            FireGrid restoredGrid = new FireGrid(restoredConfig.gridWidth, restoredConfig.gridHeight,
+                                                 restoredConfig.scenario, restoredConfig.storage,
+                                                 restoredConfig.kernels);
+            Fire restoredFire = new Fire(restoredGrid, restoredConfig, in.getLong());
+            restoredGrid.readCheckpoint(in);
+
+            HeadQuarters restoredHq = new HeadQuarters(restoredConfig, restoredGrid);
+            restoredHq.readCheckpoint(in);
+
+            List<Robot> restoredRobots = new CopyOnWriteArrayList<>();
+            List<Firefighter> restoredFirefighters = new ArrayList<>();
+            int robotCount = in.getInt();
+            for (int i = 0; i < robotCount; i++) {
+                byte type = in.getByte();
+                int id = in.getInt();
+                Robot robot;
+                if (type == SimulationCheckpoint.ROBOT_SCOUT) {
+                    Scout scout = new Scout(id, restoredConfig);
+                    scout.setFireGrid(restoredGrid);
+                    robot = scout;
+                } else {
+                    Firefighter firefighter = new Firefighter(id, restoredConfig);
+                    firefighter.setFireGrid(restoredGrid);
+                    restoredFirefighters.add(firefighter);
+                    robot = firefighter;
+                }
+                robot.readCheckpoint(in);
+                restoredRobots.add(robot);
+            }
+            restoredHq.restoreFirefighters(restoredFirefighters);
+
+            List<Survivor> restoredSurvivors = new CopyOnWriteArrayList<>();
+            int survivorCount = in.getInt();
+            for (int i = 0; i < survivorCount; i++) {
+                restoredSurvivors.add(Survivor.readCheckpoint(in));
+            }
+            FireStatistics restoredStatistics = new FireStatistics(restoredConfig.clock);
+            restoredStatistics.readCheckpoint(in);
+
+            this.config = restoredConfig;
+            this.fireGrid = restoredGrid;
+            this.fire = restoredFire;
+            this.hq = restoredHq;
+            this.robots = restoredRobots;
+            this.survivors = restoredSurvivors;
+            this.statistics = restoredStatistics;
+            this.timeStep = restoredTimeStep;
+            this.survivorsSpawned = restoredSpawned;
+            this.random = new SimulationRandom();
+            this.random.setState(randomState);
+            // Le planning du mode événementiel (roue temporelle) n'est pas sauvegardé : il est
+            // reconstruit à partir de l'horloge au premier pas
+            this.stepScheduled = restoredScheduled && !restoredConfig.eventDriven;
+            this.nextFireUpdate = restoredNextFire;
+            this.nextRobotUpdate = restoredNextRobots;
+            this.survivorSpawnTime = restoredSurvivorSpawn;
+            this.stepCount = restoredStepCount;
+            this.robotUpdateCount = restoredRobotUpdates;
+            initializeAgentRuntime();
+        }
+        if (gui != null) {
+            updateGUI();
+        }
+    }
+
     // Générer les informations de simulation
     private String generateSimulationInfo() {
         StringBuilder info = new StringBuilder();
         info.append("=== Simulation Status ===\n");
         info.append("Time Step: ").append(timeStep).append("\n");
-        info.append("Grid Size: ").append(HeadQuarters.GRID_WIDTH).append("x").append(HeadQuarters.GRID_HEIGHT).append("\n");
-        info.append("HQ Position: [").append(HeadQuarters.HQ_X).append(",").append(HeadQuarters.HQ_Y).append("]\n\n");
+        info.append("Grid Size: ").append(config.gridWidth).append("x").append(config.gridHeight).append("\n");
+        info.append("HQ Position: [").append(config.hqX).append(",").append(config.hqY).append("]\n\n");
         
         info.append("=== Fire Status ===\n");
         info.append("Max Intensity: ").append(fireGrid.getMaxIntensity()).append("\n");
         info.append("Intensity Threshold: ").append(fireGrid.getIntensityThreshold()).append("\n");
         info.append("Spread Probability: ").append(fireGrid.getSpreadProbability()).append("\n");
         info.append("Initial Intensity: ").append(fireGrid.getInitialIntensity()).append("\n");
+        info.append("Storage: ").append(fireGrid.getStorage())
+            .append(String.format(" (%.1f KB)", fireGrid.getMemoryBytes() / 1024.0)).append("\n");
         info.append("Fire Type: ").append(fireGrid.getScenarioDescription()).append("\n\n");
 
         info.append("=== Robots Status ===\n");
@@ -255,8 +994,54 @@ public class Simulation {
         return info.toString();
     }
 
-    public static void main(String[] args) {
-        Simulation simulation = new Simulation();
+    public static void main(String[] args) throws IOException {
+        // Mode de stockage : java Simulation --storage fixed16|byte8|double
+        FireGrid.Storage storage = FireGrid.Storage.DOUBLE;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            if (args[i].equals("--storage")) {
+                storage = FireGrid.Storage.valueOf(args[i + 1].toUpperCase());
+            }
+        }
+        Simulation simulation = new Simulation(SimulationConfig.DEFAULT.withStorage(storage));
+        Path replayPath = null;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--storage":
+                    break;
+                // Reprendre depuis un checkpoint : java Simulation --resume fichier.ckpt
+                case "--resume":
+                    simulation.loadCheckpoint(Paths.get(args[i + 1]));
+                    break;
+                // Sauvegarder dans un checkpoint à la fermeture de la fenêtre (et par défaut
+                // depuis le bouton Save) : java Simulation --checkpoint fichier.ckpt
+                case "--checkpoint":
+                    simulation.setCheckpointPath(Paths.get(args[i + 1]));
+                    break;
+                // Enregistrer la simulation : java Simulation --record fichier.log
+                case "--record":
+                    simulation.startRecording(Paths.get(args[i + 1]));
+                    break;
+                // Exporter les trames d'intensité : java Simulation --export fichier.frames
+                case "--export":
+                    simulation.startFrameExport(Paths.get(args[i + 1]));
+                    break;
+                // Exporter toutes les trames, quitte à attendre le disque :
+                // java Simulation --export-wait fichier.frames
+                case "--export-wait":
+                    simulation.startFrameExport(Paths.get(args[i + 1]), true);
+                    break;
+                // Relire un enregistrement : java Simulation --replay fichier.log
+                case "--replay":
+                    replayPath = Paths.get(args[i + 1]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+            }
+        }
         simulation.createGUI();
+        if (replayPath != null) {
+            EventLogReplay replay = EventLogReplay.open(replayPath);
+            SwingUtilities.invokeLater(() -> simulation.gui.startReplay(replay));
+        }
     }
 }
\ No newline at end of file
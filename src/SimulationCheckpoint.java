@@ -0,0 +1,371 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.ShortBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format binaire de sauvegarde (checkpoint) de l'état complet d'une simulation.
+ *
+ * Le fichier est écrit et relu à travers des fichiers mappés en mémoire (NIO),
+ * par fenêtres de WINDOW_SIZE octets. Les grilles (tableaux plats ou tuiles allouées)
+ * sont transférées par copies en bloc, ce qui évite toute sérialisation objet.
+ *
+ * Structure du fichier (little-endian) :
+ *   en-tête   : MAGIC (long), VERSION (int)
+ *   simulation: pas de temps, survivants générés, état du générateur aléatoire, planning du mode
+ *               pas à pas (prochaines mises à jour, apparition des survivants, compteurs)
+ *   config    : dimensions, position du QG, limites, scénario, mode de stockage, moteur de propagation, matériaux
+ *   feu       : état aléatoire du feu, intensités
+ *   QG        : carte globale (tuiles allouées), cellules signalées par chaque robot et son dernier rapport
+ *   robots    : type, identifiant puis état propre à chaque robot
+ *   survivants, statistiques
+ *
+ * Les horodatages sont enregistrés comme des âges relatifs à l'instant de la
+ * sauvegarde, puis recalés sur l'horloge courante lors du chargement.
+ *
+ * Le même format sert en mémoire (Writer.inMemory, Reader.of) pour les messages entre processus
+ * de la simulation distribuée : un robot y voyage sous la forme de son checkpoint.
+ */
+public class SimulationCheckpoint {
+    // "FIRECKPT"
+    static final long MAGIC = 0x46495245434B5054L;
+    static final int VERSION = 11;
+    // Taille maximale d'une fenêtre mappée
+    private static final long WINDOW_SIZE = 64L * 1024 * 1024;
+
+    static final byte ROBOT_SCOUT = 1;
+    static final byte ROBOT_FIREFIGHTER = 2;
+
+    // Écrire un checkpoint : une première passe calcule la taille exacte du fichier,
+    // la seconde écrit les données dans le fichier mappé.
+    public static void save(Simulation source, Path path) throws IOException {
+        long now = source.getConfig().clock.currentTimeMillis();
+        Writer sizing = new Writer((FileChannel) null, now);
+        source.writeCheckpoint(sizing);
+        long size = sizing.position();
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             Writer out = new Writer(channel, now, size)) {
+            source.writeCheckpoint(out);
+        }
+    }
+
+    // Ouvrir un checkpoint en lecture, les horodatages étant recalés sur l'horloge donnée
+    public static Reader open(Path path, SimulationClock clock) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        Reader in = new Reader(channel, clock.currentTimeMillis());
+        if (in.getLong() != MAGIC) {
+            in.close();
+            throw new IOException("Not a simulation checkpoint: " + path);
+        }
+        int version = in.getInt();
+        if (version != VERSION) {
+            in.close();
+            throw new IOException("Unsupported checkpoint version: " + version);
+        }
+        return in;
+    }
+
+    // ====== Écriture ======
+    public static class Writer implements Closeable {
+        private final FileChannel channel;
+        private final long now;
+        private final long size;
+        // Fenêtre mappée du fichier, ou tampon en mémoire agrandi à la demande
+        private ByteBuffer window;
+        private long windowStart;
+        private long counted;
+        // Ni fichier ni mémoire : on ne fait que compter les octets
+        private final boolean sizing;
+
+        // Writer de dimensionnement si channel est null
+        private Writer(FileChannel channel, long now) {
+            this(channel, now, 0);
+        }
+
+        private Writer(FileChannel channel, long now, long size) {
+            this.channel = channel;
+            this.now = now;
+            this.size = size;
+            this.sizing = channel == null;
+        }
+
+        private Writer(ByteBuffer buffer, long now) {
+            this.channel = null;
+            this.now = now;
+            this.size = 0;
+            this.sizing = false;
+            this.window = buffer;
+        }
+
+        // Écriture en mémoire, dans un tampon qui grandit selon les besoins
+        public static Writer inMemory(long now) {
+            return new Writer(ByteBuffer.allocate(256).order(ByteOrder.LITTLE_ENDIAN), now);
+        }
+
+        // Octets écrits en mémoire depuis la création ou le dernier clear()
+        ByteBuffer written() {
+            return window.duplicate().order(ByteOrder.LITTLE_ENDIAN).flip();
+        }
+
+        // Réutiliser le tampon en mémoire pour un nouveau contenu
+        void clear() {
+            window.clear();
+        }
+
+        long position() {
+            if (sizing) {
+                return counted;
+            }
+            return window == null ? windowStart : windowStart + window.position();
+        }
+
+        // S'assurer qu'au moins 'bytes' octets sont disponibles dans la fenêtre courante
+        private void ensure(int bytes) throws IOException {
+            if (window != null && window.remaining() >= bytes) {
+                return;
+            }
+            if (channel == null) {
+                ByteBuffer grown = ByteBuffer.allocate(Math.max(window.capacity() * 2, window.position() + bytes))
+                    .order(ByteOrder.LITTLE_ENDIAN);
+                window.flip();
+                grown.put(window);
+                window = grown;
+                return;
+            }
+            long start = position();
+            long length = Math.min(WINDOW_SIZE, size - start);
+            if (length < bytes) {
+                throw new IOException("Checkpoint size mismatch at offset " + start);
+            }
+            if (window != null) {
+                ((MappedByteBuffer) window).force();
+            }
+            window = channel.map(FileChannel.MapMode.READ_WRITE, start, length);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowStart = start;
+        }
+
+        public void putByte(byte value) throws IOException {
+            if (sizing) { counted += 1; return; }
+            ensure(1);
+            window.put(value);
+        }
+
+        public void putBoolean(boolean value) throws IOException {
+            putByte((byte) (value ? 1 : 0));
+        }
+
+        public void putInt(int value) throws IOException {
+            if (sizing) { counted += 4; return; }
+            ensure(4);
+            window.putInt(value);
+        }
+
+        public void putLong(long value) throws IOException {
+            if (sizing) { counted += 8; return; }
+            ensure(8);
+            window.putLong(value);
+        }
+
+        public void putDouble(double value) throws IOException {
+            if (sizing) { counted += 8; return; }
+            ensure(8);
+            window.putDouble(value);
+        }
+
+        // Horodatage enregistré comme un âge relatif à la sauvegarde
+        public void putTime(long timeMillis) throws IOException {
+            putLong(now - timeMillis);
+        }
+
+        public void putString(String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            putInt(bytes.length);
+            for (byte b : bytes) {
+                putByte(b);
+            }
+        }
+
+        // Copie en bloc d'un tableau de doubles, éventuellement sur plusieurs fenêtres
+        public void putDoubles(double[] values) throws IOException {
+            if (sizing) { counted += 8L * values.length; return; }
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(8);
+                DoubleBuffer view = window.asDoubleBuffer();
+                int count = Math.min(view.remaining(), values.length - offset);
+                view.put(values, offset, count);
+                window.position(window.position() + count * 8);
+                offset += count;
+            }
+        }
+
+        public void putShorts(short[] values) throws IOException {
+            if (sizing) { counted += 2L * values.length; return; }
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(2);
+                ShortBuffer view = window.asShortBuffer();
+                int count = Math.min(view.remaining(), values.length - offset);
+                view.put(values, offset, count);
+                window.position(window.position() + count * 2);
+                offset += count;
+            }
+        }
+
+        public void putBytes(byte[] values) throws IOException {
+            if (sizing) { counted += values.length; return; }
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(1);
+                int count = Math.min(window.remaining(), values.length - offset);
+                window.put(values, offset, count);
+                offset += count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            if (channel != null && window != null) {
+                ((MappedByteBuffer) window).force();
+                window = null;
+            }
+        }
+    }
+
+    // ====== Lecture ======
+    public static class Reader implements Closeable {
+        private final FileChannel channel;
+        private final long now;
+        private final long size;
+        private ByteBuffer window;
+        private long windowStart;
+
+        private Reader(FileChannel channel, long now) throws IOException {
+            this.channel = channel;
+            this.now = now;
+            this.size = channel.size();
+        }
+
+        private Reader(ByteBuffer buffer, long now) {
+            this.channel = null;
+            this.now = now;
+            this.size = buffer.remaining();
+            this.window = buffer.order(ByteOrder.LITTLE_ENDIAN);
+        }
+
+        // Lecture des octets restants d'un tampon en mémoire
+        public static Reader of(ByteBuffer buffer, long now) {
+            return new Reader(buffer, now);
+        }
+
+        private long position() {
+            return window == null ? windowStart : windowStart + window.position();
+        }
+
+        private void ensure(int bytes) throws IOException {
+            if (window != null && window.remaining() >= bytes) {
+                return;
+            }
+            if (channel == null) {
+                throw new IOException("Truncated message: " + bytes + " bytes needed, " + window.remaining() + " left");
+            }
+            long start = position();
+            long length = Math.min(WINDOW_SIZE, size - start);
+            if (length < bytes) {
+                throw new IOException("Truncated checkpoint at offset " + start);
+            }
+            window = channel.map(FileChannel.MapMode.READ_ONLY, start, length);
+            window.order(ByteOrder.LITTLE_ENDIAN);
+            windowStart = start;
+        }
+
+        public byte getByte() throws IOException {
+            ensure(1);
+            return window.get();
+        }
+
+        public boolean getBoolean() throws IOException {
+            return getByte() != 0;
+        }
+
+        public int getInt() throws IOException {
+            ensure(4);
+            return window.getInt();
+        }
+
+        public long getLong() throws IOException {
+            ensure(8);
+            return window.getLong();
+        }
+
+        public double getDouble() throws IOException {
+            ensure(8);
+            return window.getDouble();
+        }
+
+        // Horodatage recalé sur l'horloge courante
+        public long getTime() throws IOException {
+            return now - getLong();
+        }
+
+        public String getString() throws IOException {
+            byte[] bytes = new byte[getInt()];
+            for (int i = 0; i < bytes.length; i++) {
+                bytes[i] = getByte();
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        public void getDoubles(double[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(8);
+                DoubleBuffer view = window.asDoubleBuffer();
+                int count = Math.min(view.remaining(), values.length - offset);
+                view.get(values, offset, count);
+                window.position(window.position() + count * 8);
+                offset += count;
+            }
+        }
+
+        public void getShorts(short[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(2);
+                ShortBuffer view = window.asShortBuffer();
+                int count = Math.min(view.remaining(), values.length - offset);
+                view.get(values, offset, count);
+                window.position(window.position() + count * 2);
+                offset += count;
+            }
+        }
+
+        public void getBytes(byte[] values) throws IOException {
+            int offset = 0;
+            while (offset < values.length) {
+                ensure(1);
+                int count = Math.min(window.remaining(), values.length - offset);
+                window.get(values, offset, count);
+                offset += count;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            window = null;
+            if (channel != null) {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,50 @@
+/**
+ * Horloge utilisée par une simulation (recharges, validité des rapports, statistiques).
+ *
+ * SYSTEM suit l'horloge murale et sert au mode temps réel (start/stop).
+ * Une horloge Manual n'avance que lorsqu'on la fait avancer : Simulation.step()
+ * la positionne sur l'instant de chaque mise à jour, ce qui rend l'exécution
+ * reproductible et indépendante de la vitesse de la machine.
+ */
+public interface SimulationClock {
+
+    long currentTimeMillis();
+
+    SimulationClock SYSTEM = System::currentTimeMillis;
+
+    static Manual manual() {
+        return new Manual(0);
+    }
+
+    // ====== Horloge manuelle ======
+    class Manual implements SimulationClock {
+        private final long start;
+        private volatile long now;
+
+        public Manual(long start) {
+            this.start = start;
+            this.now = start;
+        }
+
+        @Override
+        public long currentTimeMillis() {
+            return now;
+        }
+
+        // Avancer jusqu'à un instant donné (jamais en arrière)
+        public void advanceTo(long time) {
+            if (time > now) {
+                now = time;
+            }
+        }
+
+        public void advance(long millis) {
+            advanceTo(now + millis);
+        }
+
+        // Revenir à l'instant de départ, pour rejouer un épisode comme sur une horloge neuve
+        public void rewind() {
+            now = start;
+        }
+    }
+}
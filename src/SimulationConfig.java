@@ -0,0 +1,282 @@
+import java.io.IOException;
+
+/**
+ * Configuration propre à une instance de simulation.
+ *
+ * Toutes les dimensions et limites sont portées par l'instance et transmises aux
+ * constructeurs (feu, QG, robots) : plusieurs simulations de tailles différentes
+ * peuvent ainsi coexister dans la même JVM.
+ *
+ * L'horloge, la graine, les noyaux de calcul, le mode événementiel, l'exécution des robots en agents
+ * et la prévision du feu au QG sont des choix d'exécution : ils ne sont
+ * pas enregistrés dans les checkpoints et sont repris de la simulation qui recharge.
+ * Voir Simulation.builder() pour construire une configuration complète.
+ */
+public class SimulationConfig {
+    // Configuration par défaut (grille 24x24, QG au centre)
+    public static final SimulationConfig DEFAULT = new SimulationConfig(new Draft());
+
+    // Flux aléatoires dérivés de la graine
+    static final long STREAM_FIRE = 1;
+    static final long STREAM_SURVIVORS = 2;
+    static final long STREAM_FORECAST = 3;
+    static final long STREAM_ROBOTS = 16;
+    // Graines des régions d'une carte découpée (STREAM_REGIONS + numéro de la région)
+    static final long STREAM_REGIONS = 1L << 32;
+
+    // Dimensions de la grille
+    public final int gridWidth;
+    public final int gridHeight;
+    // Position du QG
+    public final int hqX;
+    public final int hqY;
+    // Nombre maximum de robots (éclaireurs compris)
+    public final int maxRobots;
+    // Nombre d'éclaireurs au démarrage
+    public final int initialScouts;
+    // Durée de validité des rapports de feu en millisecondes
+    public final long reportExpirationTime;
+    // Nombre maximum de survivants
+    public final int maxSurvivors;
+    // Distance autour du QG où aucun feu n'est allumé
+    public final int hqSafeDistance;
+    // Scénario de feu
+    public final FireScenario.Parameters scenario;
+    // Matériaux, vent et pente par cellule (null : scénario uniforme) ; seuil et maximum restent ceux du scénario
+    public final MaterialMap materials;
+    // Mode de stockage des intensités de la grille
+    public final FireGrid.Storage storage;
+    // Horloge de la simulation
+    public final SimulationClock clock;
+    // Graine des générateurs aléatoires (si seeded, sinon générateurs non reproductibles)
+    public final boolean seeded;
+    public final long seed;
+    // Noyaux de calcul de la grille de feu
+    public final FireKernels kernels;
+    // Moteur de propagation du feu (voir SpreadEngine.names())
+    public final String spreadEngine;
+    // Mode pas à pas événementiel (roue temporelle) plutôt que par scrutation périodique des robots
+    public final boolean eventDriven;
+    // Robots exécutés en agents parallèles communiquant par messages (voir AgentRuntime),
+    // avec une latence de messageLatency pas supplémentaires
+    public final boolean agentRuntime;
+    public final int messageLatency;
+    // Prévision du feu au QG sur forecastHorizon pas, par forecastRollouts tirages (0 : pas de prévision)
+    public final int forecastHorizon;
+    public final int forecastRollouts;
+
+    // Valeurs modifiables d'une configuration à construire : un champ ajouté à la configuration
+    // ne s'ajoute qu'ici et dans le constructeur, toutes les copies passent par un brouillon
+    static final class Draft {
+        int gridWidth = 24;
+        int gridHeight = 24;
+        int hqX = 12;
+        int hqY = 12;
+        int maxRobots = 7;
+        int initialScouts = 2;
+        long reportExpirationTime = 1000;
+        int maxSurvivors = 7;
+        int hqSafeDistance = 5;
+        FireScenario.Parameters scenario = FireScenario.CHEMICAL;
+        MaterialMap materials;
+        FireGrid.Storage storage = FireGrid.Storage.DOUBLE;
+        SimulationClock clock = SimulationClock.SYSTEM;
+        boolean seeded;
+        long seed;
+        FireKernels kernels = FireKernels.get();
+        String spreadEngine = "sequential";
+        boolean eventDriven;
+        boolean agentRuntime;
+        int messageLatency;
+        int forecastHorizon;
+        int forecastRollouts;
+
+        Draft() {
+        }
+
+        // Brouillon reprenant toutes les valeurs d'une configuration
+        Draft(SimulationConfig config) {
+            this.gridWidth = config.gridWidth;
+            this.gridHeight = config.gridHeight;
+            this.hqX = config.hqX;
+            this.hqY = config.hqY;
+            this.maxRobots = config.maxRobots;
+            this.initialScouts = config.initialScouts;
+            this.reportExpirationTime = config.reportExpirationTime;
+            this.maxSurvivors = config.maxSurvivors;
+            this.hqSafeDistance = config.hqSafeDistance;
+            this.scenario = config.scenario;
+            this.materials = config.materials;
+            this.storage = config.storage;
+            this.clock = config.clock;
+            this.seeded = config.seeded;
+            this.seed = config.seed;
+            this.kernels = config.kernels;
+            this.spreadEngine = config.spreadEngine;
+            this.eventDriven = config.eventDriven;
+            this.agentRuntime = config.agentRuntime;
+            this.messageLatency = config.messageLatency;
+            this.forecastHorizon = config.forecastHorizon;
+            this.forecastRollouts = config.forecastRollouts;
+        }
+    }
+
+    SimulationConfig(Draft draft) {
+        if (draft.gridWidth <= 0 || draft.gridHeight <= 0) {
+            throw new IllegalArgumentException("Invalid grid size " + draft.gridWidth + "x" + draft.gridHeight);
+        }
+        if (draft.hqX < 0 || draft.hqX >= draft.gridWidth || draft.hqY < 0 || draft.hqY >= draft.gridHeight) {
+            throw new IllegalArgumentException("HQ [" + draft.hqX + "," + draft.hqY + "] outside the grid");
+        }
+        if (draft.initialScouts < 0 || draft.initialScouts > draft.maxRobots) {
+            throw new IllegalArgumentException("Invalid robot limits: " + draft.initialScouts + " scouts for "
+                + draft.maxRobots + " robots");
+        }
+        MaterialMap materials = draft.materials;
+        if (materials != null && (materials.getWidth() != draft.gridWidth || materials.getHeight() != draft.gridHeight)) {
+            throw new IllegalArgumentException("Material map " + materials.getWidth() + "x" + materials.getHeight()
+                + " does not match the grid " + draft.gridWidth + "x" + draft.gridHeight);
+        }
+        if (!SpreadEngine.create(draft.spreadEngine).supports(draft.storage)) {
+            throw new IllegalArgumentException("Spread engine " + draft.spreadEngine + " does not support "
+                + draft.storage + " storage");
+        }
+        if (draft.messageLatency < 0) {
+            throw new IllegalArgumentException("Invalid message latency " + draft.messageLatency);
+        }
+        if (draft.forecastHorizon < 0 || draft.forecastRollouts < 0 || (draft.forecastHorizon == 0) != (draft.forecastRollouts == 0)) {
+            throw new IllegalArgumentException("Invalid forecast: horizon " + draft.forecastHorizon + ", "
+                + draft.forecastRollouts + " rollouts");
+        }
+        if (draft.agentRuntime && draft.eventDriven) {
+            throw new IllegalArgumentException("The agent runtime steps robots on a fixed tick, it cannot be event-driven");
+        }
+        this.gridWidth = draft.gridWidth;
+        this.gridHeight = draft.gridHeight;
+        this.hqX = draft.hqX;
+        this.hqY = draft.hqY;
+        this.maxRobots = draft.maxRobots;
+        this.initialScouts = draft.initialScouts;
+        this.reportExpirationTime = draft.reportExpirationTime;
+        this.maxSurvivors = draft.maxSurvivors;
+        this.hqSafeDistance = draft.hqSafeDistance;
+        this.scenario = draft.scenario;
+        this.materials = materials;
+        this.storage = draft.storage;
+        this.clock = draft.clock;
+        this.seeded = draft.seeded;
+        this.seed = draft.seed;
+        this.kernels = draft.kernels;
+        this.spreadEngine = draft.spreadEngine;
+        this.eventDriven = draft.eventDriven;
+        this.agentRuntime = draft.agentRuntime;
+        this.messageLatency = draft.messageLatency;
+        this.forecastHorizon = draft.forecastHorizon;
+        this.forecastRollouts = draft.forecastRollouts;
+    }
+
+    // Générateur aléatoire d'un composant ; chaque flux a sa propre graine dérivée
+    SimulationRandom newRandom(long stream) {
+        if (!seeded) {
+            return new SimulationRandom();
+        }
+        return new SimulationRandom(streamSeed(seed, stream));
+    }
+
+    // Graine d'un flux, aussi utilisée pour réensemencer un générateur existant
+    static long streamSeed(long seed, long stream) {
+        long mixed = (seed + stream) * 0x9E3779B97F4A7C15L;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    // Copie avec un autre mode de stockage
+    public SimulationConfig withStorage(FireGrid.Storage storage) {
+        Draft draft = new Draft(this);
+        draft.storage = storage;
+        return new SimulationConfig(draft);
+    }
+
+    // Copie avec une autre graine
+    public SimulationConfig withSeed(long seed) {
+        Draft draft = new Draft(this);
+        draft.seeded = true;
+        draft.seed = seed;
+        return new SimulationConfig(draft);
+    }
+
+    // Copie avec une autre horloge
+    public SimulationConfig withClock(SimulationClock clock) {
+        Draft draft = new Draft(this);
+        draft.clock = clock;
+        return new SimulationConfig(draft);
+    }
+
+    // Copie avec une autre taille de grille, le QG restant au centre ; refusée si la couche de
+    // matériaux n'a plus les dimensions de la grille
+    public SimulationConfig withGridSize(int width, int height) {
+        Draft draft = new Draft(this);
+        draft.gridWidth = width;
+        draft.gridHeight = height;
+        draft.hqX = width / 2;
+        draft.hqY = height / 2;
+        return new SimulationConfig(draft);
+    }
+
+    // Copie pour une région d'une carte découpée (voir RegionalSimulation) : grille, QG et matériaux
+    // de la région, horloge manuelle propre et graine dérivée de celle de la carte
+    SimulationConfig forRegion(int region, int width, int height, int hqX, int hqY, MaterialMap materials) {
+        Draft draft = new Draft(this);
+        draft.gridWidth = width;
+        draft.gridHeight = height;
+        draft.hqX = hqX;
+        draft.hqY = hqY;
+        draft.materials = materials;
+        draft.clock = SimulationClock.manual();
+        draft.seed = seeded ? streamSeed(seed, STREAM_REGIONS + region) : 0L;
+        return new SimulationConfig(draft);
+    }
+
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(gridWidth);
+        out.putInt(gridHeight);
+        out.putInt(hqX);
+        out.putInt(hqY);
+        out.putInt(maxRobots);
+        out.putInt(initialScouts);
+        out.putLong(reportExpirationTime);
+        out.putInt(maxSurvivors);
+        out.putInt(hqSafeDistance);
+        out.putDouble(scenario.maxIntensity);
+        out.putDouble(scenario.initialIntensity);
+        out.putDouble(scenario.intensityThreshold);
+        out.putDouble(scenario.spreadProbability);
+        out.putString(scenario.description);
+        out.putInt(storage.ordinal());
+        out.putString(spreadEngine);
+        out.putBoolean(materials != null);
+        if (materials != null) {
+            materials.writeCheckpoint(out);
+        }
+    }
+
+    // Relire une configuration ; les choix d'exécution sont repris de 'runtime'
+    static SimulationConfig readCheckpoint(SimulationCheckpoint.Reader in, SimulationConfig runtime) throws IOException {
+        Draft draft = new Draft(runtime);
+        draft.gridWidth = in.getInt();
+        draft.gridHeight = in.getInt();
+        draft.hqX = in.getInt();
+        draft.hqY = in.getInt();
+        draft.maxRobots = in.getInt();
+        draft.initialScouts = in.getInt();
+        draft.reportExpirationTime = in.getLong();
+        draft.maxSurvivors = in.getInt();
+        draft.hqSafeDistance = in.getInt();
+        draft.scenario = new FireScenario.Parameters(
+            in.getDouble(), in.getDouble(), in.getDouble(), in.getDouble(), in.getString());
+        draft.storage = FireGrid.Storage.values()[in.getInt()];
+        draft.spreadEngine = in.getString();
+        draft.materials = in.getBoolean() ? MaterialMap.readCheckpoint(in) : null;
+        return new SimulationConfig(draft);
+    }
+}
@@ -1,21 +1,50 @@
 import javax.swing.*;
 import java.awt.*;
+import java.awt.event.WindowAdapter;
+import java.awt.event.WindowEvent;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
 public class SimulationGUI extends JFrame {
+    // Intervalle du minuteur de relecture (ms)
+    private static final int REPLAY_TIMER_INTERVAL = 40;
+    private static final double[] REPLAY_SPEEDS = {0.25, 0.5, 1, 2, 4, 8, 16};
+
     private SimulationPanel simulationPanel;
     private JTextArea infoPanel;
-    private final int hqX;
-    private final int hqY;
+    private int hqX;
+    private int hqY;
     private JButton startButton;
     private JButton stopButton;
     private JButton resetButton;
+    private JButton replayButton;
+    private JButton saveButton;
     private Simulation simulation;
 
+    // ====== Mode relecture ======
+    private EventLogReplay replay;
+    private JPanel replayPanel;
+    private JButton playButton;
+    private JComboBox<String> speedBox;
+    private JSlider frameSlider;
+    private Timer replayTimer;
+    // Position de lecture dans le temps du journal (ms)
+    private double replayPosition;
+    private boolean updatingSlider;
+
     public SimulationGUI(int width, int height, int hqX, int hqY, Simulation simulation) {
         setTitle("Fire Spread Simulation");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        // Sauvegarde éventuelle (option --checkpoint) avant la sortie
+        addWindowListener(new WindowAdapter() {
+            @Override
+            public void windowClosing(WindowEvent e) {
+                simulation.saveCheckpointOnExit();
+            }
+        });
         
         this.hqX = hqX;
         this.hqY = hqY;
@@ -26,6 +55,11 @@ public class SimulationGUI extends JFrame {
         JPanel controlPanel = new JPanel();
         createControlButtons(controlPanel);
         mainPanel.add(controlPanel, BorderLayout.NORTH);
+
+        replayPanel = new JPanel();
+        createReplayControls(replayPanel);
+        replayPanel.setVisible(false);
+        mainPanel.add(replayPanel, BorderLayout.SOUTH);
         
         simulationPanel = new SimulationPanel(width, height);
         mainPanel.add(simulationPanel, BorderLayout.CENTER);
@@ -50,8 +84,10 @@ public class SimulationGUI extends JFrame {
         startButton = new JButton("Start");
         stopButton = new JButton("Stop");
         resetButton = new JButton("Reset");
+        replayButton = new JButton("Replay");
+        saveButton = new JButton("Save");
 
-        for (JButton button : new JButton[]{startButton, stopButton, resetButton}) {
+        for (JButton button : new JButton[]{startButton, stopButton, resetButton, replayButton, saveButton}) {
             button.setPreferredSize(new Dimension(100, 30));
             button.setFont(new Font("Arial", Font.BOLD, 14));
         }
@@ -62,6 +98,10 @@ public class SimulationGUI extends JFrame {
         stopButton.setForeground(Color.BLACK);
         resetButton.setBackground(new Color(30, 144, 255));
         resetButton.setForeground(Color.BLACK);
+        replayButton.setBackground(new Color(255, 215, 0));
+        replayButton.setForeground(Color.BLACK);
+        saveButton.setBackground(new Color(186, 85, 211));
+        saveButton.setForeground(Color.BLACK);
 
         startButton.addActionListener(e -> {
             simulation.start();
@@ -84,6 +124,37 @@ public class SimulationGUI extends JFrame {
             resetButton.setEnabled(true);
         });
 
+        replayButton.addActionListener(e -> {
+            if (replay != null) {
+                stopReplay();
+                return;
+            }
+            JFileChooser chooser = new JFileChooser();
+            if (chooser.showOpenDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    startReplay(EventLogReplay.open(chooser.getSelectedFile().toPath()));
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, "Cannot open event log: " + ex.getMessage(),
+                        "Replay", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
+        // Sauvegarder un checkpoint, à reprendre avec --resume
+        saveButton.addActionListener(e -> {
+            JFileChooser chooser = new JFileChooser();
+            Path current = simulation.getCheckpointPath();
+            chooser.setSelectedFile((current != null ? current : Paths.get("simulation.ckpt")).toAbsolutePath().toFile());
+            if (chooser.showSaveDialog(this) == JFileChooser.APPROVE_OPTION) {
+                try {
+                    simulation.saveCheckpoint(chooser.getSelectedFile().toPath());
+                } catch (IOException ex) {
+                    JOptionPane.showMessageDialog(this, "Cannot save checkpoint: " + ex.getMessage(),
+                        "Save", JOptionPane.ERROR_MESSAGE);
+                }
+            }
+        });
+
         stopButton.setEnabled(false);
         resetButton.setEnabled(false);
 
@@ -92,13 +163,185 @@ public class SimulationGUI extends JFrame {
         panel.add(stopButton);
         panel.add(Box.createHorizontalStrut(10));
         panel.add(resetButton);
+        panel.add(Box.createHorizontalStrut(10));
+        panel.add(replayButton);
+        panel.add(Box.createHorizontalStrut(10));
+        panel.add(saveButton);
+    }
+
+    // Créer les contrôles de relecture (lecture/pause, vitesse, position)
+    private void createReplayControls(JPanel panel) {
+        playButton = new JButton("Play");
+        playButton.setPreferredSize(new Dimension(100, 30));
+        playButton.setFont(new Font("Arial", Font.BOLD, 14));
+        playButton.addActionListener(e -> {
+            if (replayTimer.isRunning()) {
+                pauseReplay();
+            } else {
+                if (replay.getCurrentFrame() >= replay.getFrameCount() - 1) {
+                    showReplayFrame(0);
+                }
+                replayTimer.start();
+                playButton.setText("Pause");
+            }
+        });
+
+        String[] speeds = new String[REPLAY_SPEEDS.length];
+        for (int i = 0; i < speeds.length; i++) {
+            speeds[i] = "x" + REPLAY_SPEEDS[i];
+        }
+        speedBox = new JComboBox<>(speeds);
+        speedBox.setSelectedIndex(2);
+
+        frameSlider = new JSlider(0, 0, 0);
+        frameSlider.setPreferredSize(new Dimension(350, 30));
+        frameSlider.addChangeListener(e -> {
+            if (!updatingSlider && replay != null) {
+                showReplayFrame(frameSlider.getValue());
+            }
+        });
+
+        replayTimer = new Timer(REPLAY_TIMER_INTERVAL, e -> advanceReplay());
+
+        panel.add(playButton);
+        panel.add(Box.createHorizontalStrut(10));
+        panel.add(new JLabel("Speed:"));
+        panel.add(speedBox);
+        panel.add(Box.createHorizontalStrut(10));
+        panel.add(frameSlider);
+    }
+
+    // Passer en mode relecture : la simulation en direct est arrêtée
+    public void startReplay(EventLogReplay newReplay) {
+        if (newReplay.getFrameCount() == 0) {
+            JOptionPane.showMessageDialog(this, "The event log contains no frame.",
+                "Replay", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        simulation.stop();
+        this.replay = newReplay;
+        this.hqX = newReplay.getHqX();
+        this.hqY = newReplay.getHqY();
+        simulationPanel.resizeGrid(newReplay.getWidth(), newReplay.getHeight());
+
+        startButton.setEnabled(false);
+        stopButton.setEnabled(false);
+        resetButton.setEnabled(false);
+        saveButton.setEnabled(false);
+        replayButton.setText("Live");
+
+        updatingSlider = true;
+        frameSlider.setMaximum(newReplay.getFrameCount() - 1);
+        updatingSlider = false;
+        replayPanel.setVisible(true);
+        pack();
+        showReplayFrame(0);
+    }
+
+    // Revenir à la simulation en direct, laissée en pause par startReplay, là où elle en était
+    private void stopReplay() {
+        pauseReplay();
+        replay = null;
+        replayPanel.setVisible(false);
+        replayButton.setText("Replay");
+        this.hqX = simulation.getHeadQuarters().getX();
+        this.hqY = simulation.getHeadQuarters().getY();
+        FireGrid fireGrid = simulation.getFireGrid();
+        simulationPanel.resizeGrid(fireGrid.getWidth(), fireGrid.getHeight());
+        startButton.setEnabled(true);
+        stopButton.setEnabled(false);
+        resetButton.setEnabled(true);
+        saveButton.setEnabled(true);
+        pack();
+        simulation.refreshGUI();
+    }
+
+    private void pauseReplay() {
+        replayTimer.stop();
+        playButton.setText("Play");
+    }
+
+    // Avancer la relecture selon la vitesse choisie
+    private void advanceReplay() {
+        replayPosition += REPLAY_TIMER_INTERVAL * REPLAY_SPEEDS[speedBox.getSelectedIndex()];
+        int frame = replay.getCurrentFrame();
+        while (frame + 1 < replay.getFrameCount() && replay.getElapsedMillis(frame + 1) <= replayPosition) {
+            frame++;
+        }
+        if (frame != replay.getCurrentFrame()) {
+            showFrame(frame);
+        }
+        if (frame >= replay.getFrameCount() - 1) {
+            pauseReplay();
+        }
+    }
+
+    // Afficher une trame choisie par l'utilisateur
+    private void showReplayFrame(int frame) {
+        showFrame(frame);
+        replayPosition = replay.getElapsedMillis(frame);
+    }
+
+    private void showFrame(int frame) {
+        replay.seek(frame);
+        updatingSlider = true;
+        frameSlider.setValue(frame);
+        updatingSlider = false;
+
+        simulationPanel.updateState(replay.getIntensityMap(), replay.getBurningMask(), replay.getIntensityThreshold(), replay.getMaxIntensity());
+        simulationPanel.updateRobots(replay.getRobots());
+        simulationPanel.updateSurvivors(replay.getSurvivors());
+        infoPanel.setText(generateReplayInfo(frame));
+        simulationPanel.repaint();
+    }
+
+    private String generateReplayInfo(int frame) {
+        StringBuilder info = new StringBuilder();
+        info.append("=== Replay ===\n");
+        info.append("Frame: ").append(frame + 1).append("/").append(replay.getFrameCount()).append("\n");
+        info.append("Time Step: ").append(replay.getTimeStep(frame)).append("\n");
+        long seconds = replay.getElapsedMillis(frame) / 1000;
+        info.append(String.format("Elapsed: %02d:%02d\n", seconds / 60, seconds % 60));
+        info.append("Grid Size: ").append(replay.getWidth()).append("x").append(replay.getHeight()).append("\n\n");
+
+        info.append("=== Fire Status ===\n");
+        info.append("Active Fires: ").append(replay.getBurningCellCount()).append("\n\n");
+
+        info.append("=== Robots Status ===\n");
+        for (RobotSnapshot robot : replay.getRobots()) {
+            info.append(String.format("%s %d: [%d,%d]\n",
+                robot.isScout() ? "Scout" : "Firefighter",
+                robot.id + 1, robot.x, robot.y));
+        }
+        info.append("\n");
+
+        info.append("=== Survivors ===\n");
+        int rescued = 0, dead = 0;
+        List<Survivor> survivors = replay.getSurvivors();
+        for (Survivor survivor : survivors) {
+            if (survivor.isRescued()) rescued++;
+            if (survivor.isDead()) dead++;
+        }
+        info.append(String.format("- Total Survivors: %d\n", survivors.size()));
+        info.append(String.format("- Rescued: %d\n", rescued));
+        info.append(String.format("- Lost: %d\n", dead));
+        return info.toString();
     }
 
 
     // Mettre à jour l'affichage
-    public void updateDisplay(double[][] intensityMap, String info, List<Robot> robots, List<Survivor> survivors) {
-        simulationPanel.updateState(intensityMap);
-        simulationPanel.updateRobots(robots);
+    public void updateDisplay(double[][] intensityMap, CellMask burning, String info, List<Robot> robots, List<Survivor> survivors) {
+        // Ignorer les mises à jour en direct pendant la relecture
+        if (replay != null) {
+            return;
+        }
+        FireGrid fireGrid = simulation.getFireGrid();
+        List<RobotSnapshot> snapshots = new ArrayList<>(robots.size());
+        for (Robot robot : robots) {
+            snapshots.add(RobotSnapshot.of(robot));
+        }
+        simulationPanel.updateState(intensityMap, burning, fireGrid.getIntensityThreshold(), fireGrid.getMaxIntensity());
+        simulationPanel.updateRobots(snapshots);
         simulationPanel.updateSurvivors(survivors);
         infoPanel.setText(info);
         simulationPanel.repaint();
@@ -106,26 +349,38 @@ public class SimulationGUI extends JFrame {
 
     private class SimulationPanel extends JPanel {
         private double[][] intensityMap;
-        private FireGrid fireGrid;
-        private final int width;
-        private final int height;
+        // Cellules en feu à dessiner
+        private CellMask burning;
+        private double intensityThreshold;
+        private double maxIntensity;
+        private int width;
+        private int height;
         private final int cellSize = 20;
-        private List<Robot> robots = new ArrayList<>();
+        private List<RobotSnapshot> robots = new ArrayList<>();
         private List<Survivor> survivors = new ArrayList<>();
 
         public SimulationPanel(int width, int height) {
+            resizeGrid(width, height);
+            setBackground(Color.WHITE);
+        }
+
+        public void resizeGrid(int width, int height) {
             this.width = width;
             this.height = height;
+            this.intensityMap = null;
+            this.burning = null;
             setPreferredSize(new Dimension(width * cellSize, height * cellSize));
-            setBackground(Color.WHITE);
+            revalidate();
         }
 
-        public void updateState(double[][] intensityMap) {
+        public void updateState(double[][] intensityMap, CellMask burning, double intensityThreshold, double maxIntensity) {
             this.intensityMap = intensityMap;
-            this.fireGrid = simulation.getFireGrid();
+            this.burning = burning;
+            this.intensityThreshold = intensityThreshold;
+            this.maxIntensity = maxIntensity;
         }
 
-        public void updateRobots(List<Robot> robots) {
+        public void updateRobots(List<RobotSnapshot> robots) {
             this.robots = robots;
         }
 
@@ -134,11 +389,11 @@ public class SimulationGUI extends JFrame {
         }
 
         private Color getFireColor(double intensity) {
-            if (intensity <= fireGrid.getIntensityThreshold()) return Color.WHITE;
+            if (intensity <= intensityThreshold) return Color.WHITE;
 
             // Normaliser l'intensité pour obtenir une valeur entre 0 et 1
-            double normalized = (intensity - fireGrid.getIntensityThreshold()) / 
-                              (fireGrid.getMaxIntensity() - fireGrid.getIntensityThreshold());
+            double normalized = (intensity - intensityThreshold) / 
+                              (maxIntensity - intensityThreshold);
             
             // Définir les couleurs en fonction de l'intensité normalisée
             if (normalized < 0.3) {
@@ -177,15 +432,13 @@ public class SimulationGUI extends JFrame {
             }
 
             // Dessiner les cases en feu avec des couleurs basées sur l'intensité
-            if (intensityMap != null) {
-                for (int i = 0; i < width; i++) {
-                    for (int j = 0; j < height; j++) {
-                        if (intensityMap[i][j] > fireGrid.getIntensityThreshold()) {
-                            g2d.setColor(getFireColor(intensityMap[i][j]));
-                            g2d.fillRect(i * cellSize + 1, j * cellSize + 1, 
-                                       cellSize - 2, cellSize - 2);
-                        }
-                    }
+            if (intensityMap != null && burning != null) {
+                for (int index = burning.nextSetIndex(0); index >= 0; index = burning.nextSetIndex(index + 1)) {
+                    int i = index / height;
+                    int j = index - i * height;
+                    g2d.setColor(getFireColor(intensityMap[i][j]));
+                    g2d.fillRect(i * cellSize + 1, j * cellSize + 1,
+                               cellSize - 2, cellSize - 2);
                 }
             }
 
@@ -222,43 +475,43 @@ public class SimulationGUI extends JFrame {
             }
 
             // Dessiner le robot
-            for (Robot robot : robots) {
+            for (RobotSnapshot robot : robots) {
                 Color robotColor;
                 String robotStatus = "";
                 String statusText = "";
     
-                if (robot instanceof Scout) {
-                    if (robot.currentState == Robot.State.RECHARGING_ELECTRICITY) {
+                if (robot.isScout()) {
+                    if (robot.state == Robot.State.RECHARGING_ELECTRICITY) {
                         robotColor = Color.GRAY;
                         robotStatus = "Recharging electricity";
-                    } else if (robot.currentState == Robot.State.MOVING_TO_HQ) {
+                    } else if (robot.state == Robot.State.MOVING_TO_HQ) {
                         robotColor = Color.GRAY;
                         robotStatus = "need recharge";
                     } else {
                         robotColor = Color.BLUE;
                         robotStatus = "Scouting";
                     }
-                } else if (robot instanceof Firefighter) {
-                    if (robot.currentState == Robot.State.RECHARGING_ELECTRICITY && 
-                        ((Firefighter)robot).getWaterPercentage() < 100.0) {
+                } else if (robot.isFirefighter()) {
+                    if (robot.state == Robot.State.RECHARGING_ELECTRICITY && 
+                        robot.waterPercentage < 100) {
                         robotColor = Color.GRAY;
                         robotStatus = "Recharging & Refilling";
-                    } else if (robot.currentState == Robot.State.RECHARGING_ELECTRICITY) {
+                    } else if (robot.state == Robot.State.RECHARGING_ELECTRICITY) {
                         robotColor = Color.GRAY;
                         robotStatus = "Recharging electricity";
-                    } else if (robot.currentState == Robot.State.RECHARGING_WATER) {
+                    } else if (robot.state == Robot.State.RECHARGING_WATER) {
                         robotColor = Color.GRAY;
                         robotStatus = "Refilling water";
-                    } else if (robot.isAtHQ()) {
+                    } else if (robot.x == hqX && robot.y == hqY) {
                         robotColor = Color.LIGHT_GRAY;
                         robotStatus = "waiting...";
-                    } else if (robot.currentState == Robot.State.MOVING_TO_FIRE) {
+                    } else if (robot.state == Robot.State.MOVING_TO_FIRE) {
                         robotColor = Color.PINK;
                         robotStatus = "Moving to fire";
-                    } else if (robot.currentState == Robot.State.EXTINGUISHING) {
+                    } else if (robot.state == Robot.State.EXTINGUISHING) {
                         robotColor = Color.RED;
                         robotStatus = "Extinguishing fire";
-                    } else if (robot.currentState == Robot.State.MOVING_TO_HQ) {
+                    } else if (robot.state == Robot.State.MOVING_TO_HQ) {
                         robotColor = Color.GRAY;
                         robotStatus = "Returning to HQ";
                     } else {
@@ -270,8 +523,8 @@ public class SimulationGUI extends JFrame {
                 }
     
                 int robotSize = cellSize - 4;
-                int x = robot.getX() * cellSize + (cellSize - robotSize) / 2;
-                int y = robot.getY() * cellSize + (cellSize - robotSize) / 2;
+                int x = robot.x * cellSize + (cellSize - robotSize) / 2;
+                int y = robot.y * cellSize + (cellSize - robotSize) / 2;
     
                 g2d.setColor(robotColor);
                 g2d.fillOval(x, y, robotSize, robotSize);
@@ -284,22 +537,21 @@ public class SimulationGUI extends JFrame {
                 g2d.fillRect(x, barY, barWidth, barHeight);
 
                 g2d.setColor(Color.GREEN);
-                int energyWidth = (int)(barWidth * robot.getEnergyPercentage() / 100.0);
+                int energyWidth = (int)(barWidth * robot.energyPercentage / 100.0);
                 g2d.fillRect(x, barY, energyWidth, barHeight);
 
-                if (robot instanceof Firefighter) {
-                    Firefighter ff = (Firefighter) robot;
+                if (robot.isFirefighter()) {
                     g2d.setColor(Color.GRAY);
                     g2d.fillRect(x, barY + barHeight + 1, barWidth, barHeight);
 
                     g2d.setColor(Color.BLUE);
-                    int waterWidth = (int)(barWidth * ff.getWaterPercentage() / 100.0);
+                    int waterWidth = (int)(barWidth * robot.waterPercentage / 100.0);
                     g2d.fillRect(x, barY + barHeight + 1, waterWidth, barHeight);
                 }
         
                 g2d.setColor(Color.WHITE);
                 g2d.setFont(new Font("Arial", Font.BOLD, 10));
-                String robotNum = String.valueOf(robot.getId() + 1);
+                String robotNum = String.valueOf(robot.id + 1);
                 int textX_robot = x + (robotSize - fm.stringWidth(robotNum)) / 2;
                 int textY_robot = y + (robotSize + fm.getAscent()) / 2;
                 g2d.drawString(robotNum, textX_robot, textY_robot);
@@ -310,7 +562,7 @@ public class SimulationGUI extends JFrame {
                 int baseStatusY = y + robotSize + 12;
                 g2d.drawString(robotStatus, statusX, baseStatusY + 10);
 
-                if (robot instanceof Firefighter) {
+                if (robot.isFirefighter()) {
                     g2d.drawString(statusText, statusX, baseStatusY + 20);
                 }
             }
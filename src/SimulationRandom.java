@@ -0,0 +1,42 @@
+import java.util.Random;
+
+// Générateur aléatoire dont l'état interne peut être sauvegardé et restauré.
+// Reproduit exactement le générateur congruentiel de java.util.Random.
+@SuppressWarnings("serial")
+public class SimulationRandom extends Random {
+    private static final long MULTIPLIER = 0x5DEECE66DL;
+    private static final long ADDEND = 0xBL;
+    private static final long MASK = (1L << 48) - 1;
+
+    private long state;
+
+    public SimulationRandom() {
+        super();
+    }
+
+    public SimulationRandom(long seed) {
+        super(seed);
+    }
+
+    @Override
+    public synchronized void setSeed(long seed) {
+        super.setSeed(seed);
+        this.state = (seed ^ MULTIPLIER) & MASK;
+    }
+
+    @Override
+    protected synchronized int next(int bits) {
+        state = (state * MULTIPLIER + ADDEND) & MASK;
+        return (int) (state >>> (48 - bits));
+    }
+
+    // Récupérer l'état interne du générateur
+    public synchronized long getState() {
+        return state;
+    }
+
+    // Restaurer l'état interne du générateur
+    public synchronized void setState(long state) {
+        this.state = state & MASK;
+    }
+}
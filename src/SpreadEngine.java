@@ -0,0 +1,63 @@
+/**
+ * Moteur de propagation du feu : un pas de renforcement des cellules en feu puis de propagation
+ * aux 8 voisines, sur la grille de la simulation. Chaque simulation crée son moteur par son nom
+ * (option spreadEngine(...) du builder) ; un moteur garde ses tampons d'un pas à l'autre.
+ *
+ * "sequential" (par défaut) tire ses nombres aléatoires dans l'ordre des cellules et accepte tous
+ * les modes de stockage. Les autres moteurs suivent les mêmes règles, mais chaque tirage ne dépend
+ * que de (pas, cellule, tirage) (voir OrderFreeSpreadEngine) : le résultat ne dépend plus de l'ordre
+ * de parcours et ils doivent tous reproduire exactement "reference", ce que vérifie le banc
+ * différentiel SpreadEngineCheck, hors de la simulation.
+ */
+public interface SpreadEngine {
+    // Règles communes : renforcement d'une cellule en feu avec une probabilité de 30 %, de -5 à +15
+    double REINFORCE_PROBABILITY = 0.3;
+    double REINFORCE_MIN = -5;
+    double REINFORCE_RANGE = 20;
+    // Intensité transmise à une voisine : 60 % à 90 % de la source, au moins seuil + IGNITION_MARGIN
+    double TRANSFER_MIN = 0.6;
+    double TRANSFER_RANGE = 0.3;
+    double IGNITION_MARGIN = 10;
+
+    /**
+     * Un pas de propagation ; la grille reçoit les nouvelles intensités.
+     * @return true si au moins une cellule était en feu avant le pas
+     */
+    boolean spread(FireGrid grid, MaterialMap materials, SimulationRandom random);
+
+    boolean supports(FireGrid.Storage storage);
+
+    // La grille est la fenêtre d'origine (originX, originY) d'une carte de hauteur globalHeight
+    // (simulation par régions) : les tirages doivent être ceux de la carte entière. Retourne false
+    // si le moteur ne le permet pas (tirages dépendant de l'ordre de parcours de la grille)
+    default boolean place(int originX, int originY, int globalHeight) {
+        return false;
+    }
+
+    String getName();
+
+    // Noms des moteurs enregistrés, la référence des moteurs sans ordre en second
+    static String[] names() {
+        return new String[] {"sequential", "reference", "frontier", "tiled", "simd", "multires"};
+    }
+
+    // Créer un moteur par son nom
+    static SpreadEngine create(String name) {
+        switch (name) {
+            case "sequential":
+                return new SequentialSpreadEngine();
+            case "reference":
+                return new ReferenceSpreadEngine();
+            case "frontier":
+                return new FrontierSpreadEngine();
+            case "tiled":
+                return new TiledSpreadEngine();
+            case "simd":
+                return new SimdSpreadEngine(FireKernels.named("vector"));
+            case "multires":
+                return new MultiResolutionSpreadEngine();
+            default:
+                throw new IllegalArgumentException("Unknown spread engine: " + name);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+/**
+ * Vérification différentielle des moteurs de propagation sans ordre de tirage.
+ *
+ * Chaque moteur optimisé est avancé pas à pas à côté de "reference" sur des grilles identiques,
+ * remplies à partir d'une graine (feu plus ou moins dense, avec et sans matériaux, vent et pente),
+ * avec des dimensions qui laissent des bandes, des blocs et des vecteurs incomplets. Entre deux pas,
+ * quelques cellules sont éteintes ou allumées comme le feraient les robots et les nouveaux foyers. Après
+ * chaque pas, les intensités doivent être égales bit à bit et les nombres de cellules en feu égaux.
+ * À lancer après toute modification d'un moteur, sur autant de graines que voulu :
+ *   java -cp class SpreadEngineCheck [graines]
+ */
+public class SpreadEngineCheck {
+    private static final int STEPS = 12;
+    // Part maximale des cellules en feu dans la grille initiale, tirée par graine (feux épars et denses)
+    private static final double MAX_FIRE_DENSITY = 0.15;
+    // Écart au seuil des cellules proches de l'extinction
+    private static final double NEAR_THRESHOLD = 5;
+    // Écritures extérieures entre deux pas
+    private static final int WRITES_PER_STEP = 6;
+
+    private SpreadEngineCheck() {
+    }
+
+    // Comparer un moteur à la référence pour une graine ; retourne null s'ils concordent, sinon le premier écart
+    static String compare(SpreadEngine candidate, long seed) {
+        SimulationRandom random = new SimulationRandom(seed);
+        int width = 40 + random.nextInt(60);
+        int height = 20 + random.nextInt(60);
+        String mismatch = compare(new ReferenceSpreadEngine(), candidate, width, height, null, seed);
+        if (mismatch == null) {
+            MaterialMap materials = randomMaterials(width, height, random, random.nextDouble());
+            mismatch = compare(new ReferenceSpreadEngine(), candidate, width, height, materials, seed);
+        }
+        if (mismatch == null) {
+            // Coupe-feu partout : des foyers qui ne se propagent pas et finissent par s'éteindre
+            MaterialMap materials = randomMaterials(width, height, random, 1.0);
+            mismatch = compare(new ReferenceSpreadEngine(), candidate, width, height, materials, seed);
+        }
+        return mismatch;
+    }
+
+    static String compare(SpreadEngine reference, SpreadEngine candidate, int width, int height,
+                          MaterialMap materials, long seed) {
+        FireGrid expected = new FireGrid(width, height, FireScenario.CHEMICAL, FireGrid.Storage.DOUBLE, new ScalarFireKernels());
+        FireGrid actual = new FireGrid(width, height, FireScenario.CHEMICAL, FireGrid.Storage.DOUBLE, new ScalarFireKernels());
+        SimulationRandom cells = new SimulationRandom(seed);
+        double density = MAX_FIRE_DENSITY * cells.nextDouble() * cells.nextDouble();
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                if (cells.nextDouble() < density) {
+                    // Une cellule sur deux juste au-dessus du seuil : elle peut s'éteindre d'elle-même
+                    double intensity = cells.nextDouble() < 0.5
+                        ? FireScenario.CHEMICAL.intensityThreshold + cells.nextDouble() * NEAR_THRESHOLD
+                        : cells.nextDouble() * FireScenario.CHEMICAL.maxIntensity;
+                    expected.setIntensityAt(x, y, intensity);
+                    actual.setIntensityAt(x, y, intensity);
+                }
+            }
+        }
+
+        SimulationRandom expectedRandom = new SimulationRandom(seed + 1);
+        SimulationRandom actualRandom = new SimulationRandom(seed + 1);
+        SimulationRandom writes = new SimulationRandom(seed + 2);
+        String layout = width + "x" + height + (materials != null ? " with materials" : "") + ", seed " + seed;
+        for (int step = 0; step < STEPS; step++) {
+            boolean expectedActive = reference.spread(expected, materials, expectedRandom);
+            boolean actualActive = candidate.spread(actual, materials, actualRandom);
+            if (expectedActive != actualActive) {
+                return layout + ", step " + step + ": active " + actualActive + " instead of " + expectedActive;
+            }
+            if (expected.countBurningCells() != actual.countBurningCells()) {
+                return layout + ", step " + step + ": " + actual.countBurningCells() + " burning cells instead of "
+                    + expected.countBurningCells();
+            }
+            double[] a = expected.getCells();
+            double[] b = actual.getCells();
+            for (int cell = 0; cell < a.length; cell++) {
+                if (Double.doubleToLongBits(a[cell]) != Double.doubleToLongBits(b[cell])) {
+                    return layout + ", step " + step + ", cell (" + cell / height + ", " + cell % height + "): "
+                        + b[cell] + " instead of " + a[cell];
+                }
+            }
+            for (int k = 0; k < WRITES_PER_STEP; k++) {
+                int x = writes.nextInt(width);
+                int y = writes.nextInt(height);
+                double amount = writes.nextDouble() * 60;
+                double kind = writes.nextDouble();
+                if (kind < 0.5) {
+                    expected.decreaseIntensity(x, y, amount);
+                    actual.decreaseIntensity(x, y, amount);
+                } else {
+                    // Cellule chauffée sans s'embraser, ou nouveau foyer
+                    double threshold = FireScenario.CHEMICAL.intensityThreshold;
+                    double intensity = kind < 0.75 ? writes.nextDouble() * threshold : threshold + amount;
+                    expected.setIntensityAt(x, y, intensity);
+                    actual.setIntensityAt(x, y, intensity);
+                }
+            }
+        }
+        return null;
+    }
+
+    // Matériaux, altitudes et vent tirés au hasard, dont un coupe-feu dans la proportion donnée
+    private static MaterialMap randomMaterials(int width, int height, SimulationRandom random, double firebreakShare) {
+        FireScenario.Parameters firebreak = new FireScenario.Parameters(40.0, 20.0, 15.0, 0.0, "Coupe-feu");
+        MaterialMap materials = new MaterialMap(width, height, FireScenario.CHEMICAL, FireScenario.ORDINARY,
+            FireScenario.SMOLDERING, firebreak);
+        for (int x = 0; x < width; x++) {
+            for (int y = 0; y < height; y++) {
+                materials.setMaterial(x, y, random.nextDouble() < firebreakShare ? 3 : random.nextInt(3));
+                materials.setElevation(x, y, random.nextInt(MaterialMap.MAX_ELEVATION + 1));
+            }
+        }
+        materials.setWind(random.nextDouble() - 0.5, random.nextDouble() - 0.5, random.nextDouble());
+        return materials;
+    }
+
+    public static void main(String[] args) {
+        int seeds = args.length > 0 ? Integer.parseInt(args[0]) : 50;
+        boolean failed = false;
+        for (String name : SpreadEngine.names()) {
+            if (name.equals("sequential") || name.equals("reference")) continue;
+            SpreadEngine engine;
+            try {
+                engine = SpreadEngine.create(name);
+            } catch (IllegalArgumentException e) {
+                System.out.println(name + ": unavailable (" + e.getMessage() + ")");
+                continue;
+            }
+            String mismatch = null;
+            for (long seed = 1; seed <= seeds && mismatch == null; seed++) {
+                mismatch = compare(engine, seed);
+            }
+            System.out.println(name + ": " + (mismatch == null ? seeds + " seeds identical" : "MISMATCH " + mismatch));
+            failed |= mismatch != null;
+        }
+        if (failed) {
+            System.exit(1);
+        }
+    }
+}
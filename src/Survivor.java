@@ -1,3 +1,5 @@
+import java.io.IOException;
+
 public class Survivor {
     private static final double DEATH_THRESHOLD = 80.0;
     private static final double RESCUE_THRESHOLD = 20.0;
@@ -15,6 +17,13 @@ public class Survivor {
         this.dead = false;
     }
 
+    // Survivant reconstruit lors de la relecture d'un journal
+    Survivor(int id, int x, int y, boolean rescued, boolean dead) {
+        this(id, x, y);
+        this.rescued = rescued;
+        this.dead = dead;
+    }
+
     // Mettre à jour le statut du survivant
     public void updateStatus(double fireIntensity) {
         if (!rescued && !dead) {
@@ -28,6 +37,22 @@ public class Survivor {
         }
     }
 
+    // ====== Checkpoint ======
+    void writeCheckpoint(SimulationCheckpoint.Writer out) throws IOException {
+        out.putInt(id);
+        out.putInt(x);
+        out.putInt(y);
+        out.putBoolean(rescued);
+        out.putBoolean(dead);
+    }
+
+    static Survivor readCheckpoint(SimulationCheckpoint.Reader in) throws IOException {
+        Survivor survivor = new Survivor(in.getInt(), in.getInt(), in.getInt());
+        survivor.rescued = in.getBoolean();
+        survivor.dead = in.getBoolean();
+        return survivor;
+    }
+
     // Getters et Setters
     public int getId() { return id; }
     public int getX() { return x; }
@@ -0,0 +1,76 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Moteur parallèle : la grille est découpée en bandes de TILE_COLUMNS colonnes calculées en
+ * parallèle (pool fork/join courant, ou pool commun). Une bande n'écrit que ses propres cellules,
+ * sans verrou : ses sources en feu propagent vers ses colonnes intérieures, dont toutes les sources
+ * sont dans la bande, et chaque cellule de ses deux colonnes de bord, qui a des sources dans la
+ * bande voisine, calcule sa propre intensité depuis ses sources (gather).
+ */
+public class TiledSpreadEngine extends OrderFreeSpreadEngine {
+    static final int TILE_COLUMNS = 32;
+
+    private CellMask burning;
+
+    @Override
+    boolean step(FireGrid grid) {
+        // Masque reconstruit si besoin avant le découpage : les bandes ne font que le lire
+        burning = grid.getBurningMask();
+        int tiles = (width + TILE_COLUMNS - 1) / TILE_COLUMNS;
+        boolean active;
+        if (tiles == 1) {
+            active = spreadColumns(0, width);
+        } else {
+            List<ForkJoinTask<Boolean>> tasks = new ArrayList<>(tiles);
+            for (int tile = 0; tile < tiles; tile++) {
+                int x0 = tile * TILE_COLUMNS;
+                int x1 = Math.min(x0 + TILE_COLUMNS, width);
+                tasks.add(ForkJoinTask.adapt(() -> spreadColumns(x0, x1)));
+            }
+            ForkJoinTask.invokeAll(tasks);
+            active = false;
+            for (ForkJoinTask<Boolean> task : tasks) {
+                active |= task.join();
+            }
+        }
+        burning = null;
+        return active;
+    }
+
+    // Calculer les colonnes [x0, x1[ ; retourne true si l'une de leurs cellules était en feu
+    private boolean spreadColumns(int x0, int x1) {
+        int from = x0 * height;
+        int to = x1 * height;
+        System.arraycopy(current, from, next, from, to - from);
+        int first = burning.nextSetIndex(from, to);
+        for (int cell = first; cell >= 0; cell = burning.nextSetIndex(cell + 1, to)) {
+            next[cell] = Math.min(maxIntensity, current[cell] + reinforcement(cell, current[cell]));
+        }
+        for (int source = first; source >= 0; source = burning.nextSetIndex(source + 1, to)) {
+            spreadFrom(source, x0 + 1, x1 - 2);
+        }
+        gatherColumn(x0);
+        if (x1 - 1 > x0) {
+            gatherColumn(x1 - 1);
+        }
+        return first >= 0;
+    }
+
+    // Colonne de bord : chaque cellule sous le seuil essaie ses sources, si l'une des colonnes x - 1 à x + 1 brûle
+    private void gatherColumn(int x) {
+        int from = Math.max(x - 1, 0) * height;
+        if (burning.nextSetIndex(from, Math.min(x + 2, width) * height) < 0) {
+            return;
+        }
+        for (int cell = x * height; cell < (x + 1) * height; cell++) {
+            next[cell] = gather(cell, next[cell]);
+        }
+    }
+
+    @Override
+    public String getName() {
+        return "tiled";
+    }
+}
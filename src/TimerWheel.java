@@ -0,0 +1,231 @@
+/**
+ * Roue temporelle hiérarchique pour le mode événementiel de la simulation.
+ *
+ * LEVELS niveaux de 64 cases : un minuteur est rangé au niveau le plus bas dont l'étendue
+ * couvre son échéance, puis redescendu d'un niveau (cascade) quand la roue atteint le début
+ * de sa case. Un masque d'occupation par niveau permet de sauter directement à la prochaine
+ * case non vide : le coût ne dépend que du nombre d'événements, pas du temps écoulé.
+ *
+ * Les minuteurs d'une même échéance se déclenchent dans l'ordre de programmation.
+ * Un minuteur est réutilisable : schedule() le reprogramme, cancel() l'annule.
+ */
+public class TimerWheel {
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int SLOT_MASK = SLOTS - 1;
+    private static final int LEVELS = 5;
+    // Étendue maximale représentable (au-delà, le minuteur est rangé au dernier niveau puis replacé)
+    private static final long MAX_SPAN = 1L << (SLOT_BITS * LEVELS);
+
+    // Action déclenchée à l'échéance, avec l'instant de l'échéance
+    public interface Task {
+        void run(long time);
+    }
+
+    public static final class Timer {
+        private final Task task;
+        private long deadline;
+        private Timer prev;
+        private Timer next;
+        // Liste qui contient le minuteur (null si non programmé)
+        private TimerList list;
+
+        private Timer(Task task) {
+            this.task = task;
+        }
+
+        public boolean isScheduled() {
+            return list != null;
+        }
+    }
+
+    // Liste doublement chaînée FIFO
+    private static final class TimerList {
+        private final int level;
+        private final int slot;
+        private Timer head;
+        private Timer tail;
+
+        TimerList(int level, int slot) {
+            this.level = level;
+            this.slot = slot;
+        }
+    }
+
+    private final long tickMillis;
+    private long origin;
+    private final TimerList[][] wheels = new TimerList[LEVELS][SLOTS];
+    private final long[] occupied = new long[LEVELS];
+    // Minuteurs échus à l'instant courant
+    private final TimerList due = new TimerList(-1, 0);
+    private long currentTick;
+    private int size;
+
+    public TimerWheel(long tickMillis, long startTime) {
+        this.tickMillis = tickMillis;
+        this.origin = startTime;
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                wheels[level][slot] = new TimerList(level, slot);
+            }
+        }
+    }
+
+    public Timer newTimer(Task task) {
+        return new Timer(task);
+    }
+
+    // Programmer (ou reprogrammer) un minuteur ; une échéance passée le déclenche au prochain fireDue()
+    public void schedule(Timer timer, long time) {
+        cancel(timer);
+        long offset = time - origin;
+        timer.deadline = offset <= 0 ? 0 : (offset + tickMillis - 1) / tickMillis;
+        place(timer);
+        size++;
+    }
+
+    public void cancel(Timer timer) {
+        if (timer.list != null) {
+            unlink(timer);
+            size--;
+        }
+    }
+
+    // Annuler tous les minuteurs et repartir de l'instant donné, même antérieur, comme une roue neuve
+    // (les objets Timer restent utilisables)
+    public void clear(long startTime) {
+        for (int level = 0; level < LEVELS; level++) {
+            for (int slot = 0; slot < SLOTS; slot++) {
+                clearList(wheels[level][slot]);
+            }
+            occupied[level] = 0;
+        }
+        clearList(due);
+        size = 0;
+        origin = startTime;
+        currentTick = 0;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Avancer jusqu'au prochain instant portant des minuteurs échus, sans les déclencher.
+    // Retourne cet instant, ou Long.MAX_VALUE si la roue est vide.
+    public long advanceToNext() {
+        while (due.head == null) {
+            if (size == 0) {
+                return Long.MAX_VALUE;
+            }
+            jump();
+        }
+        return origin + currentTick * tickMillis;
+    }
+
+    // Déclencher tous les minuteurs échus à l'instant courant, y compris ceux programmés entre-temps
+    public void fireDue() {
+        long time = origin + currentTick * tickMillis;
+        while (due.head != null) {
+            Timer timer = due.head;
+            unlink(timer);
+            size--;
+            timer.task.run(time);
+        }
+    }
+
+    // Sauter à la prochaine case non vide (ou frontière de cascade) et y redescendre les minuteurs
+    private void jump() {
+        long target = Long.MAX_VALUE;
+        for (int level = 0; level < LEVELS; level++) {
+            int shift = SLOT_BITS * level;
+            int current = (int) ((currentTick >>> shift) & SLOT_MASK);
+            long ahead = current == SLOT_MASK ? 0 : occupied[level] & (-1L << (current + 1));
+            long rotationStart = (currentTick >>> (shift + SLOT_BITS)) << (shift + SLOT_BITS);
+            if (ahead != 0) {
+                target = Math.min(target, rotationStart + ((long) Long.numberOfTrailingZeros(ahead) << shift));
+            } else if (occupied[level] != 0) {
+                // Cases de la rotation suivante : passer par la frontière du niveau supérieur
+                target = Math.min(target, rotationStart + (1L << (shift + SLOT_BITS)));
+            }
+        }
+        currentTick = target;
+
+        // Cascade du niveau le plus haut vers le plus bas aux frontières atteintes
+        for (int level = LEVELS - 1; level >= 1; level--) {
+            int shift = SLOT_BITS * level;
+            if ((currentTick & ((1L << shift) - 1)) == 0) {
+                cascade(wheels[level][(int) ((currentTick >>> shift) & SLOT_MASK)]);
+            }
+        }
+        cascade(wheels[0][(int) (currentTick & SLOT_MASK)]);
+    }
+
+    private void cascade(TimerList list) {
+        Timer timer = list.head;
+        while (timer != null) {
+            Timer next = timer.next;
+            unlink(timer);
+            place(timer);
+            timer = next;
+        }
+    }
+
+    private void place(Timer timer) {
+        long delta = timer.deadline - currentTick;
+        if (delta <= 0) {
+            append(due, timer);
+            return;
+        }
+        long slotDeadline = delta < MAX_SPAN ? timer.deadline : currentTick + MAX_SPAN - 1;
+        delta = slotDeadline - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (SLOT_BITS * (level + 1)))) {
+            level++;
+        }
+        int slot = (int) ((slotDeadline >>> (SLOT_BITS * level)) & SLOT_MASK);
+        append(wheels[level][slot], timer);
+        occupied[level] |= 1L << slot;
+    }
+
+    private void append(TimerList list, Timer timer) {
+        timer.list = list;
+        timer.next = null;
+        timer.prev = list.tail;
+        if (list.tail == null) {
+            list.head = timer;
+        } else {
+            list.tail.next = timer;
+        }
+        list.tail = timer;
+    }
+
+    private void unlink(Timer timer) {
+        TimerList list = timer.list;
+        if (timer.prev == null) {
+            list.head = timer.next;
+        } else {
+            timer.prev.next = timer.next;
+        }
+        if (timer.next == null) {
+            list.tail = timer.prev;
+        } else {
+            timer.next.prev = timer.prev;
+        }
+        timer.prev = null;
+        timer.next = null;
+        timer.list = null;
+        if (list.head == null && list.level >= 0) {
+            occupied[list.level] &= ~(1L << list.slot);
+        }
+    }
+
+    private void clearList(TimerList list) {
+        while (list.head != null) {
+            unlink(list.head);
+        }
+    }
+}